@@ -0,0 +1,141 @@
+/*******************************************************************************
+ * Copyright (c) 2016 AT&T Intellectual Property. All rights reserved.
+ *******************************************************************************/
+package com.att.ajsc.benchmarks;
+
+import groovy.json.JsonBuilder;
+import groovy.json.JsonSlurper;
+import groovy.lang.Closure;
+import groovy.lang.MetaProperty;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import ajsc.AjscMetaDataUtil;
+import ajsc.ComputeRoute;
+import ajsc.DeploymentPackage;
+
+/**
+ * Serialization cost of the metadata stored by the persistence service, over
+ * a corpus of routes and deployment packages. The legacy benchmarks repeat
+ * what AjscMetaDataUtil did before the compiled codecs: property lookup,
+ * a map per object and JsonBuilder/JsonSlurper.
+ *
+ * java -jar target/benchmarks.jar AjscMetaDataUtilBenchmark -prof gc
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AjscMetaDataUtilBenchmark {
+
+	private static final int ROUTES = 50;
+	private static final int PACKAGES = 10;
+
+	private final List<Object> objects = new ArrayList<Object>();
+	private final List<String> documents = new ArrayList<String>();
+
+	@Setup
+	public void setup() {
+		StringBuilder definition = new StringBuilder("<routes xmlns=\"http://camel.apache.org/schema/spring\">\n");
+		for (int i = 0; i < 10; i++) {
+			definition.append("\t<route id=\"r").append(i).append("\">\n\t\t<from uri=\"servlet:/ns/v1/items/")
+					.append(i).append("?matchOnUriPrefix=true\"/>\n\t\t<to uri=\"bean:itemService?method=get\"/>\n\t</route>\n");
+		}
+		definition.append("</routes>");
+		for (int i = 0; i < ROUTES; i++) {
+			ComputeRoute route = new ComputeRoute();
+			route.setNamespace("ns" + (i % 5));
+			route.setRouteName("route" + i);
+			route.setRouteVersion("1.0." + i);
+			route.setRouteDefinition(definition.toString());
+			route.setContextId("ctx" + (i % 5));
+			objects.add(route);
+		}
+		for (int i = 0; i < PACKAGES; i++) {
+			DeploymentPackage dp = new DeploymentPackage();
+			dp.setNamespace("ns" + i);
+			dp.setNamespaceVersion("1.0");
+			dp.setUserId("user" + i);
+			dp.setDescription("deployment package " + i);
+			dp.setDateCreated(new Date());
+			dp.setLastUpdated(new Date());
+			objects.add(dp);
+		}
+		for (Object obj : objects) {
+			documents.add((String) AjscMetaDataUtil.asJson(obj));
+		}
+	}
+
+	@Benchmark
+	public void asJson(Blackhole bh) {
+		for (Object obj : objects) {
+			bh.consume(AjscMetaDataUtil.asJson(obj));
+		}
+	}
+
+	@Benchmark
+	public void fromJson(Blackhole bh) {
+		for (int i = 0; i < documents.size(); i++) {
+			bh.consume(AjscMetaDataUtil.fromJson(objects.get(i).getClass(), documents.get(i)));
+		}
+	}
+
+	/**
+	 * A stored object read back and written again, as on an update.
+	 */
+	@Benchmark
+	public void roundTrip(Blackhole bh) {
+		for (Object obj : objects) {
+			String json = (String) AjscMetaDataUtil.asJson(obj);
+			bh.consume(AjscMetaDataUtil.asJson(AjscMetaDataUtil.fromJson(obj.getClass(), json)));
+		}
+	}
+
+	@Benchmark
+	public void legacyAsJson(Blackhole bh) {
+		for (Object obj : objects) {
+			Map<String, Object> values = new LinkedHashMap<String, Object>();
+			values.put("class", obj.getClass().getName());
+			for (MetaProperty property : dataFields(obj.getClass())) {
+				values.put(property.getName(), property.getProperty(obj));
+			}
+			bh.consume(new JsonBuilder(values).toString());
+		}
+	}
+
+	/**
+	 * Parsing only, without setting the properties: a lower bound of the
+	 * legacy fromJson.
+	 */
+	@Benchmark
+	public void legacyParse(Blackhole bh) {
+		for (int i = 0; i < documents.size(); i++) {
+			dataFields(objects.get(i).getClass());
+			bh.consume(new JsonSlurper().parseText(documents.get(i)));
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private static List<MetaProperty> dataFields(Class<?> type) {
+		return ((Closure<List<MetaProperty>>) AjscMetaDataUtil.getDataFields()).call(type);
+	}
+}
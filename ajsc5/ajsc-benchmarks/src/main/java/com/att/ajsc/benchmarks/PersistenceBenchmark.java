@@ -0,0 +1,151 @@
+/*******************************************************************************
+ * Copyright (c) 2016 AT&T Intellectual Property. All rights reserved.
+ *******************************************************************************/
+package com.att.ajsc.benchmarks;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import ajsc.AjscMetaDataUtil;
+import ajsc.ComputeRoute;
+import ajsc.FilePersistenceService;
+
+/**
+ * FilePersistenceService over a map of routes, stored under a temporary
+ * directory by each of the adapters: single entry store and fetch, the
+ * bulk fetch of the map and the ComputeRoute finders on equal fields
+ * (findAllByNamespaceAndRouteVersion) and on a pattern
+ * (findAllByNamespaceLike). With indexes=false both finders scan the map,
+ * the baseline of the IndexingDBAdapter lookups of indexes=true.
+ *
+ * java -jar target/benchmarks.jar PersistenceBenchmark -p entries=1000 -p adapter=log
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PersistenceBenchmark {
+
+	private static final int NAMESPACES = 10;
+
+	@Param({ "100", "1000", "10000" })
+	public int entries;
+
+	@Param({ "file", "log", "mvstore" })
+	public String adapter;
+
+	@Param({ "false", "true" })
+	public boolean indexes;
+
+	private File storage;
+	private FilePersistenceService service;
+	private String mapName;
+	private final List<String> keys = new ArrayList<String>();
+	private final List<String> documents = new ArrayList<String>();
+
+	@State(Scope.Thread)
+	public static class Cursor {
+		private final Random random = new Random(42);
+
+		int next(int bound) {
+			return random.nextInt(bound);
+		}
+	}
+
+	@Setup(Level.Trial)
+	public void setup() throws Exception {
+		storage = Files.createTempDirectory("ajscBenchmark").toFile();
+		System.setProperty("AJSC_PERSISTENCE_ADAPTER", adapter);
+		System.setProperty("AJSC_PERSISTENCE_INDEXES", String.valueOf(indexes));
+		service = new FilePersistenceService();
+		service.setStoragePath(storage.getPath() + "/data/");
+		ComputeRoute.setRiakService(service);
+		mapName = String.valueOf(ComputeRoute.getMAPNAME());
+
+		String definition = "<routes xmlns=\"http://camel.apache.org/schema/spring\">\n\t<route>\n"
+				+ "\t\t<from uri=\"servlet:/ns/v1/items?matchOnUriPrefix=true\"/>\n"
+				+ "\t\t<to uri=\"bean:itemService?method=get\"/>\n\t</route>\n</routes>";
+		for (int i = 0; i < entries; i++) {
+			ComputeRoute route = new ComputeRoute();
+			route.setNamespace("ns" + (i % NAMESPACES));
+			route.setRouteName("route" + i);
+			route.setRouteVersion(String.valueOf(i % 3));
+			route.setRouteDefinition(definition);
+			route.setContextId("ctx" + (i % NAMESPACES));
+			route.setId(route.generateId());
+			String document = (String) AjscMetaDataUtil.asJson(route);
+			service.putMapEntry(mapName, route.getId(), document);
+			keys.add(route.getId());
+			documents.add(document);
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws Exception {
+		service.shutdown();
+		ComputeRoute.setRiakService(null);
+		System.clearProperty("AJSC_PERSISTENCE_ADAPTER");
+		System.clearProperty("AJSC_PERSISTENCE_INDEXES");
+		deleteDir(storage);
+	}
+
+	/**
+	 * Rewrites an existing entry, so the map keeps its size.
+	 */
+	@Benchmark
+	public void store(Cursor cursor) {
+		int i = cursor.next(entries);
+		service.putMapEntry(mapName, keys.get(i), documents.get(i));
+	}
+
+	@Benchmark
+	public String fetch(Cursor cursor) {
+		return service.getMapEntry(mapName, keys.get(cursor.next(entries)));
+	}
+
+	@Benchmark
+	public void bulkFetch(Blackhole bh) {
+		bh.consume(service.getAllEntries(mapName));
+	}
+
+	@Benchmark
+	public void findEqual(Cursor cursor, Blackhole bh) {
+		bh.consume(ComputeRoute.findAllByNamespaceAndRouteVersion("ns" + cursor.next(NAMESPACES), "1"));
+	}
+
+	@Benchmark
+	public void findLike(Cursor cursor, Blackhole bh) {
+		bh.consume(ComputeRoute.findAllByNamespaceLike("ns" + cursor.next(NAMESPACES)));
+	}
+
+	private static void deleteDir(File dir) {
+		File[] children = dir.listFiles();
+		if (children != null) {
+			for (File child : children) {
+				deleteDir(child);
+			}
+		}
+		dir.delete();
+	}
+}
@@ -0,0 +1,143 @@
+/*******************************************************************************
+ * Copyright (c) 2016 AT&T Intellectual Property. All rights reserved.
+ *******************************************************************************/
+package com.att.ajsc.benchmarks;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ajsc.util.AjscTemplateEngine;
+import ajsc.utils.PropertyTemplate;
+
+/**
+ * Property replacement in a route XML of the given number of routes, each
+ * with placeholders, against properties the size of System.properties. The
+ * legacy benchmark repeats in Java the reader that propertyReplace used
+ * before the compiled templates: a lower bound of the Groovy original.
+ *
+ * java -jar target/benchmarks.jar PropertyReplaceBenchmark -prof gc
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PropertyReplaceBenchmark {
+
+	@Param({ "10", "100", "1000" })
+	public int routes;
+
+	private final Properties properties = new Properties();
+	private String xml;
+
+	@Setup
+	public void setup() {
+		for (int i = 0; i < 100; i++) {
+			properties.setProperty("ajsc.property." + i, "value" + i);
+		}
+		properties.setProperty("service.host", "localhost");
+		properties.setProperty("service.port", "8080");
+		StringBuilder definition = new StringBuilder("<routes xmlns=\"http://camel.apache.org/schema/spring\">\r\n");
+		for (int i = 0; i < routes; i++) {
+			definition.append("\t<route id=\"r").append(i).append("\">\r\n\t\t<from uri=\"servlet:/ns/v1/items/").append(i)
+					.append("?matchOnUriPrefix=true\"/>\r\n\t\t<setHeader headerName=\"source\"><simple>${header.id}</simple></setHeader>")
+					.append("\r\n\t\t<to uri=\"http4://{{service.host}}:{{service.port}}/items/").append(i)
+					.append("?timeout={{ajsc.property.").append(i % 100).append("}}\"/>\r\n\t</route>\r\n");
+		}
+		xml = definition.append("</routes>").toString();
+	}
+
+	/**
+	 * A route reloaded with the same XML.
+	 */
+	@Benchmark
+	public Object propertyReplace() throws IOException {
+		return AjscTemplateEngine.propertyReplace(xml, properties);
+	}
+
+	/**
+	 * A route loaded for the first time.
+	 */
+	@Benchmark
+	public String compileAndRender() {
+		return PropertyTemplate.compile(xml).render(properties);
+	}
+
+	@Benchmark
+	public String legacyPropertyReplace() throws IOException {
+		StringReader reader = new StringReader(xml);
+		StringWriter sw = new StringWriter();
+		int c;
+		while ((c = reader.read()) != -1) {
+			if (c == '{') {
+				reader.mark(1);
+				c = reader.read();
+				if (c != '{') {
+					sw.write('{');
+					reader.reset();
+				} else {
+					reader.mark(1);
+					legacyProcessProperty(reader, sw, properties);
+				}
+				continue;
+			}
+			if (c == '\n' || c == '\r') {
+				if (c == '\r') {
+					reader.mark(1);
+					c = reader.read();
+					if (c != '\n') {
+						reader.reset();
+					}
+				}
+				sw.write("\n");
+				continue;
+			}
+			sw.write(c);
+		}
+		return sw.toString();
+	}
+
+	private static void legacyProcessProperty(Reader reader, StringWriter sw, Map<Object, Object> map) throws IOException {
+		int c;
+		StringWriter propertyWriter = new StringWriter();
+		while ((c = reader.read()) != -1) {
+			if (c == '}') {
+				reader.mark(1);
+				c = reader.read();
+				if (c != '}') {
+					sw.write('}');
+					propertyWriter.write('}');
+					reader.reset();
+				} else {
+					break;
+				}
+			} else if (c != '\n' && c != '\r') {
+				propertyWriter.write(c);
+			}
+		}
+		String property = propertyWriter.toString();
+		if (map.containsKey(property)) {
+			sw.write((String) map.get(property));
+		} else {
+			sw.write("{{" + property + "}}");
+		}
+	}
+}
@@ -0,0 +1,98 @@
+/*******************************************************************************
+ * Copyright (c) 2016 AT&T Intellectual Property. All rights reserved.
+ *******************************************************************************/
+package com.att.ajsc.benchmarks;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+
+/**
+ * Lightweight stand-in for a container request: the header and
+ * parameter methods read fixed maps, anything else fails.
+ */
+public class StubHttpServletRequest extends HttpServletRequestWrapper {
+
+	private static final HttpServletRequest UNSUPPORTED = (HttpServletRequest) Proxy.newProxyInstance(
+			StubHttpServletRequest.class.getClassLoader(), new Class<?>[] { HttpServletRequest.class },
+			new InvocationHandler() {
+				public Object invoke(Object proxy, Method method, Object[] args) {
+					throw new UnsupportedOperationException(method.getName());
+				}
+			});
+
+	private final String method;
+	private final String requestURI;
+	private final Map<String, String> headers = new LinkedHashMap<String, String>();
+	private final Map<String, String[]> parameters = new LinkedHashMap<String, String[]>();
+
+	public StubHttpServletRequest(String method, String requestURI) {
+		super(UNSUPPORTED);
+		this.method = method;
+		this.requestURI = requestURI;
+	}
+
+	public StubHttpServletRequest header(String name, String value) {
+		headers.put(name, value);
+		return this;
+	}
+
+	public StubHttpServletRequest parameter(String name, String... values) {
+		parameters.put(name, values);
+		return this;
+	}
+
+	@Override
+	public String getMethod() {
+		return method;
+	}
+
+	@Override
+	public String getRequestURI() {
+		return requestURI;
+	}
+
+	@Override
+	public String getPathInfo() {
+		return requestURI;
+	}
+
+	@Override
+	public String getHeader(String name) {
+		return headers.get(name);
+	}
+
+	@Override
+	public Enumeration<String> getHeaders(String name) {
+		String value = headers.get(name);
+		return value == null ? Collections.<String> emptyEnumeration() : Collections.enumeration(Collections.singleton(value));
+	}
+
+	@Override
+	public Enumeration<String> getHeaderNames() {
+		return Collections.enumeration(headers.keySet());
+	}
+
+	@Override
+	public String getParameter(String name) {
+		String[] values = parameters.get(name);
+		return values == null ? null : values[0];
+	}
+
+	@Override
+	public String[] getParameterValues(String name) {
+		return parameters.get(name);
+	}
+
+	@Override
+	public Enumeration<String> getParameterNames() {
+		return Collections.enumeration(parameters.keySet());
+	}
+}
@@ -0,0 +1,101 @@
+/*******************************************************************************
+ * Copyright (c) 2016 AT&T Intellectual Property. All rights reserved.
+ *******************************************************************************/
+package com.att.ajsc.benchmarks;
+
+import java.util.Enumeration;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.att.ajsc.csi.writeablerequestfilter.WriteableRequestFilter;
+import com.att.ajsc.csi.writeablerequestfilter.WriteableRequestWrapper;
+
+/**
+ * Per request cost of WriteableRequestWrapper. Run with -prof gc and compare
+ * gc.alloc.rate.norm (bytes allocated per request) between builds:
+ *
+ * java -jar target/benchmarks.jar WriteableRequestWrapperBenchmark -prof gc
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WriteableRequestWrapperBenchmark {
+
+	private StubHttpServletRequest request;
+
+	@Setup
+	public void setup() {
+		request = new StubHttpServletRequest("GET", "/services/ns/1.0/items/42")
+				.header("Accept", "application/json")
+				.header("Content-Type", "application/json")
+				.header("X-CSI-ConversationId", "ajsc~CNG-CSI~1234")
+				.header("X-CSI-UniqueTransactionId", "ajsc-1234")
+				.header("User-Agent", "bench")
+				.parameter("limit", "10")
+				.parameter("offset", "0");
+	}
+
+	/**
+	 * Wrapped but never written to, e.g. a request that passes through the
+	 * filter untouched.
+	 */
+	@Benchmark
+	public void wrapAndRead(Blackhole bh) {
+		WriteableRequestWrapper wrapper = new WriteableRequestWrapper(request);
+		read(wrapper, bh);
+	}
+
+	/**
+	 * What WriteableRequestFilter does, followed by typical downstream reads.
+	 */
+	@Benchmark
+	public void wrapWithIndicatorAndRead(Blackhole bh) {
+		WriteableRequestWrapper wrapper = new WriteableRequestWrapper(request);
+		wrapper.addHeader(WriteableRequestFilter.WRITEABLE_FILTER_INDICATOR, "true");
+		read(wrapper, bh);
+	}
+
+	/**
+	 * Headers and a query parameter added on top of existing ones.
+	 */
+	@Benchmark
+	public void overlayAndRead(Blackhole bh) {
+		WriteableRequestWrapper wrapper = new WriteableRequestWrapper(request);
+		wrapper.addHeader("Accept", "application/xml");
+		wrapper.addHeader("X-CSI-MethodName", "items-get");
+		wrapper.addQueryParam("limit", "20");
+		read(wrapper, bh);
+	}
+
+	private static void read(WriteableRequestWrapper wrapper, Blackhole bh) {
+		bh.consume(wrapper.getHeader(WriteableRequestFilter.WRITEABLE_FILTER_INDICATOR));
+		for (int i = 0; i < 2; i++) {
+			consume(wrapper.getHeaderNames(), bh);
+			consume(wrapper.getHeaders("Accept"), bh);
+			consume(wrapper.getParameterNames(), bh);
+			bh.consume(wrapper.getParameterValues("limit"));
+			bh.consume(wrapper.getHeader("X-CSI-ConversationId"));
+			bh.consume(wrapper.getParameter("offset"));
+		}
+	}
+
+	private static void consume(Enumeration<String> values, Blackhole bh) {
+		while (values.hasMoreElements()) {
+			bh.consume(values.nextElement());
+		}
+	}
+}
@@ -1,7 +1,6 @@
 package ajsc;
 
-import groovy.json.JsonSlurper
-import groovy.json.JsonBuilder
+import ajsc.utils.AjscMetaDataCodec
 
 public class AjscMetaDataUtil {
 	
@@ -17,23 +16,20 @@ public class AjscMetaDataUtil {
 		}
 	}
 
-	static def asJson(Object obj) {
-		
-		List<MetaProperty> toFields = dataFields(obj.class)
-		
-		def toValues = [:]
-		
-		// Make sure the class name is saved
-		toValues['class'] = obj.class.name
-
-		// Create a map with just the fields we want
-		toFields.each {
-			toValues["${it.name}"] = obj[it.name]
+	// compiled once per class from its data fields
+	private static final ClassValue<AjscMetaDataCodec> codecs = new ClassValue<AjscMetaDataCodec>() {
+		@Override
+		protected AjscMetaDataCodec computeValue(Class type) {
+			return new AjscMetaDataCodec(type, AjscMetaDataUtil.dataFields(type))
 		}
-		
-		// Pass our map to the json builder and it'll create json from it
-		def jsonBuilder = new JsonBuilder(toValues)
-		return jsonBuilder.toString()
+	}
+
+	static AjscMetaDataCodec codec(Class cl) {
+		return codecs.get(cl)
+	}
+
+	static def asJson(Object obj) {
+		return codecs.get(obj.class).toJson(obj)
 	}
 	
 	//
@@ -41,35 +37,6 @@ public class AjscMetaDataUtil {
 	// the content of the jsonString
 	//
 	static def fromJson(Class toClass, String jsonString) {
-		
-		JsonSlurper slurp = new JsonSlurper()
-		
-		List<MetaProperty> fromDataFields = dataFields(toClass)
-		
-		// Convert the string to a json object
-		def jsonObj = slurp.parseText(jsonString)
-		
-		// 'class' cannot be set on any object
-		jsonObj.remove("class")
-		
-		def newObj = toClass.newInstance()
-		
-		fromDataFields.each {
-			def newVal = jsonObj[it.name]
-			// we only want to set the value if it's not-null
-			if (newVal != null) {
-				if (it.type.canonicalName == "java.util.Date") {
-					newVal = Date.parse("yyyy-MM-dd'T'HH:mm:ssZ",newVal) //e.g. 2013-10-17T13:49:09+0000
-				}
-				try {
-					newObj."$it.name" = newVal
-				} catch (groovy.lang.ReadOnlyPropertyException e) {
-					// this is a workaround until I can figure out how to filter out
-					// read-only properties.
-				}
-			}
-		}
-		
-		return newObj
+		return codecs.get(toClass).fromJson(jsonString)
 	}
 }
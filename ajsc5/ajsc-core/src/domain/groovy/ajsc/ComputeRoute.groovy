@@ -157,16 +157,16 @@ class ComputeRoute implements Serializable {
 		// Read with Protocol Buffers client
 		if (!riakService) { initRiakService() }
 		def foundRoutes = new ArrayList()
-		def foundJSONRoutes = riakService.getAllEntries(MAPNAME)
+		def foundJSONRoutes = riakService.findAllEntriesMatching(MAPNAME, ['routeName', 'namespace']) { values ->
+			def (routeName, namespace) = values
+			return (routeName ==~ /${nameFilter}/) &&
+				(namespace ==~ /${namespaceFilter}/)
+		}
 		foundJSONRoutes.each { jsonRoute ->
 			if (jsonRoute) {
 				def route = AjscMetaDataUtil.fromJson(ComputeRoute, jsonRoute)
 				if (!route.id) { route.id = route.generateId() }
-				
-				if ((route.routeName ==~ /${nameFilter}/) &&
-					(route.namespace ==~ /${namespaceFilter}/)) {
-					foundRoutes.add(route)
-				}
+				foundRoutes.add(route)
 			}
 		}
 		return foundRoutes
@@ -176,17 +176,17 @@ class ComputeRoute implements Serializable {
 		// Read with Protocol Buffers client
 		if (!riakService) { initRiakService() }
 		def foundRoutes = new ArrayList()
-		def foundJSONRoutes = riakService.getAllEntries(MAPNAME)
+		def foundJSONRoutes = riakService.findAllEntriesMatching(MAPNAME, ['routeName', 'namespace', 'routeVersion']) { values ->
+			def (routeName, namespace, routeVersion) = values
+			return (routeName ==~ /${nameFilter}/) &&
+				(namespace ==~ /${namespaceFilter}/) &&
+				(routeVersion ==~ /${versionFilter}/)
+		}
 		foundJSONRoutes.each { jsonRoute ->
 			if (jsonRoute) {
 				def route = AjscMetaDataUtil.fromJson(ComputeRoute, jsonRoute)
 				if (!route.id) { route.id = route.generateId() }
-				
-				if ((route.routeName ==~ /${nameFilter}/) &&
-					(route.namespace ==~ /${namespaceFilter}/) &&
-					(route.routeVersion ==~ /${versionFilter}/)) {
-					foundRoutes.add(route)
-				}
+				foundRoutes.add(route)
 			}
 		}
 		return foundRoutes
@@ -196,17 +196,12 @@ class ComputeRoute implements Serializable {
 		// Read with Protocol Buffers client
 		if (!riakService) { initRiakService() }
 		def foundRoutes = new ArrayList()
-		def foundJSONRoutes = riakService.getAllEntries(MAPNAME)
+		def foundJSONRoutes = riakService.findAllEntriesBy(MAPNAME, [routeName: routeName, namespace: namespace, routeVersion: routeVersion])
 		foundJSONRoutes.each { jsonRoute ->
 			if (jsonRoute) {
 				def route = AjscMetaDataUtil.fromJson(ComputeRoute, jsonRoute)
 				if (!route.id) { route.id = route.generateId() }
-				
-				if ((route.routeName == routeName) &&
-					(route.namespace == namespace) &&
-					(route.routeVersion == routeVersion)) {
-					foundRoutes.add(route)
-				}
+				foundRoutes.add(route)
 			}
 		}
 		return foundRoutes
@@ -216,16 +211,16 @@ class ComputeRoute implements Serializable {
 		// Read with Protocol Buffers client
 		if (!riakService) { initRiakService() }
 		def foundRoutes = new ArrayList()
-		def foundJSONRoutes = riakService.getAllEntries(MAPNAME)
+		def foundJSONRoutes = riakService.findAllEntriesMatching(MAPNAME, ['namespace', 'routeVersion']) { values ->
+			def (namespace, routeVersion) = values
+			return (namespace ==~ /${namespaceFilter}/) &&
+				(routeVersion ==~ /${versionFilter}/)
+		}
 		foundJSONRoutes.each { jsonRoute ->
 			if (jsonRoute) {
 				def route = AjscMetaDataUtil.fromJson(ComputeRoute, jsonRoute)
 				if (!route.id) { route.id = route.generateId() }
-				
-				if ((route.namespace ==~ /${namespaceFilter}/) &&
-					(route.routeVersion ==~ /${versionFilter}/)) {
-					foundRoutes.add(route)
-				}
+				foundRoutes.add(route)
 			}
 		}
 		return foundRoutes
@@ -234,7 +229,6 @@ class ComputeRoute implements Serializable {
 	static String getAllByNamespaceLikeAndRouteVersionLike(namespaceFilter, versionFilter) {
 		// Read with Protocol Buffers client
 		if (!riakService) { initRiakService() }
-		def foundJSONRoutes = riakService.getAllEntries(MAPNAME)
 		def valueList = []
 		
 		// For wildcard searches
@@ -244,17 +238,11 @@ class ComputeRoute implements Serializable {
 		namespaceFilter = namespaceFilter.replace(wildcardPattern, ".*")
 		versionFilter = versionFilter.replace(wildcardPattern, ".*")
 		
-		foundJSONRoutes.each { jsonRoute ->
-			if (jsonRoute) {
-				def route = AjscMetaDataUtil.fromJson(ComputeRoute, jsonRoute)
-				if (!route.id) { route.id = route.generateId() }
-				
-				if ((route.namespace ==~ /${namespaceFilter}/) &&
-					(route.routeVersion ==~ /${versionFilter}/)) {
-					valueList << jsonRoute
-				}
-			}
-		}
+		valueList.addAll(riakService.findAllEntriesMatching(MAPNAME, ['namespace', 'routeVersion']) { values ->
+			def (namespace, routeVersion) = values
+			return (namespace ==~ /${namespaceFilter}/) &&
+				(routeVersion ==~ /${versionFilter}/)
+		})
 		return valueList
 	}
 	
@@ -262,16 +250,12 @@ class ComputeRoute implements Serializable {
 		// Read with Protocol Buffers client
 		if (!riakService) { initRiakService() }
 		def foundRoutes = new ArrayList()
-		def foundJSONRoutes = riakService.getAllEntries(MAPNAME)
+		def foundJSONRoutes = riakService.findAllEntriesBy(MAPNAME, [namespace: namespace, routeVersion: routeVersion])
 		foundJSONRoutes.each { jsonRoute ->
 			if (jsonRoute) {
 				def route = AjscMetaDataUtil.fromJson(ComputeRoute, jsonRoute)
 				if (!route.id) { route.id = route.generateId() }
-				
-				if ((route.namespace == namespace) &&
-					(route.routeVersion == routeVersion)) {
-					foundRoutes.add(route)
-				}
+				foundRoutes.add(route)
 			}
 		}
 		return foundRoutes
@@ -281,15 +265,12 @@ class ComputeRoute implements Serializable {
 		// Read with Protocol Buffers client
 		if (!riakService) { initRiakService() }
 		def foundRoutes = new ArrayList()
-		def foundJSONRoutes = riakService.getAllEntries(MAPNAME)
+		def foundJSONRoutes = riakService.findAllEntriesMatching(MAPNAME, ['namespace']) { values -> values[0] ==~ /${namespaceFilter}/ }
 		foundJSONRoutes.each { jsonRoute ->
 			if (jsonRoute) {
 				def route = AjscMetaDataUtil.fromJson(ComputeRoute, jsonRoute)
 				if (!route.id) { route.id = route.generateId() }
-				
-				if ((route.namespace ==~ /${namespaceFilter}/)) {
-					foundRoutes.add(route)
-				}
+				foundRoutes.add(route)
 			}
 		}
 		return foundRoutes
@@ -299,15 +280,12 @@ class ComputeRoute implements Serializable {
 		// Read with Protocol Buffers client
 		if (!riakService) { initRiakService() }
 		def foundRoutes = new ArrayList()
-		def foundJSONRoutes = riakService.getAllEntries(MAPNAME)
+		def foundJSONRoutes = riakService.findAllEntriesBy(MAPNAME, [namespace: namespace])
 		foundJSONRoutes.each { jsonRoute ->
 			if (jsonRoute) {
 				def route = AjscMetaDataUtil.fromJson(ComputeRoute, jsonRoute)
 				if (!route.id) { route.id = route.generateId() }
-				
-				if (route.namespace == namespace) {
-					foundRoutes.add(route)
-				}
+				foundRoutes.add(route)
 			}
 		}
 		return foundRoutes
@@ -317,15 +295,12 @@ class ComputeRoute implements Serializable {
 		// Read with Protocol Buffers client
 		if (!riakService) { initRiakService() }
 		def foundRoutes = new ArrayList()
-		def foundJSONRoutes = riakService.getAllEntries(MAPNAME)
+		def foundJSONRoutes = riakService.findAllEntriesMatching(MAPNAME, ['contextId']) { values -> values[0] ==~ /${contextIdFilter}/ }
 		foundJSONRoutes.each { jsonRoute ->
 			if (jsonRoute) {
 				def route = AjscMetaDataUtil.fromJson(ComputeRoute, jsonRoute)
 				if (!route.id) { route.id = route.generateId() }
-				
-				if ((route.contextId ==~ /${contextIdFilter}/)) {
-					foundRoutes.add(route)
-				}
+				foundRoutes.add(route)
 			}
 		}
 		return foundRoutes
@@ -335,15 +310,12 @@ class ComputeRoute implements Serializable {
 		// Read with Protocol Buffers client
 		if (!riakService) { initRiakService() }
 		def foundRoutes = new ArrayList()
-		def foundJSONRoutes = riakService.getAllEntries(MAPNAME)
+		def foundJSONRoutes = riakService.findAllEntriesBy(MAPNAME, [contextId: contextId])
 		foundJSONRoutes.each { jsonRoute ->
 			if (jsonRoute) {
 				def route = AjscMetaDataUtil.fromJson(ComputeRoute, jsonRoute)
 				if (!route.id) { route.id = route.generateId() }
-				
-				if (route.contextId == contextId) {
-					foundRoutes.add(route)
-				}
+				foundRoutes.add(route)
 			}
 		}
 		return foundRoutes
@@ -144,15 +144,12 @@ class Context implements Serializable {
 		// Read with Protocol Buffers client
 		if (!ajscMetaDataService) { initAjscMetaDataService() }
 		def foundContexts = new ArrayList()
-		def foundJSONContexts = ajscMetaDataService.getAllEntries(MAPNAME)
+		def foundJSONContexts = ajscMetaDataService.findAllEntriesMatching(MAPNAME, ['contextName']) { values -> values[0] ==~ /${nameFilter}/ }
 		foundJSONContexts.each { jsonContext ->
 			if (jsonContext) {
 				def context = AjscMetaDataUtil.fromJson(ajsc.Context, jsonContext)
 				if (!context.id) { context.id = context.generateId() }
-				
-				if ((context.contextName ==~ /${nameFilter}/)) {
-					foundContexts.add(context)
-				}
+				foundContexts.add(context)
 			}
 		}
 		return foundContexts
@@ -161,7 +158,6 @@ class Context implements Serializable {
 	static String getAllByContextNameLike(nameFilter) {
 		// Read with Protocol Buffers client
 		if (!ajscMetaDataService) { initAjscMetaDataService() }
-		def foundJSONContexts = ajscMetaDataService.getAllEntries(MAPNAME)
 		def valueList = []
 		
 		// For wildcard searches
@@ -170,15 +166,7 @@ class Context implements Serializable {
 		
 		nameFilter = nameFilter.replace(wildcardPattern, ".*")
 		
-		foundJSONContexts.each { jsonContext ->
-			if (jsonContext) {
-				def context = AjscMetaDataUtil.fromJson(ajsc.Context, jsonContext)
-				if (!context.id) { context.id = context.generateId() }
-				if ((context.contextName ==~ /${nameFilter}/)) {
-					valueList << jsonContext
-				}
-			}
-		}
+		valueList.addAll(ajscMetaDataService.findAllEntriesMatching(MAPNAME, ['contextName']) { values -> values[0] ==~ /${nameFilter}/ })
 		return valueList
 	}
 	
@@ -186,16 +174,16 @@ class Context implements Serializable {
 		// Read with Protocol Buffers client
 		if (!ajscMetaDataService) { initAjscMetaDataService() }
 		def foundContexts = new ArrayList()
-		def foundJSONContexts = ajscMetaDataService.getAllEntries(MAPNAME)
+		def foundJSONContexts = ajscMetaDataService.findAllEntriesMatching(MAPNAME, ['contextName', 'contextVersion']) { values ->
+			def (contextName, contextVersion) = values
+			return (contextName ==~ /${nameFilter}/) &&
+				(contextVersion ==~ /${versionFilter}/)
+		}
 		foundJSONContexts.each { jsonContext ->
 			if (jsonContext) {
 				def context = AjscMetaDataUtil.fromJson(ajsc.Context, jsonContext)
 				if (!context.id) { context.id = context.generateId() }
-				
-				if ((context.contextName ==~ /${nameFilter}/) &&
-					(context.contextVersion ==~ /${versionFilter}/)) {
-					foundContexts.add(context)
-				}
+				foundContexts.add(context)
 			}
 		}
 		return foundContexts
@@ -181,15 +181,13 @@ class DeploymentPackage implements Serializable {
 		// Read with Protocol Buffers client
 		if (!ajscMetaDataService) { initAjscMetaDataService() }
 		def foundDeploymentPackages = new ArrayList()
-		def foundJSONDeploymentPackages = ajscMetaDataService.getAllEntries(MAPNAME)
+		def foundJSONDeploymentPackages = ajscMetaDataService.findAllEntriesMatching(MAPNAME, ['namespace']) { values -> values[0] ==~ /${nameFilter}/ }
 		foundJSONDeploymentPackages.each { jsonDeploymentPackage ->
 			if (jsonDeploymentPackage) {
 				def deploymentPackage = AjscMetaDataUtil.fromJson(DeploymentPackage, jsonDeploymentPackage)
 				if (!deploymentPackage.id) { deploymentPackage.id = deploymentPackage.generateId() }
 
-				if ((deploymentPackage.namespace ==~ /${nameFilter}/)) {
-					foundDeploymentPackages.add(deploymentPackage)
-				}
+				foundDeploymentPackages.add(deploymentPackage)
 			}
 		}
 		return foundDeploymentPackages
@@ -199,16 +197,17 @@ class DeploymentPackage implements Serializable {
 		// Read with Protocol Buffers client
 		if (!ajscMetaDataService) { initAjscMetaDataService() }
 		def foundDeploymentPackages = new ArrayList()
-		def foundJSONDeploymentPackages = ajscMetaDataService.getAllEntries(MAPNAME)
+		def foundJSONDeploymentPackages = ajscMetaDataService.findAllEntriesMatching(MAPNAME, ['namespace', 'namespaceVersion']) { values ->
+			def (namespace, namespaceVersion) = values
+			return (namespace ==~ /${nameFilter}/) &&
+				(namespaceVersion ==~ /${namespaceVersionFilter}/)
+		}
 		foundJSONDeploymentPackages.each { jsonDeploymentPackage ->
 			if (jsonDeploymentPackage) {
 				def deploymentPackage = AjscMetaDataUtil.fromJson(DeploymentPackage, jsonDeploymentPackage)
 				if (!deploymentPackage.id) { deploymentPackage.id = deploymentPackage.generateId() }
 
-				if ((deploymentPackage.namespace ==~ /${nameFilter}/) &&
-				(deploymentPackage.namespaceVersion ==~ /${namespaceVersionFilter}/)) {
-					foundDeploymentPackages.add(deploymentPackage)
-				}
+				foundDeploymentPackages.add(deploymentPackage)
 			}
 		}
 		return foundDeploymentPackages
@@ -217,7 +216,6 @@ class DeploymentPackage implements Serializable {
 	static String getAllByNamespaceLikeAndVersionLike(String namespaceFilter, String versionFilter) {
 		// Read with Protocol Buffers client
 		if (!ajscMetaDataService) { initAjscMetaDataService() }
-		def foundJSONDeploymentPackages = ajscMetaDataService.getAllEntries(MAPNAME)
 		def valueList = []
 		
 		// For wildcard searches
@@ -227,17 +225,11 @@ class DeploymentPackage implements Serializable {
 		namespaceFilter = namespaceFilter.replace(wildcardPattern, ".*")
 		versionFilter = versionFilter.replace(wildcardPattern, ".*")
 		
-		foundJSONDeploymentPackages.each { jsonDeploymentPackage ->
-			if (jsonDeploymentPackage) {
-				def deploymentPackage = AjscMetaDataUtil.fromJson(DeploymentPackage, jsonDeploymentPackage)
-				if (!deploymentPackage.id) { deploymentPackage.id = deploymentPackage.generateId() }
-
-				if ((deploymentPackage.namespace ==~ /${namespaceFilter}/) &&
-				(deploymentPackage.namespaceVersion ==~ /${versionFilter}/)) {
-					valueList << jsonDeploymentPackage
-				}
-			}
-		}
+		valueList.addAll(ajscMetaDataService.findAllEntriesMatching(MAPNAME, ['namespace', 'namespaceVersion']) { values ->
+			def (namespace, namespaceVersion) = values
+			return (namespace ==~ /${namespaceFilter}/) &&
+				(namespaceVersion ==~ /${versionFilter}/)
+		})
 		return valueList
 	}
 
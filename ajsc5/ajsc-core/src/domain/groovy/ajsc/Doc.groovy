@@ -184,20 +184,37 @@ class Doc implements Serializable {
 		return foundDocs
 	}
 	
+	static final int PAGE_SIZE = 50
+
+	/**
+	 * Calls the closure with every Doc, reading PAGE_SIZE of them at a time
+	 * instead of the whole map like list().
+	 */
+	static void eachDoc(Closure work) {
+		if (!ajscMetaDataService) { initAjscMetaDataService() }
+		ajscMetaDataService.eachMapEntry(MAPNAME, null, PAGE_SIZE) { key, jsonDoc ->
+			if (jsonDoc) {
+				def doc = AjscMetaDataUtil.fromJson(Doc, jsonDoc)
+				if (!doc.id) { doc.id = doc.generateId() }
+				work(doc)
+			}
+		}
+	}
+	
 	static List<Doc> findAllByNamespaceLikeAndDocNameLike(namespaceFilter, nameFilter) {
 		// Read with Protocol Buffers client
 		if (!ajscMetaDataService) { initAjscMetaDataService() }
 		def foundDocs = new ArrayList()
-		def foundJSONDocs = ajscMetaDataService.getAllEntries(MAPNAME)
+		def foundJSONDocs = ajscMetaDataService.findAllEntriesMatching(MAPNAME, ['docName', 'namespace']) { values ->
+			def (docName, namespace) = values
+			return (docName ==~ /${nameFilter}/) &&
+				(namespace ==~ /${namespaceFilter}/)
+		}
 		foundJSONDocs.each { jsonDoc ->
 			if (jsonDoc) {
 				def doc = AjscMetaDataUtil.fromJson(Doc, jsonDoc)
 				if (!doc.id) { doc.id = doc.generateId() }
-				
-				if ((doc.docName ==~ /${nameFilter}/) &&
-					(doc.namespace ==~ /${namespaceFilter}/)) {
-					foundDocs.add(doc)
-				}
+				foundDocs.add(doc)
 			}
 		}
 		return foundDocs
@@ -207,17 +224,17 @@ class Doc implements Serializable {
 		// Read with Protocol Buffers client
 		if (!ajscMetaDataService) { initAjscMetaDataService() }
 		def foundDocs = new ArrayList()
-		def foundJSONDocs = ajscMetaDataService.getAllEntries(MAPNAME)
+		def foundJSONDocs = ajscMetaDataService.findAllEntriesMatching(MAPNAME, ['docName', 'namespace', 'docVersion']) { values ->
+			def (docName, namespace, docVersion) = values
+			return (docName ==~ /${nameFilter}/) &&
+				(namespace ==~ /${namespaceFilter}/) &&
+				(docVersion ==~ /${versionFilter}/)
+		}
 		foundJSONDocs.each { jsonDoc ->
 			if (jsonDoc) {
 				def doc = AjscMetaDataUtil.fromJson(Doc, jsonDoc)
 				if (!doc.id) { doc.id = doc.generateId() }
-				
-				if ((doc.docName ==~ /${nameFilter}/) &&
-					(doc.namespace ==~ /${namespaceFilter}/) &&
-					(doc.docVersion ==~ /${versionFilter}/)) {
-					foundDocs.add(doc)
-				}
+				foundDocs.add(doc)
 			}
 		}
 		return foundDocs
@@ -227,17 +244,12 @@ class Doc implements Serializable {
 		// Read with Protocol Buffers client
 		if (!ajscMetaDataService) { initAjscMetaDataService() }
 		def foundDocs = new ArrayList()
-		def foundJSONDocs = ajscMetaDataService.getAllEntries(MAPNAME)
+		def foundJSONDocs = ajscMetaDataService.findAllEntriesBy(MAPNAME, [docName: docName, namespace: namespace, docVersion: docVersion])
 		foundJSONDocs.each { jsonDoc ->
 			if (jsonDoc) {
 				def doc = AjscMetaDataUtil.fromJson(Doc, jsonDoc)
 				if (!doc.id) { doc.id = doc.generateId() }
-				
-				if ((doc.docName == docName) &&
-					(doc.namespace == namespace) &&
-					(doc.docVersion == docVersion)) {
-					foundDocs.add(doc)
-				}
+				foundDocs.add(doc)
 			}
 		}
 		return foundDocs
@@ -247,16 +259,16 @@ class Doc implements Serializable {
 		// Read with Protocol Buffers client
 		if (!ajscMetaDataService) { initAjscMetaDataService() }
 		def foundDocs = new ArrayList()
-		def foundJSONDocs = ajscMetaDataService.getAllEntries(MAPNAME)
+		def foundJSONDocs = ajscMetaDataService.findAllEntriesMatching(MAPNAME, ['namespace', 'docVersion']) { values ->
+			def (namespace, docVersion) = values
+			return (namespace ==~ /${namespaceFilter}/) &&
+				(docVersion ==~ /${versionFilter}/)
+		}
 		foundJSONDocs.each { jsonDoc ->
 			if (jsonDoc) {
 				def doc = AjscMetaDataUtil.fromJson(Doc, jsonDoc)
 				if (!doc.id) { doc.id = doc.generateId() }
-				
-				if ((doc.namespace ==~ /${namespaceFilter}/) &&
-					(doc.docVersion ==~ /${versionFilter}/)) {
-					foundDocs.add(doc)
-				}
+				foundDocs.add(doc)
 			}
 		}
 		return foundDocs
@@ -265,7 +277,6 @@ class Doc implements Serializable {
 	static String getAllByNamespaceLikeAndDocVersionLike(namespaceFilter, versionFilter) {
 		// Read with Protocol Buffers client
 		if (!ajscMetaDataService) { initAjscMetaDataService() }
-		def foundJSONDocs = ajscMetaDataService.getAllEntries(MAPNAME)
 		def valueList = []
 		
 		// For wildcard searches
@@ -275,17 +286,11 @@ class Doc implements Serializable {
 		namespaceFilter = namespaceFilter.replace(wildcardPattern, ".*")
 		versionFilter = versionFilter.replace(wildcardPattern, ".*")
 		
-		foundJSONDocs.each { jsonDoc ->
-			if (jsonDoc) {
-				def doc = AjscMetaDataUtil.fromJson(Doc, jsonDoc)
-				if (!doc.id) { doc.id = doc.generateId() }
-				
-				if ((doc.namespace ==~ /${namespaceFilter}/) &&
-					(doc.docVersion ==~ /${versionFilter}/)) {
-					valueList << jsonDoc
-				}
-			}
-		}
+		valueList.addAll(ajscMetaDataService.findAllEntriesMatching(MAPNAME, ['namespace', 'docVersion']) { values ->
+			def (namespace, docVersion) = values
+			return (namespace ==~ /${namespaceFilter}/) &&
+				(docVersion ==~ /${versionFilter}/)
+		})
 		return valueList
 	}
 	
@@ -294,16 +299,12 @@ class Doc implements Serializable {
 		// Read with Protocol Buffers client
 		if (!ajscMetaDataService) { initAjscMetaDataService() }
 		def foundDocs = new ArrayList()
-		def foundJSONDocs = ajscMetaDataService.getAllEntries(MAPNAME)
+		def foundJSONDocs = ajscMetaDataService.findAllEntriesBy(MAPNAME, [namespace: namespace, docVersion: docVersion])
 		foundJSONDocs.each { jsonDoc ->
 			if (jsonDoc) {
 				def doc = AjscMetaDataUtil.fromJson(Doc, jsonDoc)
 				if (!doc.id) { doc.id = doc.generateId() }
-				
-				if ((doc.namespace == namespace) &&
-					(doc.docVersion == docVersion)) {
-					foundDocs.add(doc)
-				}
+				foundDocs.add(doc)
 			}
 		}
 		return foundDocs
@@ -313,15 +314,12 @@ class Doc implements Serializable {
 		// Read with Protocol Buffers client
 		if (!ajscMetaDataService) { initAjscMetaDataService() }
 		def foundDocs = new ArrayList()
-		def foundJSONDocs = ajscMetaDataService.getAllEntries(MAPNAME)
+		def foundJSONDocs = ajscMetaDataService.findAllEntriesMatching(MAPNAME, ['namespace']) { values -> values[0] ==~ /${namespaceFilter}/ }
 		foundJSONDocs.each { jsonDoc ->
 			if (jsonDoc) {
 				def doc = AjscMetaDataUtil.fromJson(Doc, jsonDoc)
 				if (!doc.id) { doc.id = doc.generateId() }
-				
-				if ((doc.namespace ==~ /${namespaceFilter}/)) {
-					foundDocs.add(doc)
-				}
+				foundDocs.add(doc)
 			}
 		}
 		return foundDocs
@@ -331,15 +329,12 @@ class Doc implements Serializable {
 		// Read with Protocol Buffers client
 		if (!ajscMetaDataService) { initAjscMetaDataService() }
 		def foundDocs = new ArrayList()
-		def foundJSONDocs = ajscMetaDataService.getAllEntries(MAPNAME)
+		def foundJSONDocs = ajscMetaDataService.findAllEntriesBy(MAPNAME, [namespace: namespace])
 		foundJSONDocs.each { jsonDoc ->
 			if (jsonDoc) {
 				def doc = AjscMetaDataUtil.fromJson(Doc, jsonDoc)
 				if (!doc.id) { doc.id = doc.generateId() }
-				
-				if (doc.namespace == namespace) {
-					foundDocs.add(doc)
-				}
+				foundDocs.add(doc)
 			}
 		}
 		return foundDocs
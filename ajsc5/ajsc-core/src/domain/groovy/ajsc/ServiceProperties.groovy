@@ -157,14 +157,15 @@ class ServiceProperties  implements Serializable{
 		// Read with Protocol Buffers client
 		if (!ajscMetaDataService) { initAjscMetaDataService() }
 		def foundServiceProperties = new ArrayList()
-		def foundJSONServiceProperties = ajscMetaDataService.getAllEntries(MAPNAME)
+		def foundJSONServiceProperties = ajscMetaDataService.findAllEntriesMatching(MAPNAME, ['serviceName', 'namespace']) { values ->
+			def (serviceName, namespace) = values
+			return (serviceName ==~ /${nameFilter}/) &&
+				(namespace ==~ /${namespaceFilter}/)
+		}
 		foundJSONServiceProperties.each { jsonServiceProperties ->
 			if (jsonServiceProperties) {
 				def serviceProperties = ServiceProperties.jsonParse(jsonServiceProperties)
-				if ((serviceProperties.serviceName ==~ /${nameFilter}/) &&
-					(serviceProperties.namespace ==~ /${namespaceFilter}/)) {
-					foundServiceProperties.add(serviceProperties)
-				}
+				foundServiceProperties.add(serviceProperties)
 			}
 		}
 		return foundServiceProperties
@@ -174,15 +175,16 @@ class ServiceProperties  implements Serializable{
 		// Read with Protocol Buffers client
 		if (!ajscMetaDataService) { initAjscMetaDataService() }
 		def foundServiceProperties = new ArrayList()
-		def foundJSONServiceProperties = ajscMetaDataService.getAllEntries(MAPNAME)
+		def foundJSONServiceProperties = ajscMetaDataService.findAllEntriesMatching(MAPNAME, ['serviceName', 'namespace', 'serviceVersion']) { values ->
+			def (serviceName, namespace, serviceVersion) = values
+			return (serviceName ==~ /${nameFilter}/) &&
+				(namespace ==~ /${namespaceFilter}/) &&
+				(serviceVersion ==~ /${versionFilter}/)
+		}
 		foundJSONServiceProperties.each { jsonServiceProperties ->
 			if (jsonServiceProperties) {
 				def serviceProperties = ServiceProperties.jsonParse(jsonServiceProperties)
-				if ((serviceProperties.serviceName ==~ /${nameFilter}/) &&
-					(serviceProperties.namespace ==~ /${namespaceFilter}/) &&
-					(serviceProperties.serviceVersion ==~ /${versionFilter}/)) {
-					foundServiceProperties.add(serviceProperties)
-				}
+				foundServiceProperties.add(serviceProperties)
 			}
 		}
 		return foundServiceProperties
@@ -192,14 +194,15 @@ class ServiceProperties  implements Serializable{
 		// Read with Protocol Buffers client
 		if (!ajscMetaDataService) { initAjscMetaDataService() }
 		def foundServiceProperties = new ArrayList()
-		def foundJSONServiceProperties = ajscMetaDataService.getAllEntries(MAPNAME)
+		def foundJSONServiceProperties = ajscMetaDataService.findAllEntriesMatching(MAPNAME, ['namespace', 'serviceVersion']) { values ->
+			def (namespace, serviceVersion) = values
+			return (namespace ==~ /${namespaceFilter}/) &&
+				(serviceVersion ==~ /${versionFilter}/)
+		}
 		foundJSONServiceProperties.each { jsonServiceProperties ->
 			if (jsonServiceProperties) {
 				def serviceProperties = ServiceProperties.jsonParse(jsonServiceProperties)
-				if ((serviceProperties.namespace ==~ /${namespaceFilter}/) &&
-					(serviceProperties.serviceVersion ==~ /${versionFilter}/)) {
-					foundServiceProperties.add(serviceProperties)
-				}
+				foundServiceProperties.add(serviceProperties)
 			}
 		}
 		return foundServiceProperties
@@ -208,7 +211,6 @@ class ServiceProperties  implements Serializable{
 	static String getAllByNamespaceLikeAndServiceVersionLike(namespaceFilter, versionFilter) {
 		// Read with Protocol Buffers client
 		if (!ajscMetaDataService) { initAjscMetaDataService() }
-		def foundJSONServiceProperties = ajscMetaDataService.getAllEntries(MAPNAME)
 		def valueList = []
 		
 		// For wildcard searches
@@ -218,15 +220,11 @@ class ServiceProperties  implements Serializable{
 		namespaceFilter = namespaceFilter.replace(wildcardPattern, ".*")
 		versionFilter = versionFilter.replace(wildcardPattern, ".*")
 		
-		foundJSONServiceProperties.each { jsonServiceProperties ->
-			if (jsonServiceProperties) {
-				def serviceProperties = ServiceProperties.jsonParse(jsonServiceProperties)
-				if ((serviceProperties.serviceVersion ==~ /${versionFilter}/) &&
-					(serviceProperties.namespace ==~ /${namespaceFilter}/)) {
-					valueList << jsonServiceProperties
-				}
-			}
-		}
+		valueList.addAll(ajscMetaDataService.findAllEntriesMatching(MAPNAME, ['serviceVersion', 'namespace']) { values ->
+			def (serviceVersion, namespace) = values
+			return (serviceVersion ==~ /${versionFilter}/) &&
+				(namespace ==~ /${namespaceFilter}/)
+		})
 		
 		return valueList
 	}
@@ -235,14 +233,11 @@ class ServiceProperties  implements Serializable{
 		// Read with Protocol Buffers client
 		if (!ajscMetaDataService) { initAjscMetaDataService() }
 		def foundServiceProperties = new ArrayList()
-		def foundJSONServiceProperties = ajscMetaDataService.getAllEntries(MAPNAME)
+		def foundJSONServiceProperties = ajscMetaDataService.findAllEntriesBy(MAPNAME, [namespace: namespace, serviceVersion: serviceVersion])
 		foundJSONServiceProperties.each { jsonServiceProperties ->
 			if (jsonServiceProperties) {
 				def serviceProperties = ServiceProperties.jsonParse(jsonServiceProperties)
-				if ((serviceProperties.namespace == namespace) &&
-					(serviceProperties.serviceVersion == serviceVersion)) {
-					foundServiceProperties.add(serviceProperties)
-				}
+				foundServiceProperties.add(serviceProperties)
 			}
 		}
 		return foundServiceProperties
@@ -252,13 +247,11 @@ class ServiceProperties  implements Serializable{
 		// Read with Protocol Buffers client
 		if (!ajscMetaDataService) { initAjscMetaDataService() }
 		def foundServiceProperties = new ArrayList()
-		def foundJSONServiceProperties = ajscMetaDataService.getAllEntries(MAPNAME)
+		def foundJSONServiceProperties = ajscMetaDataService.findAllEntriesMatching(MAPNAME, ['namespace']) { values -> values[0] ==~ /${namespaceFilter}/ }
 		foundJSONServiceProperties.each { jsonServiceProperties ->
 			if (jsonServiceProperties) {
 				def serviceProperties = ServiceProperties.jsonParse(jsonServiceProperties)
-				if ((serviceProperties.namespace ==~ /${namespaceFilter}/)) {
-					foundServiceProperties.add(serviceProperties)
-				}
+				foundServiceProperties.add(serviceProperties)
 			}
 		}
 		return foundServiceProperties
@@ -268,13 +261,11 @@ class ServiceProperties  implements Serializable{
 		// Read with Protocol Buffers client
 		if (!ajscMetaDataService) { initAjscMetaDataService() }
 		def foundServiceProperties = new ArrayList()
-		def foundJSONServiceProperties = ajscMetaDataService.getAllEntries(MAPNAME)
+		def foundJSONServiceProperties = ajscMetaDataService.findAllEntriesBy(MAPNAME, [namespace: namespace])
 		foundJSONServiceProperties.each { jsonServiceProperties ->
 			if (jsonServiceProperties) {
 				def serviceProperties = ServiceProperties.jsonParse(jsonServiceProperties)
-				if (serviceProperties.namespace == namespace) {
-					foundServiceProperties.add(serviceProperties)
-				}
+				foundServiceProperties.add(serviceProperties)
 			}
 		}
 		return foundServiceProperties
@@ -284,15 +275,11 @@ class ServiceProperties  implements Serializable{
 		// Read with Protocol Buffers client
 		if (!ajscMetaDataService) { initAjscMetaDataService() }
 		def foundServiceProperties = new ArrayList()
-		def foundJSONServiceProperties = ajscMetaDataService.getAllEntries(MAPNAME)
+		def foundJSONServiceProperties = ajscMetaDataService.findAllEntriesBy(MAPNAME, [serviceName: nameFilter, namespace: namespaceFilter, serviceVersion: versionFilter])
 		foundJSONServiceProperties.each { jsonServiceProperties ->
 			if (jsonServiceProperties) {
 				def serviceProperties = ServiceProperties.jsonParse(jsonServiceProperties)
-				if ((serviceProperties.serviceName == nameFilter) &&
-					(serviceProperties.namespace == namespaceFilter) &&
-					(serviceProperties.serviceVersion == versionFilter)) {
-					foundServiceProperties.add(serviceProperties)
-				}
+				foundServiceProperties.add(serviceProperties)
 			}
 		}
 		return foundServiceProperties
@@ -182,16 +182,16 @@ class UserDefinedBeansDef implements Serializable {
 		// Read with Protocol Buffers client
 		if (!ajscMetaDataService) { initAjscMetaDataService() }
 		def foundUserDefinedBeansDefs = new ArrayList()
-		def foundJSONUserDefinedBeansDefs = ajscMetaDataService.getAllEntries(MAPNAME)
+		def foundJSONUserDefinedBeansDefs = ajscMetaDataService.findAllEntriesMatching(MAPNAME, ['beansDefName', 'namespace']) { values ->
+			def (beansDefName, namespace) = values
+			return (beansDefName ==~ /${nameFilter}/) &&
+				(namespace ==~ /${namespaceFilter}/)
+		}
 		foundJSONUserDefinedBeansDefs.each { jsonUserDefinedBeansDef ->
 			if (jsonUserDefinedBeansDef) {
 				def beansDef = AjscMetaDataUtil.fromJson(UserDefinedBeansDef, jsonUserDefinedBeansDef)
 				if (!beansDef.id) { beansDef.id = beansDef.generateId() }
-				
-				if ((beansDef.beansDefName ==~ /${nameFilter}/) &&
-					(beansDef.namespace ==~ /${namespaceFilter}/)) {
-					foundUserDefinedBeansDefs.add(beansDef)
-				}
+				foundUserDefinedBeansDefs.add(beansDef)
 			}
 		}
 		return foundUserDefinedBeansDefs
@@ -201,17 +201,17 @@ class UserDefinedBeansDef implements Serializable {
 		// Read with Protocol Buffers client
 		if (!ajscMetaDataService) { initAjscMetaDataService() }
 		def foundUserDefinedBeansDefs = new ArrayList()
-		def foundJSONUserDefinedBeansDefs = ajscMetaDataService.getAllEntries(MAPNAME)
+		def foundJSONUserDefinedBeansDefs = ajscMetaDataService.findAllEntriesMatching(MAPNAME, ['beansDefName', 'namespace', 'beansDefVersion']) { values ->
+			def (beansDefName, namespace, beansDefVersion) = values
+			return (beansDefName ==~ /${nameFilter}/) &&
+				(namespace ==~ /${namespaceFilter}/) &&
+				(beansDefVersion ==~ /${versionFilter}/)
+		}
 		foundJSONUserDefinedBeansDefs.each { jsonUserDefinedBeansDef ->
 			if (jsonUserDefinedBeansDef) {
 				def beansDef = AjscMetaDataUtil.fromJson(UserDefinedBeansDef, jsonUserDefinedBeansDef)
 				if (!beansDef.id) { beansDef.id = beansDef.generateId() }
-				
-				if ((beansDef.beansDefName ==~ /${nameFilter}/) &&
-					(beansDef.namespace ==~ /${namespaceFilter}/) &&
-					(beansDef.beansDefVersion ==~ /${versionFilter}/)) {
-					foundUserDefinedBeansDefs.add(beansDef)
-				}
+				foundUserDefinedBeansDefs.add(beansDef)
 			}
 		}
 		return foundUserDefinedBeansDefs
@@ -221,17 +221,12 @@ class UserDefinedBeansDef implements Serializable {
 		// Read with Protocol Buffers client
 		if (!ajscMetaDataService) { initAjscMetaDataService() }
 		def foundUserDefinedBeansDefs = new ArrayList()
-		def foundJSONUserDefinedBeansDefs = ajscMetaDataService.getAllEntries(MAPNAME)
+		def foundJSONUserDefinedBeansDefs = ajscMetaDataService.findAllEntriesBy(MAPNAME, [beansDefName: beansDefName, namespace: namespace, beansDefVersion: beansDefVersion])
 		foundJSONUserDefinedBeansDefs.each { jsonUserDefinedBeansDef ->
 			if (jsonUserDefinedBeansDef) {
 				def beansDef = AjscMetaDataUtil.fromJson(UserDefinedBeansDef, jsonUserDefinedBeansDef)
 				if (!beansDef.id) { beansDef.id = beansDef.generateId() }
-				
-				if ((beansDef.beansDefName == beansDefName) &&
-					(beansDef.namespace == namespace) &&
-					(beansDef.beansDefVersion == beansDefVersion)) {
-					foundUserDefinedBeansDefs.add(beansDef)
-				}
+				foundUserDefinedBeansDefs.add(beansDef)
 			}
 		}
 		return foundUserDefinedBeansDefs
@@ -241,16 +236,16 @@ class UserDefinedBeansDef implements Serializable {
 		// Read with Protocol Buffers client
 		if (!ajscMetaDataService) { initAjscMetaDataService() }
 		def foundUserDefinedBeansDefs = new ArrayList()
-		def foundJSONUserDefinedBeansDefs = ajscMetaDataService.getAllEntries(MAPNAME)
+		def foundJSONUserDefinedBeansDefs = ajscMetaDataService.findAllEntriesMatching(MAPNAME, ['namespace', 'beansDefVersion']) { values ->
+			def (namespace, beansDefVersion) = values
+			return (namespace ==~ /${namespaceFilter}/) &&
+				(beansDefVersion ==~ /${versionFilter}/)
+		}
 		foundJSONUserDefinedBeansDefs.each { jsonUserDefinedBeansDef ->
 			if (jsonUserDefinedBeansDef) {
 				def beansDef = AjscMetaDataUtil.fromJson(UserDefinedBeansDef, jsonUserDefinedBeansDef)
 				if (!beansDef.id) { beansDef.id = beansDef.generateId() }
-				
-				if ((beansDef.namespace ==~ /${namespaceFilter}/) &&
-					(beansDef.beansDefVersion ==~ /${versionFilter}/)) {
-					foundUserDefinedBeansDefs.add(beansDef)
-				}
+				foundUserDefinedBeansDefs.add(beansDef)
 			}
 		}
 		return foundUserDefinedBeansDefs
@@ -259,7 +254,6 @@ class UserDefinedBeansDef implements Serializable {
 	static String getAllByNamespaceLikeAndBeansDefVersionLike(namespaceFilter, versionFilter) {
 		// Read with Protocol Buffers client
 		if (!ajscMetaDataService) { initAjscMetaDataService() }
-		def foundJSONUserDefinedBeansDefs = ajscMetaDataService.getAllEntries(MAPNAME)
 		def valueList = []
 		
 		// For wildcard searches
@@ -269,17 +263,11 @@ class UserDefinedBeansDef implements Serializable {
 		namespaceFilter = namespaceFilter.replace(wildcardPattern, ".*")
 		versionFilter = versionFilter.replace(wildcardPattern, ".*")
 		
-		foundJSONUserDefinedBeansDefs.each { jsonUserDefinedBeansDef ->
-			if (jsonUserDefinedBeansDef) {
-				def beansDef = AjscMetaDataUtil.fromJson(UserDefinedBeansDef, jsonUserDefinedBeansDef)
-				if (!beansDef.id) { beansDef.id = beansDef.generateId() }
-				
-				if ((beansDef.namespace ==~ /${namespaceFilter}/) &&
-					(beansDef.beansDefVersion ==~ /${versionFilter}/)) {
-					valueList << jsonUserDefinedBeansDef
-				}
-			}
-		}
+		valueList.addAll(ajscMetaDataService.findAllEntriesMatching(MAPNAME, ['namespace', 'beansDefVersion']) { values ->
+			def (namespace, beansDefVersion) = values
+			return (namespace ==~ /${namespaceFilter}/) &&
+				(beansDefVersion ==~ /${versionFilter}/)
+		})
 		return valueList
 	}
 	
@@ -287,16 +275,12 @@ class UserDefinedBeansDef implements Serializable {
 		// Read with Protocol Buffers client
 		if (!ajscMetaDataService) { initAjscMetaDataService() }
 		def foundUserDefinedBeansDefs = new ArrayList()
-		def foundJSONUserDefinedBeansDefs = ajscMetaDataService.getAllEntries(MAPNAME)
+		def foundJSONUserDefinedBeansDefs = ajscMetaDataService.findAllEntriesBy(MAPNAME, [namespace: namespace, beansDefVersion: beansDefVersion])
 		foundJSONUserDefinedBeansDefs.each { jsonUserDefinedBeansDef ->
 			if (jsonUserDefinedBeansDef) {
 				def beansDef = AjscMetaDataUtil.fromJson(UserDefinedBeansDef, jsonUserDefinedBeansDef)
 				if (!beansDef.id) { beansDef.id = beansDef.generateId() }
-				
-				if ((beansDef.namespace == namespace) &&
-					(beansDef.beansDefVersion == beansDefVersion)) {
-					foundUserDefinedBeansDefs.add(beansDef)
-				}
+				foundUserDefinedBeansDefs.add(beansDef)
 			}
 		}
 		return foundUserDefinedBeansDefs
@@ -306,15 +290,12 @@ class UserDefinedBeansDef implements Serializable {
 		// Read with Protocol Buffers client
 		if (!ajscMetaDataService) { initAjscMetaDataService() }
 		def foundUserDefinedBeansDefs = new ArrayList()
-		def foundJSONUserDefinedBeansDefs = ajscMetaDataService.getAllEntries(MAPNAME)
+		def foundJSONUserDefinedBeansDefs = ajscMetaDataService.findAllEntriesMatching(MAPNAME, ['namespace']) { values -> values[0] ==~ /${namespaceFilter}/ }
 		foundJSONUserDefinedBeansDefs.each { jsonUserDefinedBeansDef ->
 			if (jsonUserDefinedBeansDef) {
 				def beansDef = AjscMetaDataUtil.fromJson(UserDefinedBeansDef, jsonUserDefinedBeansDef)
 				if (!beansDef.id) { beansDef.id = beansDef.generateId() }
-				
-				if ((beansDef.namespace ==~ /${namespaceFilter}/)) {
-					foundUserDefinedBeansDefs.add(beansDef)
-				}
+				foundUserDefinedBeansDefs.add(beansDef)
 			}
 		}
 		return foundUserDefinedBeansDefs
@@ -324,15 +305,12 @@ class UserDefinedBeansDef implements Serializable {
 		// Read with Protocol Buffers client
 		if (!ajscMetaDataService) { initAjscMetaDataService() }
 		def foundUserDefinedBeansDefs = new ArrayList()
-		def foundJSONUserDefinedBeansDefs = ajscMetaDataService.getAllEntries(MAPNAME)
+		def foundJSONUserDefinedBeansDefs = ajscMetaDataService.findAllEntriesBy(MAPNAME, [namespace: namespace])
 		foundJSONUserDefinedBeansDefs.each { jsonUserDefinedBeansDef ->
 			if (jsonUserDefinedBeansDef) {
 				def beansDef = AjscMetaDataUtil.fromJson(UserDefinedBeansDef, jsonUserDefinedBeansDef)
 				if (!beansDef.id) { beansDef.id = beansDef.generateId() }
-				
-				if (beansDef.namespace == namespace) {
-					foundUserDefinedBeansDefs.add(beansDef)
-				}
+				foundUserDefinedBeansDefs.add(beansDef)
 			}
 		}
 		return foundUserDefinedBeansDefs
@@ -67,15 +67,13 @@ class UserDefinedBeansDefContext {
 		// Read with Protocol Buffers client
 		if (!ajscMetaDataService) { initAjscMetaDataService() }
 		def foundUserDefinedBeansDefContexts = new ArrayList()
-		def foundJSONUserDefinedBeansDefContexts = ajscMetaDataService.getAllEntries(MAPNAME)
+		def foundJSONUserDefinedBeansDefContexts = ajscMetaDataService.findAllEntriesBy(MAPNAME, [userDefinedBeansDefId: userDefinedBeansDefId])
 		//println "UserDefinedBeansDefContext.findAllByUserDefinedBeansDefId foundJSONUserDefinedBeansDefContexts: ${foundJSONUserDefinedBeansDefContexts}"
 		foundJSONUserDefinedBeansDefContexts.each { jsonUserDefinedBeansDefContext ->
 			if (jsonUserDefinedBeansDefContext) {
 				def userDefinedBeansDefContext = AjscMetaDataUtil.fromJson(UserDefinedBeansDefContext, jsonUserDefinedBeansDefContext)
 				userDefinedBeansDefContext.assignId()
-				if (userDefinedBeansDefContext.userDefinedBeansDefId == userDefinedBeansDefId) {
-					foundUserDefinedBeansDefContexts.add(userDefinedBeansDefContext)
-				}
+				foundUserDefinedBeansDefContexts.add(userDefinedBeansDefContext)
 			}
 		}
 		return foundUserDefinedBeansDefContexts
@@ -85,15 +83,13 @@ class UserDefinedBeansDefContext {
 		// Read with Protocol Buffers client
 		if (!ajscMetaDataService) { initAjscMetaDataService() }
 		def foundUserDefinedBeansDefContexts = new ArrayList()
-		def foundJSONUserDefinedBeansDefContexts = ajscMetaDataService.getAllEntries(MAPNAME)
+		def foundJSONUserDefinedBeansDefContexts = ajscMetaDataService.findAllEntriesBy(MAPNAME, [contextId: contextId])
 		//println "UserDefinedBeansDefContext.findAllByContextId foundJSONUserDefinedBeansDefContexts: ${foundJSONUserDefinedBeansDefContexts}"
 		foundJSONUserDefinedBeansDefContexts.each { jsonUserDefinedBeansDefContext ->
 			if (jsonUserDefinedBeansDefContext) {
 				def userDefinedBeansDefContext = AjscMetaDataUtil.fromJson(UserDefinedBeansDefContext, jsonUserDefinedBeansDefContext)
 				userDefinedBeansDefContext.assignId()
-				if (userDefinedBeansDefContext.contextId == contextId) {
-					foundUserDefinedBeansDefContexts.add(userDefinedBeansDefContext)
-				}
+				foundUserDefinedBeansDefContexts.add(userDefinedBeansDefContext)
 			}
 		}
 		return foundUserDefinedBeansDefContexts
@@ -7,6 +7,7 @@ import org.apache.commons.lang.builder.HashCodeBuilder
 import org.slf4j.Logger
 import org.slf4j.LoggerFactory
 import ajsc.util.MessageMgr
+import ajsc.providers.ValueChannel
 
 import org.springframework.web.context.WebApplicationContext
 import org.springframework.web.context.ContextLoader
@@ -195,19 +196,65 @@ class UserDefinedJar implements Serializable {
 		return foundUserDefinedJars
 	}
 	
+	/**
+	 * The jars whose id elements (namespace, jarName, jarVersion) pass the
+	 * filter, without their content: openJarContent streams it from the
+	 * persistence service. Unlike list, jars saved without content are
+	 * listed too, see hasJarContent.
+	 */
+	static List<UserDefinedJar> findAllWithoutContent(Closure filter = { true }) {
+		if (!ajscMetaDataService) { initAjscMetaDataService() }
+		def foundUserDefinedJars = new ArrayList()
+		ajscMetaDataService.getMapKeys(MAPNAME).each { key ->
+			def elements = parseUserDefinedJarId(key as String)
+			if (filter(elements)) {
+				def userDefinedJar = new UserDefinedJar(namespace: elements['namespace'], jarName: elements['jarName'], jarVersion: elements['jarVersion'])
+				userDefinedJar.id = userDefinedJar.generateId()
+				foundUserDefinedJars.add(userDefinedJar)
+			}
+		}
+		return foundUserDefinedJars
+	}
+
+	/**
+	 * @return the content of the jar, from memory if it was loaded, else
+	 *         streamed from the persistence service; null if it was not
+	 *         saved. The caller must close it.
+	 */
+	ValueChannel openJarContent() {
+		if (jarContent != null) {
+			return ValueChannel.of(jarContent)
+		}
+		if (!ajscMetaDataService) { initAjscMetaDataService() }
+		return ajscMetaDataService.openByteArrayMapEntry(MAPNAME, generateId())
+	}
+
+	/**
+	 * @return true if the jar was saved with content, without reading it
+	 */
+	boolean hasJarContent() {
+		def content = openJarContent()
+		if (content == null) {
+			return false
+		}
+		try {
+			return content.size() > 0
+		} finally {
+			content.close()
+		}
+	}
+
 	static List<UserDefinedJar> findAllByNamespaceLikeAndJarNameLike(namespaceFilter, nameFilter) {
 		// Read with Protocol Buffers client
 		if (!ajscMetaDataService) { initAjscMetaDataService() }
 		def foundUserDefinedJars = new ArrayList()
-		def foundUserDefinedJarsMap = ajscMetaDataService.getAllByteArrayEntriesMap(MAPNAME)
-		foundUserDefinedJarsMap.each { key, value ->
-			if (value) {
-				def elements = parseUserDefinedJarId(key as String)
-				def userDefinedJar = new UserDefinedJar(namespace: elements['namespace'], jarName: elements['jarName'], jarVersion: elements['jarVersion'], jarContent: value)
-				if (!userDefinedJar.id) { userDefinedJar.id = userDefinedJar.generateId() }
-				
-				if ((userDefinedJar.jarName ==~ /${nameFilter}/) &&
-					(userDefinedJar.namespace ==~ /${namespaceFilter}/)) {
+		// the keys name the jars, so only the content of the matching jars is read
+		ajscMetaDataService.getMapKeys(MAPNAME).each { key ->
+			def elements = parseUserDefinedJarId(key as String)
+			if ((elements.jarName ==~ /${nameFilter}/) &&
+				(elements.namespace ==~ /${namespaceFilter}/)) {
+				def userDefinedJar = findById(key as String)
+				if (userDefinedJar) {
 					foundUserDefinedJars.add(userDefinedJar)
 				}
 			}
@@ -218,7 +265,6 @@ class UserDefinedJar implements Serializable {
 	static String getAllByNamespaceLikeAndJarVersionLike(namespaceFilter, versionFilter) {
 		// Read with Protocol Buffers client
 		if (!ajscMetaDataService) { initAjscMetaDataService() }
-		def foundUserDefinedJarsMap = ajscMetaDataService.getAllByteArrayEntriesMap(MAPNAME)
 		def valueList = []
 		
 		// For wildcard searches
@@ -228,15 +274,12 @@ class UserDefinedJar implements Serializable {
 		namespaceFilter = namespaceFilter.replace(wildcardPattern, ".*")
 		versionFilter = versionFilter.replace(wildcardPattern, ".*")
 		
-		foundUserDefinedJarsMap.each { key, value ->
-			if (value) {
-				def elements = parseUserDefinedJarId(key as String)
-				def userDefinedJar = new UserDefinedJar(namespace: elements['namespace'], jarName: elements['jarName'], jarVersion: elements['jarVersion'], jarContent: value)
-				if (!userDefinedJar.id) { userDefinedJar.id = userDefinedJar.generateId() }
-				
-				if ((userDefinedJar.jarVersion ==~ /${versionFilter}/) &&
-					(userDefinedJar.namespace ==~ /${namespaceFilter}/)) {
-					
+		ajscMetaDataService.getMapKeys(MAPNAME).each { key ->
+			def elements = parseUserDefinedJarId(key as String)
+			if ((elements.jarVersion ==~ /${versionFilter}/) &&
+				(elements.namespace ==~ /${namespaceFilter}/)) {
+				def userDefinedJar = findById(key as String)
+				if (userDefinedJar) {
 					valueList << AjscMetaDataUtil.asJson(userDefinedJar)
 				}
 			}
@@ -261,15 +304,12 @@ class UserDefinedJar implements Serializable {
 		// Read with Protocol Buffers client
 		if (!ajscMetaDataService) { initAjscMetaDataService() }
 		def foundUserDefinedJars = new ArrayList()
-		def foundUserDefinedJarsMap = ajscMetaDataService.getAllByteArrayEntriesMap(MAPNAME)
-		foundUserDefinedJarsMap.each { key, value ->
-			if (value) {
-				def elements = parseUserDefinedJarId(key as String)
-				def userDefinedJar = new UserDefinedJar(namespace: elements['namespace'], jarName: elements['jarName'], jarVersion: elements['jarVersion'], jarContent: value)
-				if (!userDefinedJar.id) { userDefinedJar.id = userDefinedJar.generateId() }
-				
-				if ((userDefinedJar.namespace == namespaceFilter) &&
-					(userDefinedJar.jarVersion == versionFilter)) {
+		ajscMetaDataService.getMapKeys(MAPNAME).each { key ->
+			def elements = parseUserDefinedJarId(key as String)
+			if ((elements.namespace == namespaceFilter) &&
+				(elements.jarVersion == versionFilter)) {
+				def userDefinedJar = findById(key as String)
+				if (userDefinedJar) {
 					foundUserDefinedJars.add(userDefinedJar)
 				}
 			}
@@ -281,16 +321,13 @@ class UserDefinedJar implements Serializable {
 		// Read with Protocol Buffers client
 		if (!ajscMetaDataService) { initAjscMetaDataService() }
 		def foundUserDefinedJars = new ArrayList()
-		def foundUserDefinedJarsMap = ajscMetaDataService.getAllByteArrayEntriesMap(MAPNAME)
-		foundUserDefinedJarsMap.each { key, value ->
-			if (value) {
-				def elements = parseUserDefinedJarId(key as String)
-				def userDefinedJar = new UserDefinedJar(namespace: elements['namespace'], jarName: elements['jarName'], jarVersion: elements['jarVersion'], jarContent: value)
-				if (!userDefinedJar.id) { userDefinedJar.id = userDefinedJar.generateId() }
-				
-				if ((userDefinedJar.namespace == namespaceFilter) &&
-					(userDefinedJar.jarVersion == versionFilter) &&
-					(userDefinedJar.jarName == nameFilter)) {
+		ajscMetaDataService.getMapKeys(MAPNAME).each { key ->
+			def elements = parseUserDefinedJarId(key as String)
+			if ((elements.namespace == namespaceFilter) &&
+				(elements.jarVersion == versionFilter) &&
+				(elements.jarName == nameFilter)) {
+				def userDefinedJar = findById(key as String)
+				if (userDefinedJar) {
 					foundUserDefinedJars.add(userDefinedJar)
 				}
 			}
@@ -302,14 +339,11 @@ class UserDefinedJar implements Serializable {
 		// Read with Protocol Buffers client
 		if (!ajscMetaDataService) { initAjscMetaDataService() }
 		def foundUserDefinedJars = new ArrayList()
-		def foundUserDefinedJarsMap = ajscMetaDataService.getAllByteArrayEntriesMap(MAPNAME)
-		foundUserDefinedJarsMap.each { key, value ->
-			if (value) {
-				def elements = parseUserDefinedJarId(key as String)
-				def userDefinedJar = new UserDefinedJar(namespace: elements['namespace'], jarName: elements['jarName'], jarVersion: elements['jarVersion'], jarContent: value)
-				if (!userDefinedJar.id) { userDefinedJar.id = userDefinedJar.generateId() }
-				
-				if ((userDefinedJar.namespace ==namespaceFilter)) {
+		ajscMetaDataService.getMapKeys(MAPNAME).each { key ->
+			def elements = parseUserDefinedJarId(key as String)
+			if ((elements.namespace == namespaceFilter)) {
+				def userDefinedJar = findById(key as String)
+				if (userDefinedJar) {
 					foundUserDefinedJars.add(userDefinedJar)
 				}
 			}
@@ -67,15 +67,13 @@ class UserDefinedJarContext {
 		// Read with Protocol Buffers client
 		if (!ajscMetaDataService) { initAjscMetaDataService() }
 		def foundUserDefinedJarContexts = new ArrayList()
-		def foundJSONUserDefinedJarContexts = ajscMetaDataService.getAllEntries(MAPNAME)
+		def foundJSONUserDefinedJarContexts = ajscMetaDataService.findAllEntriesBy(MAPNAME, [userDefinedJarId: userDefinedJarId])
 		//println "UserDefinedJarContext.findAllByUserDefinedJarId foundJSONUserDefinedJarContexts: ${foundJSONUserDefinedJarContexts}"
 		foundJSONUserDefinedJarContexts.each { jsonUserDefinedJarContext ->
 			if (jsonUserDefinedJarContext) {
 				def userDefinedJarContext = AjscMetaDataUtil.fromJson(UserDefinedJarContext, jsonUserDefinedJarContext)
 				userDefinedJarContext.assignId()
-				if (userDefinedJarContext.userDefinedJarId == userDefinedJarId) {
-					foundUserDefinedJarContexts.add(userDefinedJarContext)
-				}
+				foundUserDefinedJarContexts.add(userDefinedJarContext)
 			}
 		}
 		return foundUserDefinedJarContexts
@@ -85,15 +83,13 @@ class UserDefinedJarContext {
 		// Read with Protocol Buffers client
 		if (!ajscMetaDataService) { initAjscMetaDataService() }
 		def foundUserDefinedJarContexts = new ArrayList()
-		def foundJSONUserDefinedJarContexts = ajscMetaDataService.getAllEntries(MAPNAME)
+		def foundJSONUserDefinedJarContexts = ajscMetaDataService.findAllEntriesBy(MAPNAME, [contextId: contextId])
 		//println "UserDefinedJarContext.findAllByContextId foundJSONUserDefinedJarContexts: ${foundJSONUserDefinedJarContexts}"
 		foundJSONUserDefinedJarContexts.each { jsonUserDefinedJarContext ->
 			if (jsonUserDefinedJarContext) {
 				def userDefinedJarContext = AjscMetaDataUtil.fromJson(UserDefinedJarContext, jsonUserDefinedJarContext)
 				userDefinedJarContext.assignId()
-				if (userDefinedJarContext.contextId == contextId) {
-					foundUserDefinedJarContexts.add(userDefinedJarContext)
-				}
+				foundUserDefinedJarContexts.add(userDefinedJarContext)
 			}
 		}
 		return foundUserDefinedJarContexts
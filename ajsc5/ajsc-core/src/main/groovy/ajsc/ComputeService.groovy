@@ -4,10 +4,12 @@
 package ajsc
 import grails.spring.BeanBuilder
 
-import javax.xml.bind.JAXBContext
-import javax.xml.bind.Unmarshaller
-
 import java.util.Properties
+import java.util.concurrent.Callable
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
 
 import org.apache.camel.*
 import org.apache.camel.builder.*
@@ -30,10 +32,15 @@ import org.springframework.context.ApplicationContextAware
 
 import ajsc.common.CommonNames;
 import ajsc.http4.AjscHttpHeaderFilterStrategy
+import ajsc.providers.ChangeFeed
 import ajsc.rest.AjscRestletHeaderFilterStrategy
+import ajsc.servlet.EndpointHealthCheck
 import ajsc.util.AjscTemplateEngine
 import ajsc.util.MessageMgr
 import ajsc.utils.DME2Helper
+import ajsc.utils.EndpointRegistry
+import ajsc.utils.RouteDefinitionCompiler
+import ajsc.utils.RouteStartupTracker
 import ajsc.utils.SystemErrorHandlerUtil
 
 import com.att.aft.dme2.api.DME2Manager
@@ -109,7 +116,29 @@ class ComputeService implements ApplicationContextAware {
 	static transactional = true
 	static expose = ['jmx']
 
-	static public  Map<String,String> endpointUriMap = new HashMap<Object, String>();
+	// the from endpoints of the routes of all contexts, see isUniqueEndpoints;
+	// the health checks answer from a snapshot taken on every change
+	static final EndpointRegistry endpointRegistry = new EndpointRegistry({ EndpointHealthCheck.refresh() } as Runnable)
+
+	static public  Map<String,String> endpointUriMap = endpointRegistry.getServiceUris();
+
+	// the persistence change the routes of the contexts are up to, see reconcileRoutes
+	def routeSequence = 0L
+
+	// ids of the running routes added from ComputeRoutes rather than defined
+	// by context beans, see reconcileRoutes
+	final Set<String> computeRouteIds = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>())
+
+	/**
+	 * Number of threads compileRoutes parses route XML with, at most the
+	 * number of processors by default.
+	 */
+	static final String SYSPROP_COMPILE_THREADS = "AJSC_ROUTE_COMPILE_THREADS"
+
+	final RouteDefinitionCompiler routeCompiler = new RouteDefinitionCompiler()
+
+	// route started events of all contexts, see checkAndWaitForRoutesStarted
+	final RouteStartupTracker routeStartupTracker = new RouteStartupTracker()
 
 
 	def getMessageMap(method, msgnum) {
@@ -152,6 +181,8 @@ class ComputeService implements ApplicationContextAware {
 		}
 
 		ctxMap.clear()
+		endpointRegistry.clear()
+		computeRouteIds.clear()
 		Context.list().each { ctx ->
 			if (!hasContext(ctx.id)) {
 				addContext(ctx.id)
@@ -201,6 +232,7 @@ class ComputeService implements ApplicationContextAware {
 				"${Context.DEFAULT_CONTEXT_KEY}"] as Object[])
 			ctx.stopRoute(routeId)
 			ctx.removeRoute(routeId)
+			endpointRegistry.unregister(routeId)
 			try {
 				def status = defaultContext.getRouteStatus(routeId)
 				//println "\t\t${msg}"
@@ -213,6 +245,7 @@ class ComputeService implements ApplicationContextAware {
 
 		stop(ctxKey)
 		ctxMap.remove(ctxKey as String)
+		endpointRegistry.unregisterContext(ctxKey as String)
 	}
 
 	def loadBeans(ctxKey) {
@@ -385,7 +418,12 @@ class ComputeService implements ApplicationContextAware {
 		}
 
 		initializeCamelDefaultThreadPoolProfile(ctx)
+		def startupNotifier = routeStartupTracker.newNotifier()
+		ctx.getManagementStrategy().addEventNotifier(startupNotifier)
+		ServiceHelper.startService(startupNotifier)
 		ctx.start()
+		// routes the beans of the context define
+		ctx.getRouteDefinitions().each { rd -> registerEndpoints(ctxKey, rd) }
 
 		//Initialize Camel Components
 		initializeCamelComponents(ctx);
@@ -612,6 +650,7 @@ class ComputeService implements ApplicationContextAware {
 			println "Successfully stopped EJB container..."
 
 			ctxMap.remove(ctxKey as String)
+			endpointRegistry.unregisterContext(ctxKey as String)
 			MessageMgr.logMessage(logger,'debug',getMessageMap(LMETHOD,2),["${ctxKey}"] as Object[])
 		}
 	}
@@ -645,53 +684,52 @@ class ComputeService implements ApplicationContextAware {
 	}
 
 	/**
-	 * <p>listRoutes - list all Route IDs</p>
+	 * <p>checkAndWaitForRoutesStarted - waits until the routes of all
+	 * contexts that are not started yet are, for at most retryCount times
+	 * retryInterval milliseconds, and logs those that still are not.</p>
 	 *
-	 * @params ajsc.ComputeRoute
-	 * @see also sa.CamelService
-	 * @returns
+	 * @see RouteStartupTracker
 	 */
 	private void checkAndWaitForRoutesStarted(){
 		def LMETHOD = "checkAndWaitForRoutesStarted"
-		boolean isAllRoutesStarted=true;
 		int retry_count=Integer.valueOf(props.getProperty('retryCount'));
 		int retry_interval=Integer.valueOf(props.getProperty('retryInterval'));
 
-		for (int i=1; i<= retry_count; i++){
-			ctxMap.each { ctxKey, ctx ->
-				ctx.getRoutes().each{route->
-					String rid= route.getId()
-					def routeStatus =  ctx.getRouteStatus(rid)
-
-					if (!routeStatus.isStarted()) {
-						isAllRoutesStarted =false;
-						sleep(retry_interval);
-						true; // break the ctxMap.each
-					}
+		def pending = []
+		ctxMap.each { ctxKey, ctx ->
+			ctx.getRoutes().each{route->
+				if (!ctx.getRouteStatus(route.getId())?.isStarted()) {
+					pending.add(route.getId())
 				}
 			}
-			if (isAllRoutesStarted){
-				break;
-			}
 		}
 
-		if (!isAllRoutesStarted)
-		{
-			//After retry if all routes are not started, print the not started routes
-			ctxMap.each { ctxKey, ctx ->
-				ctx.getRoutes().each{route->
-					String rid= route.getId()
-					def routeStatus =  ctx.getRouteStatus(rid)
-
-					if (!routeStatus.isStarted()) {
-
-						MessageMgr.logMessage(logger,'warn',getMessageMap(LMETHOD,1),["${route.getId()}"] as Object[])
-					}
-				}
+		long timeout = (long) retry_count * retry_interval
+		if (pending && !routeStartupTracker.awaitStarted(pending, timeout, TimeUnit.MILLISECONDS)) {
+			routeStartupTracker.getNotStarted(pending).each { rid ->
+				MessageMgr.logMessage(logger,'warn',getMessageMap(LMETHOD,1),["${rid}"] as Object[])
 			}
 		}
+		if (logger.isDebugEnabled()) {
+			MessageMgr.logMessage(logger,'debug',getMessageMap(LMETHOD,2),["${pending.size()}", "${getRouteStartupMillis()}"] as Object[])
+		}
+	}
+
+	/**
+	 * @return the milliseconds each route took from added to started, in the
+	 *         order they started
+	 */
+	def getRouteStartupMillis() {
+		return routeStartupTracker.getStartupMillis()
 	}
 
+	/**
+	 * <p>listRoutes - list all Route IDs</p>
+	 *
+	 * @params ajsc.ComputeRoute
+	 * @see also sa.CamelService
+	 * @returns
+	 */
 	def listRoutes ={
 		def res = []
 		ctxMap.each { ctxKey, ctx ->
@@ -709,24 +747,14 @@ class ComputeService implements ApplicationContextAware {
 	 * @return the route id of the route with matching endpoint or null
 	 */
 	def validateFromEndpointUnique(cr) {
-		def returnVal = null
-		def unique = false
 		RouteDefinition route = getRouteDefinition(cr)
-
-		// endpoints Map<Object endpoint, String routeId>
-		def endpoints = getAllEndpoints()
-
-		List inputs = route.getInputs()
-		for (FromDefinition from : inputs) {
-			for (Object endpoint : endpoints.keySet()) {
-				// Ignore endpoints for the current route, but if an endpoint from another route matches, we have a duplicate
-				if (endpoints.get(endpoint) != route.getId() && endpoint == from.getUriOrRef()) {
-					returnVal = endpoints.get(endpoint)
-					break
-				}
-			}
+		// Ignore endpoints for the current route, but if an endpoint from another route matches, we have a duplicate
+		def conflict = endpointRegistry.findConflict(route.getId(), route.getInputs()*.getUriOrRef())
+		if (conflict != null) {
+			// a rejected route is not added, do not keep its definition
+			routeCompiler.evict(route.getId())
 		}
-		return returnVal
+		return conflict
 	}
 
 	/**
@@ -736,22 +764,15 @@ class ComputeService implements ApplicationContextAware {
 	 * @return true if all input endpoints are unique, false otherwise
 	 */
 	def isUniqueEndpoints(route) {
-		def returnVal = true
-
-		// endpoints Map<Object endpoint, String routeId>
-		def endpoints = getAllEndpoints()
-
-		List inputs = route.getInputs()
-		for (FromDefinition from : inputs) {
-			for (Object endpoint : endpoints.keySet()) {
-				// Ignore endpoints for the current route, but if an endpoint from another route matches, we have a duplicate
-				if (endpoints.get(endpoint) != route.getId() && endpoint == from.getUriOrRef()) {
-					returnVal = false
-					break
-				}
-			}
-		}
-		return returnVal
+		// Ignore endpoints for the current route, but if an endpoint from another route matches, we have a duplicate
+		return endpointRegistry.findConflict(route.getId(), route.getInputs()*.getUriOrRef()) == null
+	}
+
+	/**
+	 * Registers the <from: > endpoints of a route added to a context
+	 */
+	def registerEndpoints(ctxKey, RouteDefinition route) {
+		endpointRegistry.register(ctxKey as String, route.getId(), route.getInputs()*.getUriOrRef())
 	}
 
 	/**
@@ -759,42 +780,26 @@ class ComputeService implements ApplicationContextAware {
 	 * @return Map<Object endoint, String routeId>
 	 */
 	def getAllEndpoints = {
-		def endpoints = new HashMap<Object, String>()
-		ctxMap.values().each { v ->
-			v.getRouteDefinitions().each { rd ->
-				rd.getInputs().each { from ->
-					endpoints.put(from.getUriOrRef(), rd.getId())
-				}
-			}
-		}
-		return endpoints
+		return endpointRegistry.getEndpoints()
 	}
 
 
 	def getAllEndpointUrlWithoutQueryParam= {
-		def endpoints = new HashMap<Object, String>()
-		ctxMap.values().each { v ->
-			v.getRouteDefinitions().each { rd ->
-				rd.getInputs().each { from ->
-					String endPointURI = from.getUriOrRef().replace("{", "");
-					endPointURI = endPointURI.replace("}", "");
-					endpoints.put(getEndpointUrlWithoutQueryParam(endPointURI), rd.getId());
-				}
-			}
-		}
-		return endpoints
+		return new HashMap<Object, String>(endpointRegistry.getRouteServiceUris())
 	}
 
-	def getRouteDefinition(cr) {
-		def LMETHOD = ""
-		RouteDefinition route
-		JAXBContext context = JAXBContext.newInstance("org.apache.camel:org.apache.camel.model:org.apache.camel.model.config:org.apache.camel.model.dataformat:org.apache.camel.model.language:org.apache.camel.model.loadbalancer")
-		Unmarshaller unmarshaller = context.createUnmarshaller()
-		Object value = unmarshaller.unmarshal(new StringReader(propertyReplace(cr.routeDefinition)))
-		if (value instanceof RouteDefinition) {
-			route = (RouteDefinition)value
-			route.routeId(cr.generateId())
-		} else{
+	/**
+	 * @param take true if the definition is added to a context, which then
+	 *        owns it
+	 * @return the parsed route, the one parsed earlier if the XML of the route
+	 *         did not change
+	 */
+	def getRouteDefinition(cr, boolean take = false) {
+		def LMETHOD = "getRouteDefinition(cr)"
+		def routeId = cr.generateId() as String
+		def xml = propertyReplace(cr.routeDefinition) as String
+		RouteDefinition route = take ? routeCompiler.take(routeId, xml) : routeCompiler.compile(routeId, xml)
+		if (route == null) {
 			MessageMgr.logMessage(logger,'error',getMessageMap(LMETHOD,1),[
 				"${cr?.generateId()}",
 				"${cr.routeDefinition}"] as Object[])
@@ -802,6 +807,39 @@ class ComputeService implements ApplicationContextAware {
 		return route
 	}
 
+	/**
+	 * <p>compileRoutes - parses the XML of the routes on a bounded pool of
+	 * threads, so that adding them one by one afterwards does not parse them
+	 * again. A route that fails to parse is reported when it is added.</p>
+	 *
+	 * @returns the number of routes parsed
+	 */
+	def compileRoutes(routeList) {
+		def LMETHOD = "compileRoutes(routeList)"
+		if (routeList.size() < 2) {
+			return 0
+		}
+		int threads = Math.min(routeList.size(), Integer.getInteger(SYSPROP_COMPILE_THREADS, Runtime.getRuntime().availableProcessors()))
+		ExecutorService executor = Executors.newFixedThreadPool(Math.max(threads, 1))
+		def compiled = 0
+		try {
+			def tasks = routeList.collect { cr -> { -> getRouteDefinition(cr) } as Callable }
+			executor.invokeAll(tasks).each { future ->
+				try {
+					if (future.get() != null) {
+						compiled++
+					}
+				} catch (all) {
+					MessageMgr.logMessage(logger,'debug',getMessageMap(LMETHOD,2),all)
+				}
+			}
+		} finally {
+			executor.shutdown()
+		}
+		MessageMgr.logMessage(logger,'debug',getMessageMap(LMETHOD,1),["${compiled}","${routeList.size()}","${threads}"] as Object[])
+		return compiled
+	}
+
 	/**
 	 * <p>addRoute - creates a Route dynamically from the provided XML</p>
 	 *
@@ -817,7 +855,7 @@ class ComputeService implements ApplicationContextAware {
 			//println "ComputeService.addRoute adding ${cr.generateId()}"
 			MessageMgr.logMessage(logger,'debug',getMessageMap(LMETHOD,1),["${cr?.generateId()}"] as Object[])
 			if (cr) {
-				RouteDefinition route = getRouteDefinition(cr)
+				RouteDefinition route = getRouteDefinition(cr, true)
 				def routeName = cr.id
 				// Get the current camel context
 				def currCtx = findRouteContext(routeName)
@@ -844,6 +882,8 @@ class ComputeService implements ApplicationContextAware {
 							currCtx.stopRoute(routeName)
 							currCtx.shutdownRoute(routeName)
 							currCtx.removeRoute(routeName)
+							endpointRegistry.unregister(routeName as String)
+							computeRouteIds.remove(routeName as String)
 						}
 						// add route to context
 						if(cr.deployStatus=="Active") {
@@ -870,6 +910,10 @@ class ComputeService implements ApplicationContextAware {
 							//								})
 							//							}
 							ctx.addRouteDefinitions(Collections.singletonList(route));
+							registerEndpoints(ctxKey, route)
+							if (routeName) {
+								computeRouteIds.add(routeName as String)
+							}
 						}
 						try {
 							def status = ctx.getRouteStatus(routeName)
@@ -913,6 +957,7 @@ class ComputeService implements ApplicationContextAware {
 		try {
 			//println "ComputeService.delRoute routeName: ${routeName}"
 			MessageMgr.logMessage(logger,'debug',getMessageMap(LMETHOD,1),["${routeName}"] as Object[])
+			routeCompiler.evict(routeName as String)
 			def ctx = findRouteContext(routeName)
 			if (!ctx) {
 				MessageMgr.logMessage(logger,'error',getMessageMap(LMETHOD,4),["${routeName}"] as Object[])
@@ -921,7 +966,9 @@ class ComputeService implements ApplicationContextAware {
 				if (route) {
 					ctx.removeRouteDefinition(route)
 				}
+				endpointRegistry.unregister(routeName as String)
 			}
+			computeRouteIds.remove(routeName as String)
 		} catch(all){
 			//println "Failed to delete route ${routeName}"
 			//println all.getMessage()
@@ -929,6 +976,71 @@ class ComputeService implements ApplicationContextAware {
 		}
 	}
 
+	/**
+	 * @return the change feed of the persistence service the routes are read
+	 *         from, null before RouteMgmtService has one
+	 */
+	ChangeFeed getRouteFeed() {
+		return RouteMgmtService.persistenceService?.getChangeFeed()
+	}
+
+	/**
+	 * <p>reconcileRoutes - adds, replaces or removes the routes saved or
+	 * deleted since init or the previous reconcile, as found in the
+	 * persistence change feed, instead of adding every route again. If the
+	 * feed no longer keeps all of those changes, every route is added
+	 * again and the running routes no longer saved are removed.</p>
+	 *
+	 * @returns the number of routes reconciled
+	 */
+	synchronized def reconcileRoutes() {
+		def LMETHOD = "reconcileRoutes()"
+		def reconciled = 0
+		try {
+			def feed = getRouteFeed()
+			if (feed == null) {
+				return reconciled
+			}
+			def sequence = feed.getSequence()
+			def changes = feed.changesSince(ComputeRoute.MAPNAME as String, routeSequence)
+			if (changes == null) {
+				MessageMgr.logMessage(logger,'warn',getMessageMap(LMETHOD,2),["${routeSequence}"] as Object[])
+				def routeList = ComputeRoute.list()
+				compileRoutes(routeList)
+				routeList.each { addRoute(it) }
+				def stored = routeList.collect { it.id as String } as Set
+				def gone = computeRouteIds.findAll { !stored.contains(it) }
+				gone.each { findRouteContext(it) ? delRoute(it) : computeRouteIds.remove(it) }
+				reconciled = routeList.size() + gone.size()
+			} else {
+				// the last change of each route wins
+				def latest = new LinkedHashMap()
+				changes.each { latest.remove(it.key); latest.put(it.key, it) }
+				MessageMgr.logMessage(logger,'debug',getMessageMap(LMETHOD,1),["${latest.size()}","${routeSequence}"] as Object[])
+				latest.each { routeName, change ->
+					def cr = change.isDelete() ? null : ComputeRoute.findById(routeName)
+					if (cr) {
+						addRoute(cr)
+					} else if (findRouteContext(routeName)) {
+						delRoute(routeName)
+					}
+				}
+				reconciled = latest.size()
+				if (changes) {
+					sequence = Math.max(sequence, changes.last().getSequence())
+				}
+			}
+			routeSequence = sequence
+			if (reconciled) {
+				endpointUriMap = endpointRegistry.getServiceUris()
+				EndpointHealthCheck.refresh()
+			}
+		} catch (all) {
+			MessageMgr.logMessage(logger,'error',getMessageMap(LMETHOD,3),all)
+		}
+		return reconciled
+	}
+
 	/**
 	 * Determines if there are any routes defined for this context
 	 * @param ctxKey
@@ -963,15 +1075,18 @@ class ComputeService implements ApplicationContextAware {
 
 		try {
 			MessageMgr.logMessage(logger,'debug',getMessageMap(LMETHOD,2))
+			routeSequence = getRouteFeed()?.getSequence() ?: 0L
 			def routeList = ComputeRoute.list()
 			if (!routeList) {
 				MessageMgr.logMessage(logger,'debug',getMessageMap(LMETHOD,3))
 			} else {
+				compileRoutes(routeList)
 				routeList.each { addRoute(it) }
 				MessageMgr.logMessage(logger,'debug',getMessageMap(LMETHOD,4))
 			}
 
-			endpointUriMap=getAllEndpointUrlWithoutQueryParam();
+			endpointUriMap = endpointRegistry.getServiceUris()
+			EndpointHealthCheck.refresh();
 
 			if (System.getProperty("SOA_CLOUD_ENV") != null
 			&& System.getProperty("SOA_CLOUD_ENV").equalsIgnoreCase("true")) {
@@ -1089,10 +1204,11 @@ class ComputeService implements ApplicationContextAware {
 					}else if  (route.getDme2Url().startsWith(restletUriPattern)){
 						serviceUri=serviceUri.replaceFirst( restletUriPattern+"/", "/")
 					}
-					endpointUriMap.put(serviceUri, route.getDme2Url());
+					endpointRegistry.registerDme2Uri(serviceUri, route.getDme2Url());
 					dme2Helper.registerServiceToGRM(route.getDme2Url(),dme2Manager, true)
 				}
 			}
+			EndpointHealthCheck.refresh();
 
 
 
@@ -1122,6 +1238,7 @@ class ComputeService implements ApplicationContextAware {
 			if (!routeList) {
 				MessageMgr.logMessage(logger,'debug',getMessageMap(LMETHOD,4),["${ctxKey}"] as Object[])
 			} else {
+				compileRoutes(routeList)
 				routeList.each { addRoute(it) }
 				MessageMgr.logMessage(logger,'debug',getMessageMap(LMETHOD,5),["${ctxKey}"] as Object[])
 			}
@@ -1262,6 +1379,16 @@ class ComputeService implements ApplicationContextAware {
 		return ctx.getEndpointMap()
 	}
 
+	/**
+	 * <p>getHealthCheckStatistics</p>
+	 *
+	 * @see ajsc.servlet.EndpointHealthCheck
+	 * @returns probe counts and latencies of the HEAD/DME2HealthCheck probes
+	 */
+	def getHealthCheckStatistics() {
+		return EndpointHealthCheck.getStatistics()
+	}
+
 	/**
 	 * <p>startRoute</p>
 	 *
@@ -1349,31 +1476,6 @@ class ComputeService implements ApplicationContextAware {
 		this.appCtx = appCtx
 	}
 
-	/**
-	 * Get Endpoint Url without query parameters.
-	 *
-	 * @param endpointUrl
-	 * @return
-	 */
-	private String getEndpointUrlWithoutQueryParam(String endpointUrl) {
-		String endpointUrlWithoutQueryParam = endpointUrl.split("\\?")[0];
-
-		if (endpointUrlWithoutQueryParam.contains("att-dme2-servlet:///")) {
-			endpointUrlWithoutQueryParam = endpointUrlWithoutQueryParam
-					.replace("att-dme2-servlet:///", "/");
-		} else if (endpointUrlWithoutQueryParam.contains("att-dme2-servlet://")) {
-			endpointUrlWithoutQueryParam = endpointUrlWithoutQueryParam
-					.replace("att-dme2-servlet://", "/");
-		} else if (endpointUrlWithoutQueryParam.contains("servlet:/")) {
-			endpointUrlWithoutQueryParam = endpointUrlWithoutQueryParam
-					.replace("att-dme2-servlet:/", "/");
-		}
-
-		logger.debug("endpointUrlWithoutQueryParam"
-				+ endpointUrlWithoutQueryParam);
-		return endpointUrlWithoutQueryParam;
-	}
-
 }
 
 
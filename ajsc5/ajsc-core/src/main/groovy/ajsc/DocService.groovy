@@ -118,14 +118,15 @@ class DocService {
 		// Create Directory for Docs
 		def dir = "${props.getProperty('fileSystemRoot')}${AJSC_DOCS}"
 		if (createDir(dir)) {			
-			// Get Docs and write to filesystem
-			def docList = Doc.list()
-			if (!docList) {
+			// Get Docs and write to filesystem, a page at a time
+			def docCount = 0
+			Doc.eachDoc {
+				insertOrUpdateDoc(it)
+				docCount++
+			}
+			if (!docCount) {
 				MessageMgr.logMessage(logger,'info',getMessageMap(LMETHOD,10))
 			} else {
-				docList.each{
-					insertOrUpdateDoc(it)
-				}
 				MessageMgr.logMessage(logger,'info',getMessageMap(LMETHOD,11))
 			}
 			initialized=true
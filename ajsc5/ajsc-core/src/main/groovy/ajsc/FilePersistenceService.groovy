@@ -5,12 +5,24 @@ package ajsc
 
 
 import java.awt.event.ItemEvent;
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.ConcurrentMap
 import java.util.regex.Pattern
-import java.security.MessageDigest
 import org.apache.camel.Exchange;
-import static groovy.io.FileType.FILES
 import org.slf4j.Logger
 import org.slf4j.LoggerFactory
+
+import ajsc.providers.BatchJournal
+import ajsc.providers.CachingDBAdapter
+import ajsc.providers.ChangeFeed
+import ajsc.providers.DBAdapter
+import ajsc.providers.FilePersistenceClient
+import ajsc.providers.IndexingDBAdapter
+import ajsc.providers.LogPersistenceClient
+import ajsc.providers.MVStorePersistenceClient
+import ajsc.providers.PersistencePage
+import ajsc.providers.ValueChannel
+import ajsc.providers.WriteBatch
 import ajsc.util.MessageMgr
 
 class FilePersistenceService {
@@ -52,7 +64,10 @@ class FilePersistenceService {
 		if (initialized) {
 			initialized = false
 		}
-		
+		def current = adapter
+		if (current != null && current.metaClass.respondsTo(current, "shutdown")) {
+			current.shutdown()
+		}
 	}
 
 	/**
@@ -187,6 +202,25 @@ class FilePersistenceService {
 		return res
 	}
 
+	/**
+	 * Open the entry from the File System map specified by mapName
+	 * with key specified by mapKey for streaming, without reading it in
+	 * memory; ValueChannel.transferTo copies it to a file or a stream.
+	 * The caller must close the channel.
+	 * <p>
+	 * @param mapName
+	 * @param mapKey
+	 *
+	 * @return the channel, null if there is no such entry
+	 */
+	public ValueChannel openByteArrayMapEntry(String mapName, String mapKey) {
+		def staged = batches.get()?.get(mapName, mapKey)
+		if (staged != null) {
+			return staged.isDelete() ? null : ValueChannel.of(staged.getValue())
+		}
+		return getAdapter().openByteArray(mapName, mapKey)
+	}
+
 	/**
 	 * Remove the entry from the File System map specified by mapName 
 	 * with key specified by mapKey
@@ -219,116 +253,345 @@ class FilePersistenceService {
 	public Map getAllByteArrayEntriesMap(String mapName) {
 		return fetchAllByteArrayValues(mapName)
 	}
+
+	/**
+	 * Return one page of the entries of the File System map specified by
+	 * mapName whose keys start with keyPrefix. Pages read the stored
+	 * entries: the writes of a batch in progress are not seen.
+	 * <p>
+	 * @param mapName
+	 * @param keyPrefix null for all keys
+	 * @param resumeToken the next token of the previous page, null for the first page
+	 * @param pageSize
+	 *
+	 * @return the page, its next token is null on the last page
+	 */
+	public PersistencePage getMapPage(String mapName, String keyPrefix, String resumeToken, int pageSize) {
+		return getAdapter().fetchPage(mapName, keyPrefix, resumeToken, pageSize)
+	}
+
+	/**
+	 * Call the closure with the key and String value of every entry of the
+	 * File System map specified by mapName whose key starts with keyPrefix,
+	 * holding one page of pageSize entries in memory at a time.
+	 * <p>
+	 * @param mapName
+	 * @param keyPrefix null for all keys
+	 * @param pageSize
+	 * @param work
+	 */
+	public void eachMapEntry(String mapName, String keyPrefix, int pageSize, Closure work) {
+		def token = null
+		while (true) {
+			def page = getMapPage(mapName, keyPrefix, token, pageSize)
+			page.getEntries().each { key, value -> work(key, value) }
+			if (page.isLast()) {
+				return
+			}
+			token = page.getNextToken()
+		}
+	}
 	def ajscHome = System.getProperty("AJSC_HOME") ?: System.getenv("AJSC_HOME")	
 	def storagePath = ajscHome+"/data/"
 
-	def md5 = { text ->
-			 new BigInteger(1,MessageDigest.getInstance("MD5").digest(text.getBytes())).toString(16).padLeft(32,"0")}
-	
-	def mapFilePath = { map ->
-		"${storagePath}/${md5 map}"
+	/**
+	 * Selects the storage of the persistence maps: "file" (default) keeps one
+	 * file per entry under storagePath, "log" appends to per map segment
+	 * logs (see ajsc.providers.LogPersistenceClient) and imports the file
+	 * layout the first time a map is used, "mvstore" keeps all maps in one
+	 * H2 MVStore file (see ajsc.providers.MVStorePersistenceClient, whose
+	 * main migrates the file layout).
+	 */
+	static final String SYSPROP_ADAPTER = "AJSC_PERSISTENCE_ADAPTER"
+	/**
+	 * "true" puts an ajsc.providers.CachingDBAdapter in front of the
+	 * storage, see its AJSC_PERSISTENCE_CACHE_* properties.
+	 */
+	static final String SYSPROP_CACHE = "AJSC_PERSISTENCE_CACHE"
+	/**
+	 * "true" puts an ajsc.providers.IndexingDBAdapter in front of the
+	 * storage, answering findAllEntriesBy and findAllEntriesMatching without
+	 * scanning the map. Like the cache it assumes this process is the only
+	 * writer of storagePath; an index misses what another process writes.
+	 */
+	static final String SYSPROP_INDEXES = "AJSC_PERSISTENCE_INDEXES"
+
+	// one adapter per storage path, so all instances share its cache
+	private static final ConcurrentMap<String, DBAdapter> adapters = new ConcurrentHashMap<String, DBAdapter>()
+
+	private volatile DBAdapter adapter
+
+	// the batch the writes of a thread are staged in, see withBatch
+	private final ThreadLocal<WriteBatch> batches = new ThreadLocal<WriteBatch>()
+
+	static DBAdapter createAdapter(String storagePath) {
+		def name = System.getProperty(SYSPROP_ADAPTER, "file")
+		def cache = Boolean.getBoolean(SYSPROP_CACHE)
+		def indexes = Boolean.getBoolean(SYSPROP_INDEXES)
+		def id = "${name}:${cache}:${indexes}:${new File(storagePath).canonicalPath}".toString()
+		def adapter = adapters.get(id)
+		if (adapter == null) {
+			switch (name) {
+				case "file":
+					adapter = new FilePersistenceClient(storagePath: storagePath)
+					break
+				case "log":
+					adapter = new LogPersistenceClient(storagePath)
+					break
+				case "mvstore":
+					adapter = new MVStorePersistenceClient(storagePath)
+					break
+				default:
+					throw new IllegalArgumentException("Unknown ${SYSPROP_ADAPTER} ${name}, expected file, log or mvstore")
+			}
+			if (cache) {
+				adapter = new CachingDBAdapter(adapter)
+			}
+			if (indexes) {
+				adapter = new IndexingDBAdapter(adapter)
+			}
+			def created = adapter
+			adapter = adapters.putIfAbsent(id, adapter) ?: adapter
+			if (adapter.is(created)) {
+				// finish the batches an earlier process committed
+				BatchJournal.forStorage(storagePath).recover(adapter)
+			}
+		}
+		return adapter
 	}
-	
-	def valueFilePath = { map, key ->
-		"${storagePath}/${md5 map}/${md5 key}".toString()
+
+	/**
+	 * @return the storage adapter, created from AJSC_PERSISTENCE_ADAPTER on
+	 *         first use unless one was set
+	 */
+	DBAdapter getAdapter() {
+		def current = adapter
+		if (current == null) {
+			synchronized (this) {
+				if (adapter == null) {
+					adapter = createAdapter(storagePath)
+				}
+				current = adapter
+			}
+		}
+		return current
+	}
+
+	void setAdapter(DBAdapter adapter) {
+		this.adapter = adapter
+	}
+
+	/**
+	 * @return the hit and miss counters of the persistence cache, empty if
+	 *         AJSC_PERSISTENCE_CACHE is not set
+	 */
+	Map getCacheStatistics() {
+		def current = getAdapter()
+		if (current instanceof IndexingDBAdapter) {
+			current = current.delegate
+		}
+		return current instanceof CachingDBAdapter ? current.getStatistics() : [:]
+	}
+
+	/**
+	 * Return the values of the entries of the File System map specified by
+	 * mapName whose JSON fields equal the criteria, e.g.
+	 * [namespace: "ajsc", routeVersion: "1"]. The keys are looked up in a
+	 * secondary index on the criteria fields, built on the first lookup.
+	 * <p>
+	 * @param mapName
+	 * @param criteria field names mapped to the values, compared as text
+	 *
+	 * @return list of JSON values
+	 */
+	public List<String> findAllEntriesBy(String mapName, Map criteria) {
+		// one index per set of fields, whatever the order of the criteria
+		def sorted = criteria.sort { it.key.toString() }
+		def fields = sorted.keySet().collect { it.toString() }
+		def values = sorted.values().collect { it?.toString() }
+		def current = getAdapter()
+		if (current instanceof IndexingDBAdapter && !batches.get()?.touches(mapName)) {
+			return fetchAll(mapName, current.findKeys(mapName, fields, values))
+		}
+		return scan(mapName, fields) { it == values }
+	}
+
+	/**
+	 * Return the values of the entries of the File System map specified by
+	 * mapName whose JSON fields pass the filter. The filter is called with
+	 * the list of field values, once per distinct combination found in the
+	 * secondary index on the fields.
+	 * <p>
+	 * @param mapName
+	 * @param fields
+	 * @param filter closure taking the field values, in the order of fields
+	 *
+	 * @return list of JSON values
+	 */
+	public List<String> findAllEntriesMatching(String mapName, List<String> fields, Closure filter) {
+		def current = getAdapter()
+		if (current instanceof IndexingDBAdapter && !batches.get()?.touches(mapName)) {
+			return fetchAll(mapName, current.findKeysMatching(mapName, fields, filter as IndexingDBAdapter.Filter))
+		}
+		return scan(mapName, fields, filter)
+	}
+
+	/**
+	 * Run the closure with the writes of this thread staged in a batch,
+	 * which is committed atomically when the closure returns: after a crash
+	 * either all of its writes are in the File System maps or none. Reads
+	 * of this thread see the staged writes. If the closure throws the batch
+	 * is discarded. A nested call joins the outer batch.
+	 * <p>
+	 * @param work
+	 *
+	 * @return the result of the closure
+	 */
+	def withBatch(Closure work) {
+		if (batches.get() != null) {
+			return work()
+		}
+		def batch = new WriteBatch()
+		batches.set(batch)
+		def result
+		try {
+			result = work()
+		} finally {
+			batches.remove()
+		}
+		commit(batch)
+		return result
+	}
+
+	/**
+	 * Write all entries of the batch atomically, with one journal write and
+	 * one fsync, see ajsc.providers.BatchJournal.
+	 * <p>
+	 * @param batch
+	 */
+	public void commit(WriteBatch batch) {
+		BatchJournal.forStorage(storagePath).commit(getAdapter(), batch)
+		getChangeFeed().publish(batch)
+	}
+
+	/**
+	 * Return the feed of the puts and deletes made through the
+	 * FilePersistenceService instances of this storage path, published once
+	 * they are stored; the writes of a batch are published when it commits.
+	 * <p>
+	 * @return the feed, shared by the instances of the storage path
+	 */
+	public ChangeFeed getChangeFeed() {
+		return ChangeFeed.forStorage(storagePath)
+	}
+
+	private List<String> fetchAll(String mapName, List<String> keys) {
+		def values = []
+		keys.each { key ->
+			def value = fetch(mapName, key)
+			if (value != null) {
+				values << value
+			}
+		}
+		return values
+	}
+
+	private List<String> scan(String mapName, List<String> fields, Closure filter) {
+		def values = []
+		fetchAllByteArrayValues(mapName)?.each { key, value ->
+			def fieldValues = IndexingDBAdapter.extract(value, fields)
+			if (fieldValues != null && filter(fieldValues as List)) {
+				values << new String(value, "UTF-8")
+			}
+		}
+		return values
 	}
 	
 	// Store value to persistent map
 	void store(String mapName, String key, def value) {
-		//println ">>>>>>>> *FP* store(${mapName},${key},...)"
-		def mapDirString = mapFilePath(mapName)
-		def mapDir = new File(mapDirString)
-		if (!mapDir.exists()) { mapDir.mkdirs()}
-		def mapNameFile = new File("${mapDirString}.mapname")
-		mapNameFile.write(mapName)
-		def valueFileString = valueFilePath(mapName, key)
-		def keyFile = new File("${valueFileString}.key")
-		keyFile.write(key)
-
-		if (value instanceof String) {
-			new File(valueFileString).write(value)
+		def batch = batches.get()
+		if (batch != null) {
+			if (value instanceof String) {
+				batch.put(mapName, key, value)
+			} else {
+				batch.putByteArray(mapName, key, value)
+			}
 		} else {
-			new File(valueFileString).withOutputStream{
-					it.write value }
+			if (value instanceof String) {
+				getAdapter().store(mapName, key, value)
+			} else {
+				getAdapter().storeByteArray(mapName, key, value)
+			}
+			getChangeFeed().publishPut(mapName, key)
 		}
 	}
 	
-		
 	// Fetch value from persistent map
 	def fetch(String mapName, String key) {
-		//println ">>>>>>>> *FP* fetch(${mapName},${key})"
-		def valueFile = new File(valueFilePath(mapName, key))
-		if (valueFile.exists()) {return valueFile.getText()}
+		def staged = batches.get()?.get(mapName, key)
+		if (staged != null) {
+			return staged.getText()
+		}
+		getAdapter().fetch(mapName, key)
 	}
 	
 	// Fetch value from persistent map
 	def fetchByteArray(String mapName, String key) {
-		//println ">>>>>>>> *FP* fetchByteArray(${mapName},${key})"
-		def valueFile = new File(valueFilePath(mapName, key))
-		if (valueFile.exists()) {		
-			return new File(valueFilePath(mapName, key)).withInputStream {
-					it.getBytes()}
+		def staged = batches.get()?.get(mapName, key)
+		if (staged != null) {
+			return staged.getValue()
 		}
+		getAdapter().fetchByteArray(mapName, key)
 	}
 	
 	def fetchAllValues(mapName) {
-		//println ">>>>>>>> *FP*fetchAllValues(${mapName})"
-		def mapDirString = mapFilePath(mapName)
-		def mapDir = new File(mapDirString)
-		
-		if (!mapDir.exists()) { return}
-		
-		def valueList = []
-		mapDir.eachFileMatch(~/.*?\.key/) {
-			//println ">>>>>>> in ${mapDirString}/${it.name}"
-			valueList << new File("${mapDirString}/"+it.name.substring(0,it.name.indexOf('.key'))).getText()
+		if (batches.get()?.touches(mapName)) {
+			return fetchAllByteArrayValues(mapName).values().collect { new String(it, "UTF-8") }
 		}
-		return valueList
-	
+		getAdapter().fetchAllEntries(mapName)
 	}
  
 	def fetchAllByteArrayValues(mapName) {
-		//println ">>>>>>>> *FP*fetchAllByteArrayValues(${mapName})"
-
-		def mapDirString = mapFilePath(mapName)
-		def mapDir = new File(mapDirString)
-		
-		if (!mapDir.exists()) { return}
-		
-		Map valueList = new HashMap()
-		mapDir.eachFileMatch(~/.*?\.key/) {
-			//println ">>>>>>> in ${mapDirString}/${it.name}"
-			valueList.put(new File("${mapDirString}/${it.name}").getText(), 
-				new File("${mapDirString}/"+it.name.substring(0,it.name.indexOf('.key'))).withInputStream {
-					it.getBytes()}
-				)
+		def batch = batches.get()
+		if (!batch?.touches(mapName)) {
+			return getAdapter().fetchAllByteArrayEntries(mapName)
 		}
-		return valueList
+		def values = new HashMap(getAdapter().fetchAllByteArrayEntries(mapName) ?: [:])
+		batch.getEntries(mapName).each { key, staged ->
+			if (staged.isDelete()) {
+				values.remove(key)
+			} else {
+				values.put(key, staged.getValue())
+			}
+		}
+		return values
 	}
 	
 	// Delete value from persistent map
 	void delete(String mapName, String key) {
-		
-		def valueFile = new File(valueFilePath(mapName, key))
-		if (valueFile.exists()) {valueFile.delete()}
-		def keyFile =  new File(valueFilePath(mapName, key)+'.key')
-		if (keyFile.exists()) {keyFile.delete()}
-		
+		def batch = batches.get()
+		if (batch != null) {
+			batch.delete(mapName, key)
+		} else {
+			getAdapter().deleteKey(mapName, key)
+			getChangeFeed().publishDelete(mapName, key)
+		}
 	}
 	
 	// Retrieve all keys in a map
 	def keys(String mapName) {
-		def mapDirString = mapFilePath(mapName)
-		def mapDir = new File(mapDirString)
-		
-		if (!mapDir.exists()) { mapDir.mkdirs()}
-		
-		def keyList = []
-		mapDir.eachFileMatch(~/.*?\.key/) {
-			println ">>>>>>> in ${mapDirString}/${it.name}"
-			keyList << new File("${mapDirString}/${it.name}").getText()
+		def batch = batches.get()
+		if (!batch?.touches(mapName)) {
+			return getAdapter().fetchKeys(mapName)
+		}
+		def keys = new LinkedHashSet(getAdapter().fetchKeys(mapName) ?: [])
+		batch.getEntries(mapName).each { key, staged ->
+			if (staged.isDelete()) {
+				keys.remove(key)
+			} else {
+				keys.add(key)
+			}
 		}
-		//println ">>>>>>>> keys(${mapName}) == ${keyList}"
-		return keyList
+		return keys as List
 	}		
 }
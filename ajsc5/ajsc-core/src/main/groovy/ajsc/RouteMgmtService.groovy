@@ -12,6 +12,7 @@ import org.slf4j.LoggerFactory
 
 import ajsc.util.MessageMgr
 import ajsc.util.ClassLoaderUtil
+import ajsc.utils.BootstrapPlan
 
 import javax.annotation.PostConstruct
 import javax.annotation.PreDestroy
@@ -91,65 +92,97 @@ class RouteMgmtService {
 
 	static boolean initCalled = false
 
+	// the steps of init run concurrently where they do not depend on each
+	// other, on at most this many threads; 1 runs them one after the other
+	static final String SYSPROP_BOOTSTRAP_THREADS = "AJSC_BOOTSTRAP_THREADS"
+
+	// milliseconds each step of init took, in the order they completed
+	static Map bootstrapMillis = [:]
+
 	def init() {
 		def LMETHOD = "init"
 		if (initCalled) return
 			initCalled = true
 
-
-		synchronized(this)  {
-			//			addExternalJarsToContextLoader(clu)
-			stagedDeployRuntime()
-			stagedDeployServices()
-
-		}
-
-		if (!propertyServiceInitialized) {
-			try { propertiesService.init() } 			// CRITICAL
-			catch(Exception prpsSvcExcept) {
-				MessageMgr.logMessage(logger,'error',getMessageMap(LMETHOD,7),["${prpsSvcExcept}"] as Object[])
-				MessageMgr.logMessage(logger,'error',getMessageMap(LMETHOD,8))
-				throw new Error("propertiesService init failed in bootstrap!", prpsSvcExcept)
+		BootstrapPlan plan = new BootstrapPlan()
+		plan.step("stagedDeployRuntime", {
+			synchronized(this)  {
+				//			addExternalJarsToContextLoader(clu)
+				stagedDeployRuntime()
 			}
-		}
-		try { docService.init()	}	  				// CRITICAL
-		catch(Exception docSvcExcept) {
-			MessageMgr.logMessage(logger,'error',getMessageMap(LMETHOD,11),["${docSvcExcept}"] as Object[])
-			MessageMgr.logMessage(logger,'error',getMessageMap(LMETHOD,12))
-			throw new Error("docService init failed in bootstrap!", docSvcExcept)
-		}
-		try { userDefinedJarService.init() }		// CRITICAL
-		catch(Exception udjsExcept) {
-			MessageMgr.logMessage(logger,'error',getMessageMap(LMETHOD,13),["${udjsExcept}"] as Object[])
-			MessageMgr.logMessage(logger,'error',getMessageMap(LMETHOD,14))
-			throw new Error("userDefinedJarService init failed in bootstrap!",udjsExcept)
-		}
-		try { userDefinedBeansDefService.init() }	// CRITICAL
-		catch(Exception udbdsExcept) {
-			MessageMgr.logMessage(logger,'error',getMessageMap(LMETHOD,15),["${udbdsExcept}"] as Object[])
-			MessageMgr.logMessage(logger,'error',getMessageMap(LMETHOD,16))
-			throw new Error("userDefinedBeansDefService init failed in bootstrap!",udbdsExcept)
-		}
+		})
+		plan.step("stagedDeployServices", {
+			synchronized(this)  { stagedDeployServices() }
+		}, "stagedDeployRuntime")
+		plan.step("propertiesService", {
+			if (!propertyServiceInitialized) {
+				try { propertiesService.init() } 			// CRITICAL
+				catch(Exception prpsSvcExcept) {
+					MessageMgr.logMessage(logger,'error',getMessageMap(LMETHOD,7),["${prpsSvcExcept}"] as Object[])
+					MessageMgr.logMessage(logger,'error',getMessageMap(LMETHOD,8))
+					throw new Error("propertiesService init failed in bootstrap!", prpsSvcExcept)
+				}
+			}
+		}, "stagedDeployServices")
+		plan.step("docService", {
+			try { docService.init()	}	  				// CRITICAL
+			catch(Exception docSvcExcept) {
+				MessageMgr.logMessage(logger,'error',getMessageMap(LMETHOD,11),["${docSvcExcept}"] as Object[])
+				MessageMgr.logMessage(logger,'error',getMessageMap(LMETHOD,12))
+				throw new Error("docService init failed in bootstrap!", docSvcExcept)
+			}
+		}, "propertiesService")
+		plan.step("userDefinedJarService", {
+			try { userDefinedJarService.init() }		// CRITICAL
+			catch(Exception udjsExcept) {
+				MessageMgr.logMessage(logger,'error',getMessageMap(LMETHOD,13),["${udjsExcept}"] as Object[])
+				MessageMgr.logMessage(logger,'error',getMessageMap(LMETHOD,14))
+				throw new Error("userDefinedJarService init failed in bootstrap!",udjsExcept)
+			}
+		}, "propertiesService")
+		plan.step("userDefinedBeansDefService", {
+			try { userDefinedBeansDefService.init() }	// CRITICAL
+			catch(Exception udbdsExcept) {
+				MessageMgr.logMessage(logger,'error',getMessageMap(LMETHOD,15),["${udbdsExcept}"] as Object[])
+				MessageMgr.logMessage(logger,'error',getMessageMap(LMETHOD,16))
+				throw new Error("userDefinedBeansDefService init failed in bootstrap!",udbdsExcept)
+			}
+		}, "propertiesService")
 
 		// Load  jars from lib folder
-		synchronized(this)  {
-			if (!bOSGIEnable) clu.addJars("${ajscHome}/lib",Thread.currentThread().getContextClassLoader())
-		}
+		plan.step("addJars", {
+			synchronized(this)  {
+				if (!bOSGIEnable) clu.addJars("${ajscHome}/lib",Thread.currentThread().getContextClassLoader())
+			}
+		}, "userDefinedJarService")
 
-		try {
-			RestMethodMapInterceptor.getInstance();
-		}
-		catch(Exception except) {
-			System.out.println(" RestMethodMapInterceptor failed to initialize ${except.getMessage()}")
+		// after the lib jars are added, as the sequential bootstrap did
+		plan.step("restMethodMapInterceptor", {
+			try {
+				RestMethodMapInterceptor.getInstance();
+			}
+			catch(Exception except) {
+				System.out.println(" RestMethodMapInterceptor failed to initialize ${except.getMessage()}")
+
+			}
+		}, "addJars")
 
-		}
 
+		plan.step("computeService", {
+			try { computeService.init() }	// CRITICAL
+			catch(Exception udbdsExcept) {
+				MessageMgr.logMessage(logger,'error',getMessageMap(LMETHOD,15),["${udbdsExcept}"] as Object[])
+				MessageMgr.logMessage(logger,'error',getMessageMap(LMETHOD,16))
+				throw new Error("computeService init failed in bootstrap!",udbdsExcept)
+			}
+		}, "docService", "userDefinedBeansDefService", "addJars", "restMethodMapInterceptor")
 
-		try { computeService.init() }	// CRITICAL
-		catch(Exception udbdsExcept) {
-			MessageMgr.logMessage(logger,'error',getMessageMap(LMETHOD,15),["${udbdsExcept}"] as Object[])
-			MessageMgr.logMessage(logger,'error',getMessageMap(LMETHOD,16))
-			throw new Error("computeService init failed in bootstrap!",udbdsExcept)
+		long bootstrapStart = System.currentTimeMillis()
+		try {
+			plan.run(Integer.getInteger(SYSPROP_BOOTSTRAP_THREADS, Runtime.getRuntime().availableProcessors()))
+		} finally {
+			bootstrapMillis = plan.getStepMillis()
+			logger.info("Bootstrap took ${System.currentTimeMillis() - bootstrapStart} ms, milliseconds by step: ${bootstrapMillis}")
 		}
 
 		
@@ -294,6 +327,19 @@ class RouteMgmtService {
 		return
 	}
 
+	/**
+	 * Imports the service zips staged in AJSC_HOME/services since startup
+	 * into the running runtime: only the routes they saved or deleted are
+	 * added to or removed from their contexts.
+	 * @return the number of routes reconciled
+	 */
+	def redeployStagedServices() {
+		synchronized(this) {
+			stagedDeployServices()
+		}
+		return computeService.reconcileRoutes()
+	}
+
 	def addExternalJarsToContextLoader(ClassLoaderUtil clu ) {
 
 		//println "addExternalJarsToContextLoader"
@@ -85,14 +85,17 @@ class UserDefinedJarService {
 			// Create Directory for UserDefinedJars
 			def dir = "${DEFAULT_JAR_FS_ROOT}${AJSC_LIB}"
 			if (createDir(dir)) {			
-				// Get UserDefinedJars and write to filesystem
-				def userDefinedJarList = UserDefinedJar.list()
+				// Get UserDefinedJars and write to filesystem, one jar in memory at a time at most
+				def userDefinedJarList = UserDefinedJar.findAllWithoutContent()
 				if (!userDefinedJarList) {
 					MessageMgr.logMessage(logger,'debug',getMessageMap(LMETHOD,4))
 					
 				} else {
 					userDefinedJarList.each{
-						insertOrUpdateUserDefinedJar(it)
+						// as UserDefinedJar.list() did, jars without content are skipped
+						if (it.hasJarContent()) {
+							insertOrUpdateUserDefinedJar(it)
+						}
 					}
 					MessageMgr.logMessage(logger,'debug',getMessageMap(LMETHOD,5))
 					
@@ -157,9 +160,15 @@ class UserDefinedJarService {
 		MessageMgr.logMessage(logger,'debug',getMessageMap(LMETHOD,2),["${fileNameAndPath}"] as Object[])
 	
 		def jarFile = new File(fileNameAndPath)
-		jarFile.withOutputStream {
-			it.write(userDefinedJar.jarContent)
-		} 	
+		def jarContent = userDefinedJar.openJarContent()
+		if (jarContent == null) {
+			return
+		}
+		try {
+			jarContent.transferTo(jarFile)
+		} finally {
+			jarContent.close()
+		}
 	} 
 	
 	/**
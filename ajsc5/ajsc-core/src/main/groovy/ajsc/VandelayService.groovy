@@ -3,11 +3,13 @@
  *******************************************************************************/
 package ajsc
 
+import java.nio.channels.Channels
 import java.text.SimpleDateFormat
 import java.util.zip.ZipEntry
 import java.util.zip.ZipInputStream
 import java.util.zip.ZipOutputStream
 
+import ajsc.providers.ValueChannel
 import ajsc.util.MessageMgr
 
 import org.slf4j.Logger
@@ -190,6 +192,11 @@ class VandelayService {
 		}
 	}
 
+	private def inBatch(Closure work) {
+		def persistence = RouteMgmtService.persistenceService
+		return persistence != null ? persistence.withBatch(work) : work()
+	}
+
 	def importZip(file, contextId=null, updateOpts, deploymentPackageDescription) {
 
 		def LMETHOD = "importZip(file, contextId=null, updateOpts, deploymentPackageDescription)"
@@ -274,42 +281,49 @@ class VandelayService {
 				if(allEntries == null){
 					allEntries = getAllEntries(file)
 				}
-				// Props
-				def props = allEntries.findAll {e -> e.key ==~ PROPS_PATTERN}
-				props.each { propsEntry ->
-					displayProps.add(processImportPropsEntry(propsEntry, contextId, updateOpts, deploymentPackageDescription))
+				// the entries of the package are persisted all together or not at all
+				inBatch {
+					// Props
+					def props = allEntries.findAll {e -> e.key ==~ PROPS_PATTERN}
+					props.each { propsEntry ->
+						displayProps.add(processImportPropsEntry(propsEntry, contextId, updateOpts, deploymentPackageDescription))
 
-				}
+					}
 
-				// User Defined Jars
-				def jars = allEntries.findAll {e -> e.key ==~ JARS_PATTERN}
-				jars.each { jar ->
-					displayJars.add(processImportJar(jar, contextId, updateOpts, deploymentPackageDescription))
-				}
+					// User Defined Jars
+					def jars = allEntries.findAll {e -> e.key ==~ JARS_PATTERN}
+					jars.each { jar ->
+						displayJars.add(processImportJar(jar, contextId, updateOpts, deploymentPackageDescription))
+					}
 
-				// Docs
-				def docs = allEntries.findAll {e -> e.key ==~ DOCS_PATTERN}
-				docs.each { doc ->
+					// Docs
+					def docs = allEntries.findAll {e -> e.key ==~ DOCS_PATTERN}
+					docs.each { doc ->
 
-					displayDocs.add(processImportDoc(doc, contextId, updateOpts, deploymentPackageDescription))
-				}
+						displayDocs.add(processImportDoc(doc, contextId, updateOpts, deploymentPackageDescription))
+					}
 
-				// Beans Defs
-				def beansDefs = allEntries.findAll {e -> e.key ==~ BEANS_DEFS_PATTERN}
-				beansDefs.each { beansDef ->
+					// Beans Defs
+					def beansDefs = allEntries.findAll {e -> e.key ==~ BEANS_DEFS_PATTERN}
+					beansDefs.each { beansDef ->
 
-					displayBeansDefs.add(processImportBeansDef(beansDef, contextId, updateOpts, deploymentPackageDescription))
-				}
+						displayBeansDefs.add(processImportBeansDef(beansDef, contextId, updateOpts, deploymentPackageDescription))
+					}
 
-				// Routes
-				def routes = allEntries.findAll {e -> e.key ==~ ROUTES_PATTERN}
-				routes.each { route ->
+					// Routes
+					def routes = allEntries.findAll {e -> e.key ==~ ROUTES_PATTERN}
+					routes.each { route ->
 
-					displayRoutes.add(processImportRoute(route, contextId, updateOpts,apiList, deploymentPackageDescription))
+						displayRoutes.add(processImportRoute(route, contextId, updateOpts,apiList, deploymentPackageDescription))
+					}
 				}
 
 			} catch (all) {
 				importErrors += all.getMessage()
+				if (RouteMgmtService.persistenceService != null) {
+					// the batch was discarded, none of the package was imported
+					[displayProps, displayJars, displayDocs, displayBeansDefs, displayRoutes]*.clear()
+				}
 			}
 			
 			if(System.getProperty("isApiDoc") != null && System.getProperty("isApiDoc").equals("true")){
@@ -1099,11 +1113,21 @@ class VandelayService {
 				}
 
 				// User Defined Jars
-				def jarsList = UserDefinedJar.findAllByNamespaceAndJarVersion(namespace, theVersion)
+				def jarsList = UserDefinedJar.findAllWithoutContent { it.namespace == namespace && it.jarVersion == theVersion }
 				jarsList.each { jar ->
 					def filename = "${namespace}/${theVersion}/lib/${jar.jarName}"
 					MessageMgr.logMessage(logger,'debug',getMessageMap(LMETHOD,6), ["${filename}"] as Object[])
-					writeEntry(targetZipOutputStream, jar.jarContent, filename)
+					def jarContent = jar.openJarContent()
+					if (jarContent != null) {
+						try {
+							// jars without content are not exported, as before
+							if (jarContent.size() > 0) {
+								writeEntry(targetZipOutputStream, jarContent, filename)
+							}
+						} finally {
+							jarContent.close()
+						}
+					}
 				}
 
 				// User Defined Beans Defs
@@ -1341,6 +1365,13 @@ class VandelayService {
 		sis.close()
 	}
 
+	def writeEntry(ZipOutputStream zos, ValueChannel content, String filename) {
+		zos.putNextEntry(new ZipEntry(filename))
+		// the zip stream is not closed by the channel wrapper, only flushed
+		content.transferTo(Channels.newChannel(zos))
+		zos.closeEntry()
+	}
+
 	def writeEntry(ZipOutputStream zos, String text, String filename) {
 		def sis
 		writeEntry(zos, text.getBytes("UTF-8"), filename)
@@ -3,13 +3,17 @@
  *******************************************************************************/
 package ajsc.util;
 
+import ajsc.utils.PropertyTemplate
+
 /**
  * Processes template source substituting placeholders with values
  */
 public class AjscTemplateEngine {
 
     /**
-     * Parse the text document looking for {{...}} and replace with values in map
+     * Parse the text document looking for {{...}} and replace with values in map.
+     * A text is split into its literals and placeholders once, see PropertyTemplate,
+     * and rendered from those while it is among the last ones used.
      * 
      * @param input
      * @param map
@@ -17,77 +21,6 @@ public class AjscTemplateEngine {
      * @throws IOException
      */
     def static propertyReplace(String input, Map map) throws IOException {
-		StringReader reader = new StringReader(input)
-        if (!reader.markSupported()) {
-            reader = new BufferedReader(reader)
-        }
-        StringWriter sw = new StringWriter()
-        int c;
-        while ((c = reader.read()) != -1) {
-            if (c == '{') {
-                reader.mark(1)
-                c = reader.read()
-                if (c != '{') {
-                    sw.write('{')
-                    reader.reset()
-                } else {
-                    reader.mark(1)
-                    processProperty(reader, sw, map)
-                }
-                continue
-            }
-            // Handle raw new line characters.
-            if (c == '\n' || c == '\r') {
-                if (c == '\r') { // on Windows, "\r\n" is a new line.
-                    reader.mark(1)
-                    c = reader.read()
-                    if (c != '\n') {
-                        reader.reset()
-                    }
-                }
-                sw.write("\n")
-                continue
-            }
-            sw.write(c)
-        }
-        return sw.toString()
-    }
-
-    /**
-     * Read property until terminator and replace with corresponding value from map
-     * 
-     * @param reader
-     * @param sw
-     * @param map
-     * @return
-     * @throws IOException
-     */
-    private static processProperty(Reader reader, StringWriter sw, Map map) throws IOException {
-        int c;
-		def propertyWriter = new StringWriter()
-        while ((c = reader.read()) != -1) {
-            if (c == '}') {
-				reader.mark(1)
-				c = reader.read()
-				if (c != '}') {
-					sw.write('}')
-					propertyWriter.write('}')
-					reader.reset()
-				} else {
-					break
-				}
-            } else {
-	            if (c != '\n' && c != '\r') {
-					propertyWriter.write(c)
-	            }
-			}
-        }
-		def property = propertyWriter.toString()
-		if (map.containsKey(property)) {
-			sw.write(map.get(property))
-		} else {
-			sw.write("{{" + property + "}}")
-		}
+        return PropertyTemplate.of(input).render(map)
     }
 }
-
@@ -644,6 +644,7 @@ class MessageMgr {
 		"ajsc.AmqpService.onMessage.1":"NMBS-AMQPSVC-0967",
 		"ajsc.DeferoService.init.2":"NMBS-DEFEROSVC-0701",
 		"ajsc.ComputeService.checkAndWaitForRoutesStarted.1":"NMBS-COMPUTESVC-0862",
+		"ajsc.ComputeService.checkAndWaitForRoutesStarted.2":"NMBS-COMPUTESVC-0984",
 		"ajsc.ComputeService.initProp().1":"NMBS-COMPUTESVC-0968",
 		"ajsc.ComputeService.initProp().4":"NMBS-COMPUTESVC-0969",
 		"ajsc.ComputeService.initProp().5":"NMBS-COMPUTESVC-0970",
@@ -655,6 +656,11 @@ class MessageMgr {
 		"ajsc.ErrorMessageLookupService.sendRequest(String caetRequest).2":"NMBS-EMSGLOOKUPSVC-0976",
 		"ajsc.ErrorMessageLookupService.sendRequest(String caetRequest).3":"NMBS-EMSGLOOKUPSVC-0977",
 		"ajsc.ErrorMessageLookupService.sendRequest(String caetRequest).4":"NMBS-EMSGLOOKUPSVC-0978",
+		"ajsc.ComputeService.reconcileRoutes().1":"NMBS-COMPUTESVC-0979",
+		"ajsc.ComputeService.reconcileRoutes().2":"NMBS-COMPUTESVC-0980",
+		"ajsc.ComputeService.reconcileRoutes().3":"NMBS-COMPUTESVC-0981",
+		"ajsc.ComputeService.compileRoutes(routeList).1":"NMBS-COMPUTESVC-0982",
+		"ajsc.ComputeService.compileRoutes(routeList).2":"NMBS-COMPUTESVC-0983",
 		
 		] 
 	
@@ -1293,6 +1299,12 @@ class MessageMgr {
 		"NMBS-EMSGLOOKUPSVC-0976":"Error getting DME2 Manager",
 		"NMBS-EMSGLOOKUPSVC-0977":"Error getting DME2 Client instance",
 		"NMBS-EMSGLOOKUPSVC-0978":"Error sending request to CAET endpoint",
+		"NMBS-COMPUTESVC-0979":"Reconciling {} changed routes after persistence change {}",
+		"NMBS-COMPUTESVC-0980":"Route changes after persistence change {} are no longer kept, adding all routes",
+		"NMBS-COMPUTESVC-0981":"reconcileRoutes failed",
+		"NMBS-COMPUTESVC-0982":"Parsed {} of {} routes with {} threads",
+		"NMBS-COMPUTESVC-0983":"Parsing of a route failed, it is reported when the route is added",
+		"NMBS-COMPUTESVC-0984":"Waited for {} routes to start, startup milliseconds by route: {}",
 		]
 	
 	/**
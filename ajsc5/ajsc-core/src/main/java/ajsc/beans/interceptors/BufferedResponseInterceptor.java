@@ -0,0 +1,13 @@
+/*******************************************************************************
+ * Copyright (c) 2016 AT&T Intellectual Property. All rights reserved.
+ *******************************************************************************/
+package ajsc.beans.interceptors;
+
+/**
+ * Post-processor interceptor that needs the complete response body. When one
+ * applies to a request the InterceptorFilter buffers the downstream response,
+ * even if streaming is enabled for the route, and passes the bytes in the
+ * param map under CommonNames.RESPONSE_BODY_BYTES.
+ */
+public interface BufferedResponseInterceptor extends AjscInterceptor {
+}
@@ -51,6 +51,7 @@ public class CommonNames
 	public static final String ENDPOINT_NAME = "ENDPOINT_NAME";
 	public static final String ATTR_TTL_DEFAULT = "60000";
 	public static final String RESPONSE_BODY_TEXT = "RESPONSE_BODY_TEXT";
+	public static final String RESPONSE_BODY_BYTES = "RESPONSE_BODY_BYTES";
 	public static final String CSI_USER_NAME = "USER_NAME";
 	public static final String CSI_MOCK_USER_NAME = "ajscUser";
 
@@ -96,6 +97,8 @@ public class CommonNames
 	
 	//Interceptor constants
 	public static final String REQUEST_START_TIME = "REQUEST_START_TIME";
+	public static final String REQUEST_START_NANOS = "REQUEST_START_NANOS";
+	public static final String ROUTE_MATCH = "ROUTE_MATCH";
 	// con
 	public static final String COMPONENT_TYPE_RESTLET="rest";
 	public static final String COMPONENT_TYPE_SERVLET="servlet";
@@ -3,6 +3,9 @@
  *******************************************************************************/
 package ajsc.exceptions;
 
+import java.io.IOException;
+import java.io.OutputStream;
+
 import javax.servlet.http.HttpServletResponse;
 
 import ajsc.utils.RequestErrorInfo;
@@ -27,6 +30,10 @@ public class CSIRESTException extends Exception
 	private String xCaetFaultCode_ = CommonErrors.DEF_5NN_FAULT_CODE;
 	private String xCaetFaultDesc_ = CommonErrors.DEF_5NN_FAULT_DESC;
 	private String xCaetFaultEntity_ = "CSI";
+
+	// compiled error map entry, built from ex_ when the error is not mapped
+	private transient CompiledRestError error_;
+	private String[] variables_ = new String[]{};
 	
 	/*
 	 * This is the case where the http code, message and all variables are known in advance
@@ -36,6 +43,7 @@ public class CSIRESTException extends Exception
 	{
 		httpCode_ = httpCode;
 		createRequestError(code, message, variables);
+		variables_ = variables;
 	}
 	
 	/*
@@ -49,7 +57,8 @@ public class CSIRESTException extends Exception
 	 */
 	CSIRESTException(String code, String message)
 	{
-		RestError re = RefresheableRESTErrorMap.getHttpCodeForCSIError(code);
+		CompiledRestError compiled = RefresheableRESTErrorMap.getCompiledError(code);
+		RestError re = compiled.getRestError();
 		setCaetFaultCode(code);
 		setCaetFaultDesc(message);
 		httpCode_ = re.status;
@@ -60,10 +69,10 @@ public class CSIRESTException extends Exception
 		}
 		else
 		{
-			if ( re.Message.contains("%1") )
-				createRequestError(re.MessageId, re.Message, new String[]{message});
-			else
-				createRequestError(re.MessageId, re.Message, new String[]{});
+			error_ = compiled;
+			if ( compiled.hasPlaceholders() )
+				variables_ = new String[]{message};
+			createRequestError(re.MessageId, re.Message, variables_);
 		}
 	}
 	
@@ -122,6 +131,29 @@ public class CSIRESTException extends Exception
 		return ex_;
 	}
 
+	/**
+	 * @param bodyType
+	 *            CommonNames.BODY_TYPE_JSON or BODY_TYPE_XML, see
+	 *            UtilLib.getErrorResponseBodyType
+	 * @return the RequestError response body
+	 */
+	public byte[] getErrorBody(String bodyType)
+	{
+		return getCompiledError().renderBody(bodyType, variables_);
+	}
+
+	public void writeErrorBody(OutputStream out, String bodyType) throws IOException
+	{
+		getCompiledError().writeBody(out, bodyType, variables_);
+	}
+
+	private CompiledRestError getCompiledError()
+	{
+		if ( error_ == null )
+			error_ = new CompiledRestError(httpCode_, ex_.getMessageId(), ex_.getText());
+		return error_;
+	}
+
 	
 }
 
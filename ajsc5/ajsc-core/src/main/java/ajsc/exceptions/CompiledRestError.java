@@ -0,0 +1,266 @@
+/*******************************************************************************
+ * Copyright (c) 2016 AT&T Intellectual Property. All rights reserved.
+ *******************************************************************************/
+package ajsc.exceptions;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+import ajsc.common.CommonNames;
+
+/**
+ * Immutable, precompiled form of a {@link RestError}. The message is split
+ * on its %1..%9 placeholders once, and the JSON and XML RequestError bodies
+ * are pre-encoded as UTF-8 segments around the message text and the
+ * variables, so rendering an error only escapes and splices in the
+ * variables.
+ *
+ * The body follows the RequestErrorInfo/ExceptionInfo binding: a
+ * ServiceException, or a PolicyException for POL message ids, holding the
+ * MessageId, the Text with the placeholders substituted and the Variables.
+ */
+public final class CompiledRestError {
+
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	private final RestError restError;
+	private final String[] textLiterals;
+	private final int[] textVariables;
+	private final Body json;
+	private final Body xml;
+
+	public CompiledRestError(int status, String messageId, String message) {
+		restError = new RestError();
+		restError.status = status;
+		restError.MessageId = messageId;
+		restError.Message = message;
+
+		List<String> literals = new ArrayList<String>();
+		List<Integer> variables = new ArrayList<Integer>();
+		String text = message == null ? "" : message;
+		int start = 0;
+		for (int i = 0; i < text.length() - 1; i++) {
+			char next = text.charAt(i + 1);
+			if (text.charAt(i) == '%' && next >= '1' && next <= '9') {
+				literals.add(text.substring(start, i));
+				variables.add(next - '1');
+				start = i + 2;
+				i++;
+			}
+		}
+		literals.add(text.substring(start));
+		textLiterals = literals.toArray(new String[literals.size()]);
+		textVariables = new int[variables.size()];
+		for (int i = 0; i < textVariables.length; i++) {
+			textVariables[i] = variables.get(i);
+		}
+
+		String exception = isPolicyError() ? "PolicyException" : "ServiceException";
+		json = new Body(JSON, "{\"RequestError\":{\"" + exception + "\":{\"MessageId\":\""
+				+ JSON.escape(messageId) + "\",\"Text\":\"", "\",\"Variables\":[", "\"", ",", "\"", "]}}}");
+		xml = new Body(XML, "<RequestError><" + exception + "><MessageId>" + XML.escape(messageId)
+				+ "</MessageId><Text>", "</Text>", "<Variables>", "", "</Variables>", "</" + exception
+				+ "></RequestError>");
+	}
+
+	public CompiledRestError(RestError restError) {
+		this(restError.status, restError.MessageId, restError.Message);
+	}
+
+	/**
+	 * @return the error as a RestError; the instance is shared and must not
+	 *         be modified
+	 */
+	public RestError getRestError() {
+		return restError;
+	}
+
+	public int getStatus() {
+		return restError.status;
+	}
+
+	public String getMessageId() {
+		return restError.MessageId;
+	}
+
+	public String getMessage() {
+		return restError.Message;
+	}
+
+	public boolean isPolicyError() {
+		return restError.MessageId != null && restError.MessageId.startsWith("POL");
+	}
+
+	public boolean hasPlaceholders() {
+		return textVariables.length > 0;
+	}
+
+	/**
+	 * @return the message with its %n placeholders replaced by the variables
+	 */
+	public String formatMessage(String... variables) {
+		if (textVariables.length == 0) {
+			return textLiterals[0];
+		}
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < textVariables.length; i++) {
+			sb.append(textLiterals[i]).append(variable(variables, textVariables[i]));
+		}
+		return sb.append(textLiterals[textVariables.length]).toString();
+	}
+
+	/**
+	 * @param bodyType
+	 *            CommonNames.BODY_TYPE_JSON or BODY_TYPE_XML, as returned by
+	 *            UtilLib.getErrorResponseBodyType
+	 */
+	public byte[] renderBody(String bodyType, String... variables) {
+		ByteArrayOutputStream out = new ByteArrayOutputStream(256);
+		try {
+			writeBody(out, bodyType, variables);
+		} catch (IOException e) {
+			// not thrown by a ByteArrayOutputStream
+		}
+		return out.toByteArray();
+	}
+
+	public void writeBody(OutputStream out, String bodyType, String... variables) throws IOException {
+		Body body = CommonNames.BODY_TYPE_XML.equals(bodyType) ? xml : json;
+		out.write(body.textPrefix);
+		for (int i = 0; i < textVariables.length; i++) {
+			out.write(body.textLiterals[i]);
+			out.write(body.encoding.encode(variable(variables, textVariables[i])));
+		}
+		out.write(body.textLiterals[textVariables.length]);
+		out.write(body.textSuffix);
+		if (variables != null) {
+			for (int i = 0; i < variables.length; i++) {
+				if (i > 0) {
+					out.write(body.variableSeparator);
+				}
+				out.write(body.variablePrefix);
+				out.write(body.encoding.encode(variables[i]));
+				out.write(body.variableSuffix);
+			}
+		}
+		out.write(body.suffix);
+	}
+
+	private static String variable(String[] variables, int index) {
+		if (variables == null || index >= variables.length || variables[index] == null) {
+			return "";
+		}
+		return variables[index];
+	}
+
+	/*
+	 * Pre-encoded segments of one content type.
+	 */
+	private final class Body {
+		private final Encoding encoding;
+		private final byte[] textPrefix;
+		private final byte[][] textLiterals;
+		private final byte[] textSuffix;
+		private final byte[] variablePrefix;
+		private final byte[] variableSeparator;
+		private final byte[] variableSuffix;
+		private final byte[] suffix;
+
+		private Body(Encoding encoding, String textPrefix, String textSuffix, String variablePrefix,
+				String variableSeparator, String variableSuffix, String suffix) {
+			this.encoding = encoding;
+			this.textPrefix = textPrefix.getBytes(UTF_8);
+			this.textLiterals = new byte[CompiledRestError.this.textLiterals.length][];
+			for (int i = 0; i < this.textLiterals.length; i++) {
+				this.textLiterals[i] = encoding.encode(CompiledRestError.this.textLiterals[i]);
+			}
+			this.textSuffix = textSuffix.getBytes(UTF_8);
+			this.variablePrefix = variablePrefix.getBytes(UTF_8);
+			this.variableSeparator = variableSeparator.getBytes(UTF_8);
+			this.variableSuffix = variableSuffix.getBytes(UTF_8);
+			this.suffix = suffix.getBytes(UTF_8);
+		}
+	}
+
+	private abstract static class Encoding {
+		abstract String escape(String value);
+
+		byte[] encode(String value) {
+			return escape(value).getBytes(UTF_8);
+		}
+	}
+
+	private static final Encoding JSON = new Encoding() {
+		String escape(String value) {
+			if (value == null) {
+				return "";
+			}
+			StringBuilder sb = null;
+			for (int i = 0; i < value.length(); i++) {
+				char c = value.charAt(i);
+				String replacement = null;
+				if (c == '"') {
+					replacement = "\\\"";
+				} else if (c == '\\') {
+					replacement = "\\\\";
+				} else if (c == '\n') {
+					replacement = "\\n";
+				} else if (c == '\r') {
+					replacement = "\\r";
+				} else if (c == '\t') {
+					replacement = "\\t";
+				} else if (c < 0x20) {
+					replacement = String.format("\\u%04x", (int) c);
+				}
+				if (replacement != null && sb == null) {
+					sb = new StringBuilder(value.length() + 16).append(value, 0, i);
+				}
+				if (sb != null) {
+					if (replacement != null) {
+						sb.append(replacement);
+					} else {
+						sb.append(c);
+					}
+				}
+			}
+			return sb == null ? value : sb.toString();
+		}
+	};
+
+	private static final Encoding XML = new Encoding() {
+		String escape(String value) {
+			if (value == null) {
+				return "";
+			}
+			StringBuilder sb = null;
+			for (int i = 0; i < value.length(); i++) {
+				char c = value.charAt(i);
+				String replacement = null;
+				if (c == '<') {
+					replacement = "&lt;";
+				} else if (c == '>') {
+					replacement = "&gt;";
+				} else if (c == '&') {
+					replacement = "&amp;";
+				} else if (c == '"') {
+					replacement = "&quot;";
+				}
+				if (replacement != null && sb == null) {
+					sb = new StringBuilder(value.length() + 16).append(value, 0, i);
+				}
+				if (sb != null) {
+					if (replacement != null) {
+						sb.append(replacement);
+					} else {
+						sb.append(c);
+					}
+				}
+			}
+			return sb == null ? value : sb.toString();
+		}
+	};
+}
@@ -3,13 +3,10 @@
  *******************************************************************************/
 package ajsc.exceptions;
 
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.InputStreamReader;
-import java.nio.charset.Charset;
+import java.util.Collections;
 import java.util.HashMap;
-import java.util.StringTokenizer;
+import java.util.Map;
 import java.util.concurrent.atomic.AtomicReference;
 
 import javax.servlet.http.HttpServletResponse;
@@ -21,9 +18,20 @@ import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 
+/**
+ * Error code to REST error map. The file is compiled on refresh into
+ * immutable {@link CompiledRestError} entries; codes that are not mapped
+ * resolve to precompiled defaults by their coarse (first three characters)
+ * error class.
+ */
 public class RefresheableRESTErrorMap 
 {
-	private static AtomicReference<HashMap<String, RestError>> wrapped = new AtomicReference<HashMap<String, RestError>>();
+	private static AtomicReference<Map<String, CompiledRestError>> wrapped = new AtomicReference<Map<String, CompiledRestError>>();
+	
+	private static final CompiledRestError AUTH_ERROR = new CompiledRestError(HttpServletResponse.SC_FORBIDDEN,
+			"POL1000", "The operation is not allowed: %1");
+	private static final CompiledRestError INTERNAL_ERROR = new CompiledRestError(
+			HttpServletResponse.SC_INTERNAL_SERVER_ERROR, "SVC9999", "An internal error has occurred: %1");
 	
 	public static void refresh(File file) throws Exception
 	{
@@ -33,7 +41,12 @@ public class RefresheableRESTErrorMap
 			ObjectMapper mapper = new ObjectMapper();
 			TypeReference<HashMap<String, RestError>> typeRef = new TypeReference<HashMap<String, RestError>>() {};
 			HashMap<String, RestError> map = mapper.readValue(file, typeRef);
-			wrapped.set(map);
+			Map<String, CompiledRestError> compiled = new HashMap<String, CompiledRestError>();
+			for (Map.Entry<String, RestError> entry : map.entrySet())
+			{
+				compiled.put(entry.getKey(), new CompiledRestError(entry.getValue()));
+			}
+			wrapped.set(Collections.unmodifiableMap(compiled));
 			System.out.println("File " + file.getName() + " is loaded into the error map");
 		}
 		catch ( Exception e )
@@ -47,53 +60,29 @@ public class RefresheableRESTErrorMap
 		}
 	}
 	
+	/**
+	 * @return the compiled error for the code, or the default of its error
+	 *         class
+	 */
+	public static CompiledRestError getCompiledError(String error)
+	{
+		Map<String, CompiledRestError> map = wrapped.get();
+		CompiledRestError re = map == null ? null : map.get(error);
+		if ( re != null )
+			return re;
+		if ( error != null && error.startsWith(CommonNames.CSI_AUTH_ERROR) )
+			return AUTH_ERROR;
+//		service unavailable, data, request xml and business processing
+//		errors are reported as internal errors
+		return INTERNAL_ERROR;
+	}
+	
+	/**
+	 * @return the RestError for the code; the instance is shared and must
+	 *         not be modified
+	 */
 	public static RestError getHttpCodeForCSIError(String error)
 	{
-		RestError re = null;
-		if ( wrapped != null && wrapped.get() != null ) 
-			re = wrapped.get().get(error);
-		if ( re == null )
-		{
-			re = new RestError();
-			String coarseErrorCode = error.substring(0, 3);
-			
-			if ( CommonNames.CSI_AUTH_ERROR.equals(coarseErrorCode) )
-			{
-				re.status = HttpServletResponse.SC_FORBIDDEN;
-				re.MessageId = "POL1000";
-				re.Message = "The operation is not allowed: %1";
-			}
-//			else if ( CommonNames.CSI_SERVICE_UNAVAIL_ERROR.equals(coarseErrorCode))
-//			{
-//				re.status = HttpServletResponse.SC_SERVICE_UNAVAILABLE;
-//				re.MessageId = "SVC2000";
-//				re.Message = "A resource required by the service is unavailable: %1";
-//			}
-//			else if ( CommonNames.CSI_DATA_ERROR.equals(coarseErrorCode) )
-//			{
-//				re.status = HttpServletResponse.SC_BAD_REQUEST;
-//				re.MessageId = "SVC3000";
-//				re.Message = "A data error has occurred: %1";
-//			}
-//			else if ( CommonNames.CSI_REQUEST_XML_ERROR.equals(coarseErrorCode) )
-//			{
-//				re.status = HttpServletResponse.SC_BAD_REQUEST;
-//				re.MessageId = "SVC4000";
-//				re.Message = "The request is invalid: %1";
-//			}
-//			else if ( CommonNames.CSI_BUS_PROC_ERROR.equals(coarseErrorCode) )
-//			{
-//				re.status = HttpServletResponse.SC_BAD_REQUEST;
-//				re.MessageId = "SVC5000";
-//				re.Message = "A business processing error has occured: %1";
-//			}
-			else
-			{
-				re.status = HttpServletResponse.SC_INTERNAL_SERVER_ERROR;
-				re.MessageId = "SVC9999";
-				re.Message = "An internal error has occurred: %1";
-			}
-		}
-		return re;
+		return getCompiledError(error).getRestError();
 	}
 }
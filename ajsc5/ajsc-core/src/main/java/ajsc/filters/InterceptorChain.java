@@ -0,0 +1,287 @@
+/*******************************************************************************
+ * Copyright (c) 2016 AT&T Intellectual Property. All rights reserved.
+ *******************************************************************************/
+package ajsc.filters;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.util.PathMatcher;
+
+import com.att.ajsc.filemonitor.AJSCPropertiesMap;
+
+import ajsc.beans.interceptors.AjscInterceptor;
+import ajsc.beans.interceptors.BufferedResponseInterceptor;
+
+/**
+ * Immutable, precompiled view of the PreProcessor, PostProcessor,
+ * AAFUserRoles and ResponseStreaming property maps used by
+ * {@link InterceptorFilter}. A new chain is compiled whenever
+ * {@link AJSCPropertiesMap} reloads one of those files, and the interceptors
+ * and roles resolved for a pathInfo are cached so that the filter does a
+ * single lookup per request.
+ */
+public final class InterceptorChain {
+
+	public static final String PRE_PROCESSOR_CONFIG_FILE = "PreProcessorInterceptors.properties";
+	public static final String POST_PROCESSOR_CONFIG_FILE = "PostProcessorInterceptors.properties";
+	public static final String AAF_USER_ROLES_CONFIG_FILE = "AAFUserRoles.properties";
+	public static final String RESPONSE_STREAMING_CONFIG_FILE = "ResponseStreaming.properties";
+
+	public static final String SYSPROP_CACHE_SIZE = "AJSC_INTERCEPTOR_CHAIN_CACHE_SIZE";
+	private static final int DEFAULT_CACHE_SIZE = 1024;
+	public static final String SYSPROP_RESPONSE_STREAMING = "AJSC_RESPONSE_STREAMING";
+
+	private static final String GET_INSTANCE_METHOD_NAME = "getInstance";
+	static final Logger logger = LoggerFactory.getLogger(InterceptorChain.class);
+
+	private static final AtomicReference<InterceptorChain> current = new AtomicReference<InterceptorChain>();
+
+	private final PathMatcher pathMatcher = new AntPathMatcher();
+	private final List<Mapping<String>> aafRoleMappings;
+	private final List<Mapping<Interceptor>> preMappings;
+	private final List<Mapping<Interceptor>> postMappings;
+	private final List<Mapping<Boolean>> streamingMappings;
+	private final boolean streamingDefault;
+	private final ConcurrentMap<String, Resolved> cache = new ConcurrentHashMap<String, Resolved>();
+	private final int cacheSize;
+
+	/**
+	 * Recompiles the chain from the property maps currently held by
+	 * AJSCPropertiesMap and publishes it to the filter.
+	 */
+	public static InterceptorChain refresh() {
+		InterceptorChain chain = new InterceptorChain(
+				AJSCPropertiesMap.getProperties(PRE_PROCESSOR_CONFIG_FILE),
+				AJSCPropertiesMap.getProperties(POST_PROCESSOR_CONFIG_FILE),
+				AJSCPropertiesMap.getProperties(AAF_USER_ROLES_CONFIG_FILE),
+				AJSCPropertiesMap.getProperties(RESPONSE_STREAMING_CONFIG_FILE));
+		current.set(chain);
+		logger.info("Interceptor chain compiled - " + chain.preMappings.size() + " pre-processor, "
+				+ chain.postMappings.size() + " post-processor and "
+				+ (chain.aafRoleMappings != null ? chain.aafRoleMappings.size() : 0) + " AAF role mappings");
+		return chain;
+	}
+
+	public static boolean isConfigFile(String fileName) {
+		return PRE_PROCESSOR_CONFIG_FILE.equals(fileName) || POST_PROCESSOR_CONFIG_FILE.equals(fileName)
+				|| AAF_USER_ROLES_CONFIG_FILE.equals(fileName) || RESPONSE_STREAMING_CONFIG_FILE.equals(fileName);
+	}
+
+	public static InterceptorChain getInterceptorChain() {
+		InterceptorChain chain = current.get();
+		return chain != null ? chain : refresh();
+	}
+
+	InterceptorChain(Map<String, String> preProcessorMap, Map<String, String> postProcessorMap,
+			Map<String, String> aafUserRolesMap, Map<String, String> responseStreamingMap) {
+		Map<String, Interceptor> interceptors = new HashMap<String, Interceptor>();
+		this.preMappings = compileInterceptors(preProcessorMap, interceptors);
+		this.postMappings = compileInterceptors(postProcessorMap, interceptors);
+		this.aafRoleMappings = aafUserRolesMap == null ? null : compileRoles(aafUserRolesMap);
+		this.streamingMappings = compileStreaming(responseStreamingMap);
+		this.streamingDefault = Boolean.parseBoolean(System.getProperty(SYSPROP_RESPONSE_STREAMING));
+		this.cacheSize = Integer.getInteger(SYSPROP_CACHE_SIZE, DEFAULT_CACHE_SIZE);
+	}
+
+	/**
+	 * Returns the AAF roles and the pre/post interceptors that apply to the
+	 * given pathInfo.
+	 */
+	public Resolved resolve(String pathInfo) {
+		if (pathInfo == null) {
+			return compute(pathInfo);
+		}
+		Resolved resolved = cache.get(pathInfo);
+		if (resolved == null) {
+			resolved = compute(pathInfo);
+			if (cache.size() >= cacheSize) {
+				// pathInfo can carry ids, keep the cache bounded
+				cache.clear();
+			}
+			cache.put(pathInfo, resolved);
+		}
+		return resolved;
+	}
+
+	private Resolved compute(String pathInfo) {
+		List<String> aafRoles = aafRoleMappings == null ? null : match(aafRoleMappings, pathInfo);
+		return new Resolved(aafRoles, match(preMappings, pathInfo), match(postMappings, pathInfo),
+				isStreaming(pathInfo));
+	}
+
+	private boolean isStreaming(String pathInfo) {
+		for (Mapping<Boolean> mapping : streamingMappings) {
+			if (pathMatcher.match(mapping.pattern, pathInfo)) {
+				return mapping.values.get(0);
+			}
+		}
+		return streamingDefault;
+	}
+
+	private <T> List<T> match(List<Mapping<T>> mappings, String pathInfo) {
+		Set<T> matched = null;
+		for (Mapping<T> mapping : mappings) {
+			if (pathMatcher.match(mapping.pattern, pathInfo)) {
+				if (matched == null) {
+					matched = new LinkedHashSet<T>();
+				}
+				matched.addAll(mapping.values);
+			}
+		}
+		if (matched == null) {
+			return Collections.emptyList();
+		}
+		return Collections.unmodifiableList(new ArrayList<T>(matched));
+	}
+
+	private static List<Mapping<Interceptor>> compileInterceptors(Map<String, String> p,
+			Map<String, Interceptor> interceptors) {
+		List<Mapping<Interceptor>> mappings = new ArrayList<Mapping<Interceptor>>();
+		if (p == null) {
+			return mappings;
+		}
+		for (Map.Entry<String, String> entry : p.entrySet()) {
+			List<Interceptor> values = new ArrayList<Interceptor>();
+			for (String val : entry.getValue().split(",")) {
+				Interceptor interceptor = interceptors.get(val);
+				if (interceptor == null) {
+					interceptor = new Interceptor(val.trim());
+					interceptors.put(val, interceptor);
+				}
+				values.add(interceptor);
+			}
+			mappings.add(new Mapping<Interceptor>(entry.getKey(), values));
+		}
+		return mappings;
+	}
+
+	private static List<Mapping<String>> compileRoles(Map<String, String> p) {
+		List<Mapping<String>> mappings = new ArrayList<Mapping<String>>();
+		for (Map.Entry<String, String> entry : p.entrySet()) {
+			List<String> values = new ArrayList<String>();
+			Collections.addAll(values, entry.getValue().split(","));
+			mappings.add(new Mapping<String>(entry.getKey(), values));
+		}
+		return mappings;
+	}
+
+	private static List<Mapping<Boolean>> compileStreaming(Map<String, String> p) {
+		List<Mapping<Boolean>> mappings = new ArrayList<Mapping<Boolean>>();
+		if (p == null) {
+			return mappings;
+		}
+		for (Map.Entry<String, String> entry : p.entrySet()) {
+			mappings.add(new Mapping<Boolean>(entry.getKey(),
+					Collections.singletonList(Boolean.valueOf(entry.getValue().trim()))));
+		}
+		return mappings;
+	}
+
+	private static final class Mapping<T> {
+		private final String pattern;
+		private final List<T> values;
+
+		private Mapping(String pattern, List<T> values) {
+			this.pattern = pattern;
+			this.values = values;
+		}
+	}
+
+	/**
+	 * Interceptor class named in a property file. The instance is looked up
+	 * through its static getInstance() on first use, so classes that are
+	 * only added to the class path later in bootstrap still resolve.
+	 */
+	public static final class Interceptor {
+		private final String className;
+		private volatile AjscInterceptor instance;
+
+		private Interceptor(String className) {
+			this.className = className;
+		}
+
+		public String getClassName() {
+			return className;
+		}
+
+		public AjscInterceptor getInstance() throws Exception {
+			AjscInterceptor interceptor = instance;
+			if (interceptor == null) {
+				interceptor = (AjscInterceptor) Class.forName(className)
+						.getDeclaredMethod(GET_INSTANCE_METHOD_NAME).invoke(null);
+				instance = interceptor;
+			}
+			return interceptor;
+		}
+
+		public String toString() {
+			return className;
+		}
+	}
+
+	/**
+	 * Roles and interceptors that apply to one pathInfo. The AAF roles are
+	 * null when no AAFUserRoles file is loaded.
+	 */
+	public static final class Resolved {
+		private final List<String> aafRoles;
+		private final List<Interceptor> preInterceptors;
+		private final List<Interceptor> postInterceptors;
+		private final boolean streaming;
+
+		private Resolved(List<String> aafRoles, List<Interceptor> preInterceptors,
+				List<Interceptor> postInterceptors, boolean streaming) {
+			this.aafRoles = aafRoles;
+			this.preInterceptors = preInterceptors;
+			this.postInterceptors = postInterceptors;
+			this.streaming = streaming;
+		}
+
+		/**
+		 * Whether the downstream response can be streamed to the client
+		 * instead of being buffered for the post-processors. Streaming has to
+		 * be enabled for the path and none of the post-processor
+		 * interceptors may ask for the body.
+		 */
+		public boolean isStreamingResponse() {
+			if (!streaming) {
+				return false;
+			}
+			for (Interceptor interceptor : postInterceptors) {
+				try {
+					if (interceptor.getInstance() instanceof BufferedResponseInterceptor) {
+						return false;
+					}
+				} catch (Exception e) {
+					// let the post-processing report it, on a buffered response
+					return false;
+				}
+			}
+			return true;
+		}
+
+		public List<String> getAafRoles() {
+			return aafRoles;
+		}
+
+		public List<Interceptor> getPreInterceptors() {
+			return preInterceptors;
+		}
+
+		public List<Interceptor> getPostInterceptors() {
+			return postInterceptors;
+		}
+	}
+}
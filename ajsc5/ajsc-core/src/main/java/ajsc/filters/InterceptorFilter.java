@@ -5,41 +5,40 @@ package ajsc.filters;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
-import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
 
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncListener;
 import javax.servlet.Filter;
 import javax.servlet.FilterChain;
 import javax.servlet.FilterConfig;
+import javax.servlet.ServletContext;
 import javax.servlet.ServletException;
 import javax.servlet.ServletOutputStream;
 import javax.servlet.ServletRequest;
 import javax.servlet.ServletResponse;
 import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
 import javax.servlet.http.HttpServletResponse;
 import javax.servlet.http.HttpServletResponseWrapper;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.util.AntPathMatcher;
-import org.springframework.util.PathMatcher;
-
-import com.att.ajsc.filemonitor.AJSCPropertiesMap;
 
 import ajsc.beans.interceptors.AjscInterceptor;
 import ajsc.common.CommonNames;
 
+import com.att.ajsc.csi.restmethodmap.RouteMatch;
+
 public class InterceptorFilter implements Filter {
 
-	private static final String GET_INSTANCE_METHOD_NAME = "getInstance";
-	private static final String PRE_PROCESSOR_CONFIG_FILE = "PreProcessorInterceptors.properties";
-	private static final String POST_PROCESSOR_CONFIG_FILE = "PostProcessorInterceptors.properties";
 	private static final int RESPONSE_NOT_SET=0;
 
-	private static final String AAF_USER_ROLES_CONFIG_FILE = "AAFUserRoles.properties";
 	static final Logger logger = LoggerFactory.getLogger(InterceptorFilter.class);
 
 	public void init(FilterConfig filterConfig) throws ServletException {
@@ -56,14 +55,11 @@ public class InterceptorFilter implements Filter {
 		HttpServletResponse res = (HttpServletResponse) resp;
 		Map<Object, Object> paramMap = new HashMap<Object, Object>();
 
-		Map<String, String> preProcessorMap = AJSCPropertiesMap.getProperties(PRE_PROCESSOR_CONFIG_FILE);
-		Map<String, String> postProcessorMap = AJSCPropertiesMap.getProperties(POST_PROCESSOR_CONFIG_FILE);
-		Map<String, String> aafUserRolesMap = AJSCPropertiesMap.getProperties(AAF_USER_ROLES_CONFIG_FILE);
-
 		// add the start time of this request to the paramMap. This will be
 		// needed during post-processing of the request
 
 		paramMap.put(CommonNames.REQUEST_START_TIME, System.currentTimeMillis());
+		paramMap.put(CommonNames.REQUEST_START_NANOS, System.nanoTime());
 		/*
 		 * long ltime = System.nanoTime()/1000000; String stime =
 		 * Long.toString(ltime);
@@ -77,11 +73,9 @@ public class InterceptorFilter implements Filter {
 		// Pre-processing logic starts
 
 		String pathInfo = hReq.getPathInfo();
-		ArrayList<String> aafRoles = null;
-		if (aafUserRolesMap != null) {
-			aafRoles = urlMappingResolver(aafUserRolesMap, pathInfo);
-		}
-		ArrayList<String> preInterceptorClasses = urlMappingResolver(preProcessorMap, pathInfo);
+		InterceptorChain.Resolved interceptorChain = InterceptorChain.getInterceptorChain().resolve(pathInfo);
+		List<String> aafRoles = interceptorChain.getAafRoles();
+		List<InterceptorChain.Interceptor> preInterceptorClasses = interceptorChain.getPreInterceptors();
 
 		logger.debug("*** Pre-Process Interceptors being applied ***");
 
@@ -100,76 +94,96 @@ public class InterceptorFilter implements Filter {
 			// Pre-processing logic ends
 		
 			
-			byte[] bytes = null;
+			CharResponseWrapper wrappedResponse = null;
 			
 			if(res.getStatus() == HttpServletResponse.SC_OK){
 				
 				if (paramMap.get(HttpServletResponse.SC_FORBIDDEN) == null
 						&& paramMap.get(HttpServletResponse.SC_INTERNAL_SERVER_ERROR) == null) {
 
-					CharResponseWrapper wrappedResponse = new CharResponseWrapper((HttpServletResponse) res);
-					chain.doFilter(req, wrappedResponse);
-
-					// Post-processing logic starts
-					bytes = wrappedResponse.getByteArray();
-					req.setAttribute("resMsgSize", bytes.length);
-
-					
+					// stream straight through unless a post-processor needs the body
+					boolean streaming = interceptorChain.isStreamingResponse();
+					wrappedResponse = new CharResponseWrapper((HttpServletResponse) res, streaming);
+					PostProcessingRequestWrapper wrappedRequest = new PostProcessingRequestWrapper(hReq, res,
+							paramMap, interceptorChain, wrappedResponse);
+					chain.doFilter(wrappedRequest, wrappedResponse);
+
+					if (wrappedRequest.isAsync()) {
+						// the servlet completes the response from another thread,
+						// post-processing runs when it calls AsyncContext.complete()
+						return;
+					}
 				}
 			}
 				
-			ArrayList<String> postInterceptorClasses = urlMappingResolver(postProcessorMap, pathInfo);
-
-			logger.debug("*** Post-Process Interceptors being applied ***");
-
-			paramMap.put("POST_PROCESS", new Boolean(true));
-
-			invokeInterceptors(postInterceptorClasses, hReq, res, paramMap);
-
-			paramMap.remove("POST_PROCESS");
-
-			if (res.getStatus() == HttpServletResponse.SC_OK )
-			{ 
-				res.getOutputStream().write(bytes); 
-			}
-				
-				paramMap.remove(HttpServletResponse.SC_FORBIDDEN);
-				paramMap.remove(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
-			
-
+			postProcess(hReq, res, paramMap, interceptorChain, wrappedResponse);
 			
 		} else {
 			res.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
 			logger.info("User Does not have correct Authorization....");
+			recordMetrics(res, paramMap, 0);
 
 		}
 	}
 
-	private ArrayList<String> urlMappingResolver(Map<String, String> p, String pathinfo) {
+	private void postProcess(HttpServletRequest hReq, HttpServletResponse res, Map<Object, Object> paramMap,
+			InterceptorChain.Resolved interceptorChain, CharResponseWrapper wrappedResponse) throws IOException {
+
+		byte[] bytes = null;
+		long size = 0;
+
+		// Post-processing logic starts
+		if (wrappedResponse != null) {
+			if (wrappedResponse.isStreaming()) {
+				size = wrappedResponse.getByteCount();
+				hReq.setAttribute("resMsgSize", (int) size);
+			} else {
+				bytes = wrappedResponse.getByteArray();
+				size = bytes.length;
+				hReq.setAttribute("resMsgSize", bytes.length);
+				paramMap.put(CommonNames.RESPONSE_BODY_BYTES, bytes);
+			}
+		}
 
-		ArrayList<String> interceptorClasses = new ArrayList<String>();
+		List<InterceptorChain.Interceptor> postInterceptorClasses = interceptorChain.getPostInterceptors();
 
-		PathMatcher pathMatcher = new AntPathMatcher();
+		logger.debug("*** Post-Process Interceptors being applied ***");
 
-		for (Map.Entry<String, String> entry : p.entrySet()) {
-			String key = entry.getKey();
-			String value = entry.getValue();
+		paramMap.put("POST_PROCESS", new Boolean(true));
 
-			String[] valueArray = value.split(",");
+		invokeInterceptors(postInterceptorClasses, hReq, res, paramMap);
 
-			if (pathMatcher.match(key, pathinfo)) {
-				for (String val : valueArray) {
-					if (!interceptorClasses.contains(val)) {
-						interceptorClasses.add(val);
-					}
-				}
-			}
+		paramMap.remove("POST_PROCESS");
+
+		if (bytes != null && res.getStatus() == HttpServletResponse.SC_OK )
+		{ 
+			res.getOutputStream().write(bytes); 
 		}
+			
+		paramMap.remove(HttpServletResponse.SC_FORBIDDEN);
+		paramMap.remove(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
 
-		return interceptorClasses;
+		recordMetrics(res, paramMap, size);
 	}
 
-	private Boolean verifyRoles(ArrayList<String> interceptorClasses, HttpServletRequest hReq, HttpServletResponse res,
+	private void recordMetrics(HttpServletResponse res, Map<Object, Object> paramMap, long size) {
+		LogicalMethodMetrics metrics = LogicalMethodMetrics.getInstance();
+		if (!metrics.isEnabled()) {
+			return;
+		}
+		try {
+			Long start = (Long) paramMap.get(CommonNames.REQUEST_START_NANOS);
+			Object routeMatch = paramMap.get(CommonNames.ROUTE_MATCH);
+			String logicalMethod = routeMatch instanceof RouteMatch ? ((RouteMatch) routeMatch).getLogicalMethod()
+					: null;
+			long latencyMicros = start == null ? 0 : (System.nanoTime() - start) / 1000;
+			metrics.record(logicalMethod, res.getStatus(), latencyMicros, size);
+		} catch (Exception e) {
+			logger.debug("Unable to record the request metrics", e);
+		}
+	}
+
+	private Boolean verifyRoles(List<String> interceptorClasses, HttpServletRequest hReq, HttpServletResponse res,
 			Map<? super Object, ? super Object> paramMap) {
 		Boolean value = false;
 		if (!interceptorClasses.isEmpty()) {
@@ -189,18 +203,17 @@ public class InterceptorFilter implements Filter {
 		return value;
 	}
 
-	private void invokeInterceptors(ArrayList<String> interceptorClasses, HttpServletRequest hReq,
+	private void invokeInterceptors(List<InterceptorChain.Interceptor> interceptorClasses, HttpServletRequest hReq,
 			HttpServletResponse res, Map<? super Object, ? super Object> paramMap) {
 
 		// System.out.println("<<<<<<<<<<<<Interceptor classes list ->"+interceptorClasses);
 
 		if (!interceptorClasses.isEmpty()) {
 
-			for (String interceptorClass : interceptorClasses) {
+			for (InterceptorChain.Interceptor interceptorClass : interceptorClasses) {
 				try {
 					if(interceptorClass != null){
-						AjscInterceptor interceptor = (AjscInterceptor) Class.forName(interceptorClass.trim())
-								.getDeclaredMethod(GET_INSTANCE_METHOD_NAME).invoke(null, null);
+						AjscInterceptor interceptor = interceptorClass.getInstance();
 	
 						if (!interceptor.allowOrReject(hReq, res, paramMap)) {
 	
@@ -252,6 +265,45 @@ public class InterceptorFilter implements Filter {
 			baos.write(param);
 		}
 
+		public void write(byte[] b, int off, int len) throws IOException {
+			baos.write(b, off, len);
+		}
+
+	}
+
+	/*
+	 * Passes the downstream response through to the client, only counting the
+	 * bytes written.
+	 */
+	private static class CountingServletStream extends ServletOutputStream {
+		private final ServletOutputStream out;
+		private long count;
+
+		CountingServletStream(ServletOutputStream out) {
+			this.out = out;
+		}
+
+		public void write(int param) throws IOException {
+			out.write(param);
+			count++;
+		}
+
+		public void write(byte[] b, int off, int len) throws IOException {
+			out.write(b, off, len);
+			count += len;
+		}
+
+		public void flush() throws IOException {
+			out.flush();
+		}
+
+		public void close() throws IOException {
+			out.close();
+		}
+
+		long getCount() {
+			return count;
+		}
 	}
 
 	private static class ByteArrayPrintWriter {
@@ -271,25 +323,57 @@ public class InterceptorFilter implements Filter {
 		}
 
 		byte[] toByteArray() {
+			pw.flush();
 			return baos.toByteArray();
 		}
 	}
 
 	public class CharResponseWrapper extends HttpServletResponseWrapper {
 		private ByteArrayPrintWriter output;
+		private CountingServletStream stream;
+		private PrintWriter streamWriter;
 		private boolean usingWriter;
 		final Map<String, List<String>> headers = new HashMap<String, List<String>>();
 
 		public CharResponseWrapper(HttpServletResponse response) {
+			this(response, false);
+		}
+
+		/**
+		 * @param streaming
+		 *            when true the body is written through to the response
+		 *            and only its size is kept, otherwise it is buffered
+		 *            until {@link #getByteArray()} is called
+		 */
+		public CharResponseWrapper(HttpServletResponse response, boolean streaming) {
 			super(response);
 			usingWriter = false;
-			output = new ByteArrayPrintWriter();
+			if (!streaming) {
+				output = new ByteArrayPrintWriter();
+			}
+		}
+
+		public boolean isStreaming() {
+			return output == null;
 		}
 
 		public byte[] getByteArray() {
 			return output.toByteArray();
 		}
 
+		/**
+		 * @return the number of body bytes written so far
+		 */
+		public long getByteCount() throws IOException {
+			if (isStreaming()) {
+				if (streamWriter != null) {
+					streamWriter.flush();
+				}
+				return stream != null ? stream.getCount() : 0;
+			}
+			return getByteArray().length;
+		}
+
 		@Override
 		public ServletOutputStream getOutputStream() throws IOException {
 			// will error out, if in use
@@ -297,7 +381,7 @@ public class InterceptorFilter implements Filter {
 				super.getOutputStream();
 			}
 			usingWriter = true;
-			return output.getStream();
+			return isStreaming() ? getCountingStream() : output.getStream();
 		}
 
 		@Override
@@ -307,13 +391,151 @@ public class InterceptorFilter implements Filter {
 				super.getWriter();
 			}
 			usingWriter = true;
+			if (isStreaming()) {
+				if (streamWriter == null) {
+					streamWriter = new PrintWriter(new OutputStreamWriter(getCountingStream(), getCharacterEncoding()));
+				}
+				return streamWriter;
+			}
 			return output.getWriter();
 		}
 
+		@Override
+		public void flushBuffer() throws IOException {
+			if (streamWriter != null) {
+				streamWriter.flush();
+			}
+			super.flushBuffer();
+		}
+
+		private CountingServletStream getCountingStream() throws IOException {
+			if (stream == null) {
+				stream = new CountingServletStream(super.getOutputStream());
+			}
+			return stream;
+		}
+
 		public String toString() {
-			return output.toString();
+			return output != null ? output.toString() : super.toString();
 		}
 	}
 	
 
+
+	/*
+	 * Hands the servlet an AsyncContext that runs the post-processing before
+	 * the asynchronous response is completed.
+	 */
+	private class PostProcessingRequestWrapper extends HttpServletRequestWrapper {
+		private final HttpServletResponse res;
+		private final Map<Object, Object> paramMap;
+		private final InterceptorChain.Resolved interceptorChain;
+		private final CharResponseWrapper wrappedResponse;
+		private volatile boolean async;
+
+		PostProcessingRequestWrapper(HttpServletRequest request, HttpServletResponse res,
+				Map<Object, Object> paramMap, InterceptorChain.Resolved interceptorChain,
+				CharResponseWrapper wrappedResponse) {
+			super(request);
+			this.res = res;
+			this.paramMap = paramMap;
+			this.interceptorChain = interceptorChain;
+			this.wrappedResponse = wrappedResponse;
+		}
+
+		boolean isAsync() {
+			return async;
+		}
+
+		@Override
+		public AsyncContext startAsync() throws IllegalStateException {
+			return startAsync(this, wrappedResponse);
+		}
+
+		@Override
+		public AsyncContext startAsync(ServletRequest servletRequest, ServletResponse servletResponse)
+				throws IllegalStateException {
+			AsyncContext asyncContext = new PostProcessingAsyncContext(
+					super.startAsync(servletRequest, servletResponse), this);
+			async = true;
+			return asyncContext;
+		}
+
+		void postProcess() {
+			try {
+				InterceptorFilter.this.postProcess((HttpServletRequest) getRequest(), res, paramMap,
+						interceptorChain, wrappedResponse);
+			} catch (Exception e) {
+				logger.error("Exception occurred in post-processing of an asynchronous request :", e);
+			}
+		}
+	}
+
+	private static class PostProcessingAsyncContext implements AsyncContext {
+		private final AsyncContext asyncContext;
+		private final PostProcessingRequestWrapper request;
+		private final AtomicBoolean postProcessed = new AtomicBoolean();
+
+		PostProcessingAsyncContext(AsyncContext asyncContext, PostProcessingRequestWrapper request) {
+			this.asyncContext = asyncContext;
+			this.request = request;
+		}
+
+		public void complete() {
+			if (postProcessed.compareAndSet(false, true)) {
+				request.postProcess();
+			}
+			asyncContext.complete();
+		}
+
+		public ServletRequest getRequest() {
+			return asyncContext.getRequest();
+		}
+
+		public ServletResponse getResponse() {
+			return asyncContext.getResponse();
+		}
+
+		public boolean hasOriginalRequestAndResponse() {
+			return asyncContext.hasOriginalRequestAndResponse();
+		}
+
+		public void dispatch() {
+			asyncContext.dispatch();
+		}
+
+		public void dispatch(String path) {
+			asyncContext.dispatch(path);
+		}
+
+		public void dispatch(ServletContext context, String path) {
+			asyncContext.dispatch(context, path);
+		}
+
+		public void start(Runnable run) {
+			asyncContext.start(run);
+		}
+
+		public void addListener(AsyncListener listener) {
+			asyncContext.addListener(listener);
+		}
+
+		public void addListener(AsyncListener listener, ServletRequest servletRequest,
+				ServletResponse servletResponse) {
+			asyncContext.addListener(listener, servletRequest, servletResponse);
+		}
+
+		public <T extends AsyncListener> T createListener(Class<T> clazz) throws ServletException {
+			return asyncContext.createListener(clazz);
+		}
+
+		public void setTimeout(long timeout) {
+			asyncContext.setTimeout(timeout);
+		}
+
+		public long getTimeout() {
+			return asyncContext.getTimeout();
+		}
+	}
+
 }
@@ -0,0 +1,228 @@
+/*******************************************************************************
+ * Copyright (c) 2016 AT&T Intellectual Property. All rights reserved.
+ *******************************************************************************/
+package ajsc.filters;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Latency and response size histograms of the requests seen by
+ * {@link InterceptorFilter}, keyed by the RouteMatch logical method and the
+ * HTTP status. Recording is lock-free; the first request of a logical
+ * method/status pair allocates its histograms. The metrics are registered
+ * over JMX as {@value #OBJECT_NAME} and served as JSON by
+ * ajsc.servlet.LogicalMethodMetricsServlet.
+ */
+public final class LogicalMethodMetrics implements LogicalMethodMetricsMBean {
+
+	public static final String OBJECT_NAME = "ajsc:type=LogicalMethodMetrics";
+	public static final String SYSPROP_ENABLED = "AJSC_METHOD_METRICS_ENABLED";
+	public static final String UNKNOWN_METHOD = "UNKNOWN";
+
+	private static final int MAX_STATUS = 600;
+
+	static final Logger logger = LoggerFactory.getLogger(LogicalMethodMetrics.class);
+
+	private static final LogicalMethodMetrics instance = new LogicalMethodMetrics(
+			Boolean.parseBoolean(System.getProperty(SYSPROP_ENABLED, "true")));
+
+	static {
+		if (instance.isEnabled()) {
+			instance.register();
+		}
+	}
+
+	private final boolean enabled;
+	private final LongAdder requests = new LongAdder();
+	private volatile ConcurrentMap<String, AtomicReferenceArray<Entry>> methods = new ConcurrentHashMap<String, AtomicReferenceArray<Entry>>();
+
+	LogicalMethodMetrics(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	public static LogicalMethodMetrics getInstance() {
+		return instance;
+	}
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * @param logicalMethod
+	 *            the RouteMatch logical method, null when the request was
+	 *            not matched
+	 * @param latencyMicros
+	 *            time from the start of the filter until post-processing
+	 *            ended
+	 */
+	public void record(String logicalMethod, int status, long latencyMicros, long responseBytes) {
+		if (!enabled) {
+			return;
+		}
+		Entry entry = getOrCreateEntry(logicalMethod == null ? UNKNOWN_METHOD : logicalMethod, status);
+		entry.latency.record(latencyMicros);
+		entry.size.record(responseBytes);
+		requests.increment();
+	}
+
+	private Entry getOrCreateEntry(String logicalMethod, int status) {
+		ConcurrentMap<String, AtomicReferenceArray<Entry>> current = methods;
+		AtomicReferenceArray<Entry> statuses = current.get(logicalMethod);
+		if (statuses == null) {
+			AtomicReferenceArray<Entry> created = new AtomicReferenceArray<Entry>(MAX_STATUS);
+			statuses = current.putIfAbsent(logicalMethod, created);
+			if (statuses == null) {
+				statuses = created;
+			}
+		}
+		int index = status >= 0 && status < MAX_STATUS ? status : 0;
+		Entry entry = statuses.get(index);
+		if (entry == null) {
+			Entry created = new Entry(logicalMethod, index);
+			entry = statuses.compareAndSet(index, null, created) ? created : statuses.get(index);
+		}
+		return entry;
+	}
+
+	/**
+	 * @return the recorded logical method/status pairs, ordered by logical
+	 *         method and status
+	 */
+	public List<Entry> getEntries() {
+		List<Entry> entries = new ArrayList<Entry>();
+		ConcurrentMap<String, AtomicReferenceArray<Entry>> current = methods;
+		for (String logicalMethod : new TreeSet<String>(current.keySet())) {
+			AtomicReferenceArray<Entry> statuses = current.get(logicalMethod);
+			for (int i = 0; i < MAX_STATUS; i++) {
+				Entry entry = statuses.get(i);
+				if (entry != null) {
+					entries.add(entry);
+				}
+			}
+		}
+		return entries;
+	}
+
+	/**
+	 * @return the histograms of the given logical method and status, null if
+	 *         none was recorded
+	 */
+	public Entry getEntry(String logicalMethod, int status) {
+		AtomicReferenceArray<Entry> statuses = methods.get(logicalMethod);
+		return statuses == null || status < 0 || status >= MAX_STATUS ? null : statuses.get(status);
+	}
+
+	@Override
+	public long getRequestCount() {
+		return requests.sum();
+	}
+
+	@Override
+	public String[] getLogicalMethods() {
+		return new TreeSet<String>(methods.keySet()).toArray(new String[0]);
+	}
+
+	@Override
+	public String[] getSummary() {
+		List<Entry> entries = getEntries();
+		String[] summary = new String[entries.size()];
+		for (int i = 0; i < summary.length; i++) {
+			summary[i] = entries.get(i).toString();
+		}
+		return summary;
+	}
+
+	@Override
+	public long getLatencyPercentile(String logicalMethod, int status, double percentile) {
+		Entry entry = getEntry(logicalMethod, status);
+		return entry == null ? 0 : entry.latency.getValueAtPercentile(percentile);
+	}
+
+	@Override
+	public long getSizePercentile(String logicalMethod, int status, double percentile) {
+		Entry entry = getEntry(logicalMethod, status);
+		return entry == null ? 0 : entry.size.getValueAtPercentile(percentile);
+	}
+
+	@Override
+	public void reset() {
+		methods = new ConcurrentHashMap<String, AtomicReferenceArray<Entry>>();
+		requests.reset();
+	}
+
+	private void register() {
+		try {
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			ObjectName name = new ObjectName(OBJECT_NAME);
+			if (server.isRegistered(name)) {
+				// left over from a previous deployment in the same JVM
+				server.unregisterMBean(name);
+			}
+			server.registerMBean(this, name);
+		} catch (Exception e) {
+			logger.warn("Unable to register " + OBJECT_NAME + " MBean", e);
+		}
+	}
+
+	/**
+	 * Histograms of one logical method and HTTP status.
+	 */
+	public static final class Entry {
+		private final String logicalMethod;
+		private final int status;
+		private final LogLinearHistogram latency = new LogLinearHistogram();
+		private final LogLinearHistogram size = new LogLinearHistogram();
+
+		private Entry(String logicalMethod, int status) {
+			this.logicalMethod = logicalMethod;
+			this.status = status;
+		}
+
+		public String getLogicalMethod() {
+			return logicalMethod;
+		}
+
+		public int getStatus() {
+			return status;
+		}
+
+		/**
+		 * @return latencies in microseconds
+		 */
+		public LogLinearHistogram getLatency() {
+			return latency;
+		}
+
+		/**
+		 * @return response sizes in bytes
+		 */
+		public LogLinearHistogram getSize() {
+			return size;
+		}
+
+		public String toString() {
+			return logicalMethod + " " + status + " count=" + latency.getCount()
+					+ " latencyMicros[p50=" + latency.getValueAtPercentile(50)
+					+ " p90=" + latency.getValueAtPercentile(90)
+					+ " p99=" + latency.getValueAtPercentile(99)
+					+ " max=" + latency.getMax()
+					+ "] sizeBytes[p50=" + size.getValueAtPercentile(50)
+					+ " p99=" + size.getValueAtPercentile(99)
+					+ " max=" + size.getMax() + "]";
+		}
+	}
+}
@@ -0,0 +1,27 @@
+/*******************************************************************************
+ * Copyright (c) 2016 AT&T Intellectual Property. All rights reserved.
+ *******************************************************************************/
+package ajsc.filters;
+
+/**
+ * JMX view of {@link LogicalMethodMetrics}, registered as
+ * {@value LogicalMethodMetrics#OBJECT_NAME}.
+ */
+public interface LogicalMethodMetricsMBean {
+
+	long getRequestCount();
+
+	String[] getLogicalMethods();
+
+	/**
+	 * One line per logical method and HTTP status with the request count and
+	 * the latency (microseconds) and response size (bytes) percentiles.
+	 */
+	String[] getSummary();
+
+	long getLatencyPercentile(String logicalMethod, int status, double percentile);
+
+	long getSizePercentile(String logicalMethod, int status, double percentile);
+
+	void reset();
+}
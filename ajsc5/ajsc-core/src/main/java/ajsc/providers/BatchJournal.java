@@ -0,0 +1,270 @@
+/*******************************************************************************
+ * Copyright (c) 2016 AT&T Intellectual Property. All rights reserved.
+ *******************************************************************************/
+package ajsc.providers;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.zip.CRC32;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Redo journal that makes a {@link WriteBatch} atomic on any
+ * {@link DBAdapter}. A commit writes the whole batch to one file under
+ * <code>&lt;storagePath&gt;/batch</code>, forces it once and renames it to
+ * its final name; the rename is the commit point. The batch is then applied
+ * to the adapter and the journal file deleted. A journal file found when
+ * the storage is opened belongs to a batch that was committed but maybe not
+ * fully applied, and is applied again: puts and deletes are idempotent.
+ * Files that were never renamed are discarded, and a journal file that
+ * cannot be read is renamed aside with a CORRUPT_SUFFIX and logged rather
+ * than blocking every later commit.
+ *
+ * A batch whose apply fails keeps its journal file and is applied again
+ * before the next batch committed in this JVM, so it never lands after
+ * newer batches.
+ *
+ * The journal file is deleted only once the applied writes are durable.
+ * When the adapter stores into a {@link LogPersistenceClient}, the records
+ * of the batch are not forced one by one; the maps they touched are forced
+ * once before the journal file is deleted. A
+ * {@link MVStorePersistenceClient} likewise commits the batch once. With a
+ * {@link FilePersistenceClient} the files written and the map directories
+ * are forced after the batch is applied; the journal then costs a write
+ * and a force more than the unbatched writes, the price of atomicity.
+ *
+ * Commits are serialized. A batch wins over a write of the same key made
+ * while it was being applied only if the process dies before the apply
+ * finished.
+ */
+public final class BatchJournal {
+
+	static final String BATCH_DIR = "batch";
+	static final String JOURNAL_SUFFIX = ".batch";
+	static final String CORRUPT_SUFFIX = ".corrupt";
+	private static final String TMP_SUFFIX = ".tmp";
+	private static final int MAGIC = 0x414a4231; // AJB1
+
+	static final Logger logger = LoggerFactory.getLogger(BatchJournal.class);
+
+	private static final ConcurrentMap<File, BatchJournal> journals = new ConcurrentHashMap<File, BatchJournal>();
+
+	private final File dir;
+	private long lastSeq;
+	private volatile boolean recovered;
+
+	private BatchJournal(File dir) {
+		this.dir = dir;
+	}
+
+	/**
+	 * @return the journal of the storage directory, shared in the JVM
+	 */
+	public static BatchJournal forStorage(String storagePath) {
+		File dir;
+		try {
+			dir = new File(storagePath, BATCH_DIR).getCanonicalFile();
+		} catch (IOException e) {
+			throw new UncheckedIOException("Invalid storage path " + storagePath, e);
+		}
+		BatchJournal journal = journals.get(dir);
+		if (journal == null) {
+			BatchJournal created = new BatchJournal(dir);
+			journal = journals.putIfAbsent(dir, created);
+			if (journal == null) {
+				journal = created;
+			}
+		}
+		return journal;
+	}
+
+	File getDir() {
+		return dir;
+	}
+
+	/**
+	 * Makes the batch durable, then applies it to the adapter.
+	 */
+	public synchronized void commit(DBAdapter adapter, WriteBatch batch) {
+		if (batch.isEmpty()) {
+			return;
+		}
+		recover(adapter);
+		File journal;
+		try {
+			journal = write(batch);
+		} catch (IOException e) {
+			throw new UncheckedIOException("Commit of a batch of " + batch.size() + " writes failed", e);
+		}
+		try {
+			apply(adapter, batch);
+		} catch (RuntimeException e) {
+			// the journal stays, recover applies it again first
+			recovered = false;
+			throw e;
+		}
+		if (!journal.delete()) {
+			logger.warn("Unable to delete applied batch journal " + journal);
+		}
+	}
+
+	/**
+	 * Applies the journal files left by an earlier process, or by a commit
+	 * whose apply failed, until they are all applied.
+	 */
+	public synchronized void recover(DBAdapter adapter) {
+		if (recovered) {
+			return;
+		}
+		File[] files = dir.listFiles();
+		if (files != null) {
+			Arrays.sort(files);
+			for (File file : files) {
+				String name = file.getName();
+				if (name.endsWith(TMP_SUFFIX)) {
+					file.delete();
+				} else if (name.endsWith(JOURNAL_SUFFIX)) {
+					WriteBatch batch;
+					try {
+						batch = read(file);
+					} catch (IOException e) {
+						File corrupt = new File(dir, name + CORRUPT_SUFFIX);
+						logger.error("Unable to read batch journal " + file + ", moved to " + corrupt, e);
+						if (!file.renameTo(corrupt)) {
+							logger.warn("Unable to move corrupt batch journal " + file);
+						}
+						continue;
+					}
+					logger.info("Applying " + batch.size() + " writes of committed batch " + file);
+					apply(adapter, batch);
+					file.delete();
+				}
+			}
+		}
+		recovered = true;
+	}
+
+	private File write(WriteBatch batch) throws IOException {
+		if (!dir.isDirectory() && !dir.mkdirs()) {
+			throw new IOException("Unable to create " + dir);
+		}
+		lastSeq = Math.max(lastSeq + 1, System.currentTimeMillis());
+		String name = String.format("%020d", lastSeq);
+		File tmp = new File(dir, name + TMP_SUFFIX);
+		write(batch, tmp);
+		File journal = new File(dir, name + JOURNAL_SUFFIX);
+		Files.move(tmp.toPath(), journal.toPath(), StandardCopyOption.ATOMIC_MOVE);
+		LogStore.syncDirectory(dir);
+		return journal;
+	}
+
+	static void write(WriteBatch batch, File file) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream data = new DataOutputStream(bytes);
+		data.writeInt(MAGIC);
+		batch.write(data);
+		data.flush();
+		CRC32 crc = new CRC32();
+		crc.update(bytes.toByteArray());
+		data.writeInt((int) crc.getValue());
+		data.flush();
+		FileOutputStream out = new FileOutputStream(file);
+		try {
+			bytes.writeTo(out);
+			out.getChannel().force(true);
+		} finally {
+			out.close();
+		}
+	}
+
+	static WriteBatch read(File file) throws IOException {
+		byte[] bytes = Files.readAllBytes(file.toPath());
+		if (bytes.length < 8) {
+			throw new IOException("Truncated batch journal");
+		}
+		CRC32 crc = new CRC32();
+		crc.update(bytes, 0, bytes.length - 4);
+		if ((int) crc.getValue() != ByteBuffer.wrap(bytes, bytes.length - 4, 4).getInt()) {
+			throw new IOException("Checksum mismatch");
+		}
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes, 0, bytes.length - 4));
+		if (in.readInt() != MAGIC) {
+			throw new IOException("Not a batch journal");
+		}
+		return WriteBatch.read(in);
+	}
+
+	private static void apply(DBAdapter adapter, WriteBatch batch) {
+		DBAdapter base = adapter;
+		while (true) {
+			if (base instanceof IndexingDBAdapter) {
+				base = ((IndexingDBAdapter) base).getDelegate();
+			} else if (base instanceof CachingDBAdapter) {
+				base = ((CachingDBAdapter) base).getDelegate();
+			} else {
+				break;
+			}
+		}
+		if (base instanceof LogPersistenceClient) {
+			LogStore.setSyncDeferred(true);
+			try {
+				applyEntries(adapter, batch);
+			} finally {
+				LogStore.setSyncDeferred(false);
+			}
+			try {
+				((LogPersistenceClient) base).store().syncIfEnabled();
+			} catch (IOException e) {
+				throw new UncheckedIOException("Sync of a batch of " + batch.size() + " writes failed", e);
+			}
+		} else if (base instanceof MVStorePersistenceClient) {
+			MVStorePersistenceClient.setCommitDeferred(true);
+			try {
+				applyEntries(adapter, batch);
+			} finally {
+				MVStorePersistenceClient.setCommitDeferred(false);
+			}
+			try {
+				((MVStorePersistenceClient) base).sync();
+			} catch (IOException e) {
+				throw new UncheckedIOException("Commit of a batch of " + batch.size() + " writes failed", e);
+			}
+		} else if (base instanceof FilePersistenceClient) {
+			applyEntries(adapter, batch);
+			try {
+				((FilePersistenceClient) base).sync(batch);
+			} catch (IOException e) {
+				throw new UncheckedIOException("Sync of a batch of " + batch.size() + " writes failed", e);
+			}
+		} else {
+			applyEntries(adapter, batch);
+		}
+	}
+
+	// through the adapter chain, so caches and indexes follow the writes
+	private static void applyEntries(DBAdapter adapter, WriteBatch batch) {
+		for (WriteBatch.Entry entry : batch.getEntries()) {
+			if (entry.isDelete()) {
+				adapter.deleteKey(entry.getMapName(), entry.getKey());
+			} else if (entry.isString()) {
+				adapter.store(entry.getMapName(), entry.getKey(), entry.getText());
+			} else {
+				adapter.storeByteArray(entry.getMapName(), entry.getKey(), entry.getValue());
+			}
+		}
+	}
+}
@@ -0,0 +1,554 @@
+/*******************************************************************************
+ * Copyright (c) 2016 AT&T Intellectual Property. All rights reserved.
+ *******************************************************************************/
+package ajsc.providers;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Write-through cache in front of another {@link DBAdapter}. Each map keeps
+ * its recently read values in an LRU bounded by a memory budget (default
+ * {@value #DEFAULT_MAP_BYTES} bytes, see {@link #SYSPROP_MAP_BYTES}); keys
+ * that were not found are cached too. Writes go to the delegate first and
+ * then replace the cached value, one write per map at a time, so the cache
+ * never holds a value older than the store.
+ *
+ * With snapshots enabled the results of fetchKeys, fetchAllEntries and
+ * fetchAllByteArrayEntries are kept as immutable collections until the map
+ * is written; callers must not modify them, nor the byte arrays they hold.
+ * Snapshots are off unless {@link #SYSPROP_SNAPSHOTS} is "true", so by
+ * default those results are the store's own, modifiable collections.
+ *
+ * The cache assumes it is the only writer of the underlying store.
+ */
+public class CachingDBAdapter implements DBAdapter {
+
+	/**
+	 * Default memory budget of a map in bytes; "&lt;property&gt;.&lt;mapName&gt;"
+	 * sets the budget of one map, 0 disables its cache.
+	 */
+	public static final String SYSPROP_MAP_BYTES = "AJSC_PERSISTENCE_CACHE_MAP_BYTES";
+	/**
+	 * "true" keeps the bulk reads of a map as snapshots, for callers that do
+	 * not modify what they read.
+	 */
+	public static final String SYSPROP_SNAPSHOTS = "AJSC_PERSISTENCE_CACHE_SNAPSHOTS";
+	public static final long DEFAULT_MAP_BYTES = 4 * 1024 * 1024;
+
+	// rough per entry overhead of the LRU node, the entry and the key
+	private static final int ENTRY_OVERHEAD = 96;
+	private static final Object NO_MAP = new Object();
+
+	private final DBAdapter delegate;
+	private final long defaultBudget;
+	private final boolean snapshots;
+	private final ConcurrentMap<String, MapCache> maps = new ConcurrentHashMap<String, MapCache>();
+	private final ConcurrentMap<String, Long> budgets = new ConcurrentHashMap<String, Long>();
+
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder snapshotHits = new LongAdder();
+	private final LongAdder snapshotMisses = new LongAdder();
+	private final LongAdder evictions = new LongAdder();
+
+	public CachingDBAdapter(DBAdapter delegate) {
+		this(delegate, Long.getLong(SYSPROP_MAP_BYTES, DEFAULT_MAP_BYTES), Boolean.getBoolean(SYSPROP_SNAPSHOTS));
+	}
+
+	public CachingDBAdapter(DBAdapter delegate, long defaultBudget, boolean snapshots) {
+		this.delegate = delegate;
+		this.defaultBudget = defaultBudget;
+		this.snapshots = snapshots;
+	}
+
+	public DBAdapter getDelegate() {
+		return delegate;
+	}
+
+	/**
+	 * Sets the memory budget of a map, dropping what it cached so far.
+	 */
+	public void setMapBudget(String mapName, long bytes) {
+		budgets.put(mapName, bytes);
+		maps.remove(mapName);
+	}
+
+	/**
+	 * Drops everything cached for the map, e.g. after the store was changed
+	 * behind the cache.
+	 */
+	public void invalidate(String mapName) {
+		MapCache cache = maps.get(mapName);
+		if (cache != null) {
+			synchronized (cache) {
+				cache.clear();
+			}
+		}
+	}
+
+	public void invalidateAll() {
+		for (String mapName : maps.keySet()) {
+			invalidate(mapName);
+		}
+	}
+
+	/**
+	 * @return hit, miss and eviction counters and the cached bytes
+	 */
+	public Map<String, Long> getStatistics() {
+		long bytes = 0;
+		for (MapCache cache : maps.values()) {
+			synchronized (cache) {
+				bytes += cache.bytes + cache.snapshotBytes;
+			}
+		}
+		Map<String, Long> statistics = new LinkedHashMap<String, Long>();
+		statistics.put("hits", hits.sum());
+		statistics.put("misses", misses.sum());
+		statistics.put("snapshotHits", snapshotHits.sum());
+		statistics.put("snapshotMisses", snapshotMisses.sum());
+		statistics.put("evictions", evictions.sum());
+		statistics.put("cachedBytes", bytes);
+		return statistics;
+	}
+
+	public void resetStatistics() {
+		hits.reset();
+		misses.reset();
+		snapshotHits.reset();
+		snapshotMisses.reset();
+		evictions.reset();
+	}
+
+	/**
+	 * @return the cache of the map, null if its budget is 0
+	 */
+	private MapCache cache(String mapName) {
+		MapCache cache = maps.get(mapName);
+		if (cache == null) {
+			Long budget = budgets.get(mapName);
+			if (budget == null) {
+				budget = Long.getLong(SYSPROP_MAP_BYTES + "." + mapName, defaultBudget);
+			}
+			MapCache created = new MapCache(budget);
+			cache = maps.putIfAbsent(mapName, created);
+			if (cache == null) {
+				cache = created;
+			}
+		}
+		return cache.budget > 0 ? cache : null;
+	}
+
+	// ----------------------------------------------------------------------
+	// reads
+
+	public Object fetch(String mapName, String key) {
+		MapCache cache = cache(mapName);
+		if (cache == null) {
+			return delegate.fetch(mapName, key);
+		}
+		long version;
+		synchronized (cache) {
+			Entry entry = cache.entries.get(key);
+			if (entry != null && (entry.missing || entry.text != null)) {
+				hits.increment();
+				return entry.text;
+			}
+			version = cache.version;
+		}
+		misses.increment();
+		Object value = delegate.fetch(mapName, key);
+		synchronized (cache) {
+			if (cache.version == version) {
+				Entry entry = cache.entries.get(key);
+				cache.put(key, value == null ? Entry.MISSING : new Entry(value.toString(), entry == null ? null
+						: entry.bytes));
+			}
+		}
+		return value;
+	}
+
+	/**
+	 * @return a copy of the cached value
+	 */
+	public Object fetchByteArray(String mapName, String key) {
+		MapCache cache = cache(mapName);
+		if (cache == null) {
+			return delegate.fetchByteArray(mapName, key);
+		}
+		long version;
+		synchronized (cache) {
+			Entry entry = cache.entries.get(key);
+			if (entry != null && (entry.missing || entry.bytes != null)) {
+				hits.increment();
+				return entry.missing ? null : entry.bytes.clone();
+			}
+			version = cache.version;
+		}
+		misses.increment();
+		byte[] value = (byte[]) delegate.fetchByteArray(mapName, key);
+		synchronized (cache) {
+			if (cache.version == version) {
+				Entry entry = cache.entries.get(key);
+				cache.put(key, value == null ? Entry.MISSING : new Entry(entry == null ? null : entry.text,
+						value.clone()));
+			}
+		}
+		return value;
+	}
+
+	/**
+	 * Streams a cached value from memory; values that are not cached are
+	 * streamed from the delegate and not added to the cache.
+	 */
+	public Object openByteArray(String mapName, String key) {
+		MapCache cache = cache(mapName);
+		if (cache != null) {
+			synchronized (cache) {
+				Entry entry = cache.entries.get(key);
+				if (entry != null && (entry.missing || entry.bytes != null)) {
+					hits.increment();
+					return entry.missing ? null : ValueChannel.of(entry.bytes);
+				}
+			}
+		}
+		return delegate.openByteArray(mapName, key);
+	}
+
+	/**
+	 * Pages are read from the delegate and not cached, so that iterating a
+	 * large map does not evict the working set.
+	 */
+	public Object fetchPage(String mapName, String keyPrefix, String resumeToken, int pageSize) {
+		return delegate.fetchPage(mapName, keyPrefix, resumeToken, pageSize);
+	}
+
+	public Object fetchKeys(String mapName) {
+		MapCache cache = snapshots ? cache(mapName) : null;
+		if (cache == null) {
+			return delegate.fetchKeys(mapName);
+		}
+		Object cached = cache.getSnapshot(Snapshot.KEYS);
+		if (cached != null) {
+			return cached;
+		}
+		long version = cache.versionForLoad();
+		Collection<?> keys = (Collection<?>) delegate.fetchKeys(mapName);
+		List<Object> snapshot = Collections.unmodifiableList(new ArrayList<Object>(keys));
+		cache.putSnapshot(Snapshot.KEYS, version, snapshot, textBytes(keys));
+		return snapshot;
+	}
+
+	public Object fetchAllEntries(String mapName) {
+		MapCache cache = snapshots ? cache(mapName) : null;
+		if (cache == null) {
+			return delegate.fetchAllEntries(mapName);
+		}
+		Object cached = cache.getSnapshot(Snapshot.VALUES);
+		if (cached != null) {
+			return cached == NO_MAP ? null : cached;
+		}
+		long version = cache.versionForLoad();
+		Collection<?> values = (Collection<?>) delegate.fetchAllEntries(mapName);
+		if (values == null) {
+			cache.putSnapshot(Snapshot.VALUES, version, NO_MAP, 0);
+			return null;
+		}
+		List<Object> snapshot = Collections.unmodifiableList(new ArrayList<Object>(values));
+		cache.putSnapshot(Snapshot.VALUES, version, snapshot, textBytes(values));
+		return snapshot;
+	}
+
+	@SuppressWarnings("unchecked")
+	public Object fetchAllByteArrayEntries(String mapName) {
+		MapCache cache = snapshots ? cache(mapName) : null;
+		if (cache == null) {
+			return delegate.fetchAllByteArrayEntries(mapName);
+		}
+		Object cached = cache.getSnapshot(Snapshot.BYTE_VALUES);
+		if (cached != null) {
+			return cached == NO_MAP ? null : cached;
+		}
+		long version = cache.versionForLoad();
+		Map<Object, Object> values = (Map<Object, Object>) delegate.fetchAllByteArrayEntries(mapName);
+		if (values == null) {
+			cache.putSnapshot(Snapshot.BYTE_VALUES, version, NO_MAP, 0);
+			return null;
+		}
+		long bytes = 0;
+		for (Map.Entry<Object, Object> entry : values.entrySet()) {
+			bytes += ENTRY_OVERHEAD + 2L * String.valueOf(entry.getKey()).length()
+					+ ((byte[]) entry.getValue()).length;
+		}
+		Map<Object, Object> snapshot = Collections.unmodifiableMap(new HashMap<Object, Object>(values));
+		cache.putSnapshot(Snapshot.BYTE_VALUES, version, snapshot, bytes);
+		return snapshot;
+	}
+
+	private static long textBytes(Collection<?> values) {
+		long bytes = 0;
+		for (Object value : values) {
+			bytes += ENTRY_OVERHEAD + (value == null ? 0 : 2L * value.toString().length());
+		}
+		return bytes;
+	}
+
+	// ----------------------------------------------------------------------
+	// writes
+
+	public Object store(String mapName, String key, String value) {
+		MapCache cache = cache(mapName);
+		if (cache == null) {
+			return delegate.store(mapName, key, value);
+		}
+		synchronized (cache.writeLock) {
+			Object result = delegate.store(mapName, key, value);
+			cache.written(key, new Entry(value, null));
+			return result;
+		}
+	}
+
+	public Object storeByteArray(String mapName, String key, byte[] value) {
+		MapCache cache = cache(mapName);
+		if (cache == null) {
+			return delegate.storeByteArray(mapName, key, value);
+		}
+		synchronized (cache.writeLock) {
+			Object result = delegate.storeByteArray(mapName, key, value);
+			cache.written(key, new Entry(null, value.clone()));
+			return result;
+		}
+	}
+
+	public Object deleteKey(String mapName, String key) {
+		MapCache cache = cache(mapName);
+		if (cache == null) {
+			return delegate.deleteKey(mapName, key);
+		}
+		synchronized (cache.writeLock) {
+			Object result = delegate.deleteKey(mapName, key);
+			cache.written(key, Entry.MISSING);
+			return result;
+		}
+	}
+
+	@SuppressWarnings("rawtypes")
+	public Object putMapEntryExtended(String mapName, String mapKey, Object mapValue, String contentType,
+			Map mapUsermetaItems, Map mapUserindexItems, List userlwlinkItems) {
+		try {
+			return delegate.putMapEntryExtended(mapName, mapKey, mapValue, contentType, mapUsermetaItems,
+					mapUserindexItems, userlwlinkItems);
+		} finally {
+			invalidate(mapName);
+		}
+	}
+
+	// ----------------------------------------------------------------------
+	// pass through
+
+	public Object ping() {
+		return delegate.ping();
+	}
+
+	public Object getMapReduceResult(String mapReduceJobSpec) {
+		return delegate.getMapReduceResult(mapReduceJobSpec);
+	}
+
+	public Object setSchema(String schema) {
+		return delegate.setSchema(schema);
+	}
+
+	public Object getSchema() {
+		return delegate.getSchema();
+	}
+
+	public Object store(String mapName, String key, String value, String schema) {
+		return store(mapName, key, value);
+	}
+
+	public Object storeByteArray(String mapName, String key, byte[] value, String schema) {
+		return storeByteArray(mapName, key, value);
+	}
+
+	public Object fetch(String mapName, String key, String schema) {
+		return fetch(mapName, key);
+	}
+
+	public Object fetchByteArray(String mapName, String key, String schema) {
+		return fetchByteArray(mapName, key);
+	}
+
+	public Object fetchAllEntries(String mapName, String schema) {
+		return fetchAllEntries(mapName);
+	}
+
+	public Object fetchAllByteArrayEntries(String mapName, String schema) {
+		return fetchAllByteArrayEntries(mapName);
+	}
+
+	public Object deleteKey(String mapName, String key, String schema) {
+		return deleteKey(mapName, key);
+	}
+
+	public Object fetchKeys(String mapName, String schema) {
+		return fetchKeys(mapName);
+	}
+
+	/**
+	 * Drops the cache and shuts the delegate down if it has a shutdown
+	 * method.
+	 */
+	public void shutdown() throws Exception {
+		invalidateAll();
+		try {
+			delegate.getClass().getMethod("shutdown").invoke(delegate);
+		} catch (NoSuchMethodException e) {
+			// nothing to shut down
+		} catch (InvocationTargetException e) {
+			Throwable cause = e.getCause();
+			throw cause instanceof Exception ? (Exception) cause : e;
+		}
+	}
+
+	private enum Snapshot {
+		KEYS, VALUES, BYTE_VALUES
+	}
+
+	/**
+	 * A cached value: the text, the bytes or both, or a key that was not
+	 * found.
+	 */
+	private static final class Entry {
+		static final Entry MISSING = new Entry(null, null, true);
+
+		final String text;
+		final byte[] bytes;
+		final boolean missing;
+
+		Entry(String text, byte[] bytes) {
+			this(text, bytes, false);
+		}
+
+		private Entry(String text, byte[] bytes, boolean missing) {
+			this.text = text;
+			this.bytes = bytes;
+			this.missing = missing;
+		}
+
+		long size(String key) {
+			return ENTRY_OVERHEAD + 2L * key.length() + (text == null ? 0 : 2L * text.length())
+					+ (bytes == null ? 0 : bytes.length);
+		}
+	}
+
+	/**
+	 * Cached entries and snapshots of one map, guarded by its monitor.
+	 * Loads only publish their result if no write happened since they
+	 * started.
+	 */
+	private final class MapCache {
+		final long budget;
+		// serializes the writes of the map, so the delegate and the cache
+		// see them in the same order
+		final Object writeLock = new Object();
+		final LinkedHashMap<String, Entry> entries = new LinkedHashMap<String, Entry>(16, 0.75f, true);
+		final Object[] snapshot = new Object[Snapshot.values().length];
+		final long[] snapshotSize = new long[Snapshot.values().length];
+		long bytes;
+		long snapshotBytes;
+		long version;
+
+		MapCache(long budget) {
+			this.budget = budget;
+		}
+
+		synchronized long versionForLoad() {
+			return version;
+		}
+
+		synchronized Object getSnapshot(Snapshot kind) {
+			Object cached = snapshot[kind.ordinal()];
+			if (cached != null) {
+				snapshotHits.increment();
+			} else {
+				snapshotMisses.increment();
+			}
+			return cached;
+		}
+
+		synchronized void putSnapshot(Snapshot kind, long loadVersion, Object value, long size) {
+			if (version != loadVersion || size > budget) {
+				return;
+			}
+			int i = kind.ordinal();
+			snapshotBytes += size - snapshotSize[i];
+			snapshot[i] = value;
+			snapshotSize[i] = size;
+			evict();
+			if (bytes + snapshotBytes > budget) {
+				snapshotBytes -= size;
+				snapshot[i] = null;
+				snapshotSize[i] = 0;
+			}
+		}
+
+		/**
+		 * Called with the monitor held.
+		 */
+		void put(String key, Entry entry) {
+			long size = entry.size(key);
+			Entry previous = entries.remove(key);
+			if (previous != null) {
+				bytes -= previous.size(key);
+			}
+			if (size + snapshotBytes > budget) {
+				return;
+			}
+			entries.put(key, entry);
+			bytes += size;
+			evict();
+		}
+
+		private void evict() {
+			Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+			while (bytes + snapshotBytes > budget && it.hasNext()) {
+				Map.Entry<String, Entry> eldest = it.next();
+				bytes -= eldest.getValue().size(eldest.getKey());
+				it.remove();
+				evictions.increment();
+			}
+		}
+
+		synchronized void written(String key, Entry entry) {
+			version++;
+			for (int i = 0; i < snapshot.length; i++) {
+				snapshot[i] = null;
+				snapshotSize[i] = 0;
+			}
+			snapshotBytes = 0;
+			put(key, entry);
+		}
+
+		void clear() {
+			version++;
+			entries.clear();
+			bytes = 0;
+			for (int i = 0; i < snapshot.length; i++) {
+				snapshot[i] = null;
+				snapshotSize[i] = 0;
+			}
+			snapshotBytes = 0;
+		}
+	}
+}
@@ -0,0 +1,202 @@
+/*******************************************************************************
+ * Copyright (c) 2016 AT&T Intellectual Property. All rights reserved.
+ *******************************************************************************/
+package ajsc.providers;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Put and delete events of the maps of a storage directory, numbered by one
+ * sequence that grows with each event. Listeners subscribed to a map are
+ * called on the writing thread, in sequence order, and must not block. The
+ * last events of each map ({@value #DEFAULT_HISTORY} by default, see
+ * {@link #SYSPROP_HISTORY}) are kept so that a reader that remembers the
+ * sequence it is up to can ask for what changed since.
+ *
+ * The feed lives in memory: the sequence starts over with the JVM, whose
+ * readers load the maps anyway.
+ */
+public final class ChangeFeed {
+
+	public static final String SYSPROP_HISTORY = "AJSC_PERSISTENCE_FEED_HISTORY";
+	public static final int DEFAULT_HISTORY = 1024;
+
+	static final Logger logger = LoggerFactory.getLogger(ChangeFeed.class);
+
+	private static final ConcurrentMap<File, ChangeFeed> feeds = new ConcurrentHashMap<File, ChangeFeed>();
+
+	/**
+	 * One write of a key.
+	 */
+	public static final class Event {
+		private final long sequence;
+		private final String mapName;
+		private final String key;
+		private final boolean delete;
+
+		Event(long sequence, String mapName, String key, boolean delete) {
+			this.sequence = sequence;
+			this.mapName = mapName;
+			this.key = key;
+			this.delete = delete;
+		}
+
+		public long getSequence() {
+			return sequence;
+		}
+
+		public String getMapName() {
+			return mapName;
+		}
+
+		public String getKey() {
+			return key;
+		}
+
+		public boolean isDelete() {
+			return delete;
+		}
+
+		@Override
+		public String toString() {
+			return sequence + (delete ? " delete " : " put ") + mapName + " " + key;
+		}
+	}
+
+	public interface Listener {
+		void onChange(Event event);
+	}
+
+	private static final class MapFeed {
+		// a listener may unsubscribe while it is called
+		final List<Listener> listeners = new CopyOnWriteArrayList<Listener>();
+		final ArrayDeque<Event> history = new ArrayDeque<Event>();
+		// the sequence of the last event dropped from the history
+		long dropped;
+	}
+
+	private final int historySize;
+	private final Map<String, MapFeed> maps = new HashMap<String, MapFeed>();
+	private long sequence;
+
+	ChangeFeed(int historySize) {
+		this.historySize = historySize;
+	}
+
+	/**
+	 * @return the feed of the storage directory, shared in the JVM
+	 */
+	public static ChangeFeed forStorage(String storagePath) {
+		File dir;
+		try {
+			dir = new File(storagePath).getCanonicalFile();
+		} catch (IOException e) {
+			throw new UncheckedIOException("Invalid storage path " + storagePath, e);
+		}
+		ChangeFeed feed = feeds.get(dir);
+		if (feed == null) {
+			ChangeFeed created = new ChangeFeed(Integer.getInteger(SYSPROP_HISTORY, DEFAULT_HISTORY));
+			feed = feeds.putIfAbsent(dir, created);
+			if (feed == null) {
+				feed = created;
+			}
+		}
+		return feed;
+	}
+
+	/**
+	 * @return the sequence of the last event, 0 before the first one
+	 */
+	public synchronized long getSequence() {
+		return sequence;
+	}
+
+	public synchronized void subscribe(String mapName, Listener listener) {
+		map(mapName).listeners.add(listener);
+	}
+
+	public synchronized void unsubscribe(String mapName, Listener listener) {
+		MapFeed map = maps.get(mapName);
+		if (map != null) {
+			map.listeners.remove(listener);
+		}
+	}
+
+	/**
+	 * @return the events of the map after the sequence, oldest first; null
+	 *         if some of them are no longer kept, the reader must then load
+	 *         the whole map again
+	 */
+	public synchronized List<Event> changesSince(String mapName, long since) {
+		MapFeed map = maps.get(mapName);
+		if (map == null) {
+			return Collections.emptyList();
+		}
+		if (since < map.dropped) {
+			return null;
+		}
+		List<Event> events = new ArrayList<Event>();
+		for (Event event : map.history) {
+			if (event.sequence > since) {
+				events.add(event);
+			}
+		}
+		return events;
+	}
+
+	public void publishPut(String mapName, String key) {
+		publish(mapName, key, false);
+	}
+
+	public void publishDelete(String mapName, String key) {
+		publish(mapName, key, true);
+	}
+
+	/**
+	 * Publishes the writes of a committed batch, in batch order.
+	 */
+	public synchronized void publish(WriteBatch batch) {
+		for (WriteBatch.Entry entry : batch.getEntries()) {
+			publish(entry.getMapName(), entry.getKey(), entry.isDelete());
+		}
+	}
+
+	private synchronized void publish(String mapName, String key, boolean delete) {
+		MapFeed map = map(mapName);
+		Event event = new Event(++sequence, mapName, key, delete);
+		map.history.addLast(event);
+		if (map.history.size() > historySize) {
+			map.dropped = map.history.removeFirst().sequence;
+		}
+		for (Listener listener : map.listeners) {
+			try {
+				listener.onChange(event);
+			} catch (RuntimeException e) {
+				logger.error("Change listener " + listener + " failed on " + event, e);
+			}
+		}
+	}
+
+	private MapFeed map(String mapName) {
+		MapFeed map = maps.get(mapName);
+		if (map == null) {
+			map = new MapFeed();
+			maps.put(mapName, map);
+		}
+		return map;
+	}
+}
@@ -1 +1 @@
-/******************************************************************************* * Copyright (c) 2016 AT&T Intellectual Property. All rights reserved. *******************************************************************************/package ajsc.providersimport java.util.List;import java.util.Map;interface DBAdapter {	def store(String mapName, String key, String value) 	def storeByteArray(String mapName, String key, byte[] value)		def fetchKeys(String mapName)	def fetchAllEntries(String mapName)	def fetchByteArray(String mapName, String key) 	def fetch(String mapName, String key)	def fetchAllByteArrayEntries(String mapName)  	def deleteKey(String mapName, String key)  	def ping()		//	def store(String mapName, String key, String value, String schema) 	def storeByteArray(String mapName, String key, byte[] value, String schema)	def fetch(String mapName, String key, String schema)	def fetchByteArray(String mapName, String key, String schema) 	def fetchAllEntries(String mapName, String schema) 	def fetchAllByteArrayEntries(String mapName, String schema) 	def deleteKey(String mapName, String key, String schema)	def fetchKeys(String mapName, String schema)  	def setSchema(String schema) 	def getSchema()		// The following methods are riak specific and currently implemented by riak adapter only	// Looks like no one is using these methods currently	def getMapReduceResult(String mapReduceJobSpec)	def putMapEntryExtended(String mapName, String mapKey, Object mapValue, String contentType, Map mapUsermetaItems, Map mapUserindexItems, List userlwlinkItems) 			}
\ No newline at end of file
+/******************************************************************************* * Copyright (c) 2016 AT&T Intellectual Property. All rights reserved. *******************************************************************************/package ajsc.providersimport java.util.List;import java.util.Map;interface DBAdapter {	def store(String mapName, String key, String value) 	def storeByteArray(String mapName, String key, byte[] value)		def fetchKeys(String mapName)	def fetchAllEntries(String mapName)	def fetchByteArray(String mapName, String key) 	def fetch(String mapName, String key)	// ajsc.providers.ValueChannel over the value of fetchByteArray, without reading it in memory	def openByteArray(String mapName, String key)	// ajsc.providers.PersistencePage of at most pageSize entries whose key starts with keyPrefix (null for all),	// after the entries of the page that returned resumeToken (null for the first page)	def fetchPage(String mapName, String keyPrefix, String resumeToken, int pageSize)	def fetchAllByteArrayEntries(String mapName)  	def deleteKey(String mapName, String key)  	def ping()		//	def store(String mapName, String key, String value, String schema) 	def storeByteArray(String mapName, String key, byte[] value, String schema)	def fetch(String mapName, String key, String schema)	def fetchByteArray(String mapName, String key, String schema) 	def fetchAllEntries(String mapName, String schema) 	def fetchAllByteArrayEntries(String mapName, String schema) 	def deleteKey(String mapName, String key, String schema)	def fetchKeys(String mapName, String schema)  	def setSchema(String schema) 	def getSchema()		// The following methods are riak specific and currently implemented by riak adapter only	// Looks like no one is using these methods currently	def getMapReduceResult(String mapReduceJobSpec)	def putMapEntryExtended(String mapName, String mapKey, Object mapValue, String contentType, Map mapUsermetaItems, Map mapUserindexItems, List userlwlinkItems) 			}
\ No newline at end of file
@@ -6,6 +6,11 @@ package ajsc.providers
 import java.awt.event.ItemEvent;
 import java.util.regex.Pattern
 import java.security.MessageDigest
+import java.nio.channels.FileChannel
+import java.nio.file.Files
+import java.nio.file.NoSuchFileException
+import java.nio.file.StandardOpenOption
+import java.util.concurrent.atomic.AtomicLong
 
 import org.apache.camel.Exchange;
 
@@ -65,7 +70,7 @@ class FilePersistenceClient implements DBAdapter, ApplicationContextAware {
 		def mapDir = new File(mapDirString)
 		if (!mapDir.exists()) { mapDir.mkdirs()}
 		def mapNameFile = new File("${mapDirString}.mapname")
-		mapNameFile.write(mapName)
+		if (!mapNameFile.exists()) { mapNameFile.write(mapName) }
 		def valueFileString = valueFilePath(mapName, key)
 		def keyFile = new File("${valueFileString}.key")
 		keyFile.write(key)
@@ -80,7 +85,7 @@ class FilePersistenceClient implements DBAdapter, ApplicationContextAware {
 		def mapDir = new File(mapDirString)
 		if (!mapDir.exists()) { mapDir.mkdirs()}
 		def mapNameFile = new File("${mapDirString}.mapname")
-		mapNameFile.write(mapName)
+		if (!mapNameFile.exists()) { mapNameFile.write(mapName) }
 		def valueFileString = valueFilePath(mapName, key)
 		def keyFile = new File("${valueFileString}.key")
 		keyFile.write(key)
@@ -105,6 +110,110 @@ class FilePersistenceClient implements DBAdapter, ApplicationContextAware {
 		}
 	}
 	
+	// Open value from persistent map without reading it
+	def openByteArray(String mapName, String key) {
+		def valueFile = new File(valueFilePath(mapName, key))
+		try {
+			return ValueChannel.open(valueFile)
+		} catch (NoSuchFileException e) {
+			return null
+		}
+	}
+	
+	// the most walks through the maps that fetchPage keeps the names of
+	static final int MAX_WALKS = 16
+	
+	// the sorted value file names of each walk through a map, by walk id,
+	// so that the pages after the first seek into them instead of scanning
+	// the directory and reading every key file again
+	private final Map<String, String[]> walks = Collections.synchronizedMap(
+		new LinkedHashMap<String, String[]>(MAX_WALKS, 0.75f, true) {
+			protected boolean removeEldestEntry(Map.Entry<String, String[]> eldest) {
+				return size() > MAX_WALKS
+			}
+		})
+	private final AtomicLong walkIds = new AtomicLong()
+	
+	// Fetch a page of the persistent map. Entries are paged in the order of
+	// their value file names. The first page scans the directory once and
+	// keeps the sorted names for the walk, the token is the walk id and the
+	// last file name of the page; a walk no longer kept, or a token without
+	// a walk, scans the directory again from that name.
+	def fetchPage(String mapName, String keyPrefix, String resumeToken, int pageSize) {
+		PersistencePage.checkPageSize(pageSize)
+		def mapDir = new File(mapFilePath(mapName))
+		if (!mapDir.isDirectory()) { return PersistencePage.empty() }
+		
+		String walk = null
+		String after = resumeToken
+		String[] names = null
+		int slash = resumeToken == null ? -1 : resumeToken.indexOf('/')
+		if (slash >= 0) {
+			walk = resumeToken.substring(0, slash)
+			after = resumeToken.substring(slash + 1)
+			names = walks.get(walk)
+		}
+		if (names == null) {
+			names = scanNames(mapDir, after)
+			walk = walkIds.incrementAndGet() as String
+		}
+		int from = 0
+		if (after != null) {
+			from = Arrays.binarySearch(names, after)
+			from = from < 0 ? -from - 1 : from + 1
+		}
+		
+		// the walk decides the page, whatever is deleted since
+		LinkedHashMap<String, String> page = new LinkedHashMap<String, String>()
+		for (int i = from; i < names.length && page.size() <= pageSize; i++) {
+			def key
+			try {
+				key = new File(mapDir, names[i] + '.key').getText()
+			} catch (FileNotFoundException e) {
+				continue
+			}
+			if (keyPrefix && !key.startsWith(keyPrefix)) { continue }
+			page.put(names[i], key)
+		}
+		def nextToken = null
+		if (page.size() > pageSize) {
+			page.remove(page.keySet().last())
+			nextToken = walk + '/' + page.keySet().last()
+			walks.put(walk, names)
+		} else {
+			walks.remove(walk)
+		}
+		def keys = []
+		def values = []
+		for (entry in page.entrySet()) {
+			def valueFile = new File(mapDir, entry.key)
+			// deleted since the scan
+			if (valueFile.exists()) {
+				keys << entry.value
+				values << valueFile.withInputStream { it.getBytes() }
+			}
+		}
+		return new PersistencePage(keys, values, nextToken)
+	}
+	
+	// the sorted names of the value files of a map after a name, null for all
+	private static String[] scanNames(File mapDir, String after) {
+		List<String> names = new ArrayList<String>()
+		def stream = Files.newDirectoryStream(mapDir.toPath(), "*.key")
+		try {
+			for (path in stream) {
+				def name = path.fileName.toString()
+				name = name.substring(0, name.length() - '.key'.length())
+				if (after == null || name > after) { names.add(name) }
+			}
+		} finally {
+			stream.close()
+		}
+		String[] sorted = names.toArray(new String[names.size()])
+		Arrays.sort(sorted)
+		return sorted
+	}
+	
 	def fetchAllEntries(String mapName) {
 		//println ">>>>>>>> *FP*fetchAllValues(${mapName})"
 		def mapDirString = mapFilePath(mapName)
@@ -150,6 +259,35 @@ class FilePersistenceClient implements DBAdapter, ApplicationContextAware {
 		
 	}
 	
+	// Force the files the batch wrote and the directories it changed to
+	// disk, so that BatchJournal may retire the journal of the batch
+	void sync(WriteBatch batch) throws IOException {
+		for (mapName in batch.getMapNames()) {
+			for (entry in batch.getEntries(mapName).values()) {
+				if (!entry.isDelete()) {
+					def valueFileString = valueFilePath(mapName, entry.getKey())
+					force(new File(valueFileString))
+					force(new File("${valueFileString}.key"))
+				}
+			}
+			def mapDirString = mapFilePath(mapName)
+			force(new File("${mapDirString}.mapname"))
+			LogStore.syncDirectory(new File(mapDirString))
+		}
+		LogStore.syncDirectory(new File(storagePath))
+	}
+	
+	private static void force(File file) throws IOException {
+		// deleted since by another write
+		if (!file.exists()) { return }
+		FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE)
+		try {
+			channel.force(true)
+		} finally {
+			channel.close()
+		}
+	}
+	
 	// Retrieve all keys in a map
 	def fetchKeys(String mapName) {
 		def mapDirString = mapFilePath(mapName)
@@ -159,7 +297,7 @@ class FilePersistenceClient implements DBAdapter, ApplicationContextAware {
 		
 		def keyList = []
 		mapDir.eachFileMatch(~/.*?\.key/) {
-			println ">>>>>>> in ${mapDirString}/${it.name}"
+			//println ">>>>>>> in ${mapDirString}/${it.name}"
 			keyList << new File("${mapDirString}/${it.name}").getText()
 		}
 		//println ">>>>>>>> keys(${mapName}) == ${keyList}"
@@ -0,0 +1,446 @@
+/*******************************************************************************
+ * Copyright (c) 2016 AT&T Intellectual Property. All rights reserved.
+ *******************************************************************************/
+package ajsc.providers;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+/**
+ * Secondary indexes in front of another {@link DBAdapter}. An index maps
+ * the values of some top level fields of the JSON documents of a map, e.g.
+ * namespace, routeName and routeVersion, to the keys of the documents
+ * holding them, so finders look up the matching keys instead of parsing
+ * every document of the map.
+ *
+ * An index is declared by the first lookup on its fields, which builds it
+ * from one scan of the map; from then on every store and delete of the map
+ * updates it in the same critical section as the write. Indexes are held in
+ * memory only and are rebuilt from the store after a restart, so they never
+ * disagree with what was persisted. Like {@link CachingDBAdapter} they
+ * assume this adapter is the only writer of the underlying store.
+ *
+ * Field values are compared as text: strings, numbers and booleans by their
+ * JSON text, null and missing fields as null. Documents that are not JSON
+ * objects are not indexed.
+ */
+public class IndexingDBAdapter implements DBAdapter {
+
+	/**
+	 * Matches the field values of an index in
+	 * {@link IndexingDBAdapter#findKeysMatching(String, List, Filter)}.
+	 */
+	public interface Filter {
+		boolean matches(List<String> values);
+	}
+
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+	private static final JsonFactory JSON = new JsonFactory();
+
+	private final DBAdapter delegate;
+	private final ConcurrentMap<String, MapIndexes> maps = new ConcurrentHashMap<String, MapIndexes>();
+
+	public IndexingDBAdapter(DBAdapter delegate) {
+		this.delegate = delegate;
+	}
+
+	public DBAdapter getDelegate() {
+		return delegate;
+	}
+
+	/**
+	 * @return the keys of the documents whose fields equal the values, in
+	 *         the order they were indexed
+	 */
+	public List<String> findKeys(String mapName, List<String> fields, List<String> values) {
+		if (fields.size() != values.size()) {
+			throw new IllegalArgumentException("Expected " + fields.size() + " values for " + fields + ", got "
+					+ values.size());
+		}
+		MapIndexes indexes = indexes(mapName);
+		synchronized (indexes) {
+			Set<String> keys = indexes.index(fields).keysByValues.get(values);
+			return keys == null ? new ArrayList<String>() : new ArrayList<String>(keys);
+		}
+	}
+
+	/**
+	 * @return the keys of the documents whose field values pass the filter;
+	 *         the filter is called once per distinct combination of values
+	 */
+	public List<String> findKeysMatching(String mapName, List<String> fields, Filter filter) {
+		MapIndexes indexes = indexes(mapName);
+		List<List<String>> candidates;
+		FieldIndex index;
+		synchronized (indexes) {
+			index = indexes.index(fields);
+			candidates = new ArrayList<List<String>>(index.keysByValues.keySet());
+		}
+		List<List<String>> matched = new ArrayList<List<String>>();
+		for (List<String> values : candidates) {
+			if (filter.matches(values)) {
+				matched.add(values);
+			}
+		}
+		List<String> keys = new ArrayList<String>();
+		synchronized (indexes) {
+			for (List<String> values : matched) {
+				Set<String> found = index.keysByValues.get(values);
+				if (found != null) {
+					keys.addAll(found);
+				}
+			}
+		}
+		return keys;
+	}
+
+	/**
+	 * @return the index names, the joined field names, of each map mapped to
+	 *         the number of distinct values they hold
+	 */
+	public Map<String, Map<String, Integer>> getStatistics() {
+		Map<String, Map<String, Integer>> statistics = new HashMap<String, Map<String, Integer>>();
+		for (MapIndexes indexes : maps.values()) {
+			Map<String, Integer> sizes = new LinkedHashMap<String, Integer>();
+			synchronized (indexes) {
+				for (FieldIndex index : indexes.indexes.values()) {
+					sizes.put(join(index.fields), index.keysByValues.size());
+				}
+			}
+			if (!sizes.isEmpty()) {
+				statistics.put(indexes.mapName, sizes);
+			}
+		}
+		return statistics;
+	}
+
+	/**
+	 * Drops the indexes of a map, they are rebuilt on the next lookup.
+	 */
+	public void invalidate(String mapName) {
+		MapIndexes indexes = maps.get(mapName);
+		if (indexes != null) {
+			synchronized (indexes) {
+				indexes.clear();
+			}
+		}
+	}
+
+	public void invalidateAll() {
+		for (String mapName : maps.keySet()) {
+			invalidate(mapName);
+		}
+	}
+
+	private MapIndexes indexes(String mapName) {
+		MapIndexes indexes = maps.get(mapName);
+		if (indexes == null) {
+			MapIndexes created = new MapIndexes(mapName);
+			indexes = maps.putIfAbsent(mapName, created);
+			if (indexes == null) {
+				indexes = created;
+			}
+		}
+		return indexes;
+	}
+
+	private static String join(List<String> fields) {
+		StringBuilder sb = new StringBuilder();
+		for (String field : fields) {
+			if (sb.length() > 0) {
+				sb.append('+');
+			}
+			sb.append(field);
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * @return the values of the top level fields of a JSON object, in the
+	 *         order of the fields, or null if the document is not a JSON
+	 *         object
+	 */
+	public static String[] extract(byte[] document, List<String> fields) {
+		if (document == null) {
+			return null;
+		}
+		try {
+			JsonParser parser = JSON.createParser(document);
+			try {
+				if (parser.nextToken() != JsonToken.START_OBJECT) {
+					return null;
+				}
+				String[] values = new String[fields.size()];
+				while (parser.nextToken() == JsonToken.FIELD_NAME) {
+					int field = fields.indexOf(parser.getCurrentName());
+					JsonToken token = parser.nextToken();
+					if (token == JsonToken.START_OBJECT || token == JsonToken.START_ARRAY) {
+						parser.skipChildren();
+					} else if (field >= 0 && token != JsonToken.VALUE_NULL) {
+						values[field] = parser.getText();
+					}
+				}
+				return values;
+			} finally {
+				parser.close();
+			}
+		} catch (IOException e) {
+			return null;
+		}
+	}
+
+	/*
+	 * The indexes of one map, guarded by the instance. Writes of the map hold
+	 * the lock while they update the delegate, so an index built from a scan
+	 * cannot miss a concurrent write.
+	 */
+	private final class MapIndexes {
+		private final String mapName;
+		private final Map<List<String>, FieldIndex> indexes = new HashMap<List<String>, FieldIndex>();
+		// union of the fields of all indexes, extracted once per write
+		private List<String> fields = Collections.emptyList();
+
+		private MapIndexes(String mapName) {
+			this.mapName = mapName;
+		}
+
+		private FieldIndex index(List<String> indexFields) {
+			FieldIndex index = indexes.get(indexFields);
+			if (index == null) {
+				index = new FieldIndex(new ArrayList<String>(indexFields));
+				@SuppressWarnings("unchecked")
+				Map<String, byte[]> entries = (Map<String, byte[]>) delegate.fetchAllByteArrayEntries(mapName);
+				if (entries != null) {
+					for (Map.Entry<String, byte[]> entry : entries.entrySet()) {
+						String[] values = extract(entry.getValue(), index.fields);
+						if (values != null) {
+							index.put(entry.getKey(), Arrays.asList(values));
+						}
+					}
+				}
+				indexes.put(index.fields, index);
+				Set<String> union = new LinkedHashSet<String>(fields);
+				union.addAll(index.fields);
+				fields = new ArrayList<String>(union);
+			}
+			return index;
+		}
+
+		private void written(String key, byte[] document) {
+			if (indexes.isEmpty()) {
+				return;
+			}
+			String[] values = extract(document, fields);
+			for (FieldIndex index : indexes.values()) {
+				if (values == null) {
+					index.remove(key);
+					continue;
+				}
+				List<String> indexValues = new ArrayList<String>(index.fields.size());
+				for (String field : index.fields) {
+					indexValues.add(values[fields.indexOf(field)]);
+				}
+				index.put(key, indexValues);
+			}
+		}
+
+		private void deleted(String key) {
+			for (FieldIndex index : indexes.values()) {
+				index.remove(key);
+			}
+		}
+
+		private void clear() {
+			indexes.clear();
+			fields = Collections.emptyList();
+		}
+	}
+
+	private static final class FieldIndex {
+		private final List<String> fields;
+		private final Map<List<String>, Set<String>> keysByValues = new HashMap<List<String>, Set<String>>();
+		private final Map<String, List<String>> valuesByKey = new HashMap<String, List<String>>();
+
+		private FieldIndex(List<String> fields) {
+			this.fields = fields;
+		}
+
+		private void put(String key, List<String> values) {
+			List<String> previous = valuesByKey.get(key);
+			if (values.equals(previous)) {
+				return;
+			}
+			remove(key);
+			valuesByKey.put(key, values);
+			Set<String> keys = keysByValues.get(values);
+			if (keys == null) {
+				keys = new LinkedHashSet<String>();
+				keysByValues.put(values, keys);
+			}
+			keys.add(key);
+		}
+
+		private void remove(String key) {
+			List<String> values = valuesByKey.remove(key);
+			if (values != null) {
+				Set<String> keys = keysByValues.get(values);
+				keys.remove(key);
+				if (keys.isEmpty()) {
+					keysByValues.remove(values);
+				}
+			}
+		}
+	}
+
+	// ----------------------------------------------------------------------
+	// writes
+
+	public Object store(String mapName, String key, String value) {
+		MapIndexes indexes = indexes(mapName);
+		synchronized (indexes) {
+			Object result = delegate.store(mapName, key, value);
+			indexes.written(key, value.getBytes(UTF_8));
+			return result;
+		}
+	}
+
+	public Object storeByteArray(String mapName, String key, byte[] value) {
+		MapIndexes indexes = indexes(mapName);
+		synchronized (indexes) {
+			Object result = delegate.storeByteArray(mapName, key, value);
+			indexes.written(key, value);
+			return result;
+		}
+	}
+
+	public Object deleteKey(String mapName, String key) {
+		MapIndexes indexes = indexes(mapName);
+		synchronized (indexes) {
+			Object result = delegate.deleteKey(mapName, key);
+			indexes.deleted(key);
+			return result;
+		}
+	}
+
+	@SuppressWarnings("rawtypes")
+	public Object putMapEntryExtended(String mapName, String mapKey, Object mapValue, String contentType,
+			Map mapUsermetaItems, Map mapUserindexItems, List userlwlinkItems) {
+		try {
+			return delegate.putMapEntryExtended(mapName, mapKey, mapValue, contentType, mapUsermetaItems,
+					mapUserindexItems, userlwlinkItems);
+		} finally {
+			invalidate(mapName);
+		}
+	}
+
+	// ----------------------------------------------------------------------
+	// pass through
+
+	public Object fetch(String mapName, String key) {
+		return delegate.fetch(mapName, key);
+	}
+
+	public Object fetchByteArray(String mapName, String key) {
+		return delegate.fetchByteArray(mapName, key);
+	}
+
+	public Object openByteArray(String mapName, String key) {
+		return delegate.openByteArray(mapName, key);
+	}
+
+	public Object fetchPage(String mapName, String keyPrefix, String resumeToken, int pageSize) {
+		return delegate.fetchPage(mapName, keyPrefix, resumeToken, pageSize);
+	}
+
+	public Object fetchAllEntries(String mapName) {
+		return delegate.fetchAllEntries(mapName);
+	}
+
+	public Object fetchAllByteArrayEntries(String mapName) {
+		return delegate.fetchAllByteArrayEntries(mapName);
+	}
+
+	public Object fetchKeys(String mapName) {
+		return delegate.fetchKeys(mapName);
+	}
+
+	public Object ping() {
+		return delegate.ping();
+	}
+
+	public Object getMapReduceResult(String mapReduceJobSpec) {
+		return delegate.getMapReduceResult(mapReduceJobSpec);
+	}
+
+	public Object setSchema(String schema) {
+		return delegate.setSchema(schema);
+	}
+
+	public Object getSchema() {
+		return delegate.getSchema();
+	}
+
+	public Object store(String mapName, String key, String value, String schema) {
+		return store(mapName, key, value);
+	}
+
+	public Object storeByteArray(String mapName, String key, byte[] value, String schema) {
+		return storeByteArray(mapName, key, value);
+	}
+
+	public Object fetch(String mapName, String key, String schema) {
+		return fetch(mapName, key);
+	}
+
+	public Object fetchByteArray(String mapName, String key, String schema) {
+		return fetchByteArray(mapName, key);
+	}
+
+	public Object fetchAllEntries(String mapName, String schema) {
+		return fetchAllEntries(mapName);
+	}
+
+	public Object fetchAllByteArrayEntries(String mapName, String schema) {
+		return fetchAllByteArrayEntries(mapName);
+	}
+
+	public Object deleteKey(String mapName, String key, String schema) {
+		return deleteKey(mapName, key);
+	}
+
+	public Object fetchKeys(String mapName, String schema) {
+		return fetchKeys(mapName);
+	}
+
+	/**
+	 * Drops the indexes and shuts the delegate down if it has a shutdown
+	 * method.
+	 */
+	public void shutdown() throws Exception {
+		invalidateAll();
+		try {
+			delegate.getClass().getMethod("shutdown").invoke(delegate);
+		} catch (NoSuchMethodException e) {
+			// nothing to shut down
+		} catch (InvocationTargetException e) {
+			Throwable cause = e.getCause();
+			throw cause instanceof Exception ? (Exception) cause : e;
+		}
+	}
+}
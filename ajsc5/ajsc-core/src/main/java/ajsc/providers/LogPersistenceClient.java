@@ -0,0 +1,333 @@
+/*******************************************************************************
+ * Copyright (c) 2016 AT&T Intellectual Property. All rights reserved.
+ *******************************************************************************/
+package ajsc.providers;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+
+/**
+ * {@link DBAdapter} on top of the log structured {@link LogStore}: values
+ * are appended to per map segment logs and looked up through an in-memory
+ * index, so bulk reads walk the index instead of one file per entry. Maps
+ * written by {@link FilePersistenceClient} under the same storage path are
+ * imported the first time they are used.
+ *
+ * Selected for ajsc.FilePersistenceService with
+ * AJSC_PERSISTENCE_ADAPTER=log.
+ */
+public class LogPersistenceClient implements DBAdapter {
+
+	private final File storageDir;
+	private volatile LogStore store;
+	private String schema = "";
+
+	public LogPersistenceClient() {
+		this(defaultStoragePath());
+	}
+
+	public LogPersistenceClient(String storagePath) {
+		this.storageDir = new File(storagePath);
+	}
+
+	static String defaultStoragePath() {
+		String ajscHome = System.getProperty("AJSC_HOME");
+		if (ajscHome == null) {
+			ajscHome = System.getenv("AJSC_HOME");
+		}
+		return ajscHome + "/data/";
+	}
+
+	// This method is taking input parameters ip, port, name, doesn't really
+	// need them. Its just for compatibility with riak init method.
+	public void init(Object ip, Object port, Object name) throws IOException {
+		init();
+	}
+
+	public void init() throws IOException {
+		store();
+	}
+
+	/**
+	 * Forces the appended records to disk and releases the storage directory.
+	 */
+	public void shutdown() throws IOException {
+		LogStore current = store;
+		if (current != null) {
+			store = null;
+			current.close();
+		}
+	}
+
+	LogStore store() throws IOException {
+		LogStore current = store;
+		if (current == null || current.isClosed()) {
+			current = LogStore.open(storageDir);
+			store = current;
+		}
+		return current;
+	}
+
+	private LogStore.MapLog map(String mapName) throws IOException {
+		return store().map(mapName, false);
+	}
+
+	private static RuntimeException failure(String operation, String mapName, IOException e) {
+		return new UncheckedIOException(operation + (mapName == null ? "" : " of map " + mapName) + " failed", e);
+	}
+
+	private static String text(byte[] value) {
+		return value == null ? null : new String(value, LogStore.UTF_8);
+	}
+
+	public Object store(String mapName, String key, String value) {
+		try {
+			store().map(mapName, true).put(key, value.getBytes(LogStore.UTF_8));
+			return null;
+		} catch (IOException e) {
+			throw failure("store", mapName, e);
+		}
+	}
+
+	public Object storeByteArray(String mapName, String key, byte[] value) {
+		try {
+			store().map(mapName, true).put(key, value);
+			return null;
+		} catch (IOException e) {
+			throw failure("storeByteArray", mapName, e);
+		}
+	}
+
+	public Object fetch(String mapName, String key) {
+		return text((byte[]) fetchByteArray(mapName, key));
+	}
+
+	public Object fetchByteArray(String mapName, String key) {
+		try {
+			LogStore.MapLog map = map(mapName);
+			return map == null ? null : map.get(key);
+		} catch (IOException e) {
+			throw failure("fetchByteArray", mapName, e);
+		}
+	}
+
+	/**
+	 * @return the value read from its segment file, which stays readable if
+	 *         the segment is compacted before the channel is closed
+	 */
+	public Object openByteArray(String mapName, String key) {
+		try {
+			LogStore.MapLog map = map(mapName);
+			return map == null ? null : map.openValue(key);
+		} catch (IOException e) {
+			throw failure("openByteArray", mapName, e);
+		}
+	}
+
+	/**
+	 * @return the entries of the map in key order from the index, the token
+	 *         is the last key of the page
+	 */
+	public Object fetchPage(String mapName, String keyPrefix, String resumeToken, int pageSize) {
+		PersistencePage.checkPageSize(pageSize);
+		try {
+			LogStore.MapLog map = map(mapName);
+			if (map == null) {
+				return PersistencePage.empty();
+			}
+			String prefix = keyPrefix == null ? "" : keyPrefix;
+			NavigableMap<String, LogStore.Location> range = resumeToken == null || resumeToken.compareTo(prefix) < 0
+					? map.index.tailMap(prefix, true) : map.index.tailMap(resumeToken, false);
+			List<String> keys = new ArrayList<String>();
+			List<byte[]> values = new ArrayList<byte[]>();
+			String nextToken = null;
+			map.segmentsLock.readLock().lock();
+			try {
+				for (Map.Entry<String, LogStore.Location> entry : range.entrySet()) {
+					if (!entry.getKey().startsWith(prefix)) {
+						break;
+					}
+					if (keys.size() == pageSize) {
+						nextToken = keys.get(pageSize - 1);
+						break;
+					}
+					keys.add(entry.getKey());
+					values.add(map.readValue(entry.getValue()));
+				}
+			} finally {
+				map.segmentsLock.readLock().unlock();
+			}
+			return new PersistencePage(keys, values, nextToken);
+		} catch (IOException e) {
+			throw failure("fetchPage", mapName, e);
+		}
+	}
+
+	/**
+	 * @return the keys of the map in key order
+	 */
+	public Object fetchKeys(String mapName) {
+		try {
+			LogStore.MapLog map = map(mapName);
+			return map == null ? new ArrayList<String>() : new ArrayList<String>(map.index.keySet());
+		} catch (IOException e) {
+			throw failure("fetchKeys", mapName, e);
+		}
+	}
+
+	/**
+	 * @return the values of the map in key order, null if the map does not
+	 *         exist
+	 */
+	public Object fetchAllEntries(String mapName) {
+		try {
+			LogStore.MapLog map = map(mapName);
+			if (map == null) {
+				return null;
+			}
+			List<String> values = new ArrayList<String>();
+			map.segmentsLock.readLock().lock();
+			try {
+				for (LogStore.Location location : map.index.values()) {
+					values.add(text(map.readValue(location)));
+				}
+			} finally {
+				map.segmentsLock.readLock().unlock();
+			}
+			return values;
+		} catch (IOException e) {
+			throw failure("fetchAllEntries", mapName, e);
+		}
+	}
+
+	/**
+	 * @return the entries of the map, null if the map does not exist
+	 */
+	public Object fetchAllByteArrayEntries(String mapName) {
+		try {
+			LogStore.MapLog map = map(mapName);
+			if (map == null) {
+				return null;
+			}
+			Map<String, byte[]> values = new HashMap<String, byte[]>();
+			map.segmentsLock.readLock().lock();
+			try {
+				for (Map.Entry<String, LogStore.Location> entry : map.index.entrySet()) {
+					values.put(entry.getKey(), map.readValue(entry.getValue()));
+				}
+			} finally {
+				map.segmentsLock.readLock().unlock();
+			}
+			return values;
+		} catch (IOException e) {
+			throw failure("fetchAllByteArrayEntries", mapName, e);
+		}
+	}
+
+	public Object deleteKey(String mapName, String key) {
+		try {
+			LogStore.MapLog map = map(mapName);
+			if (map != null) {
+				map.delete(key);
+			}
+			return null;
+		} catch (IOException e) {
+			throw failure("deleteKey", mapName, e);
+		}
+	}
+
+	/**
+	 * @return the names of all maps in the store, including legacy maps that
+	 *         were not imported yet
+	 */
+	public Set<String> fetchMapNames() throws IOException {
+		return store().mapNames();
+	}
+
+	/**
+	 * Rewrites the live entries of the map into one segment.
+	 */
+	public void compact(String mapName) throws IOException {
+		LogStore.MapLog map = map(mapName);
+		if (map != null) {
+			map.compact();
+		}
+	}
+
+	/**
+	 * Forces every appended record to disk, whether or not
+	 * AJSC_PERSISTENCE_LOG_FSYNC is set.
+	 */
+	public void sync() throws IOException {
+		store().sync();
+	}
+
+	public Object ping() {
+		try {
+			store();
+			return null;
+		} catch (IOException e) {
+			throw failure("ping", null, e);
+		}
+	}
+
+	public Object store(String mapName, String key, String value, String schema) {
+		return store(mapName, key, value);
+	}
+
+	public Object storeByteArray(String mapName, String key, byte[] value, String schema) {
+		return storeByteArray(mapName, key, value);
+	}
+
+	public Object fetch(String mapName, String key, String schema) {
+		return fetch(mapName, key);
+	}
+
+	public Object fetchByteArray(String mapName, String key, String schema) {
+		return fetchByteArray(mapName, key);
+	}
+
+	public Object fetchAllEntries(String mapName, String schema) {
+		return fetchAllEntries(mapName);
+	}
+
+	public Object fetchAllByteArrayEntries(String mapName, String schema) {
+		return fetchAllByteArrayEntries(mapName);
+	}
+
+	public Object deleteKey(String mapName, String key, String schema) {
+		return deleteKey(mapName, key);
+	}
+
+	public Object fetchKeys(String mapName, String schema) {
+		return fetchKeys(mapName);
+	}
+
+	public Object setSchema(String schema) {
+		this.schema = schema;
+		return null;
+	}
+
+	public Object getSchema() {
+		return schema;
+	}
+
+	public Object getMapReduceResult(String mapReduceJobSpec) {
+		// This method is currently not implemented by the log store
+		return null;
+	}
+
+	@SuppressWarnings("rawtypes")
+	public Object putMapEntryExtended(String mapName, String mapKey, Object mapValue, String contentType,
+			Map mapUsermetaItems, Map mapUserindexItems, List userlwlinkItems) {
+		// This method is currently not implemented by the log store
+		return null;
+	}
+}
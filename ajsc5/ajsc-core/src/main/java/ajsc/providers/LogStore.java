@@ -0,0 +1,897 @@
+/*******************************************************************************
+ * Copyright (c) 2016 AT&T Intellectual Property. All rights reserved.
+ *******************************************************************************/
+package ajsc.providers;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.CRC32;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Log structured storage behind {@link LogPersistenceClient}. Every map is
+ * a directory of append-only segment files under
+ * <code>&lt;storagePath&gt;/log/&lt;md5(map)&gt;</code>; the MANIFEST file
+ * lists the live segments in replay order and is replaced atomically, so it
+ * is the commit point of segment rolls and compactions. The key to record
+ * offset index of a map is kept in memory and rebuilt from its segments the
+ * first time the map is used.
+ *
+ * Writers append under a per map lock and then group commit: one fsync
+ * covers every record appended before it. Sealed segments are compacted in
+ * the background once more than half of a map's bytes are overwritten or
+ * deleted records.
+ *
+ * A map without a MANIFEST is imported from the legacy file per key layout
+ * (<code>&lt;storagePath&gt;/&lt;md5(map)&gt;/&lt;md5(key)&gt;</code> plus
+ * its <code>.key</code> file) the first time it is used. The legacy files
+ * are left in place.
+ *
+ * One store is shared by all clients of a directory in the JVM; a lock file
+ * keeps other processes out.
+ */
+final class LogStore {
+
+	public static final String SYSPROP_SEGMENT_BYTES = "AJSC_PERSISTENCE_LOG_SEGMENT_BYTES";
+	public static final String SYSPROP_FSYNC = "AJSC_PERSISTENCE_LOG_FSYNC";
+	public static final String SYSPROP_COMPACT_INTERVAL_MS = "AJSC_PERSISTENCE_LOG_COMPACT_INTERVAL_MS";
+
+	static final String LOG_DIR = "log";
+	static final String MANIFEST = "MANIFEST";
+	static final String MAPNAME = "MAPNAME";
+	static final String SEGMENT_SUFFIX = ".seg";
+
+	static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	private static final String LOCK = "LOCK";
+	private static final byte PUT = 1;
+	private static final byte DELETE = 2;
+	// crc, type, key length, value length
+	static final int HEADER_BYTES = 4 + 1 + 4 + 4;
+	private static final long MIN_COMPACT_BYTES = 1024 * 1024;
+
+	static final Logger logger = LoggerFactory.getLogger(LogStore.class);
+
+	private static final ConcurrentMap<File, LogStore> stores = new ConcurrentHashMap<File, LogStore>();
+	private static volatile ScheduledExecutorService compactor;
+	// set while a thread applies a batch, which forces the maps once at the end
+	private static final ThreadLocal<Boolean> syncDeferred = new ThreadLocal<Boolean>();
+
+	private final File storageDir;
+	private final File logDir;
+	private final long segmentBytes;
+	private final boolean fsync;
+	private final ConcurrentMap<String, MapLog> maps = new ConcurrentHashMap<String, MapLog>();
+	private final RandomAccessFile lockFile;
+	private final FileLock lock;
+	private volatile boolean closed;
+
+	private LogStore(File storageDir, File logDir) throws IOException {
+		this.storageDir = storageDir;
+		this.logDir = logDir;
+		this.segmentBytes = Long.getLong(SYSPROP_SEGMENT_BYTES, 16 * 1024 * 1024);
+		this.fsync = Boolean.parseBoolean(System.getProperty(SYSPROP_FSYNC, "true"));
+		if (!logDir.isDirectory() && !logDir.mkdirs()) {
+			throw new IOException("Unable to create " + logDir);
+		}
+		lockFile = new RandomAccessFile(new File(logDir, LOCK), "rw");
+		FileLock acquired;
+		try {
+			acquired = lockFile.getChannel().tryLock();
+		} catch (OverlappingFileLockException e) {
+			acquired = null;
+		}
+		if (acquired == null) {
+			lockFile.close();
+			throw new IOException(logDir + " is in use by another process");
+		}
+		lock = acquired;
+	}
+
+	/**
+	 * @return the open store of the storage directory, opening it if needed
+	 */
+	static LogStore open(File storageDir) throws IOException {
+		File logDir = new File(storageDir, LOG_DIR).getCanonicalFile();
+		LogStore store = stores.get(logDir);
+		if (store != null) {
+			return store;
+		}
+		synchronized (stores) {
+			store = stores.get(logDir);
+			if (store == null) {
+				store = new LogStore(storageDir, logDir);
+				stores.put(logDir, store);
+				scheduleCompaction(store);
+			}
+		}
+		return store;
+	}
+
+	private static void scheduleCompaction(final LogStore store) {
+		long interval = Long.getLong(SYSPROP_COMPACT_INTERVAL_MS, 60000);
+		if (interval <= 0) {
+			return;
+		}
+		if (compactor == null) {
+			compactor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+				public Thread newThread(Runnable r) {
+					Thread t = new Thread(r, "ajsc-log-compactor");
+					t.setDaemon(true);
+					return t;
+				}
+			});
+		}
+		compactor.scheduleWithFixedDelay(new Runnable() {
+			public void run() {
+				if (store.closed) {
+					throw new IllegalStateException("closed");
+				}
+				store.compactIfNeeded();
+			}
+		}, interval, interval, TimeUnit.MILLISECONDS);
+	}
+
+	boolean isClosed() {
+		return closed;
+	}
+
+	File getLogDir() {
+		return logDir;
+	}
+
+	/**
+	 * @return the map, or null if it was never written (and has nothing to
+	 *         import) and create is false
+	 */
+	MapLog map(String mapName, boolean create) throws IOException {
+		if (closed) {
+			throw new IOException(logDir + " is closed");
+		}
+		MapLog map = maps.get(mapName);
+		if (map == null) {
+			synchronized (maps) {
+				map = maps.get(mapName);
+				if (map == null) {
+					map = new MapLog(mapName);
+					maps.put(mapName, map);
+				}
+			}
+		}
+		map.open();
+		return map.exists() || create ? map : null;
+	}
+
+	/**
+	 * @return the names of the maps that hold at least one entry, including
+	 *         legacy maps that were not imported yet
+	 */
+	Set<String> mapNames() throws IOException {
+		Set<String> names = new HashSet<String>();
+		for (MapLog map : maps.values()) {
+			if (map.exists()) {
+				names.add(map.mapName);
+			}
+		}
+		File[] dirs = logDir.listFiles();
+		if (dirs != null) {
+			for (File dir : dirs) {
+				File nameFile = new File(dir, MAPNAME);
+				if (nameFile.isFile()) {
+					names.add(new String(Files.readAllBytes(nameFile.toPath()), UTF_8));
+				}
+			}
+		}
+		File[] legacy = storageDir.listFiles();
+		if (legacy != null) {
+			for (File file : legacy) {
+				if (file.isFile() && file.getName().endsWith(".mapname")) {
+					names.add(new String(Files.readAllBytes(file.toPath()), UTF_8));
+				}
+			}
+		}
+		return names;
+	}
+
+	void sync() throws IOException {
+		for (MapLog map : maps.values()) {
+			map.syncAll();
+		}
+	}
+
+	/**
+	 * Like sync, unless AJSC_PERSISTENCE_LOG_FSYNC is false.
+	 */
+	void syncIfEnabled() throws IOException {
+		if (fsync) {
+			sync();
+		}
+	}
+
+	/**
+	 * While set, the writes of the calling thread return without waiting for
+	 * their records to be forced; the caller must sync afterwards.
+	 */
+	static void setSyncDeferred(boolean deferred) {
+		if (deferred) {
+			syncDeferred.set(Boolean.TRUE);
+		} else {
+			syncDeferred.remove();
+		}
+	}
+
+	void compactIfNeeded() {
+		for (MapLog map : maps.values()) {
+			try {
+				if (map.needsCompaction()) {
+					map.compact();
+				}
+			} catch (Exception e) {
+				logger.warn("Compaction of map " + map.mapName + " failed", e);
+			}
+		}
+	}
+
+	void close() throws IOException {
+		synchronized (stores) {
+			if (closed) {
+				return;
+			}
+			closed = true;
+			stores.remove(logDir);
+		}
+		try {
+			for (MapLog map : maps.values()) {
+				map.close();
+			}
+		} finally {
+			lock.release();
+			lockFile.close();
+		}
+	}
+
+	static String md5(String text) {
+		try {
+			MessageDigest digest = MessageDigest.getInstance("MD5");
+			String hex = new BigInteger(1, digest.digest(text.getBytes(UTF_8))).toString(16);
+			StringBuilder sb = new StringBuilder(32);
+			for (int i = hex.length(); i < 32; i++) {
+				sb.append('0');
+			}
+			return sb.append(hex).toString();
+		} catch (java.security.NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Position of the latest record of a key.
+	 */
+	static final class Location {
+		final Segment segment;
+		final long offset;
+		final int keyLength;
+		final int valueLength;
+
+		Location(Segment segment, long offset, int keyLength, int valueLength) {
+			this.segment = segment;
+			this.offset = offset;
+			this.keyLength = keyLength;
+			this.valueLength = valueLength;
+		}
+
+		int recordLength() {
+			return HEADER_BYTES + keyLength + valueLength;
+		}
+
+		long valueOffset() {
+			return offset + HEADER_BYTES + keyLength;
+		}
+	}
+
+	static final class Segment {
+		final long id;
+		final File file;
+		final FileChannel channel;
+		// append position, only changed under the map append lock
+		volatile long size;
+
+		Segment(long id, File file, FileChannel channel, long size) {
+			this.id = id;
+			this.file = file;
+			this.channel = channel;
+			this.size = size;
+		}
+	}
+
+	/**
+	 * The segments and index of one map.
+	 */
+	final class MapLog {
+		final String mapName;
+		final File dir;
+		final ConcurrentNavigableMap<String, Location> index = new ConcurrentSkipListMap<String, Location>();
+		// held shared by readers, exclusively while segments are retired
+		final ReadWriteLock segmentsLock = new ReentrantReadWriteLock();
+		private final Object appendLock = new Object();
+		private final Object syncLock = new Object();
+		private final Object compactLock = new Object();
+
+		// guarded by appendLock
+		private List<Segment> segments = new ArrayList<Segment>();
+		private long nextSegmentId = 1;
+		private long totalBytes;
+		private long liveBytes;
+		private volatile Segment active;
+		private volatile long appendSeq;
+		private volatile long syncedSeq;
+		private volatile boolean opened;
+
+		MapLog(String mapName) {
+			this.mapName = mapName;
+			this.dir = new File(logDir, md5(mapName));
+		}
+
+		boolean exists() {
+			return active != null;
+		}
+
+		void open() throws IOException {
+			if (opened) {
+				return;
+			}
+			synchronized (appendLock) {
+				if (opened) {
+					return;
+				}
+				File manifest = new File(dir, MANIFEST);
+				if (manifest.isFile()) {
+					replay(readManifest(manifest));
+				} else {
+					importLegacy();
+				}
+				opened = true;
+			}
+		}
+
+		private List<Long> readManifest(File manifest) throws IOException {
+			List<Long> ids = new ArrayList<Long>();
+			for (String line : Files.readAllLines(manifest.toPath(), UTF_8)) {
+				line = line.trim();
+				if (line.length() > 0) {
+					ids.add(Long.valueOf(line));
+				}
+			}
+			return ids;
+		}
+
+		private void replay(List<Long> ids) throws IOException {
+			Set<String> live = new HashSet<String>();
+			for (int i = 0; i < ids.size(); i++) {
+				long id = ids.get(i);
+				File file = segmentFile(id);
+				FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ,
+						StandardOpenOption.WRITE);
+				Segment segment = new Segment(id, file, channel, 0);
+				long valid = replaySegment(segment);
+				if (valid < channel.size()) {
+					if (i == ids.size() - 1) {
+						logger.warn("Truncating torn tail of " + file + " at " + valid + " of " + channel.size()
+								+ " bytes");
+						channel.truncate(valid);
+					} else {
+						logger.error("Corrupt record in " + file + " at " + valid + ", the rest of the segment is ignored");
+					}
+				}
+				segment.size = valid;
+				segments.add(segment);
+				totalBytes += valid;
+				nextSegmentId = Math.max(nextSegmentId, id + 1);
+				live.add(file.getName());
+			}
+			if (!segments.isEmpty()) {
+				active = segments.get(segments.size() - 1);
+			}
+			// segments left behind by an interrupted roll or compaction
+			live.add(MANIFEST);
+			live.add(MAPNAME);
+			File[] files = dir.listFiles();
+			if (files != null) {
+				for (File file : files) {
+					if (!live.contains(file.getName())) {
+						logger.info("Deleting orphaned " + file);
+						file.delete();
+					}
+				}
+			}
+		}
+
+		/**
+		 * @return the offset after the last valid record
+		 */
+		private long replaySegment(Segment segment) throws IOException {
+			InputStream in = new BufferedInputStream(new FileInputStream(segment.file), 64 * 1024);
+			try {
+				DataInputStream data = new DataInputStream(in);
+				CRC32 crc = new CRC32();
+				long offset = 0;
+				byte[] header = new byte[HEADER_BYTES - 4];
+				while (true) {
+					int expected;
+					try {
+						expected = data.readInt();
+						data.readFully(header);
+					} catch (EOFException e) {
+						return offset;
+					}
+					ByteBuffer h = ByteBuffer.wrap(header);
+					byte type = h.get();
+					int keyLength = h.getInt();
+					int valueLength = h.getInt();
+					if ((type != PUT && type != DELETE) || keyLength < 0 || valueLength < 0
+							|| offset + HEADER_BYTES + keyLength + valueLength > segment.file.length()) {
+						return offset;
+					}
+					byte[] body = new byte[keyLength + valueLength];
+					try {
+						data.readFully(body);
+					} catch (EOFException e) {
+						return offset;
+					}
+					crc.reset();
+					crc.update(header);
+					crc.update(body);
+					if ((int) crc.getValue() != expected) {
+						return offset;
+					}
+					String key = new String(body, 0, keyLength, UTF_8);
+					Location previous;
+					if (type == PUT) {
+						Location location = new Location(segment, offset, keyLength, valueLength);
+						previous = index.put(key, location);
+						liveBytes += location.recordLength();
+					} else {
+						previous = index.remove(key);
+					}
+					if (previous != null) {
+						liveBytes -= previous.recordLength();
+					}
+					offset += HEADER_BYTES + keyLength + valueLength;
+				}
+			} finally {
+				in.close();
+			}
+		}
+
+		/**
+		 * Copies the legacy files of the map into its first segment, which
+		 * only becomes visible once the MANIFEST is written; an interrupted
+		 * import starts over.
+		 */
+		private void importLegacy() throws IOException {
+			File legacyDir = new File(storageDir, md5(mapName));
+			File[] keyFiles = legacyDir.listFiles();
+			if (keyFiles == null) {
+				return;
+			}
+			Segment segment = null;
+			int imported = 0;
+			try {
+				for (File keyFile : keyFiles) {
+					String name = keyFile.getName();
+					if (!name.endsWith(".key")) {
+						continue;
+					}
+					File valueFile = new File(legacyDir, name.substring(0, name.length() - ".key".length()));
+					if (!valueFile.isFile()) {
+						continue;
+					}
+					if (segment == null) {
+						createDir();
+						File file = segmentFile(nextSegmentId);
+						segment = new Segment(nextSegmentId, file, FileChannel.open(file.toPath(),
+								StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+								StandardOpenOption.READ, StandardOpenOption.WRITE), 0);
+					}
+					byte[] key = Files.readAllBytes(keyFile.toPath());
+					appendRecord(segment, PUT, new String(key, UTF_8), key, Files.readAllBytes(valueFile.toPath()));
+					imported++;
+				}
+				if (segment == null) {
+					return;
+				}
+				segment.channel.force(false);
+				List<Segment> next = Collections.singletonList(segment);
+				writeManifest(next);
+				segments = new ArrayList<Segment>(next);
+				nextSegmentId++;
+				active = segment;
+				logger.info("Imported " + imported + " entries of map " + mapName + " from " + legacyDir);
+			} catch (IOException e) {
+				index.clear();
+				totalBytes = 0;
+				liveBytes = 0;
+				if (segment != null) {
+					segment.channel.close();
+				}
+				throw e;
+			}
+		}
+
+		private File segmentFile(long id) {
+			return new File(dir, String.format("%020d", id) + SEGMENT_SUFFIX);
+		}
+
+		// ------------------------------------------------------------------
+		// reads
+
+		byte[] get(String key) throws IOException {
+			segmentsLock.readLock().lock();
+			try {
+				Location location = index.get(key);
+				return location == null ? null : readValue(location);
+			} finally {
+				segmentsLock.readLock().unlock();
+			}
+		}
+
+		/**
+		 * @return the value through a channel of its own; retired segments
+		 *         are only deleted after the index stops pointing at them,
+		 *         so the file is still there under the read lock
+		 */
+		ValueChannel openValue(String key) throws IOException {
+			segmentsLock.readLock().lock();
+			try {
+				Location location = index.get(key);
+				return location == null ? null : ValueChannel.open(location.segment.file, location.valueOffset(),
+						location.valueLength);
+			} finally {
+				segmentsLock.readLock().unlock();
+			}
+		}
+
+		/**
+		 * Must be called with the segments read lock held.
+		 */
+		byte[] readValue(Location location) throws IOException {
+			ByteBuffer buf = ByteBuffer.allocate(location.valueLength);
+			readFully(location.segment.channel, buf, location.valueOffset());
+			return buf.array();
+		}
+
+		// ------------------------------------------------------------------
+		// writes
+
+		void put(String key, byte[] value) throws IOException {
+			long seq;
+			synchronized (appendLock) {
+				seq = appendLocked(PUT, key, key.getBytes(UTF_8), value);
+			}
+			if (syncDeferred.get() == null) {
+				sync(seq);
+			}
+		}
+
+		void delete(String key) throws IOException {
+			long seq;
+			synchronized (appendLock) {
+				if (!index.containsKey(key)) {
+					return;
+				}
+				byte[] keyBytes = key.getBytes(UTF_8);
+				seq = appendLocked(DELETE, key, keyBytes, new byte[0]);
+			}
+			if (syncDeferred.get() == null) {
+				sync(seq);
+			}
+		}
+
+		private long appendLocked(byte type, String key, byte[] keyBytes, byte[] value) throws IOException {
+			if (active == null) {
+				createDir();
+				roll();
+			} else if (active.size >= segmentBytes) {
+				roll();
+			}
+			appendRecord(active, type, key, keyBytes, value);
+			return ++appendSeq;
+		}
+
+		private void appendRecord(Segment segment, byte type, String key, byte[] keyBytes, byte[] value)
+				throws IOException {
+			ByteBuffer record = encode(type, keyBytes, value);
+			long offset = segment.size;
+			writeFully(segment.channel, record, offset);
+			segment.size = offset + record.capacity();
+			totalBytes += record.capacity();
+			Location previous;
+			if (type == PUT) {
+				Location location = new Location(segment, offset, keyBytes.length, value.length);
+				previous = index.put(key, location);
+				liveBytes += location.recordLength();
+			} else {
+				previous = index.remove(key);
+			}
+			if (previous != null) {
+				liveBytes -= previous.recordLength();
+			}
+		}
+
+		private void createDir() throws IOException {
+			if (!dir.isDirectory() && !dir.mkdirs()) {
+				throw new IOException("Unable to create " + dir);
+			}
+			Files.write(new File(dir, MAPNAME).toPath(), mapName.getBytes(UTF_8));
+		}
+
+		/**
+		 * Seals the active segment and starts a new one. Called with the
+		 * append lock held.
+		 */
+		private void roll() throws IOException {
+			if (active != null) {
+				active.channel.force(false);
+			}
+			long id = nextSegmentId++;
+			File file = segmentFile(id);
+			FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE_NEW,
+					StandardOpenOption.READ, StandardOpenOption.WRITE);
+			Segment segment = new Segment(id, file, channel, 0);
+			List<Segment> next = new ArrayList<Segment>(segments);
+			next.add(segment);
+			writeManifest(next);
+			segments = next;
+			active = segment;
+		}
+
+		private void writeManifest(List<Segment> list) throws IOException {
+			StringBuilder sb = new StringBuilder();
+			for (Segment segment : list) {
+				sb.append(segment.id).append('\n');
+			}
+			File tmp = new File(dir, MANIFEST + ".tmp");
+			FileOutputStream out = new FileOutputStream(tmp);
+			try {
+				out.write(sb.toString().getBytes(UTF_8));
+				out.getChannel().force(true);
+			} finally {
+				out.close();
+			}
+			Files.move(tmp.toPath(), new File(dir, MANIFEST).toPath(), StandardCopyOption.REPLACE_EXISTING,
+					StandardCopyOption.ATOMIC_MOVE);
+			syncDirectory(dir);
+		}
+
+		/**
+		 * Group commit: waits until the record with the given sequence is on
+		 * disk, forcing the active segment at most once for all the writers
+		 * waiting at the same time.
+		 */
+		void sync(long seq) throws IOException {
+			if (!fsync || syncedSeq >= seq) {
+				return;
+			}
+			synchronized (syncLock) {
+				if (syncedSeq >= seq) {
+					return;
+				}
+				// a record that is not in the active segment any more was
+				// forced when its segment was sealed
+				long target = appendSeq;
+				Segment segment = active;
+				try {
+					segment.channel.force(false);
+				} catch (ClosedChannelException e) {
+					// retired by a compaction, which forced its copy
+				}
+				syncedSeq = target;
+			}
+		}
+
+		void syncAll() throws IOException {
+			synchronized (syncLock) {
+				long target = appendSeq;
+				Segment segment = active;
+				if (segment != null && syncedSeq < target) {
+					segment.channel.force(false);
+					syncedSeq = target;
+				}
+			}
+		}
+
+		// ------------------------------------------------------------------
+		// compaction
+
+		boolean needsCompaction() {
+			synchronized (appendLock) {
+				long dead = totalBytes - liveBytes;
+				return active != null && dead >= MIN_COMPACT_BYTES && dead * 2 > totalBytes;
+			}
+		}
+
+		/**
+		 * Rewrites the live records of all segments into one new segment. The
+		 * active segment is sealed first; records appended while the copy
+		 * runs go to the new active segment, which replays after the
+		 * compacted one, so they win over the copied records.
+		 */
+		void compact() throws IOException {
+			synchronized (compactLock) {
+				List<Segment> sealed;
+				synchronized (appendLock) {
+					if (active == null) {
+						return;
+					}
+					roll();
+					sealed = new ArrayList<Segment>(segments.subList(0, segments.size() - 1));
+				}
+				Set<Segment> retired = new HashSet<Segment>(sealed);
+
+				long id;
+				synchronized (appendLock) {
+					id = nextSegmentId++;
+				}
+				File file = segmentFile(id);
+				FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE_NEW,
+						StandardOpenOption.READ, StandardOpenOption.WRITE);
+				Segment compacted = new Segment(id, file, channel, 0);
+				List<String> keys = new ArrayList<String>();
+				List<Location> from = new ArrayList<Location>();
+				List<Location> to = new ArrayList<Location>();
+				try {
+					long offset = 0;
+					// retired segments are immutable and only closed by this
+					// method, so they are read without the segments lock
+					for (Map.Entry<String, Location> entry : index.entrySet()) {
+						Location location = entry.getValue();
+						if (!retired.contains(location.segment)) {
+							continue;
+						}
+						ByteBuffer record = ByteBuffer.allocate(location.recordLength());
+						readFully(location.segment.channel, record, location.offset);
+						record.flip();
+						writeFully(channel, record, offset);
+						keys.add(entry.getKey());
+						from.add(location);
+						to.add(new Location(compacted, offset, location.keyLength, location.valueLength));
+						offset += location.recordLength();
+					}
+					compacted.size = offset;
+					channel.force(false);
+				} catch (IOException e) {
+					channel.close();
+					file.delete();
+					throw e;
+				}
+
+				long before;
+				synchronized (appendLock) {
+					segmentsLock.writeLock().lock();
+					try {
+						List<Segment> next = new ArrayList<Segment>();
+						next.add(compacted);
+						for (Segment segment : segments) {
+							if (!retired.contains(segment)) {
+								next.add(segment);
+							}
+						}
+						writeManifest(next);
+						segments = next;
+						for (int i = 0; i < keys.size(); i++) {
+							// a key written or deleted during the copy keeps
+							// its newer record
+							index.replace(keys.get(i), from.get(i), to.get(i));
+						}
+						before = totalBytes;
+						for (Segment segment : retired) {
+							totalBytes -= segment.size;
+						}
+						totalBytes += compacted.size;
+					} finally {
+						segmentsLock.writeLock().unlock();
+					}
+				}
+				for (Segment segment : retired) {
+					segment.channel.close();
+					if (!segment.file.delete()) {
+						logger.warn("Unable to delete compacted segment " + segment.file);
+					}
+				}
+				logger.info("Compacted map " + mapName + " from " + before + " to " + totalBytes + " bytes");
+			}
+		}
+
+		void close() throws IOException {
+			synchronized (appendLock) {
+				segmentsLock.writeLock().lock();
+				try {
+					for (Segment segment : segments) {
+						if (segment == active && fsync) {
+							segment.channel.force(false);
+						}
+						segment.channel.close();
+					}
+				} finally {
+					segmentsLock.writeLock().unlock();
+				}
+			}
+		}
+	}
+
+	static ByteBuffer encode(byte type, byte[] key, byte[] value) {
+		ByteBuffer record = ByteBuffer.allocate(HEADER_BYTES + key.length + value.length);
+		record.putInt(0).put(type).putInt(key.length).putInt(value.length).put(key).put(value);
+		CRC32 crc = new CRC32();
+		crc.update(record.array(), 4, record.capacity() - 4);
+		record.putInt(0, (int) crc.getValue());
+		record.flip();
+		return record;
+	}
+
+	static void readFully(FileChannel channel, ByteBuffer buf, long position) throws IOException {
+		while (buf.hasRemaining()) {
+			int n = channel.read(buf, position);
+			if (n < 0) {
+				throw new EOFException("Unexpected end of segment at " + position);
+			}
+			position += n;
+		}
+	}
+
+	static void writeFully(FileChannel channel, ByteBuffer buf, long position) throws IOException {
+		while (buf.hasRemaining()) {
+			position += channel.write(buf, position);
+		}
+	}
+
+	static void syncDirectory(File dir) {
+		// makes the rename durable on Linux, not supported everywhere
+		try {
+			FileChannel channel = FileChannel.open(dir.toPath(), StandardOpenOption.READ);
+			try {
+				channel.force(true);
+			} finally {
+				channel.close();
+			}
+		} catch (IOException e) {
+			logger.debug("Unable to sync directory " + dir, e);
+		}
+	}
+}
@@ -0,0 +1,457 @@
+/*******************************************************************************
+ * Copyright (c) 2016 AT&T Intellectual Property. All rights reserved.
+ *******************************************************************************/
+package ajsc.providers;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.h2.mvstore.MVMap;
+import org.h2.mvstore.MVStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * {@link DBAdapter} on top of an embedded H2 MVStore: all maps live in the
+ * single file <code>&lt;storagePath&gt;/ajsc.mv.db</code>, as sorted maps of
+ * keys to value bytes. Reads are served from the MVStore page cache without
+ * locks; each write, or each batch applied by {@link BatchJournal}, is one
+ * MVStore commit, so a crash leaves the writes before the last commit.
+ *
+ * Selected for ajsc.FilePersistenceService with
+ * AJSC_PERSISTENCE_ADAPTER=mvstore. The maps written by
+ * {@link FilePersistenceClient} are not imported implicitly, run
+ * <code>java ajsc.providers.MVStorePersistenceClient &lt;storagePath&gt;</code>
+ * once to migrate them.
+ *
+ * One store is shared by all clients of a file in the JVM; MVStore locks
+ * the file against other processes.
+ */
+public class MVStorePersistenceClient implements DBAdapter {
+
+	public static final String STORE_FILE = "ajsc.mv.db";
+	/**
+	 * Size of the page cache in MB, the MVStore default if not set.
+	 */
+	public static final String SYSPROP_CACHE_MB = "AJSC_PERSISTENCE_MVSTORE_CACHE_MB";
+
+	static final Logger logger = LoggerFactory.getLogger(MVStorePersistenceClient.class);
+
+	private static final ConcurrentMap<File, MVStore> stores = new ConcurrentHashMap<File, MVStore>();
+	// set while a thread applies a batch, which is committed once at the end
+	private static final ThreadLocal<Boolean> commitDeferred = new ThreadLocal<Boolean>();
+
+	private final File storeFile;
+	private volatile MVStore store;
+	private String schema = "";
+
+	public MVStorePersistenceClient() {
+		this(LogPersistenceClient.defaultStoragePath());
+	}
+
+	public MVStorePersistenceClient(String storagePath) {
+		this.storeFile = new File(storagePath, STORE_FILE);
+	}
+
+	// This method is taking input parameters ip, port, name, doesn't really
+	// need them. Its just for compatibility with riak init method.
+	public void init(Object ip, Object port, Object name) throws IOException {
+		init();
+	}
+
+	public void init() throws IOException {
+		store();
+	}
+
+	/**
+	 * Commits and closes the store file.
+	 */
+	public void shutdown() throws IOException {
+		MVStore current = store;
+		if (current != null) {
+			store = null;
+			synchronized (stores) {
+				stores.remove(storeFile.getCanonicalFile(), current);
+				if (!current.isClosed()) {
+					current.close();
+				}
+			}
+		}
+	}
+
+	MVStore store() throws IOException {
+		MVStore current = store;
+		if (current == null || current.isClosed()) {
+			File file = storeFile.getCanonicalFile();
+			synchronized (stores) {
+				current = stores.get(file);
+				if (current == null || current.isClosed()) {
+					File dir = file.getParentFile();
+					if (!dir.isDirectory() && !dir.mkdirs()) {
+						throw new IOException("Unable to create " + dir);
+					}
+					MVStore.Builder builder = new MVStore.Builder().fileName(file.getPath()).autoCommitDisabled()
+							.compress();
+					Integer cacheMB = Integer.getInteger(SYSPROP_CACHE_MB);
+					if (cacheMB != null) {
+						builder.cacheSize(cacheMB);
+					}
+					try {
+						current = builder.open();
+					} catch (IllegalStateException e) {
+						throw new IOException("Unable to open " + file, e);
+					}
+					stores.put(file, current);
+				}
+			}
+			store = current;
+		}
+		return current;
+	}
+
+	/**
+	 * @return the map, null if it does not exist and create is false
+	 */
+	private MVMap<String, byte[]> map(String mapName, boolean create) throws IOException {
+		MVStore current = store();
+		if (!create && !current.hasMap(mapName)) {
+			return null;
+		}
+		return current.openMap(mapName);
+	}
+
+	private static RuntimeException failure(String operation, String mapName, IOException e) {
+		return new UncheckedIOException(operation + (mapName == null ? "" : " of map " + mapName) + " failed", e);
+	}
+
+	private static String text(byte[] value) {
+		return value == null ? null : new String(value, LogStore.UTF_8);
+	}
+
+	private void commit() throws IOException {
+		if (commitDeferred.get() == null) {
+			store().commit();
+		}
+	}
+
+	/**
+	 * While set, the writes of the calling thread are not committed; the
+	 * caller must call {@link #sync()} afterwards.
+	 */
+	static void setCommitDeferred(boolean deferred) {
+		if (deferred) {
+			commitDeferred.set(Boolean.TRUE);
+		} else {
+			commitDeferred.remove();
+		}
+	}
+
+	public Object store(String mapName, String key, String value) {
+		return storeByteArray(mapName, key, value.getBytes(LogStore.UTF_8));
+	}
+
+	public Object storeByteArray(String mapName, String key, byte[] value) {
+		try {
+			map(mapName, true).put(key, value.clone());
+			commit();
+			return null;
+		} catch (IOException e) {
+			throw failure("storeByteArray", mapName, e);
+		}
+	}
+
+	public Object fetch(String mapName, String key) {
+		return text((byte[]) fetchByteArray(mapName, key));
+	}
+
+	public Object fetchByteArray(String mapName, String key) {
+		try {
+			MVMap<String, byte[]> map = map(mapName, false);
+			byte[] value = map == null ? null : map.get(key);
+			// the stored array is shared with the page cache
+			return value == null ? null : value.clone();
+		} catch (IOException e) {
+			throw failure("fetchByteArray", mapName, e);
+		}
+	}
+
+	/**
+	 * @return the value from the page cache
+	 */
+	public Object openByteArray(String mapName, String key) {
+		try {
+			MVMap<String, byte[]> map = map(mapName, false);
+			byte[] value = map == null ? null : map.get(key);
+			return value == null ? null : ValueChannel.of(value);
+		} catch (IOException e) {
+			throw failure("openByteArray", mapName, e);
+		}
+	}
+
+	/**
+	 * @return the entries of the map in key order, the token is the last key
+	 *         of the page
+	 */
+	public Object fetchPage(String mapName, String keyPrefix, String resumeToken, int pageSize) {
+		PersistencePage.checkPageSize(pageSize);
+		try {
+			MVMap<String, byte[]> map = map(mapName, false);
+			if (map == null) {
+				return PersistencePage.empty();
+			}
+			String prefix = keyPrefix == null ? "" : keyPrefix;
+			String from = resumeToken == null || resumeToken.compareTo(prefix) < 0 ? prefix : map
+					.higherKey(resumeToken);
+			List<String> keys = new ArrayList<String>();
+			List<byte[]> values = new ArrayList<byte[]>();
+			String nextToken = null;
+			if (from != null) {
+				Iterator<String> it = map.keyIterator(from);
+				while (it.hasNext()) {
+					String key = it.next();
+					if (!key.startsWith(prefix)) {
+						break;
+					}
+					if (keys.size() == pageSize) {
+						nextToken = keys.get(pageSize - 1);
+						break;
+					}
+					byte[] value = map.get(key);
+					// deleted since the iterator passed it
+					if (value != null) {
+						keys.add(key);
+						values.add(value.clone());
+					}
+				}
+			}
+			return new PersistencePage(keys, values, nextToken);
+		} catch (IOException e) {
+			throw failure("fetchPage", mapName, e);
+		}
+	}
+
+	/**
+	 * @return the keys of the map in key order
+	 */
+	public Object fetchKeys(String mapName) {
+		try {
+			MVMap<String, byte[]> map = map(mapName, false);
+			return map == null ? new ArrayList<String>() : new ArrayList<String>(map.keySet());
+		} catch (IOException e) {
+			throw failure("fetchKeys", mapName, e);
+		}
+	}
+
+	/**
+	 * @return the values of the map in key order, null if the map does not
+	 *         exist
+	 */
+	public Object fetchAllEntries(String mapName) {
+		try {
+			MVMap<String, byte[]> map = map(mapName, false);
+			if (map == null) {
+				return null;
+			}
+			List<String> values = new ArrayList<String>(map.size());
+			for (byte[] value : map.values()) {
+				values.add(text(value));
+			}
+			return values;
+		} catch (IOException e) {
+			throw failure("fetchAllEntries", mapName, e);
+		}
+	}
+
+	/**
+	 * @return the entries of the map, null if the map does not exist
+	 */
+	public Object fetchAllByteArrayEntries(String mapName) {
+		try {
+			MVMap<String, byte[]> map = map(mapName, false);
+			if (map == null) {
+				return null;
+			}
+			Map<String, byte[]> values = new HashMap<String, byte[]>();
+			for (Map.Entry<String, byte[]> entry : map.entrySet()) {
+				values.put(entry.getKey(), entry.getValue().clone());
+			}
+			return values;
+		} catch (IOException e) {
+			throw failure("fetchAllByteArrayEntries", mapName, e);
+		}
+	}
+
+	public Object deleteKey(String mapName, String key) {
+		try {
+			MVMap<String, byte[]> map = map(mapName, false);
+			if (map != null && map.remove(key) != null) {
+				commit();
+			}
+			return null;
+		} catch (IOException e) {
+			throw failure("deleteKey", mapName, e);
+		}
+	}
+
+	/**
+	 * @return the names of all maps in the store
+	 */
+	public Set<String> fetchMapNames() throws IOException {
+		return new TreeSet<String>(store().getMapNames());
+	}
+
+	/**
+	 * Commits the pending writes and forces the store file to disk.
+	 */
+	public void sync() throws IOException {
+		MVStore current = store();
+		current.commit();
+		current.sync();
+	}
+
+	/**
+	 * Rewrites the file chunks that are mostly overwritten values, for up to
+	 * the given time.
+	 */
+	public void compact(long maxMillis) throws IOException {
+		store().compactFile(maxMillis);
+	}
+
+	/**
+	 * Copies the maps of another adapter into this store, a page at a time,
+	 * and commits each map once.
+	 *
+	 * @return the number of entries copied
+	 */
+	public int importFrom(DBAdapter source, Collection<String> mapNames) throws IOException {
+		int imported = 0;
+		for (String mapName : mapNames) {
+			MVMap<String, byte[]> map = map(mapName, true);
+			String token = null;
+			do {
+				PersistencePage page = (PersistencePage) source.fetchPage(mapName, null, token, 500);
+				for (int i = 0; i < page.size(); i++) {
+					map.put(page.getKeys().get(i), page.getValues().get(i));
+				}
+				imported += page.size();
+				token = page.getNextToken();
+			} while (token != null);
+			store().commit();
+			logger.info("Imported map " + mapName + " into " + storeFile);
+		}
+		store().sync();
+		return imported;
+	}
+
+	/**
+	 * @return the names of the maps of the file per key layout of
+	 *         {@link FilePersistenceClient} under the storage directory
+	 */
+	static Set<String> fileMapNames(File storageDir) throws IOException {
+		Set<String> names = new TreeSet<String>();
+		File[] files = storageDir.listFiles();
+		if (files != null) {
+			for (File file : files) {
+				if (file.isFile() && file.getName().endsWith(".mapname")) {
+					names.add(new String(Files.readAllBytes(file.toPath()), LogStore.UTF_8));
+				}
+			}
+		}
+		return names;
+	}
+
+	/**
+	 * One-shot migration of the file per key layout under a storage path
+	 * into the MVStore file of that path. The files are left in place.
+	 *
+	 * java ajsc.providers.MVStorePersistenceClient &lt;storagePath&gt;
+	 */
+	public static void main(String[] args) throws IOException {
+		String storagePath = args.length > 0 ? args[0] : LogPersistenceClient.defaultStoragePath();
+		FilePersistenceClient source = new FilePersistenceClient();
+		source.setStoragePath(storagePath);
+		MVStorePersistenceClient target = new MVStorePersistenceClient(storagePath);
+		try {
+			Set<String> mapNames = fileMapNames(new File(storagePath));
+			int imported = target.importFrom(source, mapNames);
+			System.out.println("Migrated " + imported + " entries of " + mapNames.size() + " maps from " + storagePath
+					+ " to " + target.storeFile);
+		} finally {
+			target.shutdown();
+		}
+	}
+
+	public Object ping() {
+		try {
+			store();
+			return null;
+		} catch (IOException e) {
+			throw failure("ping", null, e);
+		}
+	}
+
+	public Object store(String mapName, String key, String value, String schema) {
+		return store(mapName, key, value);
+	}
+
+	public Object storeByteArray(String mapName, String key, byte[] value, String schema) {
+		return storeByteArray(mapName, key, value);
+	}
+
+	public Object fetch(String mapName, String key, String schema) {
+		return fetch(mapName, key);
+	}
+
+	public Object fetchByteArray(String mapName, String key, String schema) {
+		return fetchByteArray(mapName, key);
+	}
+
+	public Object fetchAllEntries(String mapName, String schema) {
+		return fetchAllEntries(mapName);
+	}
+
+	public Object fetchAllByteArrayEntries(String mapName, String schema) {
+		return fetchAllByteArrayEntries(mapName);
+	}
+
+	public Object deleteKey(String mapName, String key, String schema) {
+		return deleteKey(mapName, key);
+	}
+
+	public Object fetchKeys(String mapName, String schema) {
+		return fetchKeys(mapName);
+	}
+
+	public Object setSchema(String schema) {
+		this.schema = schema;
+		return null;
+	}
+
+	public Object getSchema() {
+		return schema;
+	}
+
+	public Object getMapReduceResult(String mapReduceJobSpec) {
+		// This method is currently not implemented by the MVStore
+		return null;
+	}
+
+	@SuppressWarnings("rawtypes")
+	public Object putMapEntryExtended(String mapName, String mapKey, Object mapValue, String contentType,
+			Map mapUsermetaItems, Map mapUserindexItems, List userlwlinkItems) {
+		// This method is currently not implemented by the MVStore
+		return null;
+	}
+}
@@ -0,0 +1,76 @@
+/*******************************************************************************
+ * Copyright (c) 2016 AT&T Intellectual Property. All rights reserved.
+ *******************************************************************************/
+package ajsc.providers;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One page of the entries of a map, returned by
+ * {@link DBAdapter#fetchPage(String, String, String, int)}. The next token
+ * resumes the iteration after the last entry of the page; it is opaque and
+ * only valid for the adapter that returned it.
+ */
+public final class PersistencePage {
+
+	private final List<String> keys;
+	private final List<byte[]> values;
+	private final String nextToken;
+
+	PersistencePage(List<String> keys, List<byte[]> values, String nextToken) {
+		this.keys = Collections.unmodifiableList(keys);
+		this.values = Collections.unmodifiableList(values);
+		this.nextToken = nextToken;
+	}
+
+	static PersistencePage empty() {
+		return new PersistencePage(new ArrayList<String>(), new ArrayList<byte[]>(), null);
+	}
+
+	static void checkPageSize(int pageSize) {
+		if (pageSize < 1) {
+			throw new IllegalArgumentException("Page size must be positive: " + pageSize);
+		}
+	}
+
+	public List<String> getKeys() {
+		return keys;
+	}
+
+	/**
+	 * @return the values, in the order of the keys
+	 */
+	public List<byte[]> getValues() {
+		return values;
+	}
+
+	/**
+	 * @return the values as strings by key, in page order
+	 */
+	public Map<String, String> getEntries() {
+		Map<String, String> entries = new LinkedHashMap<String, String>();
+		for (int i = 0; i < keys.size(); i++) {
+			entries.put(keys.get(i), new String(values.get(i), LogStore.UTF_8));
+		}
+		return entries;
+	}
+
+	/**
+	 * @return the token of the next page, null if this page is the last one
+	 */
+	public String getNextToken() {
+		return nextToken;
+	}
+
+	public boolean isLast() {
+		return nextToken == null;
+	}
+
+	public int size() {
+		return keys.size();
+	}
+}
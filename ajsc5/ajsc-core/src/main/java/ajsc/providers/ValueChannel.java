@@ -0,0 +1,185 @@
+/*******************************************************************************
+ * Copyright (c) 2016 AT&T Intellectual Property. All rights reserved.
+ *******************************************************************************/
+package ajsc.providers;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A stored value opened for reading without loading it on the heap: a range
+ * of a file read through its own {@link FileChannel}, or a byte array the
+ * adapter already held. {@link #transferTo(WritableByteChannel)} copies a
+ * file range with FileChannel.transferTo, which lets the kernel move the
+ * bytes when the target is a file or a socket.
+ *
+ * The file is opened when the value is, so the value stays readable if the
+ * store replaces or compacts it meanwhile.
+ */
+public final class ValueChannel implements ReadableByteChannel {
+
+	private final FileChannel file;
+	private final ByteBuffer bytes;
+	private final long start;
+	private final long size;
+	private long position;
+	private boolean open = true;
+
+	private ValueChannel(FileChannel file, ByteBuffer bytes, long start, long size) {
+		this.file = file;
+		this.bytes = bytes;
+		this.start = start;
+		this.size = size;
+	}
+
+	/**
+	 * @return the value held by the range of the file
+	 */
+	public static ValueChannel open(File file, long start, long size) throws IOException {
+		return new ValueChannel(FileChannel.open(file.toPath(), StandardOpenOption.READ), null, start, size);
+	}
+
+	/**
+	 * @return the value of the whole file
+	 */
+	public static ValueChannel open(File file) throws IOException {
+		FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+		try {
+			return new ValueChannel(channel, null, 0, channel.size());
+		} catch (IOException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	public static ValueChannel of(byte[] value) {
+		return new ValueChannel(null, ByteBuffer.wrap(value), 0, value.length);
+	}
+
+	/**
+	 * @return the length of the value in bytes
+	 */
+	public long size() {
+		return size;
+	}
+
+	public int read(ByteBuffer dst) throws IOException {
+		ensureOpen();
+		long remaining = size - position;
+		if (remaining <= 0) {
+			return -1;
+		}
+		int n = (int) Math.min(dst.remaining(), remaining);
+		if (file == null) {
+			ByteBuffer src = bytes.duplicate();
+			src.position((int) position).limit((int) position + n);
+			dst.put(src);
+		} else {
+			ByteBuffer window = dst.duplicate();
+			window.limit(window.position() + n);
+			n = file.read(window, start + position);
+			if (n < 0) {
+				throw new IOException("Value ends " + remaining + " bytes early");
+			}
+			dst.position(dst.position() + n);
+		}
+		position += n;
+		return n;
+	}
+
+	/**
+	 * Copies the rest of the value to the target. A target that takes no
+	 * more bytes, such as a non-blocking channel with a full buffer, ends the
+	 * copy early: the value is left at the first byte not copied, call again
+	 * to resume.
+	 *
+	 * @return the number of bytes copied
+	 */
+	public long transferTo(WritableByteChannel target) throws IOException {
+		ensureOpen();
+		long copied = 0;
+		if (file == null) {
+			ByteBuffer src = bytes.duplicate();
+			src.position((int) position);
+			while (src.hasRemaining()) {
+				int n = target.write(src);
+				if (n <= 0) {
+					break;
+				}
+				copied += n;
+			}
+		} else {
+			while (position + copied < size) {
+				long n = file.transferTo(start + position + copied, size - position - copied, target);
+				if (n <= 0) {
+					if (start + position + copied >= file.size()) {
+						throw new IOException("Value ends " + (size - position - copied) + " bytes early");
+					}
+					break;
+				}
+				copied += n;
+			}
+		}
+		position += copied;
+		return copied;
+	}
+
+	/**
+	 * Copies the rest of the value to the target file, replacing it.
+	 *
+	 * @return the number of bytes copied
+	 */
+	public long transferTo(File target) throws IOException {
+		FileChannel out = FileChannel.open(target.toPath(), StandardOpenOption.CREATE,
+				StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+		try {
+			return transferTo(out);
+		} finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * @return a stream over the rest of the value, closing it closes the
+	 *         value
+	 */
+	public InputStream asInputStream() {
+		return Channels.newInputStream(this);
+	}
+
+	/**
+	 * @return the rest of the value, read in memory
+	 */
+	public byte[] toByteArray() throws IOException {
+		ByteBuffer buf = ByteBuffer.allocate((int) (size - position));
+		while (buf.hasRemaining() && read(buf) >= 0) {
+			// until full
+		}
+		return buf.array();
+	}
+
+	public boolean isOpen() {
+		return open;
+	}
+
+	public void close() throws IOException {
+		open = false;
+		if (file != null) {
+			file.close();
+		}
+	}
+
+	private void ensureOpen() throws IOException {
+		if (!open) {
+			throw new ClosedChannelException();
+		}
+	}
+}
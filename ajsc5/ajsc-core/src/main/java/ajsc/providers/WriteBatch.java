@@ -0,0 +1,176 @@
+/*******************************************************************************
+ * Copyright (c) 2016 AT&T Intellectual Property. All rights reserved.
+ *******************************************************************************/
+package ajsc.providers;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Writes to several maps staged in memory and committed together by
+ * {@link BatchJournal#commit(DBAdapter, WriteBatch)}. A later write of a key
+ * replaces the earlier one, so each key is written once.
+ */
+public final class WriteBatch {
+
+	private static final byte PUT_TEXT = 1;
+	private static final byte PUT_BYTES = 2;
+	private static final byte DELETE = 3;
+
+	private final Map<String, Map<String, Entry>> maps = new LinkedHashMap<String, Map<String, Entry>>();
+	private int size;
+
+	/**
+	 * One staged write; the value is null for a delete.
+	 */
+	public static final class Entry {
+		private final String mapName;
+		private final String key;
+		private final byte[] value;
+		private final boolean text;
+
+		Entry(String mapName, String key, byte[] value, boolean text) {
+			this.mapName = mapName;
+			this.key = key;
+			this.value = value;
+			this.text = text;
+		}
+
+		public String getMapName() {
+			return mapName;
+		}
+
+		public String getKey() {
+			return key;
+		}
+
+		public byte[] getValue() {
+			return value;
+		}
+
+		/**
+		 * @return the value as a string, null for a delete
+		 */
+		public String getText() {
+			return value == null ? null : new String(value, LogStore.UTF_8);
+		}
+
+		/**
+		 * @return true if the value was put as a String
+		 */
+		public boolean isString() {
+			return text;
+		}
+
+		public boolean isDelete() {
+			return value == null;
+		}
+	}
+
+	public void put(String mapName, String key, String value) {
+		stage(new Entry(mapName, key, value.getBytes(LogStore.UTF_8), true));
+	}
+
+	public void putByteArray(String mapName, String key, byte[] value) {
+		stage(new Entry(mapName, key, value.clone(), false));
+	}
+
+	public void delete(String mapName, String key) {
+		stage(new Entry(mapName, key, null, false));
+	}
+
+	private void stage(Entry entry) {
+		Map<String, Entry> map = maps.get(entry.mapName);
+		if (map == null) {
+			map = new LinkedHashMap<String, Entry>();
+			maps.put(entry.mapName, map);
+		}
+		// moved to the end, so the batch keeps the order of the last writes
+		if (map.remove(entry.key) == null) {
+			size++;
+		}
+		map.put(entry.key, entry);
+	}
+
+	/**
+	 * @return the staged write of the key, null if the batch does not write it
+	 */
+	public Entry get(String mapName, String key) {
+		Map<String, Entry> map = maps.get(mapName);
+		return map == null ? null : map.get(key);
+	}
+
+	public boolean touches(String mapName) {
+		return maps.containsKey(mapName);
+	}
+
+	public Set<String> getMapNames() {
+		return Collections.unmodifiableSet(maps.keySet());
+	}
+
+	/**
+	 * @return the staged writes of the map by key
+	 */
+	public Map<String, Entry> getEntries(String mapName) {
+		Map<String, Entry> map = maps.get(mapName);
+		return map == null ? Collections.<String, Entry> emptyMap() : Collections.unmodifiableMap(map);
+	}
+
+	/**
+	 * @return all staged writes, map by map
+	 */
+	public List<Entry> getEntries() {
+		List<Entry> entries = new ArrayList<Entry>(size);
+		for (Map<String, Entry> map : maps.values()) {
+			entries.addAll(map.values());
+		}
+		return entries;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	void write(DataOutputStream out) throws IOException {
+		out.writeInt(size);
+		for (Entry entry : getEntries()) {
+			out.writeByte(entry.isDelete() ? DELETE : entry.text ? PUT_TEXT : PUT_BYTES);
+			out.writeUTF(entry.mapName);
+			out.writeUTF(entry.key);
+			if (!entry.isDelete()) {
+				out.writeInt(entry.value.length);
+				out.write(entry.value);
+			}
+		}
+	}
+
+	static WriteBatch read(DataInputStream in) throws IOException {
+		WriteBatch batch = new WriteBatch();
+		int count = in.readInt();
+		for (int i = 0; i < count; i++) {
+			byte type = in.readByte();
+			String mapName = in.readUTF();
+			String key = in.readUTF();
+			byte[] value = null;
+			if (type == PUT_TEXT || type == PUT_BYTES) {
+				value = new byte[in.readInt()];
+				in.readFully(value);
+			} else if (type != DELETE) {
+				throw new IOException("Unknown batch record type " + type);
+			}
+			batch.stage(new Entry(mapName, key, value, type == PUT_TEXT));
+		}
+		return batch;
+	}
+}
@@ -21,7 +21,7 @@ import org.restlet.engine.adapter.HttpServerHelper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import ajsc.ComputeService;
+import ajsc.servlet.EndpointHealthCheck;
 
 public class RestletSpringServlet extends
 		org.restlet.ext.spring.SpringServerServlet {
@@ -125,57 +125,14 @@ public class RestletSpringServlet extends
 	public void service(HttpServletRequest request, HttpServletResponse response)
 			throws ServletException, IOException {
 
-		logger.debug("servlet:service" + request.getMethod());
-		//System.out.println("servlet:service" + request.getMethod());
-		if (request.getMethod().equalsIgnoreCase("head")
-				|| request.getHeader("DME2HealthCheck") != null)
-
-		{
-
+		if (EndpointHealthCheck.isHealthCheck(request)) {
 			try {
-
-				logger.debug("path Info" + request.getPathInfo());
-
-				String serviceUri = null;
-
-				if (request.getServletPath() == null
-						|| request.getServletPath().toString().isEmpty()
-						|| request.getServletPath().toString().equals("/*")) {
-					serviceUri = request.getPathInfo();
-				} else {
-					serviceUri = request.getPathInfo().replace(
-							request.getServletPath(), PATH_SEPARATER);
-				}
-
-				logger.debug("serviceUri" + serviceUri);
-
-				logger.debug("endpointUriMap"
-						+ ComputeService.endpointUriMap.toString());
-
-				logger.debug("path Info" + request.getPathInfo());
-				logger.debug("endpointUriMap"
-						+ ComputeService.endpointUriMap.toString());
-				
-//				System.out.println("path Info" + request.getPathInfo());
-//				System.out.println("serviceUri" + serviceUri);
-
-//				System.out.println("endpointUriMap"
-//						+ ComputeService.endpointUriMap.toString());
-				if (ComputeService.endpointUriMap.containsKey("restlet:"+serviceUri)) {
-					logger.debug("DME2HealthCheck -setting response status 200");
-					response.setStatus(200); // Success
-				} else {
-					logger.debug("DME2HealthCheck -setting response status 503");
-					response.setStatus(503); // Service unavailable
-				}
+				EndpointHealthCheck.probe(request, response, true);
 			} catch (Exception e) {
 				logger.error("Exception occurred in Servlet DME2HealthCheck"
 						+ ":" + getStackTrace(e));
 
 			}
-
-	
-
 		} else {
 
 			super.service(request, response);
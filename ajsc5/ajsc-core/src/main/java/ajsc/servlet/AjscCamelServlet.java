@@ -4,7 +4,12 @@
 package ajsc.servlet;
 
 import java.io.IOException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.ServletConfig;
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
@@ -12,12 +17,177 @@ import javax.servlet.http.HttpServletResponse;
 import ajsc.ComputeService;
 import ajsc.utils.AjscUtil;
 
+import org.apache.camel.AsyncCallback;
+import org.apache.camel.Exchange;
+import org.apache.camel.ExchangePattern;
+import org.apache.camel.http.common.HttpConsumer;
+import org.apache.camel.http.common.HttpHelper;
+import org.apache.camel.http.common.HttpMessage;
+import org.apache.camel.impl.DefaultExchange;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/**
+ * Camel servlet for the AJSC /services routes. With the "async" init
+ * parameter set to true, the request is put in asynchronous mode and handed
+ * to the route's async processor. The Jetty worker thread is released right
+ * away and the response is written and completed from the exchange callback,
+ * so long running routes no longer hold a thread each. The optional
+ * "asyncTimeout" init parameter sets the AsyncContext timeout in
+ * milliseconds.
+ */
 @SuppressWarnings("serial")
 public class AjscCamelServlet extends
-		org.apache.camel.component.servlet.CamelHttpTransportServlet {/*
+		org.apache.camel.component.servlet.CamelHttpTransportServlet {
+
+	static final Logger asyncLogger = LoggerFactory
+			.getLogger(AjscCamelServlet.class);
+
+	public static final String ASYNC_INIT_PARAM = "async";
+	public static final String ASYNC_TIMEOUT_INIT_PARAM = "asyncTimeout";
+
+	private boolean asyncMode;
+	private long asyncTimeout = -1;
+
+	@Override
+	public void init(ServletConfig config) throws ServletException {
+		super.init(config);
+		asyncMode = Boolean.parseBoolean(config.getInitParameter(ASYNC_INIT_PARAM));
+		String timeout = config.getInitParameter(ASYNC_TIMEOUT_INIT_PARAM);
+		if (timeout != null) {
+			asyncTimeout = Long.parseLong(timeout.trim());
+		}
+		asyncLogger.info("AjscCamelServlet " + config.getServletName() + " async mode: " + asyncMode);
+	}
+
+	public boolean isAsyncMode() {
+		return asyncMode;
+	}
+
+	@Override
+	public void service(HttpServletRequest request, HttpServletResponse response)
+			throws ServletException, IOException {
+		if (!asyncMode || !request.isAsyncSupported()) {
+			super.service(request, response);
+			return;
+		}
+		HttpConsumer consumer = getServletResolveConsumerStrategy().resolve(request, getConsumers());
+		if (consumer == null || consumer.isSuspended() || "OPTIONS".equals(request.getMethod())
+				|| "TRACE".equals(request.getMethod())
+				|| (consumer.getEndpoint().getHttpMethodRestrict() != null
+						&& !consumer.getEndpoint().getHttpMethodRestrict().contains(request.getMethod()))) {
+			// error and OPTIONS/TRACE handling stay with the synchronous path
+			super.service(request, response);
+			return;
+		}
+		serviceAsync(consumer, request, response);
+	}
+
+	private void serviceAsync(final HttpConsumer consumer, final HttpServletRequest request,
+			final HttpServletResponse response) throws ServletException {
+		final Exchange exchange = new DefaultExchange(consumer.getEndpoint(), ExchangePattern.InOut);
+		if (consumer.getEndpoint().isBridgeEndpoint()) {
+			exchange.setProperty(Exchange.SKIP_GZIP_ENCODING, Boolean.TRUE);
+			exchange.setProperty(Exchange.SKIP_WWW_FORM_URLENCODED, Boolean.TRUE);
+		}
+		if (consumer.getEndpoint().isDisableStreamCache()) {
+			exchange.setProperty(Exchange.DISABLE_HTTP_STREAM_CACHE, Boolean.TRUE);
+		}
+
+		final ClassLoader oldTccl = overrideTccl(exchange);
+		HttpHelper.setCharsetFromContentType(request.getContentType(), exchange);
+		exchange.setIn(new HttpMessage(exchange, consumer.getEndpoint(), request, response));
+		String contextPath = consumer.getEndpoint().getPath();
+		exchange.getIn().setHeader("CamelServletContextPath", contextPath);
+		String httpPath = (String) exchange.getIn().getHeader(Exchange.HTTP_PATH);
+		if (contextPath != null && httpPath != null && httpPath.startsWith(contextPath)) {
+			exchange.getIn().setHeader(Exchange.HTTP_PATH, httpPath.substring(contextPath.length()));
+		}
+
+		try {
+			consumer.createUoW(exchange);
+		} catch (Exception e) {
+			restoreTccl(exchange, oldTccl);
+			asyncLogger.error("Error processing request", e);
+			throw new ServletException(e);
+		}
+
+		// pass the (possibly wrapped) request and response on, so filters see
+		// the completion
+		final AsyncContext asyncContext = request.startAsync(request, response);
+		if (asyncTimeout >= 0) {
+			asyncContext.setTimeout(asyncTimeout);
+		}
+		final AtomicBoolean done = new AtomicBoolean();
+		asyncContext.addListener(new AsyncListener() {
+			public void onTimeout(AsyncEvent event) throws IOException {
+				if (done.compareAndSet(false, true)) {
+					asyncLogger.error("Timed out processing exchangeId: " + exchange.getExchangeId());
+					response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+					asyncContext.complete();
+				}
+			}
+
+			public void onError(AsyncEvent event) throws IOException {
+				if (done.compareAndSet(false, true)) {
+					asyncLogger.error("Error processing exchangeId: " + exchange.getExchangeId(),
+							event.getThrowable());
+					asyncContext.complete();
+				}
+			}
+
+			public void onComplete(AsyncEvent event) throws IOException {
+			}
+
+			public void onStartAsync(AsyncEvent event) throws IOException {
+			}
+		});
+
+		try {
+			consumer.getAsyncProcessor().process(exchange, new AsyncCallback() {
+				public void done(boolean doneSync) {
+					complete(consumer, exchange, response, asyncContext, done);
+				}
+			});
+		} catch (Exception e) {
+			exchange.setException(e);
+			complete(consumer, exchange, response, asyncContext, done);
+		} finally {
+			restoreTccl(exchange, oldTccl);
+		}
+	}
+
+	/*
+	 * Writes the exchange out and completes the request, unless the
+	 * AsyncContext already timed out or failed.
+	 */
+	private void complete(HttpConsumer consumer, Exchange exchange, HttpServletResponse response,
+			AsyncContext asyncContext, AtomicBoolean done) {
+		if (!done.compareAndSet(false, true)) {
+			consumer.doneUoW(exchange);
+			return;
+		}
+		writeResponse(consumer, exchange, response);
+		asyncContext.complete();
+	}
+
+	private void writeResponse(HttpConsumer consumer, Exchange exchange, HttpServletResponse response) {
+		try {
+			Integer bs = consumer.getEndpoint().getResponseBufferSize();
+			if (bs != null) {
+				response.setBufferSize(bs);
+			}
+			consumer.getBinding().writeResponse(exchange, response);
+		} catch (Exception e) {
+			asyncLogger.error("Error writing response for exchangeId: " + exchange.getExchangeId(), e);
+			if (!response.isCommitted()) {
+				response.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+			}
+		} finally {
+			consumer.doneUoW(exchange);
+		}
+	}
+/*
 	static final Logger logger = LoggerFactory
 			.getLogger(AjscCamelServlet.class);
 
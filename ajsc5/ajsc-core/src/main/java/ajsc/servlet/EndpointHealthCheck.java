@@ -0,0 +1,163 @@
+/*******************************************************************************
+ * Copyright (c) 2016 AT&T Intellectual Property. All rights reserved.
+ *******************************************************************************/
+package ajsc.servlet;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import ajsc.ComputeService;
+
+/**
+ * Answers HEAD and DME2HealthCheck probes from an immutable snapshot of
+ * {@link ComputeService#endpointUriMap}. The snapshot is republished only by
+ * ComputeService, through {@link #refresh()}, whenever a route or context
+ * changes its endpoint registry, so a probe is a single set lookup and never reads the shared
+ * map, which ComputeService may be changing. Probe counts and latencies are
+ * kept for monitoring.
+ */
+public final class EndpointHealthCheck {
+
+	public static final String HEALTH_CHECK_HEADER = "DME2HealthCheck";
+	public static final String RESTLET_PREFIX = "restlet:";
+	public static final String PATH_SEPARATER = "/";
+
+	static final Logger logger = LoggerFactory.getLogger(EndpointHealthCheck.class);
+
+	// empty until ComputeService publishes its endpoints
+	private static final AtomicReference<Snapshot> snapshot = new AtomicReference<Snapshot>(new Snapshot(null));
+
+	private static final LongAdder probes = new LongAdder();
+	private static final LongAdder unavailable = new LongAdder();
+	private static final LongAdder totalLatencyNanos = new LongAdder();
+	private static final AtomicLong maxLatencyNanos = new AtomicLong();
+
+	private EndpointHealthCheck() {
+	}
+
+	/**
+	 * Republishes the endpoint snapshot from ComputeService.endpointUriMap.
+	 */
+	public static void refresh() {
+		Snapshot published = new Snapshot(ComputeService.endpointUriMap);
+		snapshot.set(published);
+		logger.debug("Health check snapshot published with " + published.endpoints.size() + " endpoints");
+	}
+
+	public static boolean isHealthCheck(HttpServletRequest request) {
+		return "HEAD".equalsIgnoreCase(request.getMethod()) || request.getHeader(HEALTH_CHECK_HEADER) != null;
+	}
+
+	/**
+	 * Sets 200 on the response when the requested service uri is a known
+	 * endpoint, 503 otherwise.
+	 *
+	 * @param restlet
+	 *            true to look the uri up among the restlet: endpoints
+	 * @return true if the endpoint is available
+	 */
+	public static boolean probe(HttpServletRequest request, HttpServletResponse response, boolean restlet) {
+		long start = System.nanoTime();
+		String serviceUri = getServiceUri(request);
+		Snapshot current = snapshot.get();
+		boolean available = (restlet ? current.restletEndpoints : current.endpoints).contains(serviceUri);
+		response.setStatus(available ? HttpServletResponse.SC_OK : HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+		if (logger.isDebugEnabled()) {
+			logger.debug("DME2HealthCheck - serviceUri " + serviceUri + ", setting response status "
+					+ (available ? 200 : 503));
+		}
+		record(System.nanoTime() - start, available);
+		return available;
+	}
+
+	static String getServiceUri(HttpServletRequest request) {
+		String servletPath = request.getServletPath();
+		if (servletPath == null || servletPath.isEmpty() || servletPath.equals("/*")) {
+			return request.getPathInfo();
+		}
+		return request.getPathInfo().replace(servletPath, PATH_SEPARATER);
+	}
+
+	private static void record(long latency, boolean available) {
+		probes.increment();
+		if (!available) {
+			unavailable.increment();
+		}
+		totalLatencyNanos.add(latency);
+		long max = maxLatencyNanos.get();
+		while (latency > max && !maxLatencyNanos.compareAndSet(max, latency)) {
+			max = maxLatencyNanos.get();
+		}
+	}
+
+	public static long getProbeCount() {
+		return probes.sum();
+	}
+
+	public static long getUnavailableCount() {
+		return unavailable.sum();
+	}
+
+	public static long getTotalLatencyNanos() {
+		return totalLatencyNanos.sum();
+	}
+
+	public static long getMaxLatencyNanos() {
+		return maxLatencyNanos.get();
+	}
+
+	/**
+	 * Probe counts and latencies (in microseconds) keyed by name, for JMX
+	 * and logging.
+	 */
+	public static Map<String, Long> getStatistics() {
+		long count = getProbeCount();
+		Map<String, Long> statistics = new LinkedHashMap<String, Long>();
+		statistics.put("probes", count);
+		statistics.put("unavailable", getUnavailableCount());
+		statistics.put("meanLatencyMicros", count == 0 ? 0 : getTotalLatencyNanos() / count / 1000);
+		statistics.put("maxLatencyMicros", getMaxLatencyNanos() / 1000);
+		statistics.put("endpoints", (long) snapshot.get().endpoints.size());
+		return statistics;
+	}
+
+	public static void resetStatistics() {
+		probes.reset();
+		unavailable.reset();
+		totalLatencyNanos.reset();
+		maxLatencyNanos.set(0);
+	}
+
+	private static final class Snapshot {
+		private final Set<String> endpoints;
+		private final Set<String> restletEndpoints;
+
+		private Snapshot(Map<String, String> source) {
+			Set<String> all = new HashSet<String>();
+			Set<String> restlet = new HashSet<String>();
+			if (source != null) {
+				for (Object key : source.keySet()) {
+					String uri = String.valueOf(key);
+					all.add(uri);
+					if (uri.startsWith(RESTLET_PREFIX)) {
+						restlet.add(uri.substring(RESTLET_PREFIX.length()));
+					}
+				}
+			}
+			this.endpoints = Collections.unmodifiableSet(all);
+			this.restletEndpoints = Collections.unmodifiableSet(restlet);
+		}
+	}
+}
@@ -0,0 +1,93 @@
+/*******************************************************************************
+ * Copyright (c) 2016 AT&T Intellectual Property. All rights reserved.
+ *******************************************************************************/
+package ajsc.servlet;
+
+import java.io.IOException;
+
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import ajsc.filters.LogLinearHistogram;
+import ajsc.filters.LogicalMethodMetrics;
+
+/**
+ * Serves the {@link LogicalMethodMetrics} histograms as JSON: one element per
+ * logical method and HTTP status with the request count and the latency
+ * (microseconds) and response size (bytes) percentiles. An optional
+ * "logicalMethod" parameter limits the output to one logical method. A
+ * DELETE resets the metrics.
+ */
+@SuppressWarnings("serial")
+public class LogicalMethodMetricsServlet extends HttpServlet {
+
+	public static final String LOGICAL_METHOD_PARAM = "logicalMethod";
+
+	private static final double[] PERCENTILES = { 50, 90, 99, 99.9 };
+	private static final String[] PERCENTILE_NAMES = { "p50", "p90", "p99", "p999" };
+
+	@Override
+	protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+		String filter = req.getParameter(LOGICAL_METHOD_PARAM);
+		LogicalMethodMetrics metrics = LogicalMethodMetrics.getInstance();
+		StringBuilder json = new StringBuilder(256);
+		json.append("{\"enabled\":").append(metrics.isEnabled());
+		json.append(",\"requests\":").append(metrics.getRequestCount());
+		json.append(",\"metrics\":[");
+		boolean first = true;
+		for (LogicalMethodMetrics.Entry entry : metrics.getEntries()) {
+			if (filter != null && !filter.equals(entry.getLogicalMethod())) {
+				continue;
+			}
+			if (!first) {
+				json.append(',');
+			}
+			first = false;
+			json.append("{\"logicalMethod\":");
+			appendString(json, entry.getLogicalMethod());
+			json.append(",\"status\":").append(entry.getStatus());
+			json.append(",\"count\":").append(entry.getLatency().getCount());
+			json.append(",\"latencyMicros\":");
+			appendHistogram(json, entry.getLatency());
+			json.append(",\"sizeBytes\":");
+			appendHistogram(json, entry.getSize());
+			json.append('}');
+		}
+		json.append("]}");
+
+		resp.setContentType("application/json;charset=utf-8");
+		resp.setHeader("Cache-Control", "no-cache,no-store");
+		resp.getWriter().print(json);
+	}
+
+	@Override
+	protected void doDelete(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+		LogicalMethodMetrics.getInstance().reset();
+		resp.setStatus(HttpServletResponse.SC_NO_CONTENT);
+	}
+
+	private static void appendHistogram(StringBuilder json, LogLinearHistogram histogram) {
+		json.append("{\"mean\":").append(histogram.getMean());
+		for (int i = 0; i < PERCENTILES.length; i++) {
+			json.append(",\"").append(PERCENTILE_NAMES[i]).append("\":")
+					.append(histogram.getValueAtPercentile(PERCENTILES[i]));
+		}
+		json.append(",\"max\":").append(histogram.getMax()).append('}');
+	}
+
+	private static void appendString(StringBuilder json, String value) {
+		json.append('"');
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if (c == '"' || c == '\\') {
+				json.append('\\').append(c);
+			} else if (c < 0x20) {
+				json.append(String.format("\\u%04x", (int) c));
+			} else {
+				json.append(c);
+			}
+		}
+		json.append('"');
+	}
+}
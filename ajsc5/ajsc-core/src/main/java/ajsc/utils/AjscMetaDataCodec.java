@@ -0,0 +1,214 @@
+/*******************************************************************************
+ * Copyright (c) 2016 AT&T Intellectual Property. All rights reserved.
+ *******************************************************************************/
+package ajsc.utils;
+
+import groovy.json.JsonOutput;
+import groovy.lang.MetaProperty;
+import groovy.lang.ReadOnlyPropertyException;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+/**
+ * JSON codec of one domain class, compiled once from its data properties.
+ * Objects are written field by field with a streaming generator and read
+ * back with a pull parser, so neither direction goes through an intermediate
+ * map of the whole document. The format is the one of
+ * groovy.json.JsonBuilder over the property map: a "class" member naming the
+ * type, then one member per property, dates as yyyy-MM-dd'T'HH:mm:ssZ in
+ * GMT. Property values other than strings, numbers, booleans, enums and
+ * dates are written with JsonOutput and read back as maps and lists, as
+ * JsonSlurper does.
+ */
+public final class AjscMetaDataCodec {
+
+	static final String DATE_FORMAT = "yyyy-MM-dd'T'HH:mm:ssZ";
+	private static final TimeZone GMT = TimeZone.getTimeZone("GMT");
+	private static final JsonFactory JSON = new JsonFactory();
+
+	private final Class<?> type;
+	private final MetaProperty[] properties;
+	private final Map<String, MetaProperty> propertiesByName = new HashMap<String, MetaProperty>();
+
+	public AjscMetaDataCodec(Class<?> type, List<? extends MetaProperty> properties) {
+		this.type = type;
+		this.properties = properties.toArray(new MetaProperty[properties.size()]);
+		for (MetaProperty property : this.properties) {
+			propertiesByName.put(property.getName(), property);
+		}
+	}
+
+	public Class<?> getType() {
+		return type;
+	}
+
+	public String toJson(Object obj) {
+		StringWriter out = new StringWriter(256);
+		try {
+			JsonGenerator generator = JSON.createGenerator(out);
+			// JsonOutput escapes everything outside of printable ASCII
+			generator.enable(JsonGenerator.Feature.ESCAPE_NON_ASCII);
+			generator.writeStartObject();
+			generator.writeStringField("class", obj.getClass().getName());
+			for (MetaProperty property : properties) {
+				generator.writeFieldName(property.getName());
+				writeValue(generator, property.getProperty(obj));
+			}
+			generator.writeEndObject();
+			generator.close();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return out.toString();
+	}
+
+	private static void writeValue(JsonGenerator generator, Object value) throws IOException {
+		if (value == null) {
+			generator.writeNull();
+		} else if (value instanceof CharSequence || value instanceof Character) {
+			generator.writeString(value.toString());
+		} else if (value instanceof Boolean) {
+			generator.writeBoolean((Boolean) value);
+		} else if (value instanceof Integer || value instanceof Long || value instanceof Short
+				|| value instanceof Byte) {
+			generator.writeNumber(((Number) value).longValue());
+		} else if (value instanceof BigDecimal) {
+			generator.writeNumber((BigDecimal) value);
+		} else if (value instanceof BigInteger) {
+			generator.writeNumber((BigInteger) value);
+		} else if (value instanceof Float) {
+			// as Float.toString, 1.1f widened to double would be 1.100000023841858
+			generator.writeNumber(((Float) value).floatValue());
+		} else if (value instanceof Double) {
+			generator.writeNumber(((Double) value).doubleValue());
+		} else if (value instanceof Date) {
+			generator.writeString(dateFormat().format((Date) value));
+		} else if (value instanceof Enum) {
+			generator.writeString(((Enum<?>) value).name());
+		} else {
+			generator.writeRawValue(JsonOutput.toJson(value));
+		}
+	}
+
+	/**
+	 * @return a new instance with the properties found in the JSON document;
+	 *         null members and members that are not data properties are
+	 *         ignored
+	 */
+	public Object fromJson(String json) {
+		Object obj;
+		try {
+			obj = type.newInstance();
+		} catch (InstantiationException e) {
+			throw new IllegalArgumentException("Cannot instantiate " + type.getName(), e);
+		} catch (IllegalAccessException e) {
+			throw new IllegalArgumentException("Cannot instantiate " + type.getName(), e);
+		}
+		try {
+			JsonParser parser = JSON.createParser(json);
+			try {
+				if (parser.nextToken() != JsonToken.START_OBJECT) {
+					throw new IllegalArgumentException("Expected a JSON object for " + type.getName());
+				}
+				while (parser.nextToken() == JsonToken.FIELD_NAME) {
+					MetaProperty property = propertiesByName.get(parser.getCurrentName());
+					JsonToken token = parser.nextToken();
+					if (property == null) {
+						parser.skipChildren();
+						continue;
+					}
+					Object value = readValue(parser, token);
+					if (value == null) {
+						continue;
+					}
+					if (property.getType() == Date.class && value instanceof String) {
+						value = parseDate((String) value);
+					}
+					try {
+						property.setProperty(obj, value);
+					} catch (ReadOnlyPropertyException e) {
+						// read-only properties are skipped, as by AjscMetaDataUtil
+					}
+				}
+			} finally {
+				parser.close();
+			}
+		} catch (IOException e) {
+			throw new IllegalArgumentException("Invalid JSON for " + type.getName() + ": " + e.getMessage(), e);
+		}
+		return obj;
+	}
+
+	/*
+	 * Reads the value at the current token with the types JsonSlurper
+	 * returns.
+	 */
+	private static Object readValue(JsonParser parser, JsonToken token) throws IOException {
+		switch (token) {
+		case VALUE_STRING:
+			return parser.getText();
+		case VALUE_NUMBER_INT:
+			switch (parser.getNumberType()) {
+			case INT:
+				return parser.getIntValue();
+			case LONG:
+				return parser.getLongValue();
+			default:
+				return parser.getBigIntegerValue();
+			}
+		case VALUE_NUMBER_FLOAT:
+			return parser.getDecimalValue();
+		case VALUE_TRUE:
+			return Boolean.TRUE;
+		case VALUE_FALSE:
+			return Boolean.FALSE;
+		case START_ARRAY:
+			List<Object> list = new ArrayList<Object>();
+			for (JsonToken next = parser.nextToken(); next != JsonToken.END_ARRAY; next = parser.nextToken()) {
+				list.add(readValue(parser, next));
+			}
+			return list;
+		case START_OBJECT:
+			Map<String, Object> map = new LinkedHashMap<String, Object>();
+			while (parser.nextToken() == JsonToken.FIELD_NAME) {
+				String name = parser.getCurrentName();
+				map.put(name, readValue(parser, parser.nextToken()));
+			}
+			return map;
+		default:
+			return null;
+		}
+	}
+
+	private static SimpleDateFormat dateFormat() {
+		SimpleDateFormat format = new SimpleDateFormat(DATE_FORMAT);
+		format.setTimeZone(GMT);
+		return format;
+	}
+
+	private static Date parseDate(String text) {
+		try {
+			return new SimpleDateFormat(DATE_FORMAT).parse(text);
+		} catch (ParseException e) {
+			throw new IllegalArgumentException("Invalid date " + text + ", expected " + DATE_FORMAT, e);
+		}
+	}
+}
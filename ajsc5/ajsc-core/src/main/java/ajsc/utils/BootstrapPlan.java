@@ -0,0 +1,228 @@
+/*******************************************************************************
+ * Copyright (c) 2016 AT&T Intellectual Property. All rights reserved.
+ *******************************************************************************/
+package ajsc.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The steps of a bootstrap and the steps each one needs done before it. A
+ * step runs as soon as those are done, on a bounded pool, so that steps that
+ * do not depend on each other overlap. Every step runs with the context
+ * class loader of the thread that runs the plan.
+ *
+ * The first step to fail stops the plan: no further step is started and the
+ * failure is thrown as an Error naming the step, as the bootstrap of
+ * RouteMgmtService fails; an Error thrown by the step is thrown as is, the
+ * step named in a suppressed exception. Steps already running are not
+ * interrupted. The duration of each step is kept for diagnosis.
+ */
+public final class BootstrapPlan {
+
+	private static final class Step {
+		final String name;
+		final Callable<?> task;
+		final List<String> after;
+		final List<Step> dependents = new ArrayList<Step>();
+		int pending;
+
+		Step(String name, Callable<?> task, List<String> after) {
+			this.name = name;
+			this.task = task;
+			this.after = after;
+		}
+	}
+
+	private final Map<String, Step> steps = new LinkedHashMap<String, Step>();
+	// step name -> milliseconds it ran, in the order they finished
+	private final Map<String, Long> millis = Collections.synchronizedMap(new LinkedHashMap<String, Long>());
+
+	/**
+	 * Adds a step that runs once all the steps named in after are done.
+	 */
+	public BootstrapPlan step(String name, Callable<?> task, String... after) {
+		if (steps.containsKey(name)) {
+			throw new IllegalArgumentException("Bootstrap step " + name + " is already declared");
+		}
+		steps.put(name, new Step(name, task, Arrays.asList(after)));
+		return this;
+	}
+
+	/**
+	 * Runs the steps, at most threads of them at a time; with one thread they
+	 * run on the calling thread, in the order they were declared where the
+	 * dependencies allow it.
+	 */
+	public void run(int threads) throws InterruptedException {
+		List<Step> ready = link();
+		if (threads <= 1) {
+			runInline(ready);
+		} else {
+			runPooled(ready, Math.min(threads, steps.size()));
+		}
+	}
+
+	/**
+	 * @return the milliseconds each step that completed ran, in the order
+	 *         they completed
+	 */
+	public Map<String, Long> getStepMillis() {
+		synchronized (millis) {
+			return new LinkedHashMap<String, Long>(millis);
+		}
+	}
+
+	/**
+	 * Checks that every step can run before any does.
+	 *
+	 * @return the steps that wait for no other step, those to start with
+	 */
+	private List<Step> link() {
+		List<Step> ready = new ArrayList<Step>();
+		for (Step step : steps.values()) {
+			step.dependents.clear();
+			step.pending = step.after.size();
+		}
+		for (Step step : steps.values()) {
+			for (String name : step.after) {
+				Step before = steps.get(name);
+				if (before == null) {
+					throw new IllegalArgumentException("Bootstrap step " + step.name + " runs after unknown step " + name);
+				}
+				before.dependents.add(step);
+			}
+			if (step.pending == 0) {
+				ready.add(step);
+			}
+		}
+		checkAcyclic(ready);
+		return ready;
+	}
+
+	/**
+	 * Releases the steps in dependency order without running them; the steps
+	 * never released wait for each other.
+	 */
+	private void checkAcyclic(List<Step> ready) {
+		Map<Step, Integer> pending = new HashMap<Step, Integer>();
+		for (Step step : steps.values()) {
+			pending.put(step, step.pending);
+		}
+		List<Step> released = new ArrayList<Step>(ready);
+		for (int i = 0; i < released.size(); i++) {
+			for (Step dependent : released.get(i).dependents) {
+				int left = pending.get(dependent) - 1;
+				pending.put(dependent, left);
+				if (left == 0) {
+					released.add(dependent);
+				}
+			}
+		}
+		if (released.size() < steps.size()) {
+			List<String> stuck = new ArrayList<String>();
+			for (Step step : steps.values()) {
+				if (pending.get(step) > 0) {
+					stuck.add(step.name);
+				}
+			}
+			throw new IllegalArgumentException("Bootstrap steps " + stuck + " depend on each other");
+		}
+	}
+
+	private void runInline(List<Step> ready) {
+		while (!ready.isEmpty()) {
+			Step step = ready.remove(0);
+			call(step, null);
+			ready.addAll(0, release(step));
+		}
+	}
+
+	private void runPooled(List<Step> ready, int threads) throws InterruptedException {
+		final ClassLoader loader = Thread.currentThread().getContextClassLoader();
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		CompletionService<Step> completion = new ExecutorCompletionService<Step>(executor);
+		try {
+			int running = 0;
+			while (true) {
+				for (final Step step : ready) {
+					completion.submit(new Callable<Step>() {
+						public Step call() {
+							return BootstrapPlan.this.call(step, loader);
+						}
+					});
+					running++;
+				}
+				if (running == 0) {
+					break;
+				}
+				Step finished;
+				try {
+					finished = completion.take().get();
+				} catch (ExecutionException e) {
+					// the step failure, already attributed
+					throw (Error) e.getCause();
+				}
+				running--;
+				ready = release(finished);
+			}
+		} finally {
+			// a failed plan leaves the steps still running to finish on their own
+			executor.shutdown();
+		}
+	}
+
+	private Step call(Step step, ClassLoader loader) {
+		Thread thread = Thread.currentThread();
+		ClassLoader previous = thread.getContextClassLoader();
+		if (loader != null) {
+			thread.setContextClassLoader(loader);
+		}
+		long start = System.nanoTime();
+		try {
+			step.task.call();
+		} catch (Error e) {
+			e.addSuppressed(new Exception(failure(step, start)));
+			throw e;
+		} catch (Throwable t) {
+			throw new Error(failure(step, start), t);
+		} finally {
+			if (loader != null) {
+				thread.setContextClassLoader(previous);
+			}
+		}
+		millis.put(step.name, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+		return step;
+	}
+
+	private static String failure(Step step, long start) {
+		return "Bootstrap step " + step.name + " failed after "
+				+ TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms";
+	}
+
+	/**
+	 * @return the dependents of the step done that have nothing left to wait
+	 *         for
+	 */
+	private static List<Step> release(Step done) {
+		List<Step> ready = new ArrayList<Step>();
+		for (Step dependent : done.dependents) {
+			if (--dependent.pending == 0) {
+				ready.add(dependent);
+			}
+		}
+		return ready;
+	}
+}
@@ -0,0 +1,310 @@
+/*******************************************************************************
+ * Copyright (c) 2016 AT&T Intellectual Property. All rights reserved.
+ *******************************************************************************/
+package ajsc.utils;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The input (from) endpoints of the routes in the Camel contexts of
+ * ComputeService, kept up to date as routes are added and removed so that a
+ * uniqueness check is a lookup rather than a scan of every route.
+ *
+ * The registry also keeps the service uri of each endpoint, the endpoint uri
+ * without braces and query, as served to AjscCamelServlet and the health
+ * checks through ComputeService.endpointUriMap. That map is live and safe to
+ * read while routes change. The service uris of the routes registered with
+ * GRM, and whatever else is put in the map, are kept apart from those of the
+ * routes, see {@link #registerDme2Uri}, so removing or reloading routes does
+ * not drop them.
+ *
+ * Every change is followed by a call to the listener given, still holding
+ * the registry, so whatever it publishes from the registry is never older
+ * than the change.
+ */
+public final class EndpointRegistry {
+
+	private static final class Registered {
+		final String ctxKey;
+		final List<String> uris;
+		final List<String> serviceUris;
+
+		Registered(String ctxKey, List<String> uris, List<String> serviceUris) {
+			this.ctxKey = ctxKey;
+			this.uris = uris;
+			this.serviceUris = serviceUris;
+		}
+	}
+
+	private final Map<String, Registered> routes = new HashMap<String, Registered>();
+	// endpoint uri -> ids of the routes it is the input of, in registration order
+	private final Map<String, List<String>> endpoints = new HashMap<String, List<String>>();
+	private final Map<String, List<String>> serviceUriRoutes = new HashMap<String, List<String>>();
+	// service uri -> id of the last route registered with it
+	private final Map<String, String> serviceUris = new ConcurrentHashMap<String, String>();
+	// service uri -> DME2 url registered with GRM
+	private final Map<String, String> dme2Uris = new ConcurrentHashMap<String, String>();
+	private final Runnable listener;
+	private final Map<String, String> serviceUriView = new ServiceUriView();
+
+	public EndpointRegistry() {
+		this(null);
+	}
+
+	/**
+	 * @param listener
+	 *            called after every change of the registry, null for none
+	 */
+	public EndpointRegistry(Runnable listener) {
+		this.listener = listener;
+	}
+
+	/**
+	 * Registers the inputs of a route, replacing those it had.
+	 */
+	public synchronized void register(String ctxKey, String routeId, Collection<String> uris) {
+		removeRoute(routeId);
+		List<String> inputs = new ArrayList<String>(uris.size());
+		List<String> services = new ArrayList<String>(uris.size());
+		for (String uri : uris) {
+			if (uri == null) {
+				continue;
+			}
+			String serviceUri = toServiceUri(uri);
+			inputs.add(uri);
+			services.add(serviceUri);
+			add(endpoints, uri, routeId);
+			add(serviceUriRoutes, serviceUri, routeId);
+			serviceUris.put(serviceUri, routeId);
+		}
+		routes.put(routeId, new Registered(ctxKey, inputs, services));
+		changed();
+	}
+
+	public synchronized void unregister(String routeId) {
+		if (removeRoute(routeId)) {
+			changed();
+		}
+	}
+
+	/**
+	 * @return false if the route was not registered
+	 */
+	private boolean removeRoute(String routeId) {
+		Registered registered = routes.remove(routeId);
+		if (registered == null) {
+			return false;
+		}
+		for (String uri : registered.uris) {
+			remove(endpoints, uri, routeId);
+		}
+		for (String serviceUri : registered.serviceUris) {
+			List<String> others = remove(serviceUriRoutes, serviceUri, routeId);
+			if (routeId.equals(serviceUris.get(serviceUri))) {
+				if (others == null) {
+					serviceUris.remove(serviceUri);
+				} else {
+					serviceUris.put(serviceUri, others.get(others.size() - 1));
+				}
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Unregisters the routes of a context that was stopped or removed.
+	 */
+	public synchronized void unregisterContext(String ctxKey) {
+		List<String> routeIds = new ArrayList<String>();
+		for (Map.Entry<String, Registered> entry : routes.entrySet()) {
+			if (entry.getValue().ctxKey.equals(ctxKey)) {
+				routeIds.add(entry.getKey());
+			}
+		}
+		for (String routeId : routeIds) {
+			removeRoute(routeId);
+		}
+		if (!routeIds.isEmpty()) {
+			changed();
+		}
+	}
+
+	public synchronized void clear() {
+		routes.clear();
+		endpoints.clear();
+		serviceUriRoutes.clear();
+		serviceUris.clear();
+		changed();
+	}
+
+	/**
+	 * @return the id of another route one of the uris is the input of, null
+	 *         if they are unique
+	 */
+	public synchronized String findConflict(String routeId, Collection<String> uris) {
+		for (String uri : uris) {
+			List<String> owners = endpoints.get(uri);
+			if (owners != null) {
+				for (String owner : owners) {
+					if (!owner.equals(routeId)) {
+						return owner;
+					}
+				}
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * @return the id of the route the uri is the input of, null if none
+	 */
+	public synchronized String getRouteId(String uri) {
+		List<String> owners = endpoints.get(uri);
+		return owners == null ? null : owners.get(0);
+	}
+
+	/**
+	 * @return a copy of the endpoint uris, by id of the route they are the
+	 *         input of
+	 */
+	public synchronized Map<String, String> getEndpoints() {
+		Map<String, String> copy = new HashMap<String, String>();
+		for (Map.Entry<String, List<String>> entry : endpoints.entrySet()) {
+			copy.put(entry.getKey(), entry.getValue().get(0));
+		}
+		return copy;
+	}
+
+	/**
+	 * @return the live map of service uris to the ids of their routes, or to
+	 *         the DME2 urls of the uris registered with GRM; a put or remove
+	 *         registers or unregisters a DME2 uri
+	 */
+	public Map<String, String> getServiceUris() {
+		return serviceUriView;
+	}
+
+	/**
+	 * @return a copy of the service uris of the routes, by id of the route
+	 */
+	public synchronized Map<String, String> getRouteServiceUris() {
+		return new HashMap<String, String>(serviceUris);
+	}
+
+	/**
+	 * Keeps the service uri of a route registered with GRM, which the health
+	 * checks answer for until the JVM stops.
+	 */
+	public synchronized void registerDme2Uri(String serviceUri, String dme2Url) {
+		dme2Uris.put(serviceUri, dme2Url);
+		changed();
+	}
+
+	/**
+	 * @return the DME2 url the service uri was registered with, null if none
+	 */
+	public synchronized String unregisterDme2Uri(String serviceUri) {
+		String dme2Url = dme2Uris.remove(serviceUri);
+		if (dme2Url != null) {
+			changed();
+		}
+		return dme2Url;
+	}
+
+	public synchronized int size() {
+		return routes.size();
+	}
+
+	/**
+	 * The service uris of the routes over the DME2 uris; writes go to the
+	 * latter.
+	 */
+	private final class ServiceUriView extends AbstractMap<String, String> {
+
+		@Override
+		public String get(Object serviceUri) {
+			String routeId = serviceUris.get(serviceUri);
+			return routeId != null ? routeId : dme2Uris.get(serviceUri);
+		}
+
+		@Override
+		public boolean containsKey(Object serviceUri) {
+			return serviceUris.containsKey(serviceUri) || dme2Uris.containsKey(serviceUri);
+		}
+
+		@Override
+		public String put(String serviceUri, String dme2Url) {
+			String previous = get(serviceUri);
+			registerDme2Uri(serviceUri, dme2Url);
+			return previous;
+		}
+
+		@Override
+		public String remove(Object serviceUri) {
+			return unregisterDme2Uri(String.valueOf(serviceUri));
+		}
+
+		@Override
+		public Set<Map.Entry<String, String>> entrySet() {
+			Map<String, String> all = new HashMap<String, String>(dme2Uris);
+			all.putAll(serviceUris);
+			return Collections.unmodifiableMap(all).entrySet();
+		}
+	}
+
+	private void changed() {
+		if (listener != null) {
+			listener.run();
+		}
+	}
+
+	private static void add(Map<String, List<String>> index, String key, String routeId) {
+		List<String> routeIds = index.get(key);
+		if (routeIds == null) {
+			// almost always the only route
+			routeIds = new ArrayList<String>(1);
+			index.put(key, routeIds);
+		}
+		routeIds.add(routeId);
+	}
+
+	/**
+	 * @return the routes left with the key, null if none
+	 */
+	private static List<String> remove(Map<String, List<String>> index, String key, String routeId) {
+		List<String> routeIds = index.get(key);
+		if (routeIds == null) {
+			return null;
+		}
+		routeIds.remove(routeId);
+		if (routeIds.isEmpty()) {
+			index.remove(key);
+			return null;
+		}
+		return routeIds;
+	}
+
+	/**
+	 * @return the endpoint uri without braces and query, with the
+	 *         att-dme2-servlet scheme replaced by /
+	 */
+	public static String toServiceUri(String uri) {
+		String serviceUri = uri.replace("{", "").replace("}", "").split("\\?")[0];
+		if (serviceUri.contains("att-dme2-servlet:///")) {
+			serviceUri = serviceUri.replace("att-dme2-servlet:///", "/");
+		} else if (serviceUri.contains("att-dme2-servlet://")) {
+			serviceUri = serviceUri.replace("att-dme2-servlet://", "/");
+		} else if (serviceUri.contains("servlet:/")) {
+			serviceUri = serviceUri.replace("att-dme2-servlet:/", "/");
+		}
+		return serviceUri;
+	}
+}
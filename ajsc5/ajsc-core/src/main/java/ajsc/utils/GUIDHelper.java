@@ -10,6 +10,7 @@
 package ajsc.utils;
 
 import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
 
 import ajsc.common.CommonNames;
 
@@ -17,6 +18,23 @@ public class GUIDHelper {
 
 	static final String CONVERSATION_PREPEND = "~CNG-CSI~";
 
+	/**
+	 * Selects how {@link #createGUID()} generates ids: "random" (default) for
+	 * UUID.randomUUID(), "time" for time ordered ids built from per thread
+	 * random state.
+	 */
+	public static final String SYSPROP_GUID_GENERATOR = "AJSC_GUID_GENERATOR";
+	public static final String GUID_GENERATOR_RANDOM = "random";
+	public static final String GUID_GENERATOR_TIME = "time";
+
+	private static final boolean TIME_ORDERED = GUID_GENERATOR_TIME
+			.equalsIgnoreCase(System.getProperty(SYSPROP_GUID_GENERATOR, GUID_GENERATOR_RANDOM).trim());
+
+	private static final byte[] CONVERSATION_ID_TAG = "conversationId>".getBytes();
+	private static final byte[] END_TAG = "</".getBytes();
+
+	private static volatile TransactionIdPrefix transactionIdPrefix;
+
 	/**
 	 * returns the unique conversation id in the CSI format
 	 * @param partnerName - the partnername to prepend
@@ -32,11 +50,13 @@ public class GUIDHelper {
 	 */
 	public static String createUniqueTransactionId()
 	{
-		return CommonNames.AJSC_CSI_RESTFUL 
-				+ SystemParams.instance().getPid() 
-				+ "@" 
-				+ SystemParams.instance().getVtier() 
-				+ createGUID();
+		SystemParams params = SystemParams.instance();
+		TransactionIdPrefix prefix = transactionIdPrefix;
+		if (prefix == null || prefix.params != params) {
+			prefix = new TransactionIdPrefix(params);
+			transactionIdPrefix = prefix;
+		}
+		return prefix.value.concat(createGUID());
 	}
 	
 
@@ -50,13 +70,37 @@ public class GUIDHelper {
 	}
 
 	/**
-	 * returns a Unique Universal identifier
+	 * returns a Unique Universal identifier, generated as configured by
+	 * {@link #SYSPROP_GUID_GENERATOR}
 	 * @return - the GUID generated
 	 */
-	public synchronized static String createGUID() {
+	public static String createGUID() {
+		return TIME_ORDERED ? createTimeOrderedGUID() : createRandomGUID();
+	}
+
+	/**
+	 * returns a random (version 4) UUID
+	 * @return - the GUID generated
+	 */
+	public static String createRandomGUID() {
 		return UUID.randomUUID().toString();
 	}
 
+	/**
+	 * returns a time ordered UUID: 48 bits of epoch milliseconds, the version
+	 * 7 nibble, the IETF variant and 74 random bits taken from the calling
+	 * thread's ThreadLocalRandom, so concurrent callers never share a lock or
+	 * a SecureRandom. The ids sort by creation time at millisecond
+	 * granularity and keep the 8-4-4-4-12 format of {@link #createRandomGUID()}.
+	 * @return - the GUID generated
+	 */
+	public static String createTimeOrderedGUID() {
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		long msb = (System.currentTimeMillis() << 16) | 0x7000L | (random.nextInt() & 0x0FFFL);
+		long lsb = (random.nextLong() & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L;
+		return new UUID(msb, lsb).toString();
+	}
+
 	/**
 	 * Checks if the conversation ID is of the proper CSI conversation id format.
 	 *
@@ -87,23 +131,65 @@ public class GUIDHelper {
 			return createCSIConversationId(partnerName);
 	}
 	
+	/**
+	 * Replaces the text of the first conversationId element of the message
+	 * with the given conversation id.
+	 * @return the updated message, or an empty string if the message has no
+	 *         conversationId element
+	 */
 	public static String insertConversationId(byte[] message, String conversationId ) {
-		
-			String data = new String (message);
-			String finalMessage = "";
-			int firstPos = data.indexOf("conversationId>");
-			int lastPos = -1;
-			if(firstPos != -1) {
-					lastPos = data.indexOf("</", firstPos);
-					String firstPart = "";
-					if(lastPos != -1) {
-						firstPart = data.substring(0, firstPos + 15);
-						String lastPart = data.substring(lastPos , data.length()); 
-						finalMessage = firstPart.concat(conversationId).concat(lastPart);
-						
-					}
+		byte[] updated = replaceConversationId(message, conversationId);
+		return updated == null ? "" : new String(updated);
+	}
+
+	/**
+	 * Byte level variant of {@link #insertConversationId(byte[], String)}: the
+	 * element is located and replaced without decoding the message.
+	 * @return the updated message, or null if the message has no
+	 *         conversationId element
+	 */
+	public static byte[] replaceConversationId(byte[] message, String conversationId) {
+		int firstPos = indexOf(message, CONVERSATION_ID_TAG, 0);
+		if (firstPos == -1) {
+			return null;
+		}
+		int start = firstPos + CONVERSATION_ID_TAG.length;
+		int lastPos = indexOf(message, END_TAG, start);
+		if (lastPos == -1) {
+			return null;
+		}
+		byte[] id = conversationId.getBytes();
+		byte[] updated = new byte[start + id.length + message.length - lastPos];
+		System.arraycopy(message, 0, updated, 0, start);
+		System.arraycopy(id, 0, updated, start, id.length);
+		System.arraycopy(message, lastPos, updated, start + id.length, message.length - lastPos);
+		return updated;
+	}
+
+	private static int indexOf(byte[] data, byte[] target, int from) {
+		int last = data.length - target.length;
+		outer: for (int i = from; i <= last; i++) {
+			for (int j = 0; j < target.length; j++) {
+				if (data[i + j] != target[j]) {
+					continue outer;
+				}
 			}
-		return finalMessage;
+			return i;
+		}
+		return -1;
+	}
+
+	/**
+	 * Transaction id prefix of the current SystemParams instance.
+	 */
+	private static final class TransactionIdPrefix {
+		private final SystemParams params;
+		private final String value;
+
+		private TransactionIdPrefix(SystemParams params) {
+			this.params = params;
+			this.value = CommonNames.AJSC_CSI_RESTFUL + params.getPid() + "@" + params.getVtier();
+		}
 	}
 
 //	public static void main(String[] args){
@@ -0,0 +1,161 @@
+/*******************************************************************************
+ * Copyright (c) 2016 AT&T Intellectual Property. All rights reserved.
+ *******************************************************************************/
+package ajsc.utils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A text with {{key}} placeholders, split once into the literal text between
+ * the placeholders and their keys, as AjscTemplateEngine.propertyReplace
+ * renders it: new lines are normalized to \n, new lines in a key are
+ * dropped, and a placeholder whose key has no value is kept as {{key}}.
+ *
+ * Templates are kept by text, the most recently used first, so a route
+ * reloaded with the same XML is not parsed again.
+ */
+public final class PropertyTemplate {
+
+	static final int CACHE_SIZE = 256;
+
+	private static final Map<String, PropertyTemplate> cache = Collections
+			.synchronizedMap(new LinkedHashMap<String, PropertyTemplate>(16, 0.75f, true) {
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				protected boolean removeEldestEntry(Map.Entry<String, PropertyTemplate> eldest) {
+					return size() > CACHE_SIZE;
+				}
+			});
+
+	// literals[i] comes before placeholder i, and the last literal after the
+	// last placeholder; the key of placeholder i is keys[slots[i]]
+	private final String[] literals;
+	private final int[] slots;
+	private final String[] keys;
+	private final int literalLength;
+
+	private PropertyTemplate(List<String> literals, List<String> placeholders) {
+		this.literals = literals.toArray(new String[literals.size()]);
+		Map<String, Integer> distinct = new LinkedHashMap<String, Integer>();
+		slots = new int[placeholders.size()];
+		for (int i = 0; i < slots.length; i++) {
+			String key = placeholders.get(i);
+			Integer slot = distinct.get(key);
+			if (slot == null) {
+				slot = distinct.size();
+				distinct.put(key, slot);
+			}
+			slots[i] = slot;
+		}
+		keys = distinct.keySet().toArray(new String[distinct.size()]);
+		int length = 0;
+		for (String literal : literals) {
+			length += literal.length();
+		}
+		literalLength = length;
+	}
+
+	/**
+	 * @return the template of the text, compiled once while it is among the
+	 *         last ones used
+	 */
+	public static PropertyTemplate of(String text) {
+		PropertyTemplate template = cache.get(text);
+		if (template == null) {
+			template = compile(text);
+			cache.put(text, template);
+		}
+		return template;
+	}
+
+	public static PropertyTemplate compile(String text) {
+		List<String> literals = new ArrayList<String>();
+		List<String> placeholders = new ArrayList<String>();
+		StringBuilder literal = new StringBuilder(text.length());
+		int n = text.length();
+		int i = 0;
+		while (i < n) {
+			char c = text.charAt(i++);
+			if (c == '{') {
+				if (i < n && text.charAt(i) == '{') {
+					i = readKey(text, i + 1, literal, placeholders);
+					literals.add(literal.toString());
+					literal.setLength(0);
+				} else {
+					literal.append(c);
+				}
+			} else if (c == '\r') {
+				// on Windows, "\r\n" is a new line
+				if (i < n && text.charAt(i) == '\n') {
+					i++;
+				}
+				literal.append('\n');
+			} else {
+				literal.append(c);
+			}
+		}
+		literals.add(literal.toString());
+		return new PropertyTemplate(literals, placeholders);
+	}
+
+	/**
+	 * Reads the key of a placeholder up to }} or the end of the text. A
+	 * single } is part of the key and, as propertyReplace always did, also
+	 * written before the placeholder.
+	 *
+	 * @return the index after the placeholder
+	 */
+	private static int readKey(String text, int i, StringBuilder literal, List<String> placeholders) {
+		StringBuilder key = new StringBuilder();
+		int n = text.length();
+		while (i < n) {
+			char c = text.charAt(i++);
+			if (c == '}') {
+				if (i < n && text.charAt(i) == '}') {
+					i++;
+					break;
+				}
+				literal.append(c);
+				key.append(c);
+			} else if (c != '\n' && c != '\r') {
+				key.append(c);
+			}
+		}
+		placeholders.add(key.toString());
+		return i;
+	}
+
+	/**
+	 * Replaces the placeholders with the values of the properties. Each key is
+	 * read once, before the text is built, so a placeholder repeated in the
+	 * text has the same value throughout.
+	 */
+	public String render(Map<?, ?> properties) {
+		if (slots.length == 0) {
+			return literals[0];
+		}
+		String[] values = new String[keys.length];
+		for (int i = 0; i < keys.length; i++) {
+			Object value = properties.get(keys[i]);
+			if (value == null && !properties.containsKey(keys[i])) {
+				values[i] = "{{" + keys[i] + "}}";
+			} else {
+				values[i] = String.valueOf(value);
+			}
+		}
+		int length = literalLength;
+		for (int slot : slots) {
+			length += values[slot].length();
+		}
+		StringBuilder out = new StringBuilder(length);
+		for (int i = 0; i < slots.length; i++) {
+			out.append(literals[i]).append(values[slots[i]]);
+		}
+		return out.append(literals[slots.length]).toString();
+	}
+}
@@ -0,0 +1,127 @@
+/*******************************************************************************
+ * Copyright (c) 2016 AT&T Intellectual Property. All rights reserved.
+ *******************************************************************************/
+package ajsc.utils;
+
+import java.io.StringReader;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Unmarshaller;
+
+import org.apache.camel.model.RouteDefinition;
+
+/**
+ * Parses the XML of ComputeRoutes into Camel RouteDefinitions. The JAXB
+ * context over the Camel model is built once per JVM and its Unmarshallers,
+ * which are not thread safe, are pooled, so routes can be parsed from
+ * several threads.
+ *
+ * The last definition parsed for a route is kept until it is taken to be
+ * added to a Camel context, and returned again while the XML of the route is
+ * unchanged: validating a route and then adding it parses it once. A taken
+ * definition belongs to its context and is never handed out again. At most
+ * MAX_KEPT definitions are kept, so routes validated but never added do not
+ * pile up: past that, a route is parsed again when it is added.
+ */
+public final class RouteDefinitionCompiler {
+
+	static final String MODEL_PACKAGES = "org.apache.camel:org.apache.camel.model:org.apache.camel.model.config"
+			+ ":org.apache.camel.model.dataformat:org.apache.camel.model.language:org.apache.camel.model.loadbalancer";
+
+	static final int MAX_KEPT = 1024;
+
+	private static volatile JAXBContext context;
+
+	private static final class Parsed {
+		final String xml;
+		final RouteDefinition route;
+
+		Parsed(String xml, RouteDefinition route) {
+			this.xml = xml;
+			this.route = route;
+		}
+	}
+
+	private final Queue<Unmarshaller> unmarshallers = new ConcurrentLinkedQueue<Unmarshaller>();
+	private final ConcurrentMap<String, Parsed> parsed = new ConcurrentHashMap<String, Parsed>();
+
+	static JAXBContext getContext() throws JAXBException {
+		JAXBContext current = context;
+		if (current == null) {
+			synchronized (RouteDefinitionCompiler.class) {
+				current = context;
+				if (current == null) {
+					current = JAXBContext.newInstance(MODEL_PACKAGES);
+					context = current;
+				}
+			}
+		}
+		return current;
+	}
+
+	/**
+	 * @param routeId
+	 *            the id given to the route
+	 * @param xml
+	 *            the route XML, its properties already replaced
+	 * @return the definition of the route, kept for the next call with the
+	 *         same XML; null if the XML is not a single route
+	 */
+	public RouteDefinition compile(String routeId, String xml) throws JAXBException {
+		Parsed last = parsed.get(routeId);
+		if (last != null && last.xml.equals(xml)) {
+			return last.route;
+		}
+		RouteDefinition route = parse(routeId, xml);
+		if (route != null && (last != null || parsed.size() < MAX_KEPT)) {
+			parsed.put(routeId, new Parsed(xml, route));
+		}
+		return route;
+	}
+
+	/**
+	 * @return the definition of the route, to be added to a context: the
+	 *         kept one if its XML is the same, which is no longer kept
+	 */
+	public RouteDefinition take(String routeId, String xml) throws JAXBException {
+		Parsed last = parsed.remove(routeId);
+		if (last != null && last.xml.equals(xml)) {
+			return last.route;
+		}
+		return parse(routeId, xml);
+	}
+
+	public void evict(String routeId) {
+		parsed.remove(routeId);
+	}
+
+	/**
+	 * @return the number of routes whose definition is kept
+	 */
+	public int size() {
+		return parsed.size();
+	}
+
+	private RouteDefinition parse(String routeId, String xml) throws JAXBException {
+		Unmarshaller unmarshaller = unmarshallers.poll();
+		if (unmarshaller == null) {
+			unmarshaller = getContext().createUnmarshaller();
+		}
+		try {
+			Object value = unmarshaller.unmarshal(new StringReader(xml));
+			if (!(value instanceof RouteDefinition)) {
+				return null;
+			}
+			RouteDefinition route = (RouteDefinition) value;
+			route.routeId(routeId);
+			return route;
+		} finally {
+			unmarshallers.offer(unmarshaller);
+		}
+	}
+}
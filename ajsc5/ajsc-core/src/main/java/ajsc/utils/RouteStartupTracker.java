@@ -0,0 +1,133 @@
+/*******************************************************************************
+ * Copyright (c) 2016 AT&T Intellectual Property. All rights reserved.
+ *******************************************************************************/
+package ajsc.utils;
+
+import java.util.Collection;
+import java.util.EventObject;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.camel.management.event.AbstractRouteEvent;
+import org.apache.camel.management.event.RouteAddedEvent;
+import org.apache.camel.management.event.RouteRemovedEvent;
+import org.apache.camel.management.event.RouteStartedEvent;
+import org.apache.camel.management.event.RouteStoppedEvent;
+import org.apache.camel.spi.EventNotifier;
+import org.apache.camel.support.EventNotifierSupport;
+
+/**
+ * Follows the routes of Camel contexts as they are added, started, stopped
+ * and removed, so that a caller can wait until a set of routes is started
+ * with one timeout instead of polling the route status. The time from added
+ * to started of each route is kept for diagnosis.
+ *
+ * Each context gets its own {@link #newNotifier() notifier}, which the
+ * context stops with itself, feeding the shared tracker. The notifiers only
+ * enable route events, exchange events are not created for them.
+ */
+public final class RouteStartupTracker {
+
+	// route id -> System.nanoTime() when it was added
+	private final Map<String, Long> added = new HashMap<String, Long>();
+	// route id -> nanoseconds from added to started, for the started routes
+	private final Map<String, Long> started = new LinkedHashMap<String, Long>();
+
+	private final class Notifier extends EventNotifierSupport {
+
+		Notifier() {
+			setIgnoreCamelContextEvents(true);
+			setIgnoreServiceEvents(true);
+			setIgnoreExchangeEvents(true);
+		}
+
+		public boolean isEnabled(EventObject event) {
+			return event instanceof AbstractRouteEvent;
+		}
+
+		public void notify(EventObject event) throws Exception {
+			record((AbstractRouteEvent) event);
+		}
+
+		@Override
+		protected void doStart() throws Exception {
+			// nothing to start
+		}
+
+		@Override
+		protected void doStop() throws Exception {
+			// nothing to stop
+		}
+	}
+
+	/**
+	 * @return a notifier to add to the management strategy of one context
+	 */
+	public EventNotifier newNotifier() {
+		return new Notifier();
+	}
+
+	void record(AbstractRouteEvent event) {
+		String routeId = event.getRoute().getId();
+		long now = System.nanoTime();
+		synchronized (this) {
+			if (event instanceof RouteAddedEvent) {
+				added.put(routeId, now);
+			} else if (event instanceof RouteStartedEvent) {
+				Long since = added.get(routeId);
+				started.remove(routeId);
+				started.put(routeId, since == null ? 0L : now - since);
+				notifyAll();
+			} else if (event instanceof RouteStoppedEvent) {
+				started.remove(routeId);
+			} else if (event instanceof RouteRemovedEvent) {
+				started.remove(routeId);
+				added.remove(routeId);
+			}
+		}
+	}
+
+	/**
+	 * Waits until all the routes are started.
+	 *
+	 * @return true if they are, false if the timeout elapsed first
+	 */
+	public synchronized boolean awaitStarted(Collection<String> routeIds, long timeout, TimeUnit unit)
+			throws InterruptedException {
+		long deadline = System.nanoTime() + unit.toNanos(timeout);
+		while (!started.keySet().containsAll(routeIds)) {
+			long remaining = deadline - System.nanoTime();
+			if (remaining <= 0) {
+				return false;
+			}
+			TimeUnit.NANOSECONDS.timedWait(this, remaining);
+		}
+		return true;
+	}
+
+	/**
+	 * @return the routes among routeIds that are not started
+	 */
+	public synchronized Set<String> getNotStarted(Collection<String> routeIds) {
+		Set<String> notStarted = new LinkedHashSet<String>(routeIds);
+		notStarted.removeAll(started.keySet());
+		return notStarted;
+	}
+
+	/**
+	 * @return the milliseconds each started route took from added to
+	 *         started, in the order they started; 0 if it was added before
+	 *         the notifier of its context
+	 */
+	public synchronized Map<String, Long> getStartupMillis() {
+		Map<String, Long> millis = new LinkedHashMap<String, Long>();
+		for (Map.Entry<String, Long> entry : started.entrySet()) {
+			millis.put(entry.getKey(), TimeUnit.NANOSECONDS.toMillis(entry.getValue()));
+		}
+		return millis;
+	}
+}
@@ -3,7 +3,32 @@
  *******************************************************************************/
 package com.att.ajsc.csi.restmethodmap;
 
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
 
 public enum HttpMethod {
-    starstar, get, put, post, mkcol, copy, delete, propfind, ace, report, lock, unlock, move, proppatch, patch, head, trace, connect, options
+    starstar, get, put, post, mkcol, copy, delete, propfind, ace, report, lock, unlock, move, proppatch, patch, head, trace, connect, options;
+
+    private static final Map<String, HttpMethod> REQUEST_METHODS = new HashMap<String, HttpMethod>();
+
+    static {
+        for (HttpMethod method : values()) {
+            REQUEST_METHODS.put(method.name(), method);
+            REQUEST_METHODS.put(method.name().toUpperCase(Locale.ROOT), method);
+        }
+    }
+
+    /**
+     * Same as valueOf(requestMethod.toLowerCase()) without allocating for
+     * the upper and lower case method names sent by clients.
+     *
+     * @throws IllegalArgumentException
+     *             if the method is unknown
+     */
+    public static HttpMethod fromRequestMethod(String requestMethod) {
+        HttpMethod method = REQUEST_METHODS.get(requestMethod);
+        return method != null ? method : valueOf(requestMethod.toLowerCase());
+    }
 }
@@ -51,6 +51,8 @@ public class RefresheableSimpleRouteMatcher
 					newMatcher.parseValidateAddRoute(service, method, url, logicalName, dme2url, type, serviceName,passThroughRespCode);
  				}
  			}			
+			logger.info("Compiling route index...");
+			newMatcher.compile();
 			sm.set(newMatcher);
 		}
 	
@@ -6,16 +6,15 @@ package com.att.ajsc.csi.restmethodmap;
 import java.io.File;
 import java.util.Map;
 
+import javax.servlet.ServletRequest;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.att.ajsc.csi.writeablerequestfilter.WriteableRequestFilter;
-import com.att.ajsc.csi.writeablerequestfilter.WriteableRequestWrapper;
-
 import ajsc.beans.interceptors.AjscInterceptor;
+import ajsc.common.CommonNames;
 
 public class RestMethodMapInterceptor implements AjscInterceptor 
 {
@@ -62,23 +61,35 @@ public class RestMethodMapInterceptor implements AjscInterceptor
 		}
 	}
 	
+	/**
+	 * @return the RouteMatch this interceptor resolved for the request, or
+	 *         null if the request did not match a method map route
+	 */
+	public static RouteMatch getRouteMatch(ServletRequest req)
+	{
+		Object routeMatch = req.getAttribute(CommonNames.ROUTE_MATCH);
+		return routeMatch instanceof RouteMatch ? (RouteMatch) routeMatch : null;
+	}
+
 	@Override
+	@SuppressWarnings("unchecked")
 	public boolean allowOrReject(HttpServletRequest req, HttpServletResponse resp, Map<?, ?> params) 
 				   throws Exception 
 	{
 		boolean allow = true;
 		try
 		{
-			WriteableRequestWrapper request = null;
-			if ( "true".equalsIgnoreCase(req.getHeader(WriteableRequestFilter.WRITEABLE_FILTER_INDICATOR)) )
-				request = (WriteableRequestWrapper)req;
-			else
-				request = new WriteableRequestWrapper(req);
-			
-			String uri = request.getRequestURI();
-			HttpMethod httpMethod = HttpMethod.valueOf(request.getMethod().toLowerCase());
+			// only the URI and method are read, so the request is not wrapped
+			String uri = req.getRequestURI();
+			HttpMethod httpMethod = HttpMethod.fromRequestMethod(req.getMethod());
 			RouteMatcher matcher = RefresheableSimpleRouteMatcher.getRouteMatcher();
-			matcher.findTargetForRequestedRoute(httpMethod, uri);
+			RouteMatch routeMatch = matcher.findTargetForRequestedRoute(httpMethod, uri);
+			if (routeMatch != null) {
+				// keyed by logical method in the InterceptorFilter metrics,
+				// downstream code reads it through getRouteMatch(request)
+				((Map<Object, Object>) params).put(CommonNames.ROUTE_MATCH, routeMatch);
+				req.setAttribute(CommonNames.ROUTE_MATCH, routeMatch);
+			}
 		}
 		catch ( Exception e )
 		{
@@ -0,0 +1,116 @@
+/*******************************************************************************
+ * Copyright (c) 2016 AT&T Intellectual Property. All rights reserved.
+ *******************************************************************************/
+package com.att.ajsc.csi.restmethodmap;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounded cache of route lookups keyed by HTTP method and request path. A
+ * lookup is a read of a ConcurrentHashMap per method, without locking or
+ * allocating, so requests for the same hot path do not wait on each other.
+ * A lookup that found no route is cached as well.
+ *
+ * Eviction is approximate, with the clock algorithm: a lookup marks its
+ * entry as referenced, and once the cache holds more than its size the
+ * thread adding an entry sweeps the entries, removing those not referenced
+ * since the last sweep and unmarking the others. The cache may briefly hold
+ * a few entries over its size while another thread is sweeping.
+ */
+final class RouteLookupCache<V> {
+
+	private static final Object NO_ROUTE = new Object();
+
+	private final int maxSize;
+	private final ConcurrentHashMap<String, Entry>[] byMethod;
+	private final AtomicInteger size = new AtomicInteger();
+
+	// the clock hand, moved only by the thread holding the sweep lock
+	private final ReentrantLock sweep = new ReentrantLock();
+	private int handMethod;
+	private Iterator<Map.Entry<String, Entry>> hand;
+
+	private static final class Entry {
+		private final Object value;
+		private volatile boolean referenced;
+
+		private Entry(Object value) {
+			this.value = value;
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	RouteLookupCache(int maxSize) {
+		this.maxSize = Math.max(1, maxSize);
+		byMethod = new ConcurrentHashMap[HttpMethod.values().length];
+		for (int i = 0; i < byMethod.length; i++) {
+			byMethod[i] = new ConcurrentHashMap<String, Entry>();
+		}
+	}
+
+	/**
+	 * @return the cached value, {@link #isNoRoute(Object)} when the lookup
+	 *         found no route, or null when the path is not cached
+	 */
+	Object get(HttpMethod httpMethod, String path) {
+		Entry entry = byMethod[httpMethod.ordinal()].get(path);
+		if (entry == null) {
+			return null;
+		}
+		if (!entry.referenced) {
+			// only written once per sweep, hot entries are just read
+			entry.referenced = true;
+		}
+		return entry.value;
+	}
+
+	void put(HttpMethod httpMethod, String path, V value) {
+		Entry entry = new Entry(value == null ? NO_ROUTE : value);
+		if (byMethod[httpMethod.ordinal()].putIfAbsent(path, entry) == null && size.incrementAndGet() > maxSize) {
+			evict();
+		}
+	}
+
+	static boolean isNoRoute(Object cached) {
+		return cached == NO_ROUTE;
+	}
+
+	int size() {
+		return size.get();
+	}
+
+	private void evict() {
+		// entries added while the sweeping thread releases the lock are
+		// evicted by that thread once it has, or by the next one
+		while (size.get() > maxSize && sweep.tryLock()) {
+			try {
+				sweep();
+			} finally {
+				sweep.unlock();
+			}
+		}
+	}
+
+	private void sweep() {
+		// past two turns of the clock, evict whatever the hand is on
+		int scanned = 0;
+		while (size.get() > maxSize) {
+			if (hand == null || !hand.hasNext()) {
+				handMethod = (handMethod + 1) % byMethod.length;
+				hand = byMethod[handMethod].entrySet().iterator();
+				continue;
+			}
+			Map.Entry<String, Entry> candidate = hand.next();
+			Entry entry = candidate.getValue();
+			if (entry.referenced && scanned++ <= 2 * maxSize) {
+				entry.referenced = false;
+			} else if (byMethod[handMethod].remove(candidate.getKey(), entry)) {
+				size.decrementAndGet();
+			}
+		}
+	}
+}
@@ -0,0 +1,237 @@
+/*******************************************************************************
+ * Copyright (c) 2016 AT&T Intellectual Property. All rights reserved.
+ *******************************************************************************/
+package com.att.ajsc.csi.restmethodmap;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compiled, per HTTP method segment trie of routes. Each path segment of a
+ * route is stored as a literal, a {param} or a * child node so that a lookup
+ * walks the request path once instead of scanning every route.
+ *
+ * The scoring mirrors {@link SimpleRouteMatcher}: a literal segment counts
+ * as a perfect match, a {param} as a param match, a trailing * is a prefix
+ * wildcard and identical paths always win. On equal strength the route that
+ * was added first wins.
+ */
+class RouteSegmentTrie<T> {
+
+	static final int NO_MATCH = -1;
+	private static final int PERFECT_MATCH = 2;
+	private static final int PARAM_MATCH = 1;
+	private static final String STAR = "*";
+
+	private final Map<HttpMethod, Node<T>> roots = new EnumMap<HttpMethod, Node<T>>(HttpMethod.class);
+	private final Map<HttpMethod, Map<String, Leaf<T>>> exactPaths = new EnumMap<HttpMethod, Map<String, Leaf<T>>>(HttpMethod.class);
+	private int order;
+
+	/**
+	 * Result of a lookup: the value registered with the route and the
+	 * strength it matched with.
+	 */
+	static final class Match<T> {
+		private final T value;
+		private final int matchStrength;
+
+		private Match(T value, int matchStrength) {
+			this.value = value;
+			this.matchStrength = matchStrength;
+		}
+
+		T getValue() {
+			return value;
+		}
+
+		int getMatchStrength() {
+			return matchStrength;
+		}
+	}
+
+	private static final class Leaf<T> {
+		private final T value;
+		private final int order;
+		private final boolean endsWithSlash;
+		private final boolean endsWithStar;
+		private final boolean trailingWildcard;
+
+		private Leaf(T value, int order, String path, boolean trailingWildcard) {
+			this.value = value;
+			this.order = order;
+			this.endsWithSlash = path.endsWith("/");
+			this.endsWithStar = path.endsWith(STAR);
+			this.trailingWildcard = trailingWildcard;
+		}
+	}
+
+	private static final class Node<T> {
+		private Map<String, Node<T>> literals;
+		private Map<String, Node<T>> params;
+		private Node<T> star;
+		private List<Leaf<T>> leaves;
+
+		private Node<T> child(String segment) {
+			if (STAR.equals(segment)) {
+				if (star == null) {
+					star = new Node<T>();
+				}
+				return star;
+			}
+			boolean param = SparkUtils.isParam(segment);
+			if (param && params == null) {
+				params = new LinkedHashMap<String, Node<T>>();
+			} else if (!param && literals == null) {
+				literals = new HashMap<String, Node<T>>();
+			}
+			Map<String, Node<T>> children = param ? params : literals;
+			Node<T> node = children.get(segment);
+			if (node == null) {
+				node = new Node<T>();
+				children.put(segment, node);
+			}
+			return node;
+		}
+
+		private void addLeaf(Leaf<T> leaf) {
+			if (leaves == null) {
+				leaves = new ArrayList<Leaf<T>>(1);
+			}
+			leaves.add(leaf);
+		}
+	}
+
+	/**
+	 * Best candidate found so far during a lookup.
+	 */
+	private static final class Best<T> {
+		private Leaf<T> leaf;
+		private int matchStrength = NO_MATCH;
+
+		private void offer(Leaf<T> candidate, int strength) {
+			if (strength > matchStrength
+					|| (strength == matchStrength && leaf != null && candidate.order < leaf.order)) {
+				leaf = candidate;
+				matchStrength = strength;
+			}
+		}
+	}
+
+	void add(HttpMethod httpMethod, String path, T value) {
+		List<String> segments = SparkUtils.convertRouteToList(path);
+		int last = segments.size() - 1;
+		boolean trailingWildcard = last >= 0 && STAR.equals(segments.get(last)) && path.endsWith(STAR);
+		Leaf<T> leaf = new Leaf<T>(value, order++, path, trailingWildcard);
+
+		Map<String, Leaf<T>> exact = exactPaths.get(httpMethod);
+		if (exact == null) {
+			exact = new HashMap<String, Leaf<T>>();
+			exactPaths.put(httpMethod, exact);
+		}
+		if (!exact.containsKey(path)) {
+			exact.put(path, leaf);
+		}
+
+		Node<T> node = roots.get(httpMethod);
+		if (node == null) {
+			node = new Node<T>();
+			roots.put(httpMethod, node);
+		}
+		for (String segment : segments) {
+			node = node.child(segment);
+		}
+		node.addLeaf(leaf);
+	}
+
+	Match<T> find(HttpMethod httpMethod, String path) {
+		Map<String, Leaf<T>> exact = exactPaths.get(httpMethod);
+		if (exact == null) {
+			return null;
+		}
+		Leaf<T> same = exact.get(path);
+		if (same != null) {
+			return new Match<T>(same.value, Integer.MAX_VALUE);
+		}
+		Best<T> best = new Best<T>();
+		walk(roots.get(httpMethod), split(path), 0, path.endsWith("/"), 0, 0, best);
+		return best.leaf == null ? null : new Match<T>(best.leaf.value, best.matchStrength);
+	}
+
+	private void walk(Node<T> node, String[] segments, int depth, boolean requestEndsWithSlash,
+			int strength, int parentStrength, Best<T> best) {
+		if (node.leaves != null) {
+			boolean consumed = depth == segments.length;
+			for (Leaf<T> leaf : node.leaves) {
+				if (consumed) {
+					if (!leaf.endsWithStar && leaf.endsWithSlash != requestEndsWithSlash) {
+						continue;
+					}
+				} else if (!leaf.endsWithStar) {
+					// only a wildcard route can match a longer request path
+					continue;
+				}
+				best.offer(leaf, leaf.trailingWildcard ? parentStrength : strength);
+			}
+		}
+		if (depth == segments.length) {
+			if (requestEndsWithSlash && node.star != null && node.star.leaves != null) {
+				// "/a/*" also matches "/a/"
+				for (Leaf<T> leaf : node.star.leaves) {
+					if (leaf.trailingWildcard) {
+						best.offer(leaf, strength);
+					}
+				}
+			}
+			return;
+		}
+		String segment = segments[depth];
+		if (node.literals != null) {
+			Node<T> child = node.literals.get(segment);
+			if (child != null) {
+				walk(child, segments, depth + 1, requestEndsWithSlash, strength + PERFECT_MATCH, strength, best);
+			}
+		}
+		if (node.params != null) {
+			for (Map.Entry<String, Node<T>> param : node.params.entrySet()) {
+				int paramStrength = strength + PARAM_MATCH + (param.getKey().equals(segment) ? PERFECT_MATCH : 0);
+				walk(param.getValue(), segments, depth + 1, requestEndsWithSlash, paramStrength, strength, best);
+			}
+		}
+		if (node.star != null) {
+			int starStrength = strength + (STAR.equals(segment) ? PERFECT_MATCH : 0);
+			walk(node.star, segments, depth + 1, requestEndsWithSlash, starStrength, strength, best);
+		}
+	}
+
+	/*
+	 * Same result as SparkUtils.convertRouteToList without the regex split
+	 * and the intermediate list.
+	 */
+	private static String[] split(String path) {
+		int count = 0;
+		int length = path.length();
+		for (int i = 0; i < length; i++) {
+			if (path.charAt(i) != '/' && (i == 0 || path.charAt(i - 1) == '/')) {
+				count++;
+			}
+		}
+		String[] segments = new String[count];
+		int n = 0;
+		int start = -1;
+		for (int i = 0; i <= length; i++) {
+			if (i == length || path.charAt(i) == '/') {
+				if (start >= 0) {
+					segments[n++] = path.substring(start, i);
+					start = -1;
+				}
+			} else if (start < 0) {
+				start = i;
+			}
+		}
+		return segments;
+	}
+}
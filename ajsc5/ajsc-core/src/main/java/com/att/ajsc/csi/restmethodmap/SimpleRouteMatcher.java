@@ -17,6 +17,27 @@ public class SimpleRouteMatcher implements RouteMatcher {
 
 	private List<RouteEntry> routes;
 
+	public static final String SYSPROP_CACHE_SIZE = "AJSC_ROUTE_MATCH_CACHE_SIZE";
+	private static final int DEFAULT_CACHE_SIZE = 1024;
+
+	/*
+	 * Segment trie and lookup cache built by compile(); null until the routes
+	 * are compiled or after they are modified, in which case lookups fall
+	 * back to the scan. Both are published together, so a cache never
+	 * outlives the routes it was filled from.
+	 */
+	private volatile Compiled compiled;
+
+	private static final class Compiled {
+		private final RouteSegmentTrie<RouteEntry> trie;
+		private final RouteLookupCache<RouteSegmentTrie.Match<RouteEntry>> cache;
+
+		private Compiled(RouteSegmentTrie<RouteEntry> trie, int cacheSize) {
+			this.trie = trie;
+			this.cache = cacheSize > 0 ? new RouteLookupCache<RouteSegmentTrie.Match<RouteEntry>>(cacheSize) : null;
+		}
+	}
+
 	public List<RouteEntry> getRoutes() {
 		return routes;
 	}
@@ -182,9 +203,49 @@ public class SimpleRouteMatcher implements RouteMatcher {
 		routes = new ArrayList<RouteEntry>();
 	}
 
+	/**
+	 * Indexes the current routes in a segment trie so that
+	 * findTargetForRequestedRoute no longer scans every route, and puts a
+	 * cache of the resolved paths in front of it, sized by
+	 * AJSC_ROUTE_MATCH_CACHE_SIZE (0 disables the cache), that evicts the
+	 * paths not looked up lately with the clock algorithm, see
+	 * RouteLookupCache. Call once all routes have been added.
+	 */
+	public void compile() {
+		RouteSegmentTrie<RouteEntry> newTrie = new RouteSegmentTrie<RouteEntry>();
+		for (RouteEntry entry : routes) {
+			newTrie.add(entry.httpMethod, entry.path, entry);
+		}
+		compiled = new Compiled(newTrie, Integer.getInteger(SYSPROP_CACHE_SIZE, DEFAULT_CACHE_SIZE));
+	}
+
 	@Override
+	@SuppressWarnings("unchecked")
 	public RouteMatch findTargetForRequestedRoute(HttpMethod httpMethod,
 			String path) {
+		Compiled current = compiled;
+		if (current != null) {
+			RouteSegmentTrie.Match<RouteEntry> match;
+			if (current.cache == null) {
+				match = current.trie.find(httpMethod, path);
+			} else {
+				Object cached = current.cache.get(httpMethod, path);
+				if (cached == null) {
+					match = current.trie.find(httpMethod, path);
+					current.cache.put(httpMethod, path, match);
+				} else {
+					match = RouteLookupCache.isNoRoute(cached) ? null
+							: (RouteSegmentTrie.Match<RouteEntry>) cached;
+				}
+			}
+			if (match == null) {
+				return null;
+			}
+			RouteEntry targetRoute = match.getValue();
+			return new RouteMatch(targetRoute.service, targetRoute.httpMethod,
+					targetRoute.logicalMethod, targetRoute.path, path,targetRoute.passThroughRespCode,
+					match.getMatchStrength());
+		}
 		int matchStrength = RouteEntry.NO_MATCH;
 		RouteEntry targetRoute = null;
 		for (RouteEntry entry : routes) {
@@ -260,11 +321,13 @@ public class SimpleRouteMatcher implements RouteMatcher {
 		entry.passThroughRespCode = passThroughRespCode;
 		// Adds to end of list
 		routes.add(entry);
+		compiled = null;
 	}
 
 	@Override
 	public void clearRoutes() {
 		routes.clear();
+		compiled = null;
 	}
 
 }
@@ -4,12 +4,13 @@
 package com.att.ajsc.csi.writeablerequestfilter;
 
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Collections;
 import java.util.Enumeration;
-import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.TreeMap;
 
 import javax.servlet.http.HttpServletRequest;
@@ -23,8 +24,10 @@ public class WriteableRequestWrapper extends HttpServletRequestWrapper
 	// is required when comparing header and query params since
 	// all control aspects of the http payload, headers and uri
 	// are case-insensitive.
-	private Map<String, ArrayList<String>> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
-	private Map<String, ArrayList<String>> qparams = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+	// Both maps are only created once a header or query param is added,
+	// until then every call goes straight to the wrapped request.
+	private Map<String, Values> headers;
+	private Map<String, Values> qparams;
 	
 	public WriteableRequestWrapper(HttpServletRequest request) 
 	{
@@ -33,29 +36,27 @@ public class WriteableRequestWrapper extends HttpServletRequestWrapper
 	
 	public void addHeader(String key, String value)
 	{
-		if ( headers.containsKey(key) )
-		{
-			headers.get(key).add(value);
-		}
-		else
+		if ( headers == null )
+			headers = new TreeMap<String, Values>(String.CASE_INSENSITIVE_ORDER);
+		Values values = headers.get(key);
+		if ( values == null )
 		{
+			values = new Values();
 			Enumeration<String> oldHeaders = super.getHeaders(key);
-			ArrayList<String> oldHeadersList;
 			if ( oldHeaders != null )
-				oldHeadersList = new ArrayList<String>(Collections.list(oldHeaders));
-			else
-				oldHeadersList = new ArrayList<String>();
-			
-			oldHeadersList.add(value);
-			headers.put(key, oldHeadersList);
+				while ( oldHeaders.hasMoreElements() )
+					values.add(oldHeaders.nextElement());
+			headers.put(key, values);
 		}
+		values.add(value);
 	}
 	
 	@Override
 	public String getHeader(String key)
 	{
-		if ( headers.containsKey(key) )
-			return headers.get(key).get(0);
+		Values values = headers != null ? headers.get(key) : null;
+		if ( values != null )
+			return values.first();
 		else
 			return super.getHeader(key);
 	}
@@ -63,45 +64,44 @@ public class WriteableRequestWrapper extends HttpServletRequestWrapper
 	@Override
 	public Enumeration<String> getHeaderNames()
 	{
-		List<String> names = Collections.list(super.getHeaderNames());
-		for ( String headerName : headers.keySet() )
-			names.add(headerName);
-		return Collections.enumeration(names);
+		if ( headers == null )
+			return super.getHeaderNames();
+		return new MergedEnumeration(super.getHeaderNames(), headers.keySet().iterator());
 	}
 	
 	@Override
 	public Enumeration<String> getHeaders(String name)
 	{
-		if ( headers.containsKey(name) )
-			return Collections.enumeration(new HashSet<String>(headers.get(name)));
+		Values values = headers != null ? headers.get(name) : null;
+		if ( values != null )
+			return Collections.enumeration(values.distinct());
 		else
 			return super.getHeaders(name);
 	}
 	
 	public void addQueryParam(String param, String value)
 	{
-		if ( qparams.containsKey(param) )
-		{
-			qparams.get(param).add(value);
-		}
-		else
+		if ( qparams == null )
+			qparams = new TreeMap<String, Values>(String.CASE_INSENSITIVE_ORDER);
+		Values values = qparams.get(param);
+		if ( values == null )
 		{
+			values = new Values();
 			String oldValues[] = super.getParameterValues(param);
-			ArrayList<String> plist = null;
-			if ( oldValues != null)
-				plist = new ArrayList<String>(Arrays.asList(super.getParameterValues(param)));
-			else
-				plist = new ArrayList<String>();
-			plist.add(value);
-			qparams.put(param, plist);
+			if ( oldValues != null )
+				for ( String oldValue : oldValues )
+					values.add(oldValue);
+			qparams.put(param, values);
 		}
+		values.add(value);
 	}
 	
 	@Override
 	public String getParameter(String param)
 	{
-		if ( qparams.containsKey(param) )
-			return qparams.get(param).get(0);
+		Values values = qparams != null ? qparams.get(param) : null;
+		if ( values != null )
+			return values.first();
 		else
 			return super.getParameter(param);
 	}
@@ -109,23 +109,84 @@ public class WriteableRequestWrapper extends HttpServletRequestWrapper
 	@Override
 	public Enumeration<String> getParameterNames()
 	{
-		List<String> values = Collections.list(super.getParameterNames());
-		for ( String pname : qparams.keySet() )
-			values.add(pname);
-		return Collections.enumeration(values);
+		if ( qparams == null )
+			return super.getParameterNames();
+		return new MergedEnumeration(super.getParameterNames(), qparams.keySet().iterator());
 	}
 	
 	@Override
 	public String[] getParameterValues(String param)
 	{
-		if ( qparams.containsKey(param) )
+		Values values = qparams != null ? qparams.get(param) : null;
+		if ( values != null )
+			return values.array();
+		else
+			return super.getParameterValues(param);
+	}
+	
+	/*
+	 * Values added for one header or query param, with the list handed out
+	 * by getHeaders cached until the next add. getParameterValues gets a new
+	 * array each time, callers may change it.
+	 */
+	private static final class Values
+	{
+		private final ArrayList<String> values = new ArrayList<String>(2);
+		private List<String> distinct;
+		
+		void add(String value)
 		{
-			String values[] = new String[qparams.get(param).size()];
-			return qparams.get(param).toArray(values);
+			values.add(value);
+			distinct = null;
 		}
-		else
+		
+		String first()
 		{
-			return super.getParameterValues(param);
+			return values.get(0);
+		}
+		
+		List<String> distinct()
+		{
+			if ( distinct == null )
+				distinct = Collections.unmodifiableList(new ArrayList<String>(new LinkedHashSet<String>(values)));
+			return distinct;
+		}
+		
+		String[] array()
+		{
+			return values.toArray(new String[values.size()]);
+		}
+	}
+	
+	/*
+	 * Names of the wrapped request followed by the added names, without
+	 * copying either into a new list.
+	 */
+	private static final class MergedEnumeration implements Enumeration<String>
+	{
+		private final Enumeration<String> wrapped;
+		private final Iterator<String> added;
+		
+		MergedEnumeration(Enumeration<String> wrapped, Iterator<String> added)
+		{
+			this.wrapped = wrapped;
+			this.added = added;
+		}
+		
+		@Override
+		public boolean hasMoreElements()
+		{
+			return (wrapped != null && wrapped.hasMoreElements()) || added.hasNext();
+		}
+		
+		@Override
+		public String nextElement()
+		{
+			if ( wrapped != null && wrapped.hasMoreElements() )
+				return wrapped.nextElement();
+			if ( added.hasNext() )
+				return added.next();
+			throw new NoSuchElementException();
 		}
 	}
 }
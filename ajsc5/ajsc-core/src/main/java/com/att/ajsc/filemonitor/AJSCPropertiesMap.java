@@ -15,6 +15,8 @@ import org.slf4j.LoggerFactory;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
+import ajsc.filters.InterceptorChain;
+
 public class AJSCPropertiesMap 
 {
 	private static HashMap<String, HashMap<String, String>> mapOfMaps = new HashMap<String, HashMap<String, String>>();
@@ -57,6 +59,10 @@ public class AJSCPropertiesMap
 			}
 
 			logger.info("File - " + file.getName() + " is loaded into the map and the corresponding system properties have been refreshed");
+			
+			if(InterceptorChain.isConfigFile(file.getName())){
+				InterceptorChain.refresh();
+			}
 		}
 		catch (Exception e)
 		{
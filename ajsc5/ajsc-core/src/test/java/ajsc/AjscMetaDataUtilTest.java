@@ -0,0 +1,92 @@
+/*******************************************************************************
+ * Copyright (c) 2016 AT&T Intellectual Property. All rights reserved.
+ *******************************************************************************/
+package ajsc;
+
+import static org.junit.Assert.*;
+
+import groovy.json.JsonSlurper;
+import groovy.lang.MetaProperty;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.Map;
+
+import org.junit.Test;
+
+import ajsc.utils.AjscMetaDataCodec;
+
+public class AjscMetaDataUtilTest {
+
+	@Test
+	public void testComputeRouteRoundTrip() {
+		ComputeRoute cr = new ComputeRoute();
+		cr.setNamespace("SBC");
+		cr.setRouteName("DM");
+		cr.setRouteVersion("5.2.3");
+		cr.setRouteDefinition("<routes>\n\t<route id=\"r\">é</route>\n</routes>");
+
+		String json = (String) AjscMetaDataUtil.asJson(cr);
+		Map<?, ?> parsed = (Map<?, ?>) new JsonSlurper().parseText(json);
+		assertEquals("ajsc.ComputeRoute", parsed.get("class"));
+		assertEquals("SBC", parsed.get("namespace"));
+		assertEquals(cr.getRouteDefinition(), parsed.get("routeDefinition"));
+		assertTrue(parsed.containsKey("contextId"));
+		assertNull(parsed.get("contextId"));
+
+		ComputeRoute cr2 = (ComputeRoute) AjscMetaDataUtil.fromJson(ComputeRoute.class, json);
+		assertEquals("SBC", cr2.getNamespace());
+		assertEquals("DM", cr2.getRouteName());
+		assertEquals("5.2.3", cr2.getRouteVersion());
+		assertEquals(cr.getRouteDefinition(), cr2.getRouteDefinition());
+		assertEquals("Active", cr2.getDeployStatus());
+		assertNull(cr2.getContextId());
+	}
+
+	@Test
+	public void testDeploymentPackageDates() {
+		DeploymentPackage dp = new DeploymentPackage();
+		dp.setNamespace("SBC");
+		dp.setNamespaceVersion("1.0");
+		dp.setDescription("desc");
+		// the format has a resolution of seconds
+		Date now = new Date(System.currentTimeMillis() / 1000 * 1000);
+		dp.setDateCreated(now);
+
+		String json = (String) AjscMetaDataUtil.asJson(dp);
+		DeploymentPackage dp2 = (DeploymentPackage) AjscMetaDataUtil.fromJson(DeploymentPackage.class, json);
+		assertEquals("SBC", dp2.getNamespace());
+		assertEquals("1.0", dp2.getNamespaceVersion());
+		assertEquals("desc", dp2.getDescription());
+		assertEquals(now, dp2.getDateCreated());
+		assertNull(dp2.getLastUpdated());
+	}
+
+	@Test
+	public void testStoredDocument() {
+		// as written by JsonBuilder before the codec, with an unknown member
+		String json = "{\"class\":\"ajsc.DeploymentPackage\",\"dateCreated\":\"2013-10-17T13:49:09+0000\","
+				+ "\"description\":\"caf\\u00e9\",\"id\":null,\"namespace\":\"SBC\",\"removed\":[1,{\"a\":2}]}";
+		DeploymentPackage dp = (DeploymentPackage) AjscMetaDataUtil.fromJson(DeploymentPackage.class, json);
+		assertEquals("SBC", dp.getNamespace());
+		assertEquals("café", dp.getDescription());
+		assertEquals(1382017749000L, dp.getDateCreated().getTime());
+		assertSame(AjscMetaDataUtil.codec(DeploymentPackage.class), AjscMetaDataUtil.codec(DeploymentPackage.class));
+	}
+
+	@Test
+	public void testFloatIsWrittenAsFloat() {
+		MetaProperty ratio = new MetaProperty("ratio", Float.class) {
+			@Override
+			public Object getProperty(Object object) {
+				return 1.1f;
+			}
+
+			@Override
+			public void setProperty(Object object, Object newValue) {
+			}
+		};
+		AjscMetaDataCodec codec = new AjscMetaDataCodec(Object.class, Collections.singletonList(ratio));
+		assertEquals("{\"class\":\"java.lang.Object\",\"ratio\":1.1}", codec.toJson(new Object()));
+	}
+}
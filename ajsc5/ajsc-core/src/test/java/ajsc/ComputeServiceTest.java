@@ -4,6 +4,8 @@
 package ajsc;
 
 import static org.junit.Assert.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
 import java.io.File;
 import java.util.ArrayList;
@@ -12,6 +14,9 @@ import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
 import org.apache.camel.CamelContext;
 import org.apache.camel.ProducerTemplate;
 import org.apache.camel.model.RouteDefinition;
@@ -22,6 +27,7 @@ import org.springframework.context.support.ClassPathXmlApplicationContext;
 
 import ajsc.ComputeRoute;
 import ajsc.ComputeService;
+import ajsc.servlet.EndpointHealthCheck;
 
 public class ComputeServiceTest extends BaseTestCase {
 
@@ -225,6 +231,97 @@ public void tearDown() { }
 		
 	}
 	
+	@Test
+	public void testRouteDefinitionIsParsedOnce() {
+		List<ComputeRoute> routes = new ArrayList<ComputeRoute>();
+		for (int i = 0; i < 3; i++) {
+			ComputeRoute cr = new ComputeRoute();
+			cr.setNamespace("testNamespace");
+			cr.setRouteName("parsed" + i);
+			cr.setRouteVersion("v1");
+			cr.setRouteDefinition("<route xmlns=\"http://camel.apache.org/schema/spring\">"
+							+ "<from uri=\"direct:parsed" + i + "\" />"
+							+ "<setBody><constant>Hello World</constant></setBody>" + "</route>");
+			routes.add(cr);
+		}
+		assertEquals(3, computeService.compileRoutes(routes));
+
+		ComputeRoute cr = routes.get(0);
+		RouteDefinition route = (RouteDefinition) computeService.getRouteDefinition(cr);
+		assertEquals("testNamespace:parsed0:v1", route.getId());
+		assertSame(route, computeService.getRouteDefinition(cr));
+		// taken to be added to a context, it is not handed out again
+		assertSame(route, computeService.getRouteDefinition(cr, true));
+		assertNotSame(route, computeService.getRouteDefinition(cr));
+
+		cr.setRouteDefinition(cr.getRouteDefinition().replace("Hello World", "Changed"));
+		assertNotSame(route, computeService.getRouteDefinition(cr));
+	}
+
+	@Test
+	public void testProbeFollowsAddAndDelete() throws Exception {
+		ComputeRoute cr = new ComputeRoute();
+		cr.setNamespace("testNamespace");
+		cr.setRouteName("probed");
+		cr.setRouteVersion("v1");
+		cr.setRouteDefinition("<route xmlns=\"http://camel.apache.org/schema/spring\">"
+						+ "<from uri=\"direct:probed\" />"
+						+ "<setBody><constant>Hello World</constant></setBody>" + "</route>");
+		computeService.addContext("default:0");
+		computeService.addRoute(cr);
+		assertTrue(EndpointHealthCheck.probe(probe("direct:probed"), mock(HttpServletResponse.class), false));
+
+		computeService.delRoute(cr.generateId());
+		assertFalse(EndpointHealthCheck.probe(probe("direct:probed"), mock(HttpServletResponse.class), false));
+	}
+
+	@Test
+	public void testComputeRouteIdsFollowAddAndDelete() throws Exception {
+		ComputeRoute cr = new ComputeRoute();
+		cr.setNamespace("testNamespace");
+		cr.setRouteName("tracked");
+		cr.setRouteVersion("v1");
+		cr.setId(cr.generateId());
+		cr.setRouteDefinition("<route xmlns=\"http://camel.apache.org/schema/spring\">"
+						+ "<from uri=\"direct:tracked\" />"
+						+ "<setBody><constant>Hello World</constant></setBody>" + "</route>");
+		computeService.addContext("default:0");
+		computeService.addRoute(cr);
+		assertTrue(computeService.getComputeRouteIds().contains(cr.getId()));
+
+		computeService.delRoute(cr.getId());
+		assertFalse(computeService.getComputeRouteIds().contains(cr.getId()));
+	}
+
+	private static HttpServletRequest probe(String serviceUri) {
+		HttpServletRequest request = mock(HttpServletRequest.class);
+		when(request.getMethod()).thenReturn("HEAD");
+		when(request.getPathInfo()).thenReturn(serviceUri);
+		return request;
+	}
+
+	@Test
+	public void testRejectedRouteIsNotKept() throws Exception {
+		ComputeRoute added = new ComputeRoute();
+		added.setNamespace("testNamespace");
+		added.setRouteName("kept");
+		added.setRouteVersion("v1");
+		added.setRouteDefinition("<route xmlns=\"http://camel.apache.org/schema/spring\">"
+						+ "<from uri=\"direct:kept\" />"
+						+ "<setBody><constant>Hello World</constant></setBody>" + "</route>");
+		computeService.addContext("default:0");
+		computeService.addRoute(added);
+
+		ComputeRoute rejected = new ComputeRoute();
+		rejected.setNamespace("testNamespace");
+		rejected.setRouteName("rejected");
+		rejected.setRouteVersion("v1");
+		rejected.setRouteDefinition(added.getRouteDefinition());
+		int kept = computeService.getRouteCompiler().size();
+		assertEquals("testNamespace:kept:v1", computeService.validateFromEndpointUnique(rejected));
+		assertEquals(kept, computeService.getRouteCompiler().size());
+	}
+
 	@Test
 	public void testInitProp(){
 		System.out.println("running initProp test");
@@ -8,6 +8,9 @@ import static org.junit.Assert.*;
 import java.util.*;
 
 import ajsc.FilePersistenceService;
+import ajsc.providers.LogPersistenceClient;
+import ajsc.providers.PersistencePage;
+import groovy.lang.Closure;
 
 import org.junit.*;
 
@@ -101,4 +104,123 @@ public class FilePersistenceServiceTest extends BaseTestCase {
 		assertArrayEquals( byteValue1, fetchBytes );		
 	}
 
+	@Test
+	public void testLogAdapter() throws Exception {
+		LogPersistenceClient adapter = new LogPersistenceClient(AJSC_TEST_HOME + "/data/");
+		filePersistenceService.setAdapter(adapter);
+		try {
+			filePersistenceService.putMapEntry("testLogMap", "key1", "value1");
+			filePersistenceService.putByteArrayMapEntry("testLogMap", "key2", new byte[] { 1, 2, 3 });
+			assertEquals("value1", filePersistenceService.getMapEntry("testLogMap", "key1"));
+			assertEquals(Arrays.asList("key1", "key2"), filePersistenceService.getMapKeys("testLogMap"));
+			filePersistenceService.removeMapEntry("testLogMap", "key1");
+			assertNull(filePersistenceService.getMapEntry("testLogMap", "key1"));
+			assertEquals(1, filePersistenceService.getAllByteArrayEntriesMap("testLogMap").size());
+			filePersistenceService.removeMapEntry("testLogMap", "key2");
+		} finally {
+			adapter.shutdown();
+		}
+	}
+
+	@Test
+	public void testFindAllEntriesBy() throws Exception {
+		String route1 = "{\"namespace\":\"ns1\",\"routeName\":\"a\",\"routeVersion\":\"1\"}";
+		String route2 = "{\"namespace\":\"ns1\",\"routeName\":\"b\",\"routeVersion\":\"1\"}";
+		filePersistenceService.putMapEntry("testIndexMap", "ns1:a:1", route1);
+		filePersistenceService.putMapEntry("testIndexMap", "ns1:b:1", route2);
+		try {
+			Map<String, String> criteria = new LinkedHashMap<String, String>();
+			criteria.put("routeName", "b");
+			criteria.put("namespace", "ns1");
+			assertEquals(Arrays.asList(route2), filePersistenceService.findAllEntriesBy("testIndexMap", criteria));
+
+			filePersistenceService.removeMapEntry("testIndexMap", "ns1:b:1");
+			assertEquals(Collections.emptyList(), filePersistenceService.findAllEntriesBy("testIndexMap", criteria));
+			criteria.put("routeName", "a");
+			assertEquals(Arrays.asList(route1), filePersistenceService.findAllEntriesBy("testIndexMap", criteria));
+		} finally {
+			filePersistenceService.removeMapEntry("testIndexMap", "ns1:a:1");
+			filePersistenceService.removeMapEntry("testIndexMap", "ns1:b:1");
+		}
+	}
+
+	@Test
+	public void testGetMapPage() throws Exception {
+		for (int i = 0; i < 7; i++) {
+			filePersistenceService.putMapEntry("testPageMap", "ns1:" + i, "value" + i);
+		}
+		filePersistenceService.putMapEntry("testPageMap", "ns2:0", "other");
+		try {
+			Map<String, String> entries = new HashMap<String, String>();
+			String token = null;
+			int pages = 0;
+			do {
+				PersistencePage page = filePersistenceService.getMapPage("testPageMap", "ns1:", token, 3);
+				assertTrue(page.size() <= 3);
+				entries.putAll(page.getEntries());
+				token = page.getNextToken();
+				pages++;
+			} while (token != null);
+			assertEquals(3, pages);
+			assertEquals(7, entries.size());
+			assertEquals("value4", entries.get("ns1:4"));
+
+			final List<Object> keys = new ArrayList<Object>();
+			filePersistenceService.eachMapEntry("testPageMap", null, 2, new Closure<Object>(this) {
+				@Override
+				public Object call(Object... args) {
+					keys.add(args[0]);
+					return null;
+				}
+			});
+			assertEquals(8, keys.size());
+			assertTrue(filePersistenceService.getMapPage("testMissingPageMap", null, null, 3).isLast());
+		} finally {
+			for (int i = 0; i < 7; i++) {
+				filePersistenceService.removeMapEntry("testPageMap", "ns1:" + i);
+			}
+			filePersistenceService.removeMapEntry("testPageMap", "ns2:0");
+		}
+	}
+
+	@Test
+	public void testWithBatch() throws Exception {
+		filePersistenceService.putMapEntry("testBatchMap", "key2", "old");
+		try {
+			filePersistenceService.withBatch(new Closure<Object>(this) {
+				@Override
+				public Object call() {
+					filePersistenceService.putMapEntry("testBatchMap", "key1", "value1");
+					filePersistenceService.removeMapEntry("testBatchMap", "key2");
+					assertEquals("value1", filePersistenceService.getMapEntry("testBatchMap", "key1"));
+					assertEquals(Arrays.asList("key1"), filePersistenceService.getMapKeys("testBatchMap"));
+					// not visible outside of the batch before the commit
+					FilePersistenceService other = new FilePersistenceService();
+					assertNull(other.getMapEntry("testBatchMap", "key1"));
+					assertEquals("old", other.getMapEntry("testBatchMap", "key2"));
+					return null;
+				}
+			});
+			assertEquals("value1", filePersistenceService.getMapEntry("testBatchMap", "key1"));
+			assertNull(filePersistenceService.getMapEntry("testBatchMap", "key2"));
+
+			try {
+				filePersistenceService.withBatch(new Closure<Object>(this) {
+					@Override
+					public Object call() {
+						filePersistenceService.putMapEntry("testBatchMap", "key3", "value3");
+						throw new IllegalStateException("failed deployment");
+					}
+				});
+				fail("exception was swallowed");
+			} catch (IllegalStateException e) {
+				assertEquals("failed deployment", e.getMessage());
+			}
+			assertNull(filePersistenceService.getMapEntry("testBatchMap", "key3"));
+		} finally {
+			filePersistenceService.removeMapEntry("testBatchMap", "key1");
+			filePersistenceService.removeMapEntry("testBatchMap", "key2");
+		}
+	}
+
 }
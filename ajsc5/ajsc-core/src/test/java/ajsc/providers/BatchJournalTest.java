@@ -0,0 +1,174 @@
+/*******************************************************************************
+ * Copyright (c) 2016 AT&T Intellectual Property. All rights reserved.
+ *******************************************************************************/
+package ajsc.providers;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class BatchJournalTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private File storage;
+	private LogPersistenceClient store;
+
+	@Before
+	public void setUp() throws Exception {
+		System.setProperty(LogStore.SYSPROP_COMPACT_INTERVAL_MS, "0");
+		storage = folder.newFolder("ajscBatch");
+		store = new LogPersistenceClient(storage.getPath());
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		store.shutdown();
+		System.clearProperty(LogStore.SYSPROP_COMPACT_INTERVAL_MS);
+	}
+
+	@Test
+	public void testCommit() {
+		store.store("docs", "old", "x");
+		WriteBatch batch = new WriteBatch();
+		batch.put("routes", "a", "1");
+		batch.put("routes", "b", "2");
+		batch.put("routes", "a", "3");
+		batch.putByteArray("jars", "j", new byte[] { 1, 2 });
+		batch.delete("docs", "old");
+		assertEquals(4, batch.size());
+		assertEquals("3", batch.get("routes", "a").getText());
+		assertTrue(batch.get("docs", "old").isDelete());
+
+		IndexingDBAdapter adapter = new IndexingDBAdapter(new CachingDBAdapter(store));
+		assertNull(adapter.fetch("docs", "missing"));
+		BatchJournal journal = BatchJournal.forStorage(storage.getPath());
+		journal.commit(adapter, batch);
+
+		assertEquals("3", store.fetch("routes", "a"));
+		assertEquals("2", store.fetch("routes", "b"));
+		assertArrayEquals(new byte[] { 1, 2 }, (byte[]) store.fetchByteArray("jars", "j"));
+		assertNull(store.fetch("docs", "old"));
+		assertEquals(0, journal.getDir().list().length);
+	}
+
+	@Test
+	public void testRecover() throws Exception {
+		WriteBatch batch = new WriteBatch();
+		batch.put("routes", "a", "1");
+		batch.delete("routes", "b");
+		store.store("routes", "b", "2");
+
+		// a journal that was committed but not applied, and one that was not
+		// committed
+		BatchJournal journal = BatchJournal.forStorage(storage.getPath());
+		File dir = journal.getDir();
+		assertTrue(dir.mkdirs());
+		File committed = new File(dir, "00000000000000000001" + BatchJournal.JOURNAL_SUFFIX);
+		BatchJournal.write(batch, committed);
+		File torn = new File(dir, "00000000000000000002.tmp");
+		new FileOutputStream(torn).close();
+
+		journal.recover(store);
+		assertEquals("1", store.fetch("routes", "a"));
+		assertNull(store.fetch("routes", "b"));
+		assertFalse(committed.exists());
+		assertFalse(torn.exists());
+		assertEquals(Arrays.asList("a"), store.fetchKeys("routes"));
+	}
+
+	@Test
+	public void testFailedApplyIsReplayedFirst() throws Exception {
+		final boolean[] failing = { true };
+		DBAdapter flaky = (DBAdapter) Proxy.newProxyInstance(getClass().getClassLoader(),
+				new Class<?>[] { DBAdapter.class }, new InvocationHandler() {
+					public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+						if (failing[0] && method.getName().equals("store") && "b".equals(args[1])) {
+							throw new IllegalStateException("disk full");
+						}
+						try {
+							return method.invoke(store, args);
+						} catch (InvocationTargetException e) {
+							throw e.getCause();
+						}
+					}
+				});
+		WriteBatch first = new WriteBatch();
+		first.put("routes", "a", "1");
+		first.put("routes", "b", "1");
+		BatchJournal journal = BatchJournal.forStorage(storage.getPath());
+		try {
+			journal.commit(flaky, first);
+			fail();
+		} catch (IllegalStateException e) {
+			assertEquals("disk full", e.getMessage());
+		}
+		assertEquals(1, journal.getDir().list().length);
+
+		failing[0] = false;
+		WriteBatch second = new WriteBatch();
+		second.put("routes", "a", "2");
+		journal.commit(flaky, second);
+		assertEquals("2", store.fetch("routes", "a"));
+		assertEquals("1", store.fetch("routes", "b"));
+		assertEquals(0, journal.getDir().list().length);
+	}
+
+	@Test
+	public void testCorruptJournalIsMovedAside() throws Exception {
+		BatchJournal journal = BatchJournal.forStorage(storage.getPath());
+		File dir = journal.getDir();
+		assertTrue(dir.mkdirs());
+		File corrupt = new File(dir, "00000000000000000001" + BatchJournal.JOURNAL_SUFFIX);
+		new FileOutputStream(corrupt).close();
+
+		WriteBatch batch = new WriteBatch();
+		batch.put("routes", "a", "1");
+		journal.commit(store, batch);
+		assertEquals("1", store.fetch("routes", "a"));
+		assertFalse(corrupt.exists());
+		assertTrue(new File(dir, corrupt.getName() + BatchJournal.CORRUPT_SUFFIX).exists());
+	}
+
+	@Test
+	public void testJournalFormat() throws Exception {
+		WriteBatch batch = new WriteBatch();
+		batch.put("routes", "a", "café");
+		batch.putByteArray("jars", "j", new byte[] { 0, (byte) 0xff });
+		batch.delete("routes", "b");
+		File file = new File(storage, "journal");
+		BatchJournal.write(batch, file);
+
+		WriteBatch read = BatchJournal.read(file);
+		assertEquals(3, read.size());
+		assertEquals("café", read.get("routes", "a").getText());
+		assertTrue(read.get("routes", "a").isString());
+		assertArrayEquals(new byte[] { 0, (byte) 0xff }, read.get("jars", "j").getValue());
+		assertFalse(read.get("jars", "j").isString());
+		assertTrue(read.get("routes", "b").isDelete());
+
+		byte[] bytes = Files.readAllBytes(file.toPath());
+		bytes[bytes.length / 2] ^= 1;
+		Files.write(file.toPath(), bytes);
+		try {
+			BatchJournal.read(file);
+			fail("corrupt journal was read");
+		} catch (java.io.IOException e) {
+			assertEquals("Checksum mismatch", e.getMessage());
+		}
+	}
+}
@@ -0,0 +1,138 @@
+/*******************************************************************************
+ * Copyright (c) 2016 AT&T Intellectual Property. All rights reserved.
+ *******************************************************************************/
+package ajsc.providers;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class CachingDBAdapterTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private File storage;
+	private CountingClient store;
+	private CachingDBAdapter cache;
+
+	@Before
+	public void setUp() throws Exception {
+		System.setProperty(LogStore.SYSPROP_COMPACT_INTERVAL_MS, "0");
+		storage = folder.newFolder("ajscCache");
+		store = new CountingClient(storage.getPath());
+		cache = new CachingDBAdapter(store, 1024 * 1024, true);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		cache.shutdown();
+		System.clearProperty(LogStore.SYSPROP_COMPACT_INTERVAL_MS);
+	}
+
+	@Test
+	public void testReadsAreCached() {
+		store.store("testMap", "key1", "value1");
+		assertEquals("value1", cache.fetch("testMap", "key1"));
+		assertEquals("value1", cache.fetch("testMap", "key1"));
+		assertNull(cache.fetch("testMap", "missing"));
+		assertNull(cache.fetch("testMap", "missing"));
+		assertEquals(2, store.reads);
+
+		Map<String, Long> statistics = cache.getStatistics();
+		assertEquals(Long.valueOf(2), statistics.get("hits"));
+		assertEquals(Long.valueOf(2), statistics.get("misses"));
+	}
+
+	@Test
+	public void testWritesGoThrough() {
+		cache.store("testMap", "key1", "value1");
+		assertEquals("value1", store.fetch("testMap", "key1"));
+		assertEquals("value1", cache.fetch("testMap", "key1"));
+
+		cache.storeByteArray("testMap", "key2", new byte[] { 1, 2 });
+		byte[] bytes = (byte[]) cache.fetchByteArray("testMap", "key2");
+		bytes[0] = 9;
+		assertArrayEquals(new byte[] { 1, 2 }, (byte[]) cache.fetchByteArray("testMap", "key2"));
+
+		cache.deleteKey("testMap", "key1");
+		assertNull(cache.fetch("testMap", "key1"));
+		assertNull(store.fetch("testMap", "key1"));
+		// only the two direct reads of the store
+		assertEquals(2, store.reads);
+	}
+
+	@Test
+	public void testSnapshotsUntilWritten() {
+		assertNull(cache.fetchAllEntries("testMap"));
+		cache.store("testMap", "key1", "value1");
+		List<?> first = (List<?>) cache.fetchAllEntries("testMap");
+		assertSame(first, cache.fetchAllEntries("testMap"));
+		assertEquals(Arrays.asList("value1"), first);
+		try {
+			first.clear();
+			fail("snapshot is modifiable");
+		} catch (UnsupportedOperationException e) {
+			// expected
+		}
+
+		cache.store("testMap", "key2", "value2");
+		assertEquals(Arrays.asList("value1", "value2"), cache.fetchAllEntries("testMap"));
+		assertEquals(Arrays.asList("key1", "key2"), cache.fetchKeys("testMap"));
+		assertEquals(2, ((Map<?, ?>) cache.fetchAllByteArrayEntries("testMap")).size());
+	}
+
+	@Test
+	public void testModifiableWithoutSnapshots() {
+		CachingDBAdapter copying = new CachingDBAdapter(store);
+		copying.store("testMap", "key2", "value2");
+		copying.store("testMap", "key1", "value1");
+		// callers sort or trim what they read
+		List<?> keys = (List<?>) copying.fetchKeys("testMap");
+		assertTrue(keys.remove("key1"));
+		assertEquals(Arrays.asList("key2"), keys);
+		((List<?>) copying.fetchAllEntries("testMap")).clear();
+		assertEquals(2, ((List<?>) copying.fetchAllEntries("testMap")).size());
+	}
+
+	@Test
+	public void testBudgetEvictsLeastRecentlyUsed() {
+		cache.setMapBudget("small", 600);
+		for (int i = 0; i < 10; i++) {
+			cache.store("small", "key" + i, "0123456789012345678901234567890123456789");
+		}
+		assertTrue(cache.getStatistics().get("cachedBytes") <= 600);
+		assertTrue(cache.getStatistics().get("evictions") > 0);
+		assertEquals("0123456789012345678901234567890123456789", cache.fetch("small", "key0"));
+
+		cache.setMapBudget("off", 0);
+		cache.store("off", "key", "value");
+		cache.fetch("off", "key");
+		cache.fetch("off", "key");
+		assertEquals(Long.valueOf(0), cache.getStatistics().get("hits"));
+	}
+
+	// fetch reads through fetchByteArray
+	static class CountingClient extends LogPersistenceClient {
+		int reads;
+
+		CountingClient(String storagePath) {
+			super(storagePath);
+		}
+
+		@Override
+		public Object fetchByteArray(String mapName, String key) {
+			reads++;
+			return super.fetchByteArray(mapName, key);
+		}
+	}
+}
@@ -0,0 +1,77 @@
+/*******************************************************************************
+ * Copyright (c) 2016 AT&T Intellectual Property. All rights reserved.
+ *******************************************************************************/
+package ajsc.providers;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+public class ChangeFeedTest {
+
+	@Test
+	public void testSubscribe() {
+		ChangeFeed feed = new ChangeFeed(10);
+		final List<String> seen = new ArrayList<String>();
+		ChangeFeed.Listener listener = new ChangeFeed.Listener() {
+			public void onChange(ChangeFeed.Event event) {
+				seen.add(event.toString());
+			}
+		};
+		feed.subscribe("routes", listener);
+		feed.publishPut("routes", "a");
+		feed.publishPut("docs", "d");
+		feed.publishDelete("routes", "a");
+		feed.unsubscribe("routes", listener);
+		feed.publishPut("routes", "b");
+
+		assertEquals(4, feed.getSequence());
+		assertEquals("[1 put routes a, 3 delete routes a]", seen.toString());
+	}
+
+	@Test
+	public void testChangesSince() {
+		ChangeFeed feed = new ChangeFeed(3);
+		assertTrue(feed.changesSince("routes", 0).isEmpty());
+		WriteBatch batch = new WriteBatch();
+		batch.put("routes", "a", "1");
+		batch.delete("routes", "b");
+		batch.put("docs", "d", "2");
+		feed.publish(batch);
+
+		List<ChangeFeed.Event> events = feed.changesSince("routes", 0);
+		assertEquals(2, events.size());
+		assertEquals("a", events.get(0).getKey());
+		assertEquals(1, events.get(0).getSequence());
+		assertTrue(events.get(1).isDelete());
+		assertEquals(1, feed.changesSince("routes", 1).size());
+
+		// the history keeps 3 events of the map, the first one is dropped
+		feed.publishPut("routes", "c");
+		feed.publishPut("routes", "d");
+		assertNull(feed.changesSince("routes", 0));
+		assertEquals(3, feed.changesSince("routes", 1).size());
+		assertTrue(feed.changesSince("routes", feed.getSequence()).isEmpty());
+	}
+
+	@Test
+	public void testFailingListener() {
+		ChangeFeed feed = new ChangeFeed(10);
+		final List<String> seen = new ArrayList<String>();
+		feed.subscribe("routes", new ChangeFeed.Listener() {
+			public void onChange(ChangeFeed.Event event) {
+				throw new IllegalStateException("listener failure");
+			}
+		});
+		feed.subscribe("routes", new ChangeFeed.Listener() {
+			public void onChange(ChangeFeed.Event event) {
+				seen.add(event.getKey());
+			}
+		});
+		feed.publishPut("routes", "a");
+		assertEquals("[a]", seen.toString());
+	}
+}
@@ -0,0 +1,75 @@
+/*******************************************************************************
+ * Copyright (c) 2016 AT&T Intellectual Property. All rights reserved.
+ *******************************************************************************/
+package ajsc.providers;
+
+import static org.junit.Assert.*;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class FilePersistenceClientTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private FilePersistenceClient client;
+
+	@Before
+	public void setUp() throws Exception {
+		client = new FilePersistenceClient();
+		client.setStoragePath(folder.newFolder("ajscFileStore").getPath() + "/");
+	}
+
+	@Test
+	public void testFetchPage() {
+		for (int i = 0; i < 23; i++) {
+			client.store("testMap", "a" + i, "value" + i);
+		}
+		for (int i = 0; i < 7; i++) {
+			client.store("testMap", "b" + i, "other" + i);
+		}
+		Set<Object> keys = new HashSet<Object>();
+		PersistencePage page = (PersistencePage) client.fetchPage("testMap", "a", null, 5);
+		int pages = 1;
+		keys.addAll(page.getKeys());
+		while (!page.isLast()) {
+			// keys deleted after the walk started are skipped
+			client.deleteKey("testMap", "b" + pages);
+			page = (PersistencePage) client.fetchPage("testMap", "a", page.getNextToken(), 5);
+			pages++;
+			assertTrue(page.size() <= 5);
+			keys.addAll(page.getKeys());
+		}
+		assertEquals(5, pages);
+		assertEquals(23, keys.size());
+		assertTrue(keys.contains("a22"));
+		assertFalse(keys.contains("b0"));
+
+		page = (PersistencePage) client.fetchPage("testMap", "b", null, 3);
+		assertEquals(3, page.size());
+		assertTrue(page.isLast());
+		assertTrue(((PersistencePage) client.fetchPage("missing", null, null, 10)).isLast());
+	}
+
+	@Test
+	public void testFetchPageWithoutWalk() {
+		for (int i = 0; i < 10; i++) {
+			client.store("testMap", "a" + i, "value" + i);
+		}
+		PersistencePage first = (PersistencePage) client.fetchPage("testMap", null, null, 4);
+		String token = first.getNextToken();
+		String name = token.substring(token.indexOf('/') + 1);
+
+		// a file name, or a walk no longer kept, resumes after that name
+		PersistencePage rest = (PersistencePage) client.fetchPage("testMap", null, name, 10);
+		assertEquals(6, rest.size());
+		assertTrue(rest.isLast());
+		assertEquals(rest.getKeys(), ((PersistencePage) client.fetchPage("testMap", null, "0/" + name, 10)).getKeys());
+	}
+}
@@ -0,0 +1,128 @@
+/*******************************************************************************
+ * Copyright (c) 2016 AT&T Intellectual Property. All rights reserved.
+ *******************************************************************************/
+package ajsc.providers;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class IndexingDBAdapterTest {
+
+	private static final List<String> NAMESPACE = Arrays.asList("namespace");
+	private static final List<String> ROUTE = Arrays.asList("namespace", "routeName", "routeVersion");
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private File storage;
+	private LogPersistenceClient store;
+	private IndexingDBAdapter indexes;
+
+	@Before
+	public void setUp() throws Exception {
+		System.setProperty(LogStore.SYSPROP_COMPACT_INTERVAL_MS, "0");
+		storage = folder.newFolder("ajscIndex");
+		store = new LogPersistenceClient(storage.getPath());
+		indexes = new IndexingDBAdapter(store);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		indexes.shutdown();
+		System.clearProperty(LogStore.SYSPROP_COMPACT_INTERVAL_MS);
+	}
+
+	private static String route(String namespace, String name, String version) {
+		return "{\"class\":\"ajsc.ComputeRoute\",\"contextId\":null,\"namespace\":\"" + namespace
+				+ "\",\"props\":{\"a\":[1,2]},\"routeName\":\"" + name + "\",\"routeVersion\":\"" + version + "\"}";
+	}
+
+	@Test
+	public void testIndexBuiltFromStore() {
+		store.store("routes", "ns1:a:1", route("ns1", "a", "1"));
+		store.store("routes", "ns1:b:1", route("ns1", "b", "1"));
+		store.store("routes", "ns2:a:1", route("ns2", "a", "1"));
+		store.store("routes", "text", "not json");
+
+		assertEquals(Arrays.asList("ns1:a:1", "ns1:b:1"), sorted(indexes.findKeys("routes", NAMESPACE, Arrays.asList("ns1"))));
+		assertEquals(Arrays.asList("ns2:a:1"), indexes.findKeys("routes", ROUTE, Arrays.asList("ns2", "a", "1")));
+		assertEquals(Collections.emptyList(), indexes.findKeys("routes", ROUTE, Arrays.asList("ns2", "a", "2")));
+		assertEquals(Collections.emptyList(), indexes.findKeys("missing", NAMESPACE, Arrays.asList("ns1")));
+		assertEquals(Arrays.asList("ns1:a:1", "ns1:b:1", "ns2:a:1"),
+				sorted(indexes.findKeys("routes", Arrays.asList("contextId"), Arrays.asList((String) null))));
+	}
+
+	@Test
+	public void testWritesUpdateIndex() {
+		indexes.store("routes", "ns1:a:1", route("ns1", "a", "1"));
+		assertEquals(Arrays.asList("ns1:a:1"), indexes.findKeys("routes", NAMESPACE, Arrays.asList("ns1")));
+
+		indexes.store("routes", "ns1:b:1", route("ns1", "b", "1"));
+		indexes.storeByteArray("routes", "ns2:a:1", route("ns2", "a", "1").getBytes(LogStore.UTF_8));
+		assertEquals(Arrays.asList("ns1:a:1", "ns1:b:1"), indexes.findKeys("routes", NAMESPACE, Arrays.asList("ns1")));
+		assertEquals(Arrays.asList("ns2:a:1"), indexes.findKeys("routes", NAMESPACE, Arrays.asList("ns2")));
+
+		// a changed value moves the key
+		indexes.store("routes", "ns1:b:1", route("ns2", "b", "1"));
+		assertEquals(Arrays.asList("ns1:a:1"), indexes.findKeys("routes", NAMESPACE, Arrays.asList("ns1")));
+		assertEquals(Arrays.asList("ns2:a:1", "ns1:b:1"), indexes.findKeys("routes", NAMESPACE, Arrays.asList("ns2")));
+
+		indexes.deleteKey("routes", "ns1:a:1");
+		indexes.store("routes", "ns2:a:1", "not json");
+		assertEquals(Collections.emptyList(), indexes.findKeys("routes", NAMESPACE, Arrays.asList("ns1")));
+		assertEquals(Arrays.asList("ns1:b:1"), indexes.findKeys("routes", NAMESPACE, Arrays.asList("ns2")));
+	}
+
+	@Test
+	public void testFindKeysMatching() {
+		indexes.store("routes", "ns1:a:1", route("ns1", "a", "1"));
+		indexes.store("routes", "ns1:a:2", route("ns1", "a", "2"));
+		indexes.store("routes", "ns2:a:2", route("ns2", "a", "2"));
+		final int[] calls = new int[1];
+		List<String> keys = indexes.findKeysMatching("routes", NAMESPACE, new IndexingDBAdapter.Filter() {
+			public boolean matches(List<String> values) {
+				calls[0]++;
+				return values.get(0).matches("ns1.*");
+			}
+		});
+		assertEquals(Arrays.asList("ns1:a:1", "ns1:a:2"), sorted(keys));
+		// once per distinct namespace
+		assertEquals(2, calls[0]);
+	}
+
+	@Test
+	public void testIndexRebuiltAfterRestart() throws Exception {
+		indexes.store("routes", "ns1:a:1", route("ns1", "a", "1"));
+		assertEquals(Arrays.asList("ns1:a:1"), indexes.findKeys("routes", NAMESPACE, Arrays.asList("ns1")));
+		indexes.store("routes", "ns1:b:1", route("ns1", "b", "1"));
+		indexes.shutdown();
+
+		indexes = new IndexingDBAdapter(new LogPersistenceClient(storage.getPath()));
+		assertEquals(Arrays.asList("ns1:a:1", "ns1:b:1"), sorted(indexes.findKeys("routes", NAMESPACE, Arrays.asList("ns1"))));
+		assertEquals(1, indexes.getStatistics().get("routes").get("namespace").intValue());
+	}
+
+	@Test
+	public void testExtract() {
+		assertArrayEquals(new String[] { "ns1", "1", null }, IndexingDBAdapter.extract(
+				"{\"a\":{\"namespace\":\"x\"},\"namespace\":\"ns1\",\"version\":1,\"b\":[]}".getBytes(LogStore.UTF_8),
+				Arrays.asList("namespace", "version", "missing")));
+		assertNull(IndexingDBAdapter.extract("[1]".getBytes(LogStore.UTF_8), NAMESPACE));
+		assertNull(IndexingDBAdapter.extract(new byte[] { 'P', 'K', 3, 4 }, NAMESPACE));
+	}
+
+	private static List<String> sorted(List<String> keys) {
+		Collections.sort(keys);
+		return keys;
+	}
+}
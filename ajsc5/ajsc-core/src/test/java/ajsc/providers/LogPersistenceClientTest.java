@@ -0,0 +1,216 @@
+/*******************************************************************************
+ * Copyright (c) 2016 AT&T Intellectual Property. All rights reserved.
+ *******************************************************************************/
+package ajsc.providers;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class LogPersistenceClientTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private File storage;
+	private LogPersistenceClient client;
+
+	@Before
+	public void setUp() throws Exception {
+		System.setProperty(LogStore.SYSPROP_COMPACT_INTERVAL_MS, "0");
+		storage = folder.newFolder("ajscLogStore");
+		client = new LogPersistenceClient(storage.getPath());
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		client.shutdown();
+		System.clearProperty(LogStore.SYSPROP_COMPACT_INTERVAL_MS);
+	}
+
+	@Test
+	public void testStoreFetchDelete() {
+		client.store("testMap", "key1", "value1");
+		client.storeByteArray("testMap", "key2", new byte[] { 1, 2, 3 });
+		assertEquals("value1", client.fetch("testMap", "key1"));
+		assertArrayEquals(new byte[] { 1, 2, 3 }, (byte[]) client.fetchByteArray("testMap", "key2"));
+		assertEquals(Arrays.asList("key1", "key2"), client.fetchKeys("testMap"));
+
+		client.deleteKey("testMap", "key1");
+		assertNull(client.fetch("testMap", "key1"));
+		assertEquals(Arrays.asList("key2"), client.fetchKeys("testMap"));
+	}
+
+	@Test
+	public void testMissingMap() {
+		assertNull(client.fetch("missing", "key1"));
+		assertNull(client.fetchAllEntries("missing"));
+		assertNull(client.fetchAllByteArrayEntries("missing"));
+		assertEquals(0, ((List<?>) client.fetchKeys("missing")).size());
+		client.deleteKey("missing", "key1");
+	}
+
+	@Test
+	public void testIndexRebuiltOnRestart() throws Exception {
+		client.store("testMap", "key1", "value1");
+		client.store("testMap", "key2", "value2");
+		client.store("testMap", "key1", "value1b");
+		client.deleteKey("testMap", "key2");
+		client.store("testMap", "key3", "value3");
+		client.shutdown();
+
+		client = new LogPersistenceClient(storage.getPath());
+		assertEquals(Arrays.asList("value1b", "value3"), client.fetchAllEntries("testMap"));
+		assertNull(client.fetch("testMap", "key2"));
+		assertTrue(client.fetchMapNames().contains("testMap"));
+	}
+
+	@Test
+	public void testLegacyLayoutIsImported() throws Exception {
+		File mapDir = new File(storage, LogStore.md5("legacyMap"));
+		mapDir.mkdirs();
+		Files.write(new File(storage, LogStore.md5("legacyMap") + ".mapname").toPath(), "legacyMap".getBytes("UTF-8"));
+		for (int i = 0; i < 3; i++) {
+			File value = new File(mapDir, LogStore.md5("key" + i));
+			Files.write(value.toPath(), ("value" + i).getBytes("UTF-8"));
+			Files.write(new File(value.getPath() + ".key").toPath(), ("key" + i).getBytes("UTF-8"));
+		}
+		assertTrue(client.fetchMapNames().contains("legacyMap"));
+
+		Map<?, ?> entries = (Map<?, ?>) client.fetchAllByteArrayEntries("legacyMap");
+		assertEquals(3, entries.size());
+		assertArrayEquals("value1".getBytes("UTF-8"), (byte[]) entries.get("key1"));
+
+		// later writes go to the log only and survive a restart
+		client.store("legacyMap", "key0", "changed");
+		client.shutdown();
+		client = new LogPersistenceClient(storage.getPath());
+		assertEquals("changed", client.fetch("legacyMap", "key0"));
+		assertEquals("value0", new String(Files.readAllBytes(new File(mapDir, LogStore.md5("key0")).toPath()), "UTF-8"));
+	}
+
+	@Test
+	public void testFetchPage() {
+		for (int i = 0; i < 5; i++) {
+			client.store("testMap", "a" + i, "value" + i);
+		}
+		client.store("testMap", "b0", "other");
+		PersistencePage page = (PersistencePage) client.fetchPage("testMap", "a", null, 2);
+		assertEquals(Arrays.asList("a0", "a1"), page.getKeys());
+		assertEquals("value1", page.getEntries().get("a1"));
+
+		// the next page starts after the token even if the key was deleted
+		client.deleteKey("testMap", "a1");
+		page = (PersistencePage) client.fetchPage("testMap", "a", page.getNextToken(), 2);
+		assertEquals(Arrays.asList("a2", "a3"), page.getKeys());
+		page = (PersistencePage) client.fetchPage("testMap", "a", page.getNextToken(), 2);
+		assertEquals(Arrays.asList("a4"), page.getKeys());
+		assertTrue(page.isLast());
+
+		page = (PersistencePage) client.fetchPage("testMap", null, "a4", 10);
+		assertEquals(Arrays.asList("b0"), page.getKeys());
+		assertTrue(((PersistencePage) client.fetchPage("missing", null, null, 10)).isLast());
+	}
+
+	@Test
+	public void testOpenByteArray() throws Exception {
+		byte[] jar = new byte[100000];
+		for (int i = 0; i < jar.length; i++) {
+			jar[i] = (byte) i;
+		}
+		client.store("testMap", "key1", "value1");
+		client.storeByteArray("testMap", "jar", jar);
+		assertNull(client.openByteArray("testMap", "missing"));
+		assertNull(client.openByteArray("missing", "jar"));
+
+		ValueChannel channel = (ValueChannel) client.openByteArray("testMap", "jar");
+		try {
+			// the open value outlives the segment it was read from
+			client.store("testMap", "jar", "replaced");
+			client.compact("testMap");
+			assertEquals(jar.length, channel.size());
+			File target = new File(storage, "jar.copy");
+			assertEquals(jar.length, channel.transferTo(target));
+			assertArrayEquals(jar, Files.readAllBytes(target.toPath()));
+		} finally {
+			channel.close();
+		}
+	}
+
+	@Test
+	public void testCompactionKeepsLatestValues() throws Exception {
+		for (int round = 0; round < 20; round++) {
+			for (int i = 0; i < 10; i++) {
+				client.store("testMap", "key" + i, "value" + i + "-" + round);
+			}
+		}
+		client.deleteKey("testMap", "key9");
+		File mapDir = new File(new File(storage, LogStore.LOG_DIR), LogStore.md5("testMap"));
+		long before = segmentBytes(mapDir);
+
+		client.compact("testMap");
+		client.store("testMap", "key0", "after");
+
+		assertTrue(segmentBytes(mapDir) < before / 10);
+		assertEquals("after", client.fetch("testMap", "key0"));
+		assertEquals("value5-19", client.fetch("testMap", "key5"));
+		assertNull(client.fetch("testMap", "key9"));
+
+		client.shutdown();
+		client = new LogPersistenceClient(storage.getPath());
+		assertEquals("after", client.fetch("testMap", "key0"));
+		assertEquals("value8-19", client.fetch("testMap", "key8"));
+		assertEquals(9, ((List<?>) client.fetchKeys("testMap")).size());
+	}
+
+	@Test
+	public void testTornTailIsTruncated() throws Exception {
+		client.store("testMap", "key1", "value1");
+		client.store("testMap", "key2", "value2");
+		client.shutdown();
+
+		File mapDir = new File(new File(storage, LogStore.LOG_DIR), LogStore.md5("testMap"));
+		File[] segments = mapDir.listFiles();
+		Arrays.sort(segments);
+		File last = null;
+		for (File f : segments) {
+			if (f.getName().endsWith(LogStore.SEGMENT_SUFFIX)) {
+				last = f;
+			}
+		}
+		long length = last.length();
+		FileOutputStream out = new FileOutputStream(last, true);
+		out.write(new byte[] { 0, 0, 0, 7, 1, 0 });
+		out.close();
+
+		client = new LogPersistenceClient(storage.getPath());
+		assertEquals("value2", client.fetch("testMap", "key2"));
+		assertEquals(length, last.length());
+		client.store("testMap", "key3", "value3");
+		client.shutdown();
+
+		client = new LogPersistenceClient(storage.getPath());
+		assertEquals(Arrays.asList("value1", "value2", "value3"), client.fetchAllEntries("testMap"));
+	}
+
+	private static long segmentBytes(File dir) {
+		long bytes = 0;
+		for (File f : dir.listFiles()) {
+			if (f.getName().endsWith(LogStore.SEGMENT_SUFFIX)) {
+				bytes += f.length();
+			}
+		}
+		return bytes;
+	}
+}
@@ -0,0 +1,155 @@
+/*******************************************************************************
+ * Copyright (c) 2016 AT&T Intellectual Property. All rights reserved.
+ *******************************************************************************/
+package ajsc.providers;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class MVStorePersistenceClientTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private File storage;
+	private MVStorePersistenceClient client;
+
+	@Before
+	public void setUp() throws Exception {
+		storage = folder.newFolder("ajscMVStore");
+		client = new MVStorePersistenceClient(storage.getPath());
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		client.shutdown();
+	}
+
+	@Test
+	public void testStoreFetchDelete() {
+		client.store("testMap", "key1", "value1");
+		client.storeByteArray("testMap", "key2", new byte[] { 1, 2, 3 });
+		assertEquals("value1", client.fetch("testMap", "key1"));
+		assertArrayEquals(new byte[] { 1, 2, 3 }, (byte[]) client.fetchByteArray("testMap", "key2"));
+		assertEquals(Arrays.asList("key1", "key2"), client.fetchKeys("testMap"));
+
+		client.deleteKey("testMap", "key1");
+		assertNull(client.fetch("testMap", "key1"));
+		assertEquals(Arrays.asList("key2"), client.fetchKeys("testMap"));
+	}
+
+	@Test
+	public void testMissingMap() {
+		assertNull(client.fetch("missing", "key1"));
+		assertNull(client.fetchAllEntries("missing"));
+		assertNull(client.fetchAllByteArrayEntries("missing"));
+		assertEquals(0, ((List<?>) client.fetchKeys("missing")).size());
+		client.deleteKey("missing", "key1");
+	}
+
+	@Test
+	public void testValuesSurviveRestart() throws Exception {
+		client.store("testMap", "key1", "value1");
+		client.store("testMap", "key2", "value2");
+		client.store("testMap", "key1", "value1b");
+		client.deleteKey("testMap", "key2");
+		client.store("testMap", "key3", "value3");
+		client.shutdown();
+
+		client = new MVStorePersistenceClient(storage.getPath());
+		assertEquals(Arrays.asList("value1b", "value3"), client.fetchAllEntries("testMap"));
+		assertNull(client.fetch("testMap", "key2"));
+		assertTrue(client.fetchMapNames().contains("testMap"));
+	}
+
+	@Test
+	public void testFetchPage() {
+		for (int i = 0; i < 5; i++) {
+			client.store("testMap", "a" + i, "value" + i);
+		}
+		client.store("testMap", "b0", "other");
+		PersistencePage page = (PersistencePage) client.fetchPage("testMap", "a", null, 2);
+		assertEquals(Arrays.asList("a0", "a1"), page.getKeys());
+		assertEquals("value1", page.getEntries().get("a1"));
+
+		// the next page starts after the token even if the key was deleted
+		client.deleteKey("testMap", "a1");
+		page = (PersistencePage) client.fetchPage("testMap", "a", page.getNextToken(), 2);
+		assertEquals(Arrays.asList("a2", "a3"), page.getKeys());
+		page = (PersistencePage) client.fetchPage("testMap", "a", page.getNextToken(), 2);
+		assertEquals(Arrays.asList("a4"), page.getKeys());
+		assertTrue(page.isLast());
+
+		page = (PersistencePage) client.fetchPage("testMap", null, "a4", 10);
+		assertEquals(Arrays.asList("b0"), page.getKeys());
+		assertTrue(((PersistencePage) client.fetchPage("missing", null, null, 10)).isLast());
+	}
+
+	@Test
+	public void testOpenByteArray() throws Exception {
+		byte[] jar = new byte[100000];
+		for (int i = 0; i < jar.length; i++) {
+			jar[i] = (byte) i;
+		}
+		client.storeByteArray("testMap", "jar", jar);
+		assertNull(client.openByteArray("testMap", "missing"));
+		assertNull(client.openByteArray("missing", "jar"));
+
+		ValueChannel channel = (ValueChannel) client.openByteArray("testMap", "jar");
+		try {
+			client.store("testMap", "jar", "replaced");
+			assertEquals(jar.length, channel.size());
+			File target = new File(storage, "jar.copy");
+			assertEquals(jar.length, channel.transferTo(target));
+			assertArrayEquals(jar, Files.readAllBytes(target.toPath()));
+		} finally {
+			channel.close();
+		}
+	}
+
+	@Test
+	public void testBatchCommit() throws Exception {
+		client.store("docs", "old", "x");
+		WriteBatch batch = new WriteBatch();
+		batch.put("routes", "a", "1");
+		batch.putByteArray("jars", "j", new byte[] { 1, 2 });
+		batch.delete("docs", "old");
+		BatchJournal.forStorage(storage.getPath()).commit(new CachingDBAdapter(client), batch);
+		client.shutdown();
+
+		client = new MVStorePersistenceClient(storage.getPath());
+		assertEquals("1", client.fetch("routes", "a"));
+		assertArrayEquals(new byte[] { 1, 2 }, (byte[]) client.fetchByteArray("jars", "j"));
+		assertNull(client.fetch("docs", "old"));
+	}
+
+	@Test
+	public void testMigrateFileLayout() throws Exception {
+		File mapDir = new File(storage, LogStore.md5("legacyMap"));
+		mapDir.mkdirs();
+		Files.write(new File(storage, LogStore.md5("legacyMap") + ".mapname").toPath(), "legacyMap".getBytes("UTF-8"));
+		for (int i = 0; i < 3; i++) {
+			File value = new File(mapDir, LogStore.md5("key" + i));
+			Files.write(value.toPath(), ("value" + i).getBytes("UTF-8"));
+			Files.write(new File(value.getPath() + ".key").toPath(), ("key" + i).getBytes("UTF-8"));
+		}
+		client.shutdown();
+
+		MVStorePersistenceClient.main(new String[] { storage.getPath() });
+		client = new MVStorePersistenceClient(storage.getPath());
+		assertEquals(Arrays.asList("key0", "key1", "key2"), client.fetchKeys("legacyMap"));
+		Map<?, ?> entries = (Map<?, ?>) client.fetchAllByteArrayEntries("legacyMap");
+		assertArrayEquals("value1".getBytes("UTF-8"), (byte[]) entries.get("key1"));
+	}
+}
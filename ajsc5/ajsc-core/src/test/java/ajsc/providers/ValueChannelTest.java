@@ -0,0 +1,136 @@
+/*******************************************************************************
+ * Copyright (c) 2016 AT&T Intellectual Property. All rights reserved.
+ *******************************************************************************/
+package ajsc.providers;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ValueChannelTest {
+
+	private File file;
+
+	@Before
+	public void setUp() throws Exception {
+		file = File.createTempFile("ajscValue", ".bin");
+		Files.write(file.toPath(), "headerVALUEtrailer".getBytes("UTF-8"));
+	}
+
+	@After
+	public void tearDown() {
+		file.delete();
+	}
+
+	@Test
+	public void testFileRange() throws Exception {
+		ValueChannel channel = ValueChannel.open(file, 6, 5);
+		assertEquals(5, channel.size());
+		ByteBuffer buf = ByteBuffer.allocate(3);
+		assertEquals(3, channel.read(buf));
+		assertEquals("VAL", new String(buf.array(), "UTF-8"));
+
+		// the rest of the value only, not the trailer
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		assertEquals(2, channel.transferTo(Channels.newChannel(out)));
+		assertEquals("UE", out.toString("UTF-8"));
+		assertEquals(-1, channel.read(ByteBuffer.allocate(1)));
+		channel.close();
+		try {
+			channel.read(ByteBuffer.allocate(1));
+			fail("closed channel was read");
+		} catch (ClosedChannelException e) {
+			// expected
+		}
+	}
+
+	@Test
+	public void testTransferToFile() throws Exception {
+		File target = File.createTempFile("ajscValue", ".copy");
+		try {
+			Files.write(target.toPath(), "a longer previous content".getBytes("UTF-8"));
+			ValueChannel channel = ValueChannel.open(file);
+			try {
+				assertEquals(18, channel.transferTo(target));
+			} finally {
+				channel.close();
+			}
+			assertEquals("headerVALUEtrailer", new String(Files.readAllBytes(target.toPath()), "UTF-8"));
+		} finally {
+			target.delete();
+		}
+	}
+
+	@Test
+	public void testTransferToFullTarget() throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		ValueChannel channel = ValueChannel.open(file, 6, 5);
+		assertEquals(3, channel.transferTo(new LimitedChannel(out, 3)));
+		assertEquals(2, channel.transferTo(new LimitedChannel(out, 3)));
+		assertEquals("VALUE", out.toString("UTF-8"));
+		channel.close();
+
+		out.reset();
+		channel = ValueChannel.of(new byte[] { 1, 2, 3, 4 });
+		assertEquals(3, channel.transferTo(new LimitedChannel(out, 3)));
+		assertEquals(1, channel.transferTo(new LimitedChannel(out, 3)));
+		assertArrayEquals(new byte[] { 1, 2, 3, 4 }, out.toByteArray());
+		channel.close();
+	}
+
+	@Test
+	public void testByteArray() throws Exception {
+		byte[] value = { 1, 2, 3, 4 };
+		ValueChannel channel = ValueChannel.of(value);
+		InputStream in = channel.asInputStream();
+		assertEquals(1, in.read());
+		assertArrayEquals(new byte[] { 2, 3, 4 }, channel.toByteArray());
+		in.close();
+		assertFalse(channel.isOpen());
+		assertArrayEquals(new byte[] { 1, 2, 3, 4 }, value);
+	}
+
+	/**
+	 * Takes at most limit bytes, then nothing, as a non-blocking channel
+	 * whose buffer is full.
+	 */
+	private static final class LimitedChannel implements WritableByteChannel {
+		private final WritableByteChannel out;
+		private int limit;
+
+		LimitedChannel(ByteArrayOutputStream out, int limit) {
+			this.out = Channels.newChannel(out);
+			this.limit = limit;
+		}
+
+		public int write(ByteBuffer src) throws java.io.IOException {
+			if (limit == 0) {
+				return 0;
+			}
+			ByteBuffer window = src.duplicate();
+			window.limit(window.position() + Math.min(limit, window.remaining()));
+			int n = out.write(window);
+			src.position(src.position() + n);
+			limit -= n;
+			return n;
+		}
+
+		public boolean isOpen() {
+			return true;
+		}
+
+		public void close() {
+		}
+	}
+}
@@ -0,0 +1,150 @@
+/*******************************************************************************
+ * Copyright (c) 2016 AT&T Intellectual Property. All rights reserved.
+ *******************************************************************************/
+package ajsc.utils;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class BootstrapPlanTest {
+
+	private final List<String> ran = Collections.synchronizedList(new ArrayList<String>());
+
+	private Callable<Object> record(final String name) {
+		return new Callable<Object>() {
+			public Object call() {
+				ran.add(name);
+				return null;
+			}
+		};
+	}
+
+	@Test
+	public void testIndependentStepsOverlap() throws Exception {
+		final CountDownLatch both = new CountDownLatch(2);
+		Callable<Object> meet = new Callable<Object>() {
+			public Object call() throws Exception {
+				both.countDown();
+				// fails unless the other step runs at the same time
+				assertTrue(both.await(10, TimeUnit.SECONDS));
+				return null;
+			}
+		};
+		BootstrapPlan plan = new BootstrapPlan()
+				.step("first", record("first"))
+				.step("a", meet, "first")
+				.step("b", meet, "first")
+				.step("last", record("last"), "a", "b");
+		plan.run(4);
+		assertEquals(Arrays.asList("first", "last"), ran);
+		List<String> steps = new ArrayList<String>(plan.getStepMillis().keySet());
+		assertEquals(4, steps.size());
+		assertEquals("first", steps.get(0));
+		assertEquals("last", steps.get(3));
+	}
+
+	@Test
+	public void testInlineInDeclarationOrder() throws Exception {
+		new BootstrapPlan()
+				.step("a", record("a"))
+				.step("c", record("c"), "b")
+				.step("b", record("b"), "a")
+				.step("d", record("d"), "a")
+				.run(1);
+		assertEquals(Arrays.asList("a", "b", "c", "d"), ran);
+	}
+
+	@Test
+	public void testFailureNamesStepAndStopsPlan() throws Exception {
+		final IllegalStateException cause = new IllegalStateException("no docs");
+		BootstrapPlan plan = new BootstrapPlan()
+				.step("docService", new Callable<Object>() {
+					public Object call() {
+						throw cause;
+					}
+				})
+				.step("computeService", record("computeService"), "docService");
+		try {
+			plan.run(2);
+			fail();
+		} catch (Error e) {
+			assertTrue(e.getMessage(), e.getMessage().startsWith("Bootstrap step docService failed"));
+			assertSame(cause, e.getCause());
+		}
+		assertTrue(ran.isEmpty());
+		assertTrue(plan.getStepMillis().isEmpty());
+	}
+
+	@Test
+	public void testErrorIsThrownAsIs() throws Exception {
+		final Error cause = new Error("docService init failed in bootstrap!");
+		try {
+			new BootstrapPlan().step("docService", new Callable<Object>() {
+				public Object call() {
+					throw cause;
+				}
+			}).step("other", record("other")).run(2);
+			fail();
+		} catch (Error e) {
+			assertSame(cause, e);
+			assertTrue(e.getSuppressed()[0].getMessage().startsWith("Bootstrap step docService failed"));
+		}
+	}
+
+	@Test
+	public void testContextClassLoader() throws Exception {
+		final ClassLoader loader = new ClassLoader(getClass().getClassLoader()) {
+		};
+		final List<ClassLoader> seen = Collections.synchronizedList(new ArrayList<ClassLoader>());
+		Callable<Object> look = new Callable<Object>() {
+			public Object call() {
+				seen.add(Thread.currentThread().getContextClassLoader());
+				return null;
+			}
+		};
+		ClassLoader previous = Thread.currentThread().getContextClassLoader();
+		Thread.currentThread().setContextClassLoader(loader);
+		try {
+			new BootstrapPlan().step("a", look).step("b", look).run(2);
+		} finally {
+			Thread.currentThread().setContextClassLoader(previous);
+		}
+		assertEquals(Arrays.asList(loader, loader), seen);
+	}
+
+	@Test
+	public void testUnknownStep() throws Exception {
+		try {
+			new BootstrapPlan().step("a", record("a"), "missing").run(2);
+			fail();
+		} catch (IllegalArgumentException e) {
+			assertEquals("Bootstrap step a runs after unknown step missing", e.getMessage());
+		}
+		assertTrue(ran.isEmpty());
+	}
+
+	@Test
+	public void testCycle() throws Exception {
+		try {
+			new BootstrapPlan()
+					.step("a", record("a"))
+					.step("b", record("b"), "a", "c")
+					.step("c", record("c"), "b")
+					.run(2);
+			fail();
+		} catch (IllegalArgumentException e) {
+			assertEquals("Bootstrap steps [b, c] depend on each other", e.getMessage());
+		}
+		// found before any step runs
+		assertTrue(ran.isEmpty());
+	}
+}
@@ -0,0 +1,97 @@
+/*******************************************************************************
+ * Copyright (c) 2016 AT&T Intellectual Property. All rights reserved.
+ *******************************************************************************/
+package ajsc.utils;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+public class EndpointRegistryTest {
+
+	@Test
+	public void testFindConflict() {
+		EndpointRegistry registry = new EndpointRegistry();
+		registry.register("default:0", "ns:a:1", Arrays.asList("servlet:/a?matchOnUriPrefix=true", "direct:a"));
+		registry.register("default:0", "ns:b:1", Arrays.asList("servlet:/b"));
+
+		assertNull(registry.findConflict("ns:a:1", Arrays.asList("direct:a")));
+		assertEquals("ns:a:1", registry.findConflict("ns:c:1", Arrays.asList("direct:c", "direct:a")));
+		assertEquals("ns:b:1", registry.getRouteId("servlet:/b"));
+
+		// a route registered again keeps only its new inputs
+		registry.register("default:0", "ns:a:1", Arrays.asList("direct:a2"));
+		assertNull(registry.findConflict("ns:c:1", Arrays.asList("direct:a")));
+		assertEquals("ns:a:1", registry.getRouteId("direct:a2"));
+
+		registry.unregister("ns:a:1");
+		assertNull(registry.getRouteId("direct:a2"));
+		assertEquals(1, registry.size());
+	}
+
+	@Test
+	public void testServiceUris() {
+		EndpointRegistry registry = new EndpointRegistry();
+		Map<String, String> serviceUris = registry.getServiceUris();
+		registry.register("default:0", "ns:a:1", Arrays.asList("att-dme2-servlet:///{version}/items?matchOnUriPrefix=true"));
+		registry.register("ctx:1", "ns:b:1", Arrays.asList("att-dme2-servlet:///{version}/items?filter=x"));
+		assertEquals("ns:b:1", serviceUris.get("/version/items"));
+
+		registry.unregister("ns:b:1");
+		assertEquals("ns:a:1", serviceUris.get("/version/items"));
+		registry.unregisterContext("default:0");
+		assertTrue(serviceUris.isEmpty());
+		assertEquals(Collections.emptyMap(), registry.getEndpoints());
+	}
+
+	@Test
+	public void testDme2Uris() {
+		EndpointRegistry registry = new EndpointRegistry();
+		registry.register("default:0", "ns:a:1", Arrays.asList("att-dme2-servlet:///items"));
+		Map<String, String> serviceUris = registry.getServiceUris();
+		registry.registerDme2Uri("/items", "/services/items");
+		serviceUris.put("/other", "/services/other");
+		assertEquals("ns:a:1", serviceUris.get("/items"));
+		assertEquals(Collections.singletonMap("/items", "ns:a:1"), registry.getRouteServiceUris());
+
+		// routes removed or reloaded do not drop what was registered with GRM
+		registry.unregister("ns:a:1");
+		registry.clear();
+		assertEquals("/services/items", serviceUris.get("/items"));
+		assertEquals(2, serviceUris.size());
+		assertEquals("/services/other", serviceUris.remove("/other"));
+		assertEquals(Collections.singletonMap("/items", "/services/items"), new HashMap<String, String>(serviceUris));
+	}
+
+	@Test
+	public void testListener() {
+		final int[] changes = new int[1];
+		EndpointRegistry registry = new EndpointRegistry(new Runnable() {
+			public void run() {
+				changes[0]++;
+			}
+		});
+		registry.register("default:0", "ns:a:1", Arrays.asList("direct:a"));
+		registry.register("default:0", "ns:a:1", Arrays.asList("direct:a2"));
+		registry.register("ctx:1", "ns:b:1", Arrays.asList("direct:b"));
+		assertEquals(3, changes[0]);
+		registry.unregister("ns:a:1");
+		registry.unregister("ns:a:1");
+		registry.unregisterContext("ctx:1");
+		registry.registerDme2Uri("/items", "/services/items");
+		registry.clear();
+		assertEquals(7, changes[0]);
+	}
+
+	@Test
+	public void testToServiceUri() {
+		assertEquals("/hello/test", EndpointRegistry.toServiceUri("att-dme2-servlet:///hello/test?matchOnUriPrefix=true"));
+		assertEquals("/hello/test", EndpointRegistry.toServiceUri("att-dme2-servlet://hello/test"));
+		assertEquals("servlet:/hello/id", EndpointRegistry.toServiceUri("servlet:/hello/{id}"));
+	}
+}
@@ -0,0 +1,58 @@
+/*******************************************************************************
+ * Copyright (c) 2016 AT&T Intellectual Property. All rights reserved.
+ *******************************************************************************/
+package ajsc.utils;
+
+import static org.junit.Assert.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+import org.junit.Test;
+
+public class PropertyTemplateTest {
+
+	@Test
+	public void testRender() {
+		Map<String, String> map = new HashMap<String, String>();
+		map.put("host", "localhost");
+		map.put("port", "8080");
+		map.put("empty", "");
+		PropertyTemplate template = PropertyTemplate
+				.compile("<from uri=\"http://{{host}}:{{port}}/{{missing}}\"/>{{empty}}{{host}}");
+		assertEquals("<from uri=\"http://localhost:8080/{{missing}}\"/>localhost", template.render(map));
+
+		Properties props = new Properties();
+		props.setProperty("host", "remote");
+		assertEquals("<from uri=\"http://remote:{{port}}/{{missing}}\"/>{{empty}}remote", template.render(props));
+	}
+
+	@Test
+	public void testText() {
+		Map<String, String> map = new HashMap<String, String>();
+		map.put("a", "A");
+		map.put("a}b", "AB");
+		// single braces and \r\n
+		assertEquals("{\"key\"\n:{ \"s\":\"500\"\n}", PropertyTemplate.compile("{\"key\"\r:{ \"s\":\"500\"\r\n}").render(map));
+		// new lines in a key are dropped
+		assertEquals("x A", PropertyTemplate.compile("x {{\na\r}}").render(map));
+		// a single } in a key is also written before the placeholder
+		assertEquals("}AB", PropertyTemplate.compile("{{a}b}}").render(map));
+		// an unterminated placeholder is terminated
+		assertEquals("x {{c}}", PropertyTemplate.compile("x {{c").render(map));
+		assertEquals("A}", PropertyTemplate.compile("{{a}}}").render(map));
+		assertEquals("{", PropertyTemplate.compile("{").render(map));
+	}
+
+	@Test
+	public void testCache() {
+		String text = "<to uri=\"{{a}}\"/>";
+		PropertyTemplate template = PropertyTemplate.of(text);
+		assertSame(template, PropertyTemplate.of(new String(text)));
+		for (int i = 0; i < PropertyTemplate.CACHE_SIZE; i++) {
+			PropertyTemplate.of(text + i);
+		}
+		assertNotSame(template, PropertyTemplate.of(text));
+	}
+}
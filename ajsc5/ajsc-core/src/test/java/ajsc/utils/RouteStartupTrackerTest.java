@@ -0,0 +1,67 @@
+/*******************************************************************************
+ * Copyright (c) 2016 AT&T Intellectual Property. All rights reserved.
+ *******************************************************************************/
+package ajsc.utils;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.camel.builder.RouteBuilder;
+import org.apache.camel.impl.DefaultCamelContext;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class RouteStartupTrackerTest {
+
+	private final RouteStartupTracker tracker = new RouteStartupTracker();
+	private DefaultCamelContext ctx;
+
+	@Before
+	public void setUp() throws Exception {
+		ctx = new DefaultCamelContext();
+		ctx.getManagementStrategy().addEventNotifier(tracker.newNotifier());
+		ctx.addRoutes(new RouteBuilder() {
+			@Override
+			public void configure() {
+				from("direct:a").routeId("a").to("log:a");
+				from("direct:b").routeId("b").noAutoStartup().to("log:b");
+			}
+		});
+		ctx.start();
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		ctx.stop();
+	}
+
+	@Test
+	public void testAwaitStarted() throws Exception {
+		List<String> routes = Arrays.asList("a", "b");
+		assertTrue(tracker.awaitStarted(Collections.singletonList("a"), 0, TimeUnit.MILLISECONDS));
+		assertFalse(tracker.awaitStarted(routes, 50, TimeUnit.MILLISECONDS));
+		assertEquals(Collections.singleton("b"), tracker.getNotStarted(routes));
+
+		new Thread() {
+			@Override
+			public void run() {
+				try {
+					Thread.sleep(50);
+					ctx.startRoute("b");
+				} catch (Exception e) {
+					throw new IllegalStateException(e);
+				}
+			}
+		}.start();
+		assertTrue(tracker.awaitStarted(routes, 10, TimeUnit.SECONDS));
+		assertTrue(tracker.getStartupMillis().get("b") >= 50);
+
+		ctx.stopRoute("a");
+		assertEquals(Collections.singleton("a"), tracker.getNotStarted(routes));
+	}
+}
@@ -9,6 +9,7 @@ import javax.servlet.http.HttpServletResponse;
 
 import org.junit.Test;
 
+import ajsc.common.CommonNames;
 import ajsc.exceptions.CSIRESTException;
 import ajsc.exceptions.RESTExceptionUtil;
 import ajsc.utils.ExceptionInfo;
@@ -25,6 +26,15 @@ public class CSIRESTExceptionTest {
 		assertEquals(HttpServletResponse.SC_INTERNAL_SERVER_ERROR,restException.getHTTPErrorCode());
 	}
 	
+	@Test
+	public void testErrorBodyFromSoapFault() throws Exception{
+		restException = RESTExceptionUtil.csiRESTError("203","Resource not available");
+		String body = new String(restException.getErrorBody(CommonNames.BODY_TYPE_JSON), "UTF-8");
+		assertEquals("{\"RequestError\":{\"ServiceException\":{\"MessageId\":\"SVC9999\","
+				+ "\"Text\":\"An internal error has occurred: Resource not available\","
+				+ "\"Variables\":[\"Resource not available\"]}}}", body);
+	}
+	
 	public ExceptionInfo expectedExceptionInfo(){
 		ExceptionInfo info = new ExceptionInfo();
 		info.setMessageId("SVC9999");
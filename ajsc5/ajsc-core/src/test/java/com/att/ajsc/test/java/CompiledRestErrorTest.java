@@ -0,0 +1,56 @@
+/*******************************************************************************
+ * Copyright (c) 2016 AT&T Intellectual Property. All rights reserved.
+ *******************************************************************************/
+package com.att.ajsc.test.java;
+
+import static org.junit.Assert.*;
+
+import java.nio.charset.Charset;
+
+import org.junit.Test;
+
+import ajsc.common.CommonNames;
+import ajsc.exceptions.CompiledRestError;
+
+public class CompiledRestErrorTest {
+
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	@Test
+	public void testFormatMessage() {
+		CompiledRestError error = new CompiledRestError(500, "SVC9999", "An internal error has occurred: %1");
+		assertTrue(error.hasPlaceholders());
+		assertEquals("An internal error has occurred: down", error.formatMessage("down"));
+		assertEquals("An internal error has occurred: ", error.formatMessage());
+
+		CompiledRestError plain = new CompiledRestError(401, "POL0001", "Unauthorized");
+		assertFalse(plain.hasPlaceholders());
+		assertEquals("Unauthorized", plain.formatMessage("ignored"));
+		assertTrue(plain.isPolicyError());
+	}
+
+	@Test
+	public void testJsonBody() {
+		CompiledRestError error = new CompiledRestError(500, "SVC9999", "Error: %1");
+		String body = new String(error.renderBody(CommonNames.BODY_TYPE_JSON, "say \"hi\""), UTF_8);
+		assertEquals("{\"RequestError\":{\"ServiceException\":{\"MessageId\":\"SVC9999\","
+				+ "\"Text\":\"Error: say \\\"hi\\\"\",\"Variables\":[\"say \\\"hi\\\"\"]}}}", body);
+	}
+
+	@Test
+	public void testXmlBody() {
+		CompiledRestError error = new CompiledRestError(401, "POL0001", "Denied %1 & %2");
+		String body = new String(error.renderBody(CommonNames.BODY_TYPE_XML, "<a>", "b"), UTF_8);
+		assertEquals("<RequestError><PolicyException><MessageId>POL0001</MessageId>"
+				+ "<Text>Denied &lt;a&gt; &amp; b</Text><Variables>&lt;a&gt;</Variables>"
+				+ "<Variables>b</Variables></PolicyException></RequestError>", body);
+	}
+
+	@Test
+	public void testRestErrorIsShared() {
+		CompiledRestError error = new CompiledRestError(503, "SVC3001", "Unavailable");
+		assertSame(error.getRestError(), error.getRestError());
+		assertEquals(503, error.getRestError().status);
+		assertEquals("SVC3001", error.getMessageId());
+	}
+}
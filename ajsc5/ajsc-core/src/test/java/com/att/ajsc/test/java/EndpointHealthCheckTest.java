@@ -0,0 +1,94 @@
+/*******************************************************************************
+ * Copyright (c) 2016 AT&T Intellectual Property. All rights reserved.
+ *******************************************************************************/
+package com.att.ajsc.test.java;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import ajsc.ComputeService;
+import ajsc.servlet.EndpointHealthCheck;
+
+public class EndpointHealthCheckTest {
+
+	private Map<String,String> endpointUriMap;
+
+	@Before
+	public void setUp(){
+		endpointUriMap = ComputeService.endpointUriMap;
+	}
+
+	@After
+	public void tearDown(){
+		ComputeService.endpointUriMap = endpointUriMap;
+		EndpointHealthCheck.refresh();
+	}
+
+	@Test
+	public void shouldAnswerProbeFromSnapshot(){
+		Map<String,String> endpoints = new HashMap<String,String>();
+		endpoints.put("/hello/test", "/hello/service1/test");
+		endpoints.put("restlet:/hello/restlet", "/hello/service1/restlet");
+		ComputeService.endpointUriMap = endpoints;
+		EndpointHealthCheck.refresh();
+		EndpointHealthCheck.resetStatistics();
+
+		assertTrue(EndpointHealthCheck.probe(request("/hello/test"), mock(HttpServletResponse.class), false));
+		assertFalse(EndpointHealthCheck.probe(request("/hello/test"), mock(HttpServletResponse.class), true));
+		HttpServletResponse mockResponse = mock(HttpServletResponse.class);
+		assertTrue(EndpointHealthCheck.probe(request("/hello/restlet"), mockResponse, true));
+		verify(mockResponse).setStatus(200);
+
+		assertEquals(3, EndpointHealthCheck.getProbeCount());
+		assertEquals(1, EndpointHealthCheck.getUnavailableCount());
+		assertEquals(Long.valueOf(2), EndpointHealthCheck.getStatistics().get("endpoints"));
+	}
+
+	@Test
+	public void shouldPublishEndpointsOnRefreshOnly(){
+		ComputeService.endpointUriMap = new HashMap<String,String>();
+		EndpointHealthCheck.refresh();
+		HttpServletResponse mockResponse = mock(HttpServletResponse.class);
+		assertFalse(EndpointHealthCheck.probe(request("/added"), mockResponse, false));
+		verify(mockResponse).setStatus(503);
+
+		ComputeService.endpointUriMap.put("/added", "/added");
+		assertFalse(EndpointHealthCheck.probe(request("/added"), mock(HttpServletResponse.class), false));
+		EndpointHealthCheck.refresh();
+		assertTrue(EndpointHealthCheck.probe(request("/added"), mock(HttpServletResponse.class), false));
+	}
+
+	@Test
+	public void shouldDetectHealthCheckRequests(){
+		HttpServletRequest head = mock(HttpServletRequest.class);
+		when(head.getMethod()).thenReturn("head");
+		HttpServletRequest probe = mock(HttpServletRequest.class);
+		when(probe.getMethod()).thenReturn("GET");
+		when(probe.getHeader(EndpointHealthCheck.HEALTH_CHECK_HEADER)).thenReturn("true");
+		HttpServletRequest get = mock(HttpServletRequest.class);
+		when(get.getMethod()).thenReturn("GET");
+
+		assertTrue(EndpointHealthCheck.isHealthCheck(head));
+		assertTrue(EndpointHealthCheck.isHealthCheck(probe));
+		assertFalse(EndpointHealthCheck.isHealthCheck(get));
+	}
+
+	private HttpServletRequest request(String pathInfo){
+		HttpServletRequest mockRequest = mock(HttpServletRequest.class);
+		when(mockRequest.getMethod()).thenReturn("HEAD");
+		when(mockRequest.getPathInfo()).thenReturn(pathInfo);
+		return mockRequest;
+	}
+}
@@ -5,6 +5,8 @@ package com.att.ajsc.test.java;
 
 import static org.junit.Assert.*;
 
+import java.util.UUID;
+
 import org.junit.Test;
 
 import ajsc.common.CommonNames;
@@ -29,7 +31,25 @@ public class GUIDHelperTest {
 		String converationId = GUIDHelper.createCSIConversationId("partnerName","guid");
 		assertTrue(converationId.contains("partnerName"+"~CNG-CSI~"));
 	}
-	
-	
+
+	@Test
+	public void shouldReturnTimeOrderedGuid() throws Exception{
+		String first = GUIDHelper.createTimeOrderedGUID();
+		Thread.sleep(2);
+		String second = GUIDHelper.createTimeOrderedGUID();
+		UUID uuid = UUID.fromString(first);
+		assertEquals(36, first.length());
+		assertEquals(7, uuid.version());
+		assertEquals(2, uuid.variant());
+		assertTrue(first.compareTo(second) < 0);
+	}
+
+	@Test
+	public void shouldInsertConversationId(){
+		byte[] message = "<req><conversationId>old</conversationId></req>".getBytes();
+		assertEquals("<req><conversationId>new-id</conversationId></req>", GUIDHelper.insertConversationId(message, "new-id"));
+		assertEquals("", GUIDHelper.insertConversationId("<req/>".getBytes(), "new-id"));
+		assertNull(GUIDHelper.replaceConversationId("<conversationId>old".getBytes(), "new-id"));
+	}
 
 }
@@ -0,0 +1,45 @@
+/*******************************************************************************
+ * Copyright (c) 2016 AT&T Intellectual Property. All rights reserved.
+ *******************************************************************************/
+package com.att.ajsc.test.java;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+
+import org.junit.Test;
+
+import ajsc.BaseTestCase;
+import ajsc.DummyInterceptor;
+import ajsc.filters.InterceptorChain;
+
+import com.att.ajsc.filemonitor.AJSCPropertiesMap;
+
+public class InterceptorChainTest extends BaseTestCase{
+
+	@Test
+	public void shouldCompileChainOnRefresh() throws Exception{
+		AJSCPropertiesMap.refresh(new File(TEST_RSC_DIR+"appprops/PreProcessorInterceptors.properties"));
+		AJSCPropertiesMap.refresh(new File(TEST_RSC_DIR+"appprops/PostProcessorInterceptors.properties"));
+		AJSCPropertiesMap.refresh(new File(TEST_RSC_DIR+"appprops/AAFUserRoles.properties"));
+
+		InterceptorChain.Resolved chain = InterceptorChain.getInterceptorChain().resolve("services");
+		assertEquals(1,chain.getPreInterceptors().size());
+		assertEquals("ajsc.DummyInterceptor",chain.getPreInterceptors().get(0).getClassName());
+		assertSame(DummyInterceptor.getInstance(),chain.getPreInterceptors().get(0).getInstance());
+		assertEquals(4,chain.getAafRoles().size());
+		assertTrue(chain.getPostInterceptors().isEmpty());
+	}
+
+	@Test
+	public void shouldCacheResolvedChain() throws Exception{
+		AJSCPropertiesMap.refresh(new File(TEST_RSC_DIR+"appprops/PreProcessorInterceptors.properties"));
+
+		InterceptorChain interceptorChain = InterceptorChain.getInterceptorChain();
+		assertSame(interceptorChain.resolve("services"),interceptorChain.resolve("services"));
+		assertTrue(interceptorChain.resolve("/other").getPreInterceptors().isEmpty());
+
+		AJSCPropertiesMap.refresh(new File(TEST_RSC_DIR+"appprops/PreProcessorInterceptors.properties"));
+		assertNotSame(interceptorChain,InterceptorChain.getInterceptorChain());
+	}
+}
@@ -3,11 +3,18 @@
  *******************************************************************************/
 package com.att.ajsc.test.java;
 
+import static org.junit.Assert.assertEquals;
 import static org.mockito.Mockito.*;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.IOException;
 
+import javax.servlet.AsyncContext;
 import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.ServletRequest;
 import javax.servlet.ServletResponse;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
@@ -16,6 +23,7 @@ import org.junit.Test;
 
 import ajsc.BaseTestCase;
 import ajsc.common.CommonNames;
+import ajsc.filters.InterceptorChain;
 import ajsc.filters.InterceptorFilter;
 
 import com.att.ajsc.csi.restmethodmap.RefresheableSimpleRouteMatcher;
@@ -46,4 +54,83 @@ public class InterceptorFilterTest extends BaseTestCase{
 		filter.doFilter(mockRequest, mockResponse, chain);
 		verify(mockRequest).setAttribute(eq(CommonNames.ATTR_START_TIME), anyString());
 	}
+	
+	@Test
+	public void testStreamingResponse() throws Exception{
+		System.setProperty(InterceptorChain.SYSPROP_RESPONSE_STREAMING, "true");
+		try{
+			InterceptorChain.refresh();
+			ByteArrayOutputStream sent = doFilterWithBody("streamed body");
+			assertEquals("streamed body",sent.toString("UTF-8"));
+		}finally{
+			System.clearProperty(InterceptorChain.SYSPROP_RESPONSE_STREAMING);
+			InterceptorChain.refresh();
+		}
+	}
+	
+	@Test
+	public void testBufferedResponse() throws Exception{
+		InterceptorChain.refresh();
+		ByteArrayOutputStream sent = doFilterWithBody("buffered body");
+		assertEquals("buffered body",sent.toString("UTF-8"));
+	}
+	
+	private ByteArrayOutputStream doFilterWithBody(final String body) throws Exception{
+		InterceptorFilter filter = new InterceptorFilter();
+		HttpServletRequest mockRequest = mock(HttpServletRequest.class);
+		HttpServletResponse mockResponse = mock(HttpServletResponse.class);
+		final ByteArrayOutputStream sent = new ByteArrayOutputStream();
+		when(mockRequest.getPathInfo()).thenReturn("/streaming/test");
+		when(mockResponse.getStatus()).thenReturn(HttpServletResponse.SC_OK);
+		when(mockResponse.getOutputStream()).thenReturn(new ServletOutputStream() {
+			@Override
+			public void write(int b) throws IOException {
+				sent.write(b);
+			}
+		});
+		
+		filter.doFilter(mockRequest, mockResponse, new FilterChain() {
+			@Override
+			public void doFilter(ServletRequest request, ServletResponse response) throws IOException, ServletException {
+				response.getOutputStream().write(body.getBytes("UTF-8"));
+			}
+		});
+		verify(mockRequest).setAttribute("resMsgSize", body.length());
+		return sent;
+	}
+	
+	@Test
+	public void testAsyncResponsePostProcessedOnComplete() throws Exception{
+		InterceptorChain.refresh();
+		InterceptorFilter filter = new InterceptorFilter();
+		HttpServletRequest mockRequest = mock(HttpServletRequest.class);
+		HttpServletResponse mockResponse = mock(HttpServletResponse.class);
+		AsyncContext mockAsyncContext = mock(AsyncContext.class);
+		final ByteArrayOutputStream sent = new ByteArrayOutputStream();
+		final AsyncContext[] started = new AsyncContext[1];
+		when(mockRequest.getPathInfo()).thenReturn("/async/test");
+		when(mockRequest.startAsync(any(ServletRequest.class), any(ServletResponse.class))).thenReturn(mockAsyncContext);
+		when(mockResponse.getStatus()).thenReturn(HttpServletResponse.SC_OK);
+		when(mockResponse.getOutputStream()).thenReturn(new ServletOutputStream() {
+			@Override
+			public void write(int b) throws IOException {
+				sent.write(b);
+			}
+		});
+		
+		filter.doFilter(mockRequest, mockResponse, new FilterChain() {
+			@Override
+			public void doFilter(ServletRequest request, ServletResponse response) throws IOException, ServletException {
+				started[0] = request.startAsync(request, response);
+				response.getOutputStream().write("async body".getBytes("UTF-8"));
+			}
+		});
+		verify(mockRequest, never()).setAttribute(eq("resMsgSize"), any());
+		assertEquals(0,sent.size());
+		
+		started[0].complete();
+		verify(mockRequest).setAttribute("resMsgSize", "async body".length());
+		verify(mockAsyncContext).complete();
+		assertEquals("async body",sent.toString("UTF-8"));
+	}
 }
@@ -0,0 +1,53 @@
+/*******************************************************************************
+ * Copyright (c) 2016 AT&T Intellectual Property. All rights reserved.
+ *******************************************************************************/
+package com.att.ajsc.test.java;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import ajsc.filters.LogLinearHistogram;
+import ajsc.filters.LogicalMethodMetrics;
+
+public class LogicalMethodMetricsTest {
+
+	@Test
+	public void shouldReportPercentilesWithinBucketPrecision(){
+		LogLinearHistogram histogram = new LogLinearHistogram();
+		assertEquals(0, histogram.getValueAtPercentile(99));
+		for (long i = 1; i <= 1000; i++) {
+			histogram.record(i);
+		}
+		assertEquals(1000, histogram.getCount());
+		assertEquals(500, histogram.getMean());
+		assertEquals(1000, histogram.getMax());
+		assertEquals(1000, histogram.getValueAtPercentile(100));
+		long p50 = histogram.getValueAtPercentile(50);
+		long p99 = histogram.getValueAtPercentile(99);
+		assertTrue(p50 >= 500 && p50 <= 500 * 1.125);
+		assertTrue(p99 >= 990 && p99 <= 1000);
+	}
+
+	@Test
+	public void shouldKeyMetricsByLogicalMethodAndStatus(){
+		LogicalMethodMetrics metrics = LogicalMethodMetrics.getInstance();
+		metrics.reset();
+		metrics.record("lookup", 200, 100, 2048);
+		metrics.record("lookup", 200, 300, 1024);
+		metrics.record("lookup", 404, 50, 0);
+		metrics.record(null, 200, 10, 10);
+
+		assertEquals(4, metrics.getRequestCount());
+		assertArrayEquals(new String[] { "UNKNOWN", "lookup" }, metrics.getLogicalMethods());
+		assertEquals(3, metrics.getSummary().length);
+		assertEquals(2, metrics.getEntry("lookup", 200).getLatency().getCount());
+		assertEquals(300, metrics.getLatencyPercentile("lookup", 200, 100));
+		assertEquals(2048, metrics.getSizePercentile("lookup", 200, 100));
+		assertNull(metrics.getEntry("lookup", 500));
+
+		metrics.reset();
+		assertEquals(0, metrics.getRequestCount());
+		assertEquals(0, metrics.getLogicalMethods().length);
+	}
+}
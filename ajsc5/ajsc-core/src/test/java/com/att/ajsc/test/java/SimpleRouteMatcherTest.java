@@ -4,6 +4,7 @@
 package com.att.ajsc.test.java;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 
 import java.util.List;
 
@@ -47,4 +48,81 @@ public class SimpleRouteMatcherTest {
 		List<RouteMatch> routeMatches = matcher.findTargetsForRequestedRoute(HttpMethod.starstar, "/namespace/1.0/helloservice");
 		assertEquals(2,routeMatches.size());
 	}
+	
+	@Test
+	public void testCompiledShouldReturnRoute(){
+		
+		matcher.compile();
+		RouteMatch routeMatch = matcher.findTargetForRequestedRoute(HttpMethod.starstar, "/namespace/1.0/helloservice");
+		assertEquals("helloservice",routeMatch.getService());
+		assertEquals(Integer.MAX_VALUE,routeMatch.getMatchStrength());
+	}
+	
+	@Test
+	public void testCompiledMatchesLinearScan(){
+		
+		SimpleRouteMatcher compiled = new SimpleRouteMatcher();
+		String[][] routes = {{"get","/ns/1.0/items"},{"get","/ns/1.0/items/{id}"},{"get","/ns/1.0/items/*"},
+				{"post","/ns/1.0/items/"},{"get","/ns/*"},{"get","/ns/1.0/{type}/{id}"}};
+		for (String[] route : routes) {
+			matcher.parseValidateAddRoute("svc", route[0], route[1], route[1], null, "rest", "svc", null);
+			compiled.parseValidateAddRoute("svc", route[0], route[1], route[1], null, "rest", "svc", null);
+		}
+		compiled.compile();
+		
+		String[] paths = {"/ns/1.0/items","/ns/1.0/items/","/ns/1.0/items/42","/ns/1.0/items/42/x",
+				"/ns/1.0/orders/42","/ns/2.0","/ns/","/other","/ns/1.0/items/42/"};
+		for (HttpMethod method : new HttpMethod[]{HttpMethod.get, HttpMethod.post}) {
+			for (String path : paths) {
+				RouteMatch expected = matcher.findTargetForRequestedRoute(method, path);
+				RouteMatch actual = compiled.findTargetForRequestedRoute(method, path);
+				if (expected == null) {
+					assertNull(actual);
+				} else {
+					assertEquals(expected.getMatchUri(), actual.getMatchUri());
+					assertEquals(expected.getMatchStrength(), actual.getMatchStrength());
+				}
+			}
+		}
+	}
+	
+	@Test
+	public void testAddRouteDropsCompiledIndex(){
+		
+		matcher.compile();
+		matcher.parseValidateAddRoute("helloservice", "get", "/namespace/1.0/other", "other", null,"rest","worldservice",null);
+		RouteMatch routeMatch = matcher.findTargetForRequestedRoute(HttpMethod.get, "/namespace/1.0/other");
+		assertEquals("other",routeMatch.getLogicalMethod());
+	}
+	
+	@Test
+	public void testCachedLookupMatchesUncached(){
+		
+		matcher.parseValidateAddRoute("helloservice", "get", "/namespace/1.0/items/{id}", "item", null,"rest","worldservice",null);
+		matcher.compile();
+		for (int i = 0; i < 2; i++) {
+			RouteMatch routeMatch = matcher.findTargetForRequestedRoute(HttpMethod.get, "/namespace/1.0/items/42");
+			assertEquals("item",routeMatch.getLogicalMethod());
+			assertEquals("/namespace/1.0/items/42",routeMatch.getRequestURI());
+			assertNull(matcher.findTargetForRequestedRoute(HttpMethod.get, "/namespace/1.0/other"));
+		}
+		
+		matcher.parseValidateAddRoute("helloservice", "get", "/namespace/1.0/other", "other", null,"rest","worldservice",null);
+		matcher.compile();
+		assertEquals("other",matcher.findTargetForRequestedRoute(HttpMethod.get, "/namespace/1.0/other").getLogicalMethod());
+	}
+	
+	@Test
+	public void testHttpMethodFromRequestMethod(){
+		
+		assertEquals(HttpMethod.get,HttpMethod.fromRequestMethod("GET"));
+		assertEquals(HttpMethod.options,HttpMethod.fromRequestMethod("options"));
+		assertEquals(HttpMethod.patch,HttpMethod.fromRequestMethod("Patch"));
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void testHttpMethodFromUnknownRequestMethod(){
+		
+		HttpMethod.fromRequestMethod("FOO");
+	}
 }
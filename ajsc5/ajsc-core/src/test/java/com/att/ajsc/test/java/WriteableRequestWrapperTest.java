@@ -3,10 +3,13 @@
  *******************************************************************************/
 package com.att.ajsc.test.java;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Enumeration;
 
@@ -50,4 +53,47 @@ public class WriteableRequestWrapperTest {
 
 	}
 
+	@Test
+	public void shouldPassThroughWithoutOverlay() {
+
+		HttpServletRequest mockRequest = mock(HttpServletRequest.class);
+		WriteableRequestWrapper wrapper = new WriteableRequestWrapper(mockRequest);
+		Enumeration<String> enumStrings = Collections.enumeration(Arrays.asList("Accept"));
+		when(mockRequest.getHeaderNames()).thenReturn(enumStrings);
+		when(mockRequest.getHeader("Accept")).thenReturn("application/json");
+
+		assertSame(enumStrings, wrapper.getHeaderNames());
+		assertEquals("application/json", wrapper.getHeader("Accept"));
+	}
+
+	@Test
+	public void shouldMergeAddedHeaderWithExisting() {
+
+		HttpServletRequest mockRequest = mock(HttpServletRequest.class);
+		WriteableRequestWrapper wrapper = new WriteableRequestWrapper(mockRequest);
+		when(mockRequest.getHeaderNames()).thenReturn(Collections.enumeration(Arrays.asList("Accept")));
+		when(mockRequest.getHeaders("Accept")).thenReturn(Collections.enumeration(Arrays.asList("application/json")));
+		wrapper.addHeader("Accept", "application/xml");
+		wrapper.addHeader("Accept", "application/json");
+
+		assertEquals("application/json", wrapper.getHeader("ACCEPT"));
+		assertEquals(Arrays.asList("application/json", "application/xml"), Collections.list(wrapper.getHeaders("Accept")));
+		assertEquals(Arrays.asList("Accept", "Accept"), Collections.list(wrapper.getHeaderNames()));
+	}
+
+	@Test
+	public void shouldCopyParameterValues() {
+
+		HttpServletRequest mockRequest = mock(HttpServletRequest.class);
+		WriteableRequestWrapper wrapper = new WriteableRequestWrapper(mockRequest);
+		when(mockRequest.getParameterValues("param1")).thenReturn(new String[] { "value0" });
+		wrapper.addQueryParam("param1", "value1");
+
+		String[] values = wrapper.getParameterValues("param1");
+		assertArrayEquals(new String[] { "value0", "value1" }, values);
+		values[0] = "changed";
+		assertEquals("value0", wrapper.getParameterValues("param1")[0]);
+		wrapper.addQueryParam("param1", "value2");
+		assertEquals(3, wrapper.getParameterValues("param1").length);
+	}
 }